@@ -1,11 +1,20 @@
 package aima.core.agent.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import aima.core.agent.Action;
 import aima.core.agent.Agent;
@@ -17,6 +26,18 @@ import aima.core.agent.Percept;
 import aima.core.util.Tasks;
 
 /**
+ * Base class for environments. Agents are stepped one after another by
+ * default. If a {@link ForkJoinPool} is set, {@link #step()} switches to a
+ * parallel mode: first, all living agents perceive the same state and run
+ * their programs concurrently; then the chosen actions are applied in agent
+ * order (see {@link #executeActions(List, List)}), and finally the views are
+ * notified in the background while the next step computes its percepts. In
+ * parallel mode, all view callbacks are made on one view thread in the order
+ * in which they are issued, and the state is not changed while the view
+ * thread is busy: actions, exogenous changes and added or removed objects
+ * wait for the pending notifications. {@link #getPerceptSeenBy(Agent)} must
+ * not modify the environment.
+ * 
  * @author Ravi Mohan
  * @author Ciaran O'Reilly
  */
@@ -34,6 +55,15 @@ public abstract class AbstractEnvironment implements Environment,
 
 	protected Map<Agent, Double> performanceMeasures = new LinkedHashMap<>();
 
+	private ForkJoinPool pool = null;
+
+	/** Runs the view callbacks in parallel mode, one after another. */
+	private ThreadPoolExecutor viewExecutor = null;
+	/** The last view callback submitted in parallel mode, possibly running. */
+	private Future<?> pendingNotifications = null;
+	/** Whether a subclass overrides {@link #createExogenousChange()}. */
+	private boolean hasExogenousChanges = true;
+
 	//
 	// PUBLIC METHODS
 	//
@@ -74,6 +104,7 @@ public abstract class AbstractEnvironment implements Environment,
 	}
 
 	public void addEnvironmentObject(EnvironmentObject eo) {
+		waitForViewNotifications();
 		envObjects.add(eo);
 		if (eo instanceof Agent) {
 			Agent a = (Agent) eo;
@@ -85,10 +116,40 @@ public abstract class AbstractEnvironment implements Environment,
 	}
 
 	public void removeEnvironmentObject(EnvironmentObject eo) {
+		waitForViewNotifications();
 		envObjects.remove(eo);
 		agents.remove(eo);
 	}
 
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool
+	 *            the pool on which agents perceive and act in parallel or null
+	 *            for sequential stepping.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		waitForViewNotifications();
+		this.pool = pool;
+		if (pool != null && viewExecutor == null) {
+			// the thread terminates when idle, so the environment needs no
+			// explicit shutdown
+			viewExecutor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), r -> {
+						Thread thread = new Thread(r, "environment-views");
+						thread.setDaemon(true);
+						return thread;
+					});
+			viewExecutor.allowCoreThreadTimeOut(true);
+			hasExogenousChanges = overridesExogenousChange();
+		} else if (pool == null && viewExecutor != null) {
+			viewExecutor.shutdown();
+			viewExecutor = null;
+		}
+	}
+
 	/**
 	 * Central template method for controlling agent simulation. The concrete
 	 * behavior is determined by the primitive operations
@@ -96,6 +157,10 @@ public abstract class AbstractEnvironment implements Environment,
 	 * and {@link #createExogenousChange()}.
 	 */
 	public void step() {
+		if (pool != null) {
+			stepInParallel();
+			return;
+		}
 		for (Agent agent : agents) {
 			if (agent.isAlive()) {
 				Percept percept = getPerceptSeenBy(agent);
@@ -111,11 +176,31 @@ public abstract class AbstractEnvironment implements Environment,
 		for (int i = 0; i < n; i++) {
 			step();
 		}
+		waitForViewNotifications();
 	}
 
 	public void stepUntilDone() {
 		while (!isDone())
 			step();
+		waitForViewNotifications();
+	}
+
+	/**
+	 * Blocks until the views have been notified about all agent actions of
+	 * the last parallel step. Returns immediately in sequential mode.
+	 */
+	public void waitForViewNotifications() {
+		if (pendingNotifications != null) {
+			try {
+				pendingNotifications.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} finally {
+				pendingNotifications = null;
+			}
+		}
 	}
 
 	public boolean isDone() {
@@ -148,9 +233,7 @@ public abstract class AbstractEnvironment implements Environment,
 	}
 
 	public void notifyViews(String msg) {
-		for (EnvironmentView ev : views) {
-			ev.notify(msg);
-		}
+		dispatchToViews(ev -> ev.notify(msg));
 	}
 
 	// END-Environment
@@ -160,20 +243,133 @@ public abstract class AbstractEnvironment implements Environment,
 	// PROTECTED METHODS
 	//
 
+	/**
+	 * Parallel version of {@link #step()}. Percepts are computed and agent
+	 * programs executed on the pool, all against the state at the beginning
+	 * of the step. Actions are applied afterwards in the calling thread.
+	 */
+	protected void stepInParallel() {
+		List<Agent> actingAgents = new ArrayList<>();
+		for (Agent agent : agents)
+			if (agent.isAlive())
+				actingAgents.add(agent);
+		Percept[] percepts = new Percept[actingAgents.size()];
+		Action[] actions = new Action[actingAgents.size()];
+		pool.invoke(new AgentStepTask(actingAgents, percepts, actions, 0,
+				actingAgents.size()));
+		// views may still read the state of the previous step
+		waitForViewNotifications();
+		executeActions(actingAgents, Arrays.asList(actions));
+		if (!views.isEmpty()) {
+			List<EnvironmentView> viewList = new ArrayList<>(views);
+			submitToViews(() -> {
+				for (int i = 0; i < percepts.length; i++)
+					for (EnvironmentView view : viewList)
+						view.agentActed(actingAgents.get(i), percepts[i],
+								actions[i], this);
+			});
+		}
+		// as in sequential mode, views see the state before the exogenous
+		// change
+		if (hasExogenousChanges) {
+			waitForViewNotifications();
+			createExogenousChange();
+		}
+	}
+
+	/**
+	 * Applies the actions chosen by the agents in a parallel step. This
+	 * implementation executes them one after another in agent order.
+	 * Environments in which actions can conflict (e.g. two agents moving to
+	 * the same location) can override this method to resolve the conflicts.
+	 */
+	protected void executeActions(List<Agent> actingAgents, List<Action> actions) {
+		for (int i = 0; i < actingAgents.size(); i++)
+			executeAction(actingAgents.get(i), actions.get(i));
+	}
+
 	protected void updatePerformanceMeasure(Agent forAgent, double addTo) {
 		performanceMeasures.put(forAgent, getPerformanceMeasure(forAgent)
 				+ addTo);
 	}
 
 	protected void notifyEnvironmentViews(Agent agent) {
-		for (EnvironmentView view : views) {
-			view.agentAdded(agent, this);
-		}
+		dispatchToViews(view -> view.agentAdded(agent, this));
 	}
 
 	protected void notifyEnvironmentViews(Agent agent, Percept percept, Action action) {
-		for (EnvironmentView view : views) {
-			view.agentActed(agent, percept, action, this);
+		dispatchToViews(view -> view.agentActed(agent, percept, action, this));
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Calls the views directly in sequential mode and on the view thread in
+	 * parallel mode.
+	 */
+	private void dispatchToViews(Consumer<EnvironmentView> callback) {
+		if (viewExecutor == null) {
+			for (EnvironmentView view : views)
+				callback.accept(view);
+		} else if (!views.isEmpty()) {
+			List<EnvironmentView> viewList = new ArrayList<>(views);
+			submitToViews(() -> viewList.forEach(callback));
+		}
+	}
+
+	/** Queues a task behind all pending view callbacks. */
+	private void submitToViews(Runnable task) {
+		pendingNotifications = viewExecutor.submit(task);
+	}
+
+	private boolean overridesExogenousChange() {
+		try {
+			return getClass().getMethod("createExogenousChange")
+					.getDeclaringClass() != AbstractEnvironment.class;
+		} catch (NoSuchMethodException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Computes percepts and actions for a range of agents, splitting large
+	 * ranges into subtasks.
+	 */
+	private class AgentStepTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 16;
+
+		private final List<Agent> actingAgents;
+		private final Percept[] percepts;
+		private final Action[] actions;
+		private final int from;
+		private final int to;
+
+		AgentStepTask(List<Agent> actingAgents, Percept[] percepts, Action[] actions,
+				int from, int to) {
+			this.actingAgents = actingAgents;
+			this.percepts = percepts;
+			this.actions = actions;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					Agent agent = actingAgents.get(i);
+					percepts[i] = getPerceptSeenBy(agent);
+					actions[i] = agent.execute(percepts[i]);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new AgentStepTask(actingAgents, percepts, actions, from,
+						middle), new AgentStepTask(actingAgents, percepts, actions,
+						middle, to));
+			}
 		}
 	}
 }
\ No newline at end of file
@@ -48,6 +48,25 @@ public class EightPuzzleFunctions {
 		return new ManhattanHeuristicFunction();
 	}
 
+	/**
+	 * Returns a heuristic function which sums up the Manhattan distances of the
+	 * tiles to their locations on the given board. This is useful for reverse
+	 * problems, whose goal is the initial state of the original problem.
+	 */
+	public static ToDoubleFunction<Node<EightPuzzleBoard, Action>> createManhattanHeuristicFunction(
+			EightPuzzleBoard target) {
+		return node -> {
+			int result = 0;
+			for (int i = 1; i < 9; i++) {
+				XYLocation loc = node.getState().getLocationOf(i);
+				XYLocation targetLoc = target.getLocationOf(i);
+				result += Math.abs(loc.getXCoOrdinate() - targetLoc.getXCoOrdinate())
+						+ Math.abs(loc.getYCoOrdinate() - targetLoc.getYCoOrdinate());
+			}
+			return result;
+		};
+	}
+
 	public static ToDoubleFunction<Node<EightPuzzleBoard, Action>> createMisplacedTileHeuristicFunction() {
 		return new MisplacedTileHeuristicFunction();
 	}
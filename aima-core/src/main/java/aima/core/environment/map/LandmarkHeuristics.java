@@ -0,0 +1,368 @@
+package aima.core.environment.map;
+
+import aima.core.search.framework.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Landmark based lower bounds for route finding on maps, known as ALT (A*,
+ * landmarks, triangle inequality). For a few landmark locations L, the
+ * distances from L to all locations and from all locations to L are
+ * precomputed. By the triangle inequality, the distance from v to t is at
+ * least d(L, t) - d(L, v) and d(v, L) - d(t, L). The maximum of these bounds
+ * over all landmarks is an admissible and consistent heuristic, which takes
+ * detours and one-way roads into account, other than the straight-line
+ * distance.<br>
+ * <br>
+ * Costs are computed as by {@link MapFunctions#createDistanceStepCostFunction(Map)}.
+ * The distance tables are stored as primitive arrays, location-major, so that
+ * each estimate reads two contiguous rows. As only the {@link Map} interface is
+ * used, the heuristics work for any map implementation, e.g. for
+ * {@link ExtendableMap} as well as for adapters of OSM data. Distances are
+ * stored as doubles, and the estimates are reduced by a small relative margin
+ * which exceeds the rounding errors of the summed path costs, so that they
+ * never exceed the costs of a path.
+ *
+ */
+public class LandmarkHeuristics {
+
+	/** Strategies for the selection of landmarks. */
+	public enum Selection {
+		/**
+		 * Chooses each landmark as the location farthest away from the
+		 * landmarks selected so far.
+		 */
+		FARTHEST,
+		/**
+		 * Chooses landmarks in regions of the shortest path tree of a random
+		 * root in which the current landmarks give bad lower bounds (Goldberg
+		 * and Harrelson).
+		 */
+		AVOID
+	}
+
+	/** Relative margin for the rounding errors of the distance sums. */
+	private static final double ROUNDING_MARGIN = 1e-9;
+
+	private List<String> locations;
+	private HashMap<String, Integer> indices = new HashMap<>();
+	// compiled graph, compressed sparse rows
+	private int[] firstOut;
+	private int[] outTargets;
+	private double[] outCosts;
+	private int[] firstIn;
+	private int[] inSources;
+	private double[] inCosts;
+
+	private int[] landmarks;
+	// distances d(L, v) and d(v, L), indexed by v * landmarks.length + L
+	private double[] distFromLandmark;
+	private double[] distToLandmark;
+
+	/**
+	 * Selects landmarks and precomputes their distance tables.
+	 *
+	 * @param map
+	 *            the map.
+	 * @param numLandmarks
+	 *            the number of landmarks (typically 4 - 16).
+	 * @param selection
+	 *            the landmark selection strategy.
+	 */
+	public LandmarkHeuristics(Map map, int numLandmarks, Selection selection) {
+		this(map, numLandmarks, selection, new Random());
+	}
+
+	public LandmarkHeuristics(Map map, int numLandmarks, Selection selection, Random random) {
+		compile(map);
+		int n = locations.size();
+		numLandmarks = Math.min(numLandmarks, n);
+		landmarks = new int[numLandmarks];
+		distFromLandmark = new double[n * numLandmarks];
+		distToLandmark = new double[n * numLandmarks];
+		double[] dist = new double[n];
+		int[] parent = new int[n];
+		for (int l = 0; l < numLandmarks; l++) {
+			landmarks[l] = (selection == Selection.AVOID) ? selectAvoid(l, random)
+					: selectFarthest(l, random);
+			dijkstra(landmarks[l], true, dist, parent);
+			for (int v = 0; v < n; v++)
+				distFromLandmark[v * numLandmarks + l] = dist[v];
+			dijkstra(landmarks[l], false, dist, parent);
+			for (int v = 0; v < n; v++)
+				distToLandmark[v * numLandmarks + l] = dist[v];
+		}
+	}
+
+	public List<String> getLandmarks() {
+		List<String> result = new ArrayList<>(landmarks.length);
+		for (int l : landmarks)
+			result.add(locations.get(l));
+		return result;
+	}
+
+	/**
+	 * Returns a lower bound of the costs of a path from one location to
+	 * another. The estimate is infinite if a landmark proves that there is no
+	 * such path.
+	 */
+	public double estimate(String from, String to) {
+		Integer v = indices.get(from);
+		Integer t = indices.get(to);
+		if (v == null || t == null)
+			return 0.0;
+		return estimate(v, t);
+	}
+
+	/** Returns a heuristic function which estimates the costs to the goal. */
+	public ToDoubleFunction<Node<String, MoveToAction>> createHeuristicFunction(String goal) {
+		Integer t = indices.get(goal);
+		return node -> {
+			Integer v = indices.get(node.getState());
+			return (v != null && t != null) ? estimate(v, t) : 0.0;
+		};
+	}
+
+	/**
+	 * Returns a heuristic function for {@link aima.core.search.framework.qsearch.BidirectionalSearch},
+	 * whose frontier contains nodes of the original as well as of the reverse
+	 * problem. As the direction of a node is not known, the estimate is the
+	 * minimum of the costs to the goal and the costs from the start, which
+	 * is admissible in both directions.
+	 */
+	public ToDoubleFunction<Node<String, MoveToAction>> createBidirectionalHeuristicFunction
+	(String start, String goal) {
+		Integer s = indices.get(start);
+		Integer t = indices.get(goal);
+		return node -> {
+			Integer v = indices.get(node.getState());
+			return (v != null && s != null && t != null) ? Math.min(estimate(v, t), estimate(s, v)) : 0.0;
+		};
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private double estimate(int v, int t) {
+		int k = landmarks.length;
+		int vRow = v * k;
+		int tRow = t * k;
+		double result = 0.0;
+		for (int l = 0; l < k; l++) {
+			// a shortest path from L to v cannot be longer than one via t...
+			double fromL = distFromLandmark[tRow + l] - distFromLandmark[vRow + l];
+			// ... and one from v to L not longer than one via t
+			double toL = distToLandmark[vRow + l] - distToLandmark[tRow + l];
+			if (fromL > result)
+				result = fromL;
+			if (toL > result)
+				result = toL;
+		}
+		// NaN (infinity minus infinity) is ignored by the comparisons
+		return result * (1.0 - ROUNDING_MARGIN);
+	}
+
+	private void compile(Map map) {
+		locations = new ArrayList<>(map.getLocations());
+		int n = locations.size();
+		for (int i = 0; i < n; i++)
+			indices.put(locations.get(i), i);
+		List<int[]> arcs = new ArrayList<>();
+		List<Double> costs = new ArrayList<>();
+		firstOut = new int[n + 1];
+		firstIn = new int[n + 1];
+		for (int u = 0; u < n; u++) {
+			String from = locations.get(u);
+			for (String to : map.getPossibleNextLocations(from)) {
+				Integer v = indices.get(to);
+				if (v != null) {
+					arcs.add(new int[] { u, v });
+					Double distance = map.getDistance(from, to);
+					// as MapFunctions.DistanceStepCostFunction
+					costs.add(distance == null || distance <= 0 ? 1.0 : distance);
+					firstOut[u + 1]++;
+					firstIn[v + 1]++;
+				}
+			}
+		}
+		for (int u = 0; u < n; u++) {
+			firstOut[u + 1] += firstOut[u];
+			firstIn[u + 1] += firstIn[u];
+		}
+		outTargets = new int[arcs.size()];
+		outCosts = new double[arcs.size()];
+		inSources = new int[arcs.size()];
+		inCosts = new double[arcs.size()];
+		int[] nextOut = Arrays.copyOf(firstOut, n);
+		int[] nextIn = Arrays.copyOf(firstIn, n);
+		for (int i = 0; i < arcs.size(); i++) {
+			int u = arcs.get(i)[0];
+			int v = arcs.get(i)[1];
+			outTargets[nextOut[u]] = v;
+			outCosts[nextOut[u]++] = costs.get(i);
+			inSources[nextIn[v]] = u;
+			inCosts[nextIn[v]++] = costs.get(i);
+		}
+	}
+
+	/**
+	 * Selects the location which maximizes the minimal distance from the
+	 * landmarks selected so far (the first one is farthest from a random
+	 * location). Unreachable locations are preferred, to cover all
+	 * components of the map.
+	 */
+	private int selectFarthest(int numSelected, Random random) {
+		int n = locations.size();
+		if (numSelected == 0) {
+			double[] dist = new double[n];
+			dijkstra(random.nextInt(n), true, dist, new int[n]);
+			return argMax(dist);
+		}
+		double[] minDist = new double[n];
+		Arrays.fill(minDist, Double.POSITIVE_INFINITY);
+		int k = landmarks.length;
+		for (int v = 0; v < n; v++) {
+			for (int l = 0; l < numSelected; l++)
+				minDist[v] = Math.min(minDist[v], distFromLandmark[v * k + l]);
+			for (int l = 0; l < numSelected; l++)
+				if (v == landmarks[l])
+					minDist[v] = -1;
+		}
+		return argMax(minDist);
+	}
+
+	/**
+	 * Grows a shortest path tree from a random root and weights each location
+	 * by the difference between its distance and the current lower bound.
+	 * Starting at the location with the heaviest subtree which contains no
+	 * landmark, the heaviest child is followed down to a leaf, which becomes
+	 * the next landmark.
+	 */
+	private int selectAvoid(int numSelected, Random random) {
+		int n = locations.size();
+		int root = random.nextInt(n);
+		double[] dist = new double[n];
+		int[] parent = new int[n];
+		int[] order = dijkstra(root, true, dist, parent);
+		double[] size = new double[n];
+		boolean[] hasLandmark = new boolean[n];
+		for (int l = 0; l < numSelected; l++)
+			hasLandmark[landmarks[l]] = true;
+		// accumulate the subtree weights bottom-up
+		for (int i = order.length - 1; i >= 0; i--) {
+			int v = order[i];
+			if (!hasLandmark[v])
+				size[v] += dist[v] - (numSelected > 0 ? estimate(root, v) : 0.0);
+			else
+				size[v] = 0;
+			int p = parent[v];
+			if (p != -1) {
+				if (hasLandmark[v])
+					hasLandmark[p] = true;
+				size[p] += size[v];
+			}
+		}
+		for (int v = 0; v < n; v++)
+			if (hasLandmark[v])
+				size[v] = 0;
+		int v = argMax(size);
+		if (size[v] <= 0)
+			return selectFarthest(numSelected, random);
+		// descend to a leaf
+		while (true) {
+			int best = -1;
+			for (int a = firstOut[v]; a < firstOut[v + 1]; a++) {
+				int c = outTargets[a];
+				if (parent[c] == v && size[c] > 0 && (best == -1 || size[c] > size[best]))
+					best = c;
+			}
+			if (best == -1)
+				return v;
+			v = best;
+		}
+	}
+
+	private static int argMax(double[] values) {
+		int result = 0;
+		for (int i = 1; i < values.length; i++)
+			if (values[i] > values[result])
+				result = i;
+		return result;
+	}
+
+	/**
+	 * Computes the distances from (forward) or to (backward) the source.
+	 * Unreachable locations get infinite distance and parent -1.
+	 *
+	 * @return the reached locations in the order of settlement.
+	 */
+	private int[] dijkstra(int source, boolean forward, double[] dist, int[] parent) {
+		int n = locations.size();
+		int[] first = forward ? firstOut : firstIn;
+		int[] heads = forward ? outTargets : inSources;
+		double[] costs = forward ? outCosts : inCosts;
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		Arrays.fill(parent, -1);
+		boolean[] settled = new boolean[n];
+		int[] order = new int[n];
+		int settledCount = 0;
+		// binary heap of (distance, location) entries with lazy deletion
+		double[] keys = new double[16];
+		int[] items = new int[16];
+		int heapSize = 0;
+		dist[source] = 0;
+		keys[0] = 0;
+		items[0] = source;
+		heapSize = 1;
+		while (heapSize > 0) {
+			int u = items[0];
+			heapSize--;
+			double lastKey = keys[heapSize];
+			int lastItem = items[heapSize];
+			int i = 0;
+			while (2 * i + 1 < heapSize) {
+				int c = 2 * i + 1;
+				if (c + 1 < heapSize && keys[c + 1] < keys[c])
+					c++;
+				if (lastKey <= keys[c])
+					break;
+				keys[i] = keys[c];
+				items[i] = items[c];
+				i = c;
+			}
+			keys[i] = lastKey;
+			items[i] = lastItem;
+			if (settled[u])
+				continue;
+			settled[u] = true;
+			order[settledCount++] = u;
+			for (int a = first[u]; a < first[u + 1]; a++) {
+				int v = heads[a];
+				double d = dist[u] + costs[a];
+				if (d < dist[v]) {
+					dist[v] = d;
+					parent[v] = u;
+					if (heapSize == keys.length) {
+						keys = Arrays.copyOf(keys, 2 * heapSize);
+						items = Arrays.copyOf(items, 2 * heapSize);
+					}
+					int j = heapSize++;
+					while (j > 0 && keys[(j - 1) / 2] > d) {
+						keys[j] = keys[(j - 1) / 2];
+						items[j] = items[(j - 1) / 2];
+						j = (j - 1) / 2;
+					}
+					keys[j] = d;
+					items[j] = v;
+				}
+			}
+		}
+		return Arrays.copyOf(order, settledCount);
+	}
+}
@@ -1,5 +1,7 @@
 package aima.core.environment.xyenv;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -102,60 +104,92 @@ public class XYEnvironment extends AbstractEnvironment {
 	}
 }
 
+/**
+ * Keeps the objects of an XY environment. Besides the objects at each
+ * location, the state maintains a reverse map from objects to their locations
+ * and a spatial index which groups the occupied locations by square grid
+ * cells. Objects must be placed by
+ * {@link #moveObjectToAbsoluteLocation(EnvironmentObject, XYLocation)} to be
+ * found by location and radius queries.
+ */
 class XYEnvironmentState implements EnvironmentState {
+	/** Edge length of the grid cells of the spatial index. */
+	private static final int CELL_SIZE = 8;
+
 	int width;
 	int height;
 
 	private Map<XYLocation, Set<EnvironmentObject>> objsAtLocation = new LinkedHashMap<XYLocation, Set<EnvironmentObject>>();
+	/** Current location of each object. */
+	private Map<EnvironmentObject, XYLocation> locationOfObj = new HashMap<EnvironmentObject, XYLocation>();
+	/** Locations with at least one object, grouped by grid cell. */
+	private Map<Long, Set<XYLocation>> occupiedLocsInCell = new HashMap<Long, Set<XYLocation>>();
 
 	public XYEnvironmentState(int width, int height) {
 		this.width = width;
 		this.height = height;
-		for (int h = 1; h <= height; h++) {
-			for (int w = 1; w <= width; w++) {
-				objsAtLocation.put(new XYLocation(h, w), new LinkedHashSet<EnvironmentObject>());
-			}
-		}
 	}
 
 	public void moveObjectToAbsoluteLocation(EnvironmentObject eo, XYLocation loc) {
 		// Ensure is not already at another location
-		for (Set<EnvironmentObject> eos : objsAtLocation.values()) {
-			if (eos.remove(eo)) {
-				break; // Should only every be at 1 location
-			}
+		XYLocation oldLoc = locationOfObj.put(eo, loc);
+		if (null != oldLoc) {
+			Set<EnvironmentObject> eos = objsAtLocation.get(oldLoc);
+			if (eos.remove(eo) && eos.isEmpty())
+				removeOccupiedLoc(oldLoc);
 		}
 		// Add it to the location specified
-		getObjectsAt(loc).add(eo);
+		Set<EnvironmentObject> eos = objsAtLocation.get(loc);
+		if (null == eos) {
+			eos = new LinkedHashSet<EnvironmentObject>();
+			objsAtLocation.put(loc, eos);
+		}
+		if (eos.isEmpty())
+			addOccupiedLoc(loc);
+		eos.add(eo);
 	}
 
 	public Set<EnvironmentObject> getObjectsAt(XYLocation loc) {
 		Set<EnvironmentObject> objectsAt = objsAtLocation.get(loc);
-		if (null == objectsAt) {
-			// Always ensure an empty Set is returned
-			objectsAt = new LinkedHashSet<EnvironmentObject>();
-			objsAtLocation.put(loc, objectsAt);
-		}
-		return objectsAt;
+		// Always ensure a Set is returned, without storing it for locations
+		// which were never occupied. The view is read-only, as the indices
+		// must only be changed by moveObjectToAbsoluteLocation.
+		return null != objectsAt ? Collections.unmodifiableSet(objectsAt)
+				: Collections.<EnvironmentObject>emptySet();
 	}
 
 	public XYLocation getCurrentLocationFor(EnvironmentObject eo) {
-		for (XYLocation loc : objsAtLocation.keySet()) {
-			if (objsAtLocation.get(loc).contains(eo)) {
-				return loc;
-			}
-		}
-		return null;
+		return locationOfObj.get(eo);
 	}
 
+	/**
+	 * Returns the objects within the radius around the agent. Only grid cells
+	 * which overlap with the square around the circle are inspected, or all
+	 * occupied cells if these are fewer.
+	 */
 	public Set<EnvironmentObject> getObjectsNear(Agent agent, int radius) {
 		Set<EnvironmentObject> objsNear = new LinkedHashSet<>();
 
 		XYLocation agentLocation = getCurrentLocationFor(agent);
-		for (XYLocation loc : objsAtLocation.keySet()) {
-			if (withinRadius(radius, agentLocation, loc)) {
-				objsNear.addAll(objsAtLocation.get(loc));
+		if (null == agentLocation)
+			return objsNear;
+		int x = agentLocation.getXCoOrdinate();
+		int y = agentLocation.getYCoOrdinate();
+		int cxMin = cellOf(clamp((long) x - radius));
+		int cxMax = cellOf(clamp((long) x + radius));
+		int cyMin = cellOf(clamp((long) y - radius));
+		int cyMax = cellOf(clamp((long) y + radius));
+		if ((long) (cxMax - cxMin + 1) * (cyMax - cyMin + 1) <= occupiedLocsInCell.size()) {
+			for (int cx = cxMin; cx <= cxMax; cx++) {
+				for (int cy = cyMin; cy <= cyMax; cy++) {
+					Set<XYLocation> locs = occupiedLocsInCell.get(cellKey(cx, cy));
+					if (null != locs)
+						addObjectsWithinRadius(radius, agentLocation, locs, objsNear);
+				}
 			}
+		} else {
+			for (Set<XYLocation> locs : occupiedLocsInCell.values())
+				addObjectsWithinRadius(radius, agentLocation, locs, objsNear);
 		}
 		// Ensure the 'agent' is not included in the Set of
 		// objects near
@@ -172,9 +206,48 @@ class XYEnvironmentState implements EnvironmentState {
 	//
 	// PRIVATE METHODS
 	//
+	private void addObjectsWithinRadius(int radius, XYLocation agentLocation, Set<XYLocation> locs,
+			Set<EnvironmentObject> objsNear) {
+		for (XYLocation loc : locs) {
+			if (withinRadius(radius, agentLocation, loc)) {
+				objsNear.addAll(objsAtLocation.get(loc));
+			}
+		}
+	}
+
 	private boolean withinRadius(int radius, XYLocation agentLocation, XYLocation objectLocation) {
 		int xdifference = agentLocation.getXCoOrdinate() - objectLocation.getXCoOrdinate();
 		int ydifference = agentLocation.getYCoOrdinate() - objectLocation.getYCoOrdinate();
 		return Math.sqrt((xdifference * xdifference) + (ydifference * ydifference)) <= radius;
 	}
+
+	private void addOccupiedLoc(XYLocation loc) {
+		long key = cellKey(cellOf(loc.getXCoOrdinate()), cellOf(loc.getYCoOrdinate()));
+		Set<XYLocation> locs = occupiedLocsInCell.get(key);
+		if (null == locs) {
+			locs = new LinkedHashSet<XYLocation>();
+			occupiedLocsInCell.put(key, locs);
+		}
+		locs.add(loc);
+	}
+
+	private void removeOccupiedLoc(XYLocation loc) {
+		long key = cellKey(cellOf(loc.getXCoOrdinate()), cellOf(loc.getYCoOrdinate()));
+		Set<XYLocation> locs = occupiedLocsInCell.get(key);
+		if (null != locs && locs.remove(loc) && locs.isEmpty())
+			occupiedLocsInCell.remove(key);
+	}
+
+	/** Limits a coordinate to the range of int. */
+	private static int clamp(long coordinate) {
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, coordinate));
+	}
+
+	private static int cellOf(int coordinate) {
+		return Math.floorDiv(coordinate, CELL_SIZE);
+	}
+
+	private static long cellKey(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xffffffffL);
+	}
 }
\ No newline at end of file
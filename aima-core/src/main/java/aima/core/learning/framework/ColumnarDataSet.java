@@ -0,0 +1,315 @@
+package aima.core.learning.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column oriented, primitive encoded representation of a data set. Each
+ * attribute is stored in its own column, dictionary encoded into an int[]
+ * (the codes of string values follow the order of the possible values of the
+ * attribute's specification). Numeric attributes are additionally stored as
+ * a double[]; their codes encode the string representation of the values,
+ * so that they can be tested and split categorically, as the row oriented
+ * examples do. Subsets of the examples are represented by
+ * {@link DataSetView}s, i.e. by arrays of row indices, instead of copies of
+ * the examples.<br>
+ * <br>
+ * {@link Example}s are only created on demand, e.g. to pass them to
+ * {@link Learner#predict(Example)}.
+ *
+ */
+public class ColumnarDataSet {
+	private static final int INITIAL_CAPACITY = 16;
+	//
+	private DataSetSpecification specification;
+	private List<String> columnNames = new ArrayList<String>();
+	private Map<String, Integer> columnIndices = new HashMap<String, Integer>();
+	private boolean[] numeric;
+	// per column
+	private int[][] codes;
+	private List<List<String>> dictionaries = new ArrayList<List<String>>();
+	private List<Map<String, Integer>> dictionaryIndices = new ArrayList<Map<String, Integer>>();
+	// per column, null for string columns
+	private double[][] values;
+	private Example[] examples;
+	private int targetColumn;
+	private int size = 0;
+
+	/**
+	 * Creates the columnar representation of the examples of the specified
+	 * data set. The examples are shared, not copied.
+	 *
+	 * @param ds
+	 *            a data set.
+	 */
+	public ColumnarDataSet(DataSet ds) {
+		this(ds.specification, ds.size());
+		Example first = ds.size() > 0 ? ds.getExample(0) : null;
+		for (int col = 0; col < columnNames.size(); col++) {
+			if (null != first) {
+				numeric[col] = first.attributes.get(columnNames.get(col)) instanceof NumericAttribute;
+			}
+			allocate(col, examples.length);
+		}
+		for (Example e : ds.examples) {
+			examples[size] = e;
+			for (int col = 0; col < columnNames.size(); col++) {
+				Attribute a = e.attributes.get(columnNames.get(col));
+				if (numeric[col]) {
+					values[col][size] = ((NumericAttribute) a).valueAsDouble();
+				}
+				codes[col][size] = encode(col, a.valueAsString());
+			}
+			size++;
+		}
+	}
+
+	/**
+	 * Creates an empty columnar data set to which the rows can be added with
+	 * {@link #addRow(List)}.
+	 *
+	 * @param spec
+	 *            the specification of the rows.
+	 */
+	public ColumnarDataSet(DataSetSpecification spec) {
+		this(spec, INITIAL_CAPACITY);
+		for (int col = 0; col < columnNames.size(); col++) {
+			allocate(col, INITIAL_CAPACITY);
+		}
+	}
+
+	/**
+	 * Adds an example given as the raw attribute values, in the order of the
+	 * attributes of the specification.
+	 *
+	 * @param attributeValues
+	 *            the raw values of the attributes.
+	 */
+	public void addRow(List<String> attributeValues) {
+		if (!specification.isValid(attributeValues)) {
+			throw new RuntimeException("Unable to construct Example from "
+					+ attributeValues);
+		}
+		if (size == examples.length) {
+			int capacity = 2 * size;
+			examples = Arrays.copyOf(examples, capacity);
+			for (int col = 0; col < columnNames.size(); col++) {
+				if (numeric[col]) {
+					values[col] = Arrays.copyOf(values[col], capacity);
+				}
+				codes[col] = Arrays.copyOf(codes[col], capacity);
+			}
+		}
+		for (int col = 0; col < columnNames.size(); col++) {
+			String raw = attributeValues.get(col);
+			if (numeric[col]) {
+				values[col][size] = Double.parseDouble(raw);
+				codes[col][size] = encode(col,
+						Double.toString(values[col][size]));
+			} else {
+				codes[col][size] = encode(col, raw.trim());
+			}
+		}
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public DataSetSpecification getSpecification() {
+		return specification;
+	}
+
+	/**
+	 * @return a view containing all rows of this data set.
+	 */
+	public DataSetView allRows() {
+		int[] rows = new int[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = i;
+		}
+		return new DataSetView(this, rows, size);
+	}
+
+	public List<String> getAttributeNames() {
+		return specification.getAttributeNames();
+	}
+
+	public String getTargetAttributeName() {
+		return specification.getTarget();
+	}
+
+	public int getNumberOfColumns() {
+		return columnNames.size();
+	}
+
+	public String getColumnName(int col) {
+		return columnNames.get(col);
+	}
+
+	/**
+	 * @return the column of the attribute or -1 if there is no such
+	 *         attribute.
+	 */
+	public int getColumnIndex(String attributeName) {
+		Integer col = columnIndices.get(attributeName);
+		return null == col ? -1 : col;
+	}
+
+	public int getTargetColumn() {
+		return targetColumn;
+	}
+
+	public boolean isNumeric(int col) {
+		return numeric[col];
+	}
+
+	/**
+	 * @return the number of distinct values of an attribute.
+	 */
+	public int getNumberOfValues(int col) {
+		return dictionaries.get(col).size();
+	}
+
+	public String getValueForCode(int col, int code) {
+		return dictionaries.get(col).get(code);
+	}
+
+	/**
+	 * @return the code of the value of an attribute or -1 if the value does
+	 *         not occur.
+	 */
+	public int getCodeForValue(int col, String value) {
+		Integer code = dictionaryIndices.get(col).get(value);
+		return null == code ? -1 : code;
+	}
+
+	public int getCode(int row, int col) {
+		return codes[col][row];
+	}
+
+	public int getTargetCode(int row) {
+		return codes[targetColumn][row];
+	}
+
+	public double getValue(int row, int col) {
+		return values[col][row];
+	}
+
+	public String getValueAsString(int row, int col) {
+		if (numeric[col]) {
+			return Double.toString(values[col][row]);
+		}
+		return dictionaries.get(col).get(codes[col][row]);
+	}
+
+	/**
+	 * Returns the example of a row, which is created on first access if this
+	 * data set was not built from examples.
+	 */
+	public Example getExample(int row) {
+		if (null == examples[row]) {
+			Hashtable<String, Attribute> attributes = new Hashtable<String, Attribute>();
+			for (int col = 0; col < columnNames.size(); col++) {
+				String name = columnNames.get(col);
+				AttributeSpecification attributeSpec = specification
+						.getAttributeSpecFor(name);
+				attributes.put(name, attributeSpec
+						.createAttribute(getValueAsString(row, col)));
+			}
+			examples[row] = new Example(attributes,
+					attributes.get(getTargetAttributeName()));
+		}
+		return examples[row];
+	}
+
+	/**
+	 * @return an empty data set with the specification of this data set.
+	 */
+	public DataSet emptyDataSet() {
+		return new DataSet(specification);
+	}
+
+	/**
+	 * @return a row oriented data set containing the examples of this data
+	 *         set.
+	 */
+	public DataSet toDataSet() {
+		DataSet ds = emptyDataSet();
+		for (int row = 0; row < size; row++) {
+			ds.add(getExample(row));
+		}
+		return ds;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private ColumnarDataSet(DataSetSpecification spec, int capacity) {
+		this.specification = spec;
+		for (String name : spec.getAttributeNames()) {
+			addColumn(name);
+		}
+		// The target is always encoded, even if the specification does not
+		// list it as attribute
+		if (!columnIndices.containsKey(spec.getTarget())) {
+			addColumn(spec.getTarget());
+		}
+		targetColumn = columnIndices.get(spec.getTarget());
+		numeric = new boolean[columnNames.size()];
+		codes = new int[columnNames.size()][];
+		values = new double[columnNames.size()][];
+		for (int col = 0; col < columnNames.size(); col++) {
+			AttributeSpecification attributeSpec = findAttributeSpec(columnNames
+					.get(col));
+			if (attributeSpec instanceof NumericAttributeSpecification) {
+				numeric[col] = true;
+			} else if (attributeSpec instanceof StringAttributeSpecification) {
+				for (String value : ((StringAttributeSpecification) attributeSpec)
+						.possibleAttributeValues()) {
+					encode(col, value);
+				}
+			}
+		}
+		examples = new Example[Math.max(capacity, 1)];
+	}
+
+	private void addColumn(String name) {
+		columnIndices.put(name, columnNames.size());
+		columnNames.add(name);
+		dictionaries.add(new ArrayList<String>());
+		dictionaryIndices.add(new HashMap<String, Integer>());
+	}
+
+	private void allocate(int col, int capacity) {
+		if (numeric[col]) {
+			values[col] = new double[Math.max(capacity, 1)];
+		}
+		codes[col] = new int[Math.max(capacity, 1)];
+	}
+
+	private int encode(int col, String value) {
+		Map<String, Integer> index = dictionaryIndices.get(col);
+		Integer code = index.get(value);
+		if (null == code) {
+			code = dictionaries.get(col).size();
+			dictionaries.get(col).add(value);
+			index.put(value, code);
+		}
+		return code;
+	}
+
+	private AttributeSpecification findAttributeSpec(String name) {
+		for (AttributeSpecification as : specification.attributeSpecifications) {
+			if (as.getAttributeName().equals(name)) {
+				return as;
+			}
+		}
+		return null;
+	}
+}
@@ -1,8 +1,8 @@
 package aima.core.learning.framework;
 
+import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 import aima.core.util.Util;
@@ -21,7 +21,7 @@ public class DataSet {
 	public DataSetSpecification specification;
 
 	public DataSet(DataSetSpecification spec) {
-		examples = new LinkedList<Example>();
+		examples = new ArrayList<Example>();
 		this.specification = spec;
 	}
 
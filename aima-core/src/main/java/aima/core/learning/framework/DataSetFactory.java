@@ -35,6 +35,29 @@ public class DataSetFactory {
 		return ds;
 	}
 
+	/**
+	 * Reads the examples of a data file directly into the columnar
+	 * representation, without creating an {@link Example} per line.
+	 */
+	public ColumnarDataSet columnarFromFile(String filename,
+			DataSetSpecification spec, String separator) throws Exception {
+		// assumed file in data directory and ends in .csv
+		ColumnarDataSet data = new ColumnarDataSet(spec);
+
+		try(BufferedReader reader = new BufferedReader(new InputStreamReader(
+				DataResource.class.getResourceAsStream(filename + ".csv")))) {
+
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				data.addRow(Arrays.asList(line.split(separator)));
+			}
+
+		}
+
+		return data;
+	}
+
 	public static Example exampleFromString(String data,
 			DataSetSpecification dataSetSpec, String separator) {
 		Hashtable<String, Attribute> attributes = new Hashtable<String, Attribute>();
@@ -64,6 +87,12 @@ public class DataSetFactory {
 		return new DataSetFactory().fromFile("restaurant", spec, "\\s+");
 	}
 
+	public static ColumnarDataSet getRestaurantColumnarDataSet()
+			throws Exception {
+		DataSetSpecification spec = createRestaurantDataSetSpec();
+		return new DataSetFactory().columnarFromFile("restaurant", spec, "\\s+");
+	}
+
 	public static DataSetSpecification createRestaurantDataSetSpec() {
 		DataSetSpecification dss = new DataSetSpecification();
 		dss.defineStringAttribute("alternate", Util.yesno());
@@ -91,6 +120,11 @@ public class DataSetFactory {
 		return new DataSetFactory().fromFile("iris", spec, ",");
 	}
 
+	public static ColumnarDataSet getIrisColumnarDataSet() throws Exception {
+		DataSetSpecification spec = createIrisDataSetSpec();
+		return new DataSetFactory().columnarFromFile("iris", spec, ",");
+	}
+
 	public static DataSetSpecification createIrisDataSetSpec() {
 		DataSetSpecification dss = new DataSetSpecification();
 		dss.defineNumericAttribute("sepal_length");
@@ -0,0 +1,197 @@
+package aima.core.learning.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import aima.core.util.Util;
+
+/**
+ * A subset of the rows of a {@link ColumnarDataSet}. Splitting and filtering
+ * a view only creates new arrays of row indices, the examples themselves are
+ * neither copied nor created.
+ *
+ */
+public class DataSetView {
+	private ColumnarDataSet data;
+	private int[] rows;
+	private int size;
+
+	public DataSetView(ColumnarDataSet data, int[] rows, int size) {
+		this.data = data;
+		this.rows = rows;
+		this.size = size;
+	}
+
+	public ColumnarDataSet getData() {
+		return data;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the row (of the underlying data set) of the i-th example of
+	 *         this view.
+	 */
+	public int getRow(int i) {
+		return rows[i];
+	}
+
+	public Example getExample(int i) {
+		return data.getExample(rows[i]);
+	}
+
+	public int getTargetCode(int i) {
+		return data.getTargetCode(rows[i]);
+	}
+
+	public String targetValue(int i) {
+		return data.getValueForCode(data.getTargetColumn(), getTargetCode(i));
+	}
+
+	/**
+	 * @return the number of examples per target value code.
+	 */
+	public int[] countTargetValues() {
+		return countValues(data.getTargetColumn());
+	}
+
+	/**
+	 * @return the number of examples per value code of an attribute.
+	 */
+	public int[] countValues(int col) {
+		int[] counts = new int[data.getNumberOfValues(col)];
+		for (int i = 0; i < size; i++) {
+			counts[data.getCode(rows[i], col)]++;
+		}
+		return counts;
+	}
+
+	public boolean allExamplesHaveSameTargetValue() {
+		if (size == 0) {
+			return true;
+		}
+		int target = getTargetCode(0);
+		for (int i = 1; i < size; i++) {
+			if (getTargetCode(i) != target) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the most frequent target value, ties are resolved as by
+	 *         {@link Util#mode(List)}.
+	 */
+	public String getMajorityTargetValue() {
+		List<String> targets = new ArrayList<String>(size);
+		for (int i = 0; i < size; i++) {
+			targets.add(targetValue(i));
+		}
+		return Util.mode(targets);
+	}
+
+	public double getInformationFor() {
+		return information(countTargetValues(), size);
+	}
+
+	public double calculateGainFor(String attributeName) {
+		return calculateGainFor(data.getColumnIndex(attributeName));
+	}
+
+	/**
+	 * Calculates the information gain of an attribute from a single
+	 * contingency table of attribute value by target value counts. Numeric
+	 * attributes are treated categorically by their value codes.
+	 */
+	public double calculateGainFor(int col) {
+		int targetCol = data.getTargetColumn();
+		int numTargets = data.getNumberOfValues(targetCol);
+		int[][] counts = new int[data.getNumberOfValues(col)][numTargets];
+		int[] totals = new int[numTargets];
+		for (int i = 0; i < size; i++) {
+			int row = rows[i];
+			int target = data.getCode(row, targetCol);
+			counts[data.getCode(row, col)][target]++;
+			totals[target]++;
+		}
+		double totalSize = size;
+		double remainder = 0.0;
+		for (int[] valueCounts : counts) {
+			int reducedSize = 0;
+			for (int c : valueCounts) {
+				reducedSize += c;
+			}
+			if (reducedSize > 0) {
+				remainder += (reducedSize / totalSize)
+						* information(valueCounts, reducedSize);
+			}
+		}
+		return information(totals, size) - remainder;
+	}
+
+	/**
+	 * Splits this view by the value codes of an attribute.
+	 *
+	 * @return the views indexed by value code, empty views for the values
+	 *         that do not occur.
+	 */
+	public DataSetView[] splitByAttribute(int col) {
+		int[] counts = countValues(col);
+		int[][] splitRows = new int[counts.length][];
+		for (int code = 0; code < counts.length; code++) {
+			splitRows[code] = new int[counts[code]];
+		}
+		int[] filled = new int[counts.length];
+		for (int i = 0; i < size; i++) {
+			int code = data.getCode(rows[i], col);
+			splitRows[code][filled[code]++] = rows[i];
+		}
+		DataSetView[] views = new DataSetView[counts.length];
+		for (int code = 0; code < counts.length; code++) {
+			views[code] = new DataSetView(data, splitRows[code], counts[code]);
+		}
+		return views;
+	}
+
+	/**
+	 * @return the examples whose attributes have the given value
+	 *         codes (the matched view) or do not have them (the unmatched
+	 *         view).
+	 */
+	public DataSetView[] partition(int[] cols, int[] valueCodes) {
+		int[] matched = new int[size];
+		int[] unmatched = new int[size];
+		int nMatched = 0, nUnmatched = 0;
+		for (int i = 0; i < size; i++) {
+			int row = rows[i];
+			boolean matches = true;
+			for (int j = 0; matches && j < cols.length; j++) {
+				matches = data.getCode(row, cols[j]) == valueCodes[j];
+			}
+			if (matches) {
+				matched[nMatched++] = row;
+			} else {
+				unmatched[nUnmatched++] = row;
+			}
+		}
+		return new DataSetView[] { new DataSetView(data, matched, nMatched),
+				new DataSetView(data, unmatched, nUnmatched) };
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private static double information(int[] counts, int total) {
+		double info = 0.0;
+		for (int c : counts) {
+			if (c > 0) {
+				double p = ((double) c) / total;
+				info += (-1.0 * Util.log2(p) * p);
+			}
+		}
+		return info;
+	}
+}
@@ -0,0 +1,119 @@
+package aima.core.learning.framework;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import aima.core.learning.data.DataResource;
+
+/**
+ * Reads the examples of a (possibly very large) delimited text file in
+ * chunks, so that only one chunk of examples has to be held in memory at a
+ * time. Lines are parsed as by {@link DataSetFactory#fromFile(String,
+ * DataSetSpecification, String)}.
+ *
+ */
+public class StreamingDataSetReader implements Closeable {
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+	//
+	private BufferedReader reader;
+	private DataSetSpecification spec;
+	private String separator;
+	private String nextLine;
+	private long rowsRead = 0;
+
+	public StreamingDataSetReader(Reader reader, DataSetSpecification spec,
+			String separator) throws IOException {
+		this.reader = reader instanceof BufferedReader ? (BufferedReader) reader
+				: new BufferedReader(reader);
+		this.spec = spec;
+		this.separator = separator;
+		advance();
+	}
+
+	/**
+	 * Streams the .csv resource of the data directory with the given name.
+	 */
+	public static StreamingDataSetReader fromResource(String filename,
+			DataSetSpecification spec, String separator) throws IOException {
+		return new StreamingDataSetReader(new InputStreamReader(
+				DataResource.class.getResourceAsStream(filename + ".csv")),
+				spec, separator);
+	}
+
+	public static StreamingDataSetReader fromFile(File file,
+			DataSetSpecification spec, String separator) throws IOException {
+		return new StreamingDataSetReader(new InputStreamReader(
+				new FileInputStream(file), StandardCharsets.UTF_8), spec,
+				separator);
+	}
+
+	public boolean hasNext() {
+		return nextLine != null;
+	}
+
+	/**
+	 * @return the number of examples read so far.
+	 */
+	public long getRowsRead() {
+		return rowsRead;
+	}
+
+	/**
+	 * Reads the next chunk of examples.
+	 *
+	 * @param chunkSize
+	 *            the maximum number of examples to read.
+	 * @return a data set with up to chunkSize examples, empty if the end of
+	 *         the input has been reached.
+	 */
+	public DataSet nextChunk(int chunkSize) throws IOException {
+		DataSet ds = new DataSet(spec);
+		while (hasNext() && ds.size() < chunkSize) {
+			ds.add(DataSetFactory.exampleFromString(nextLine, spec, separator));
+			advance();
+		}
+		return ds;
+	}
+
+	/**
+	 * Reads the next chunk of examples into the columnar representation,
+	 * without creating {@link Example}s.
+	 *
+	 * @param chunkSize
+	 *            the maximum number of examples to read.
+	 * @return a data set with up to chunkSize examples, empty if the end of
+	 *         the input has been reached.
+	 */
+	public ColumnarDataSet nextColumnarChunk(int chunkSize) throws IOException {
+		ColumnarDataSet data = new ColumnarDataSet(spec);
+		while (hasNext() && data.size() < chunkSize) {
+			data.addRow(Arrays.asList(nextLine.split(separator)));
+			advance();
+		}
+		return data;
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private void advance() throws IOException {
+		if (nextLine != null) {
+			rowsRead++;
+		}
+		// skip blank lines, e.g. a trailing newline
+		do {
+			nextLine = reader.readLine();
+		} while (nextLine != null && nextLine.trim().isEmpty());
+	}
+}
@@ -2,7 +2,9 @@ package aima.core.learning.inductive;
 
 import java.util.Hashtable;
 
+import aima.core.learning.framework.ColumnarDataSet;
 import aima.core.learning.framework.DataSet;
+import aima.core.learning.framework.DataSetView;
 import aima.core.learning.framework.Example;
 
 /**
@@ -53,6 +55,29 @@ public class DLTest {
 		return unmatched;
 	}
 
+	/**
+	 * Partitions the examples of a view into those matched by this test and
+	 * the unmatched ones.
+	 * 
+	 * @return the view of the matched examples at index 0 and the view of
+	 *         the unmatched examples at index 1.
+	 */
+	public DataSetView[] partition(DataSetView view) {
+		ColumnarDataSet data = view.getData();
+		int[] cols = new int[attrValues.size()];
+		int[] codes = new int[attrValues.size()];
+		int i = 0;
+		for (String key : attrValues.keySet()) {
+			cols[i] = data.getColumnIndex(key);
+			if (cols[i] < 0) {
+				throw new RuntimeException("no column for attribute " + key);
+			}
+			codes[i] = data.getCodeForValue(cols[i], attrValues.get(key));
+			i++;
+		}
+		return view.partition(cols, codes);
+	}
+
 	@Override
 	public String toString() {
 		StringBuffer buf = new StringBuffer();
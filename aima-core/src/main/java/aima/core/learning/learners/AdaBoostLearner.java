@@ -3,11 +3,12 @@ package aima.core.learning.learners;
 import java.util.Hashtable;
 import java.util.List;
 
+import aima.core.learning.framework.ColumnarDataSet;
 import aima.core.learning.framework.DataSet;
+import aima.core.learning.framework.DataSetView;
 import aima.core.learning.framework.Example;
 import aima.core.learning.framework.Learner;
 import aima.core.util.Util;
-import aima.core.util.datastructure.Table;
 
 /**
  * @author Ravi Mohan
@@ -17,7 +18,7 @@ public class AdaBoostLearner implements Learner {
 
 	private List<Learner> learners;
 
-	private DataSet dataSet;
+	private List<String> targetValues;
 
 	private double[] exampleWeights;
 
@@ -25,29 +26,27 @@ public class AdaBoostLearner implements Learner {
 
 	public AdaBoostLearner(List<Learner> learners, DataSet ds) {
 		this.learners = learners;
-		this.dataSet = ds;
+		this.targetValues = ds.getPossibleAttributeValues(ds
+				.getTargetAttributeName());
 
 		initializeExampleWeights(ds.examples.size());
 		initializeHypothesisWeights(learners.size());
 	}
 
 	public void train(DataSet ds) {
-		initializeExampleWeights(ds.examples.size());
-
-		for (Learner learner : learners) {
-			learner.train(ds);
-
-			double error = calculateError(ds, learner);
-			if (error < 0.0001) {
-				break;
-			}
-
-			adjustExampleWeights(ds, learner, error);
+		train(new ColumnarDataSet(ds), ds);
+	}
 
-			double newHypothesisWeight = learnerWeights.get(learner)
-					* Math.log((1.0 - error) / error);
-			learnerWeights.put(learner, newHypothesisWeight);
-		}
+	/**
+	 * Trains the ensemble on examples in columnar representation. Decision
+	 * tree and decision list learners are trained on the columnar data,
+	 * other learners with the equivalent row oriented data set.
+	 * 
+	 * @param data
+	 *            the training examples.
+	 */
+	public void train(ColumnarDataSet data) {
+		train(data, null);
 	}
 
 	public String predict(Example e) {
@@ -71,56 +70,60 @@ public class AdaBoostLearner implements Learner {
 	// PRIVATE METHODS
 	//
 
-	private String weightedMajority(Example e) {
-		List<String> targetValues = dataSet.getPossibleAttributeValues(dataSet
-				.getTargetAttributeName());
-
-		Table<String, Learner, Double> table = createTargetValueLearnerTable(
-				targetValues, e);
-		return getTargetValueWithTheMaximumVotes(targetValues, table);
-	}
+	private void train(ColumnarDataSet data, DataSet ds) {
+		initializeExampleWeights(data.size());
 
-	private Table<String, Learner, Double> createTargetValueLearnerTable(
-			List<String> targetValues, Example e) {
-		// create a table with target-attribute values as rows and learners as
-		// columns and cells containing the weighted votes of each Learner for a
-		// target value
-		// Learner1 Learner2 Laerner3 .......
-		// Yes 0.83 0.5 0
-		// No 0 0 0.6
-
-		Table<String, Learner, Double> table = new Table<String, Learner, Double>(
-				targetValues, learners);
-		// initialize table
-		for (Learner l : learners) {
-			for (String s : targetValues) {
-				table.set(s, l, 0.0);
-			}
-		}
+		DataSetView examples = data.allRows();
+		boolean[] correct = new boolean[data.size()];
 		for (Learner learner : learners) {
-			String predictedValue = learner.predict(e);
-			for (String v : targetValues) {
-				if (predictedValue.equals(v)) {
-					table.set(v, learner, table.get(v, learner)
-							+ learnerWeights.get(learner) * 1);
+			if (learner instanceof DecisionTreeLearner) {
+				((DecisionTreeLearner) learner).train(data);
+			} else if (learner instanceof DecisionListLearner) {
+				((DecisionListLearner) learner).train(data);
+			} else {
+				if (null == ds) {
+					ds = data.toDataSet();
 				}
+				learner.train(ds);
+			}
+
+			// predict every example once, compare the predictions by code
+			int targetColumn = data.getTargetColumn();
+			for (int i = 0; i < examples.size(); i++) {
+				int predicted = data.getCodeForValue(targetColumn,
+						learner.predict(examples.getExample(i)));
+				correct[i] = predicted == examples.getTargetCode(i);
+			}
+
+			double error = calculateError(correct);
+			if (error < 0.0001) {
+				break;
 			}
+
+			adjustExampleWeights(correct, error);
+
+			double newHypothesisWeight = learnerWeights.get(learner)
+					* Math.log((1.0 - error) / error);
+			learnerWeights.put(learner, newHypothesisWeight);
 		}
-		return table;
 	}
 
-	private String getTargetValueWithTheMaximumVotes(List<String> targetValues,
-			Table<String, Learner, Double> table) {
-		String targetValueWithMaxScore = targetValues.get(0);
-		double score = scoreOfValue(targetValueWithMaxScore, table, learners);
-		for (String value : targetValues) {
-			double scoreOfValue = scoreOfValue(value, table, learners);
-			if (scoreOfValue > score) {
-				targetValueWithMaxScore = value;
-				score = scoreOfValue;
+	private String weightedMajority(Example e) {
+		// the weighted votes of the learners for each target value
+		double[] votes = new double[targetValues.size()];
+		for (Learner learner : learners) {
+			int v = targetValues.indexOf(learner.predict(e));
+			if (v >= 0) {
+				votes[v] += learnerWeights.get(learner) * 1;
 			}
 		}
-		return targetValueWithMaxScore;
+		int targetValueWithMaxScore = 0;
+		for (int v = 1; v < votes.length; v++) {
+			if (votes[v] > votes[targetValueWithMaxScore]) {
+				targetValueWithMaxScore = v;
+			}
+		}
+		return targetValues.get(targetValueWithMaxScore);
 	}
 
 	private void initializeExampleWeights(int size) {
@@ -147,34 +150,23 @@ public class AdaBoostLearner implements Learner {
 		}
 	}
 
-	private double calculateError(DataSet ds, Learner l) {
+	private double calculateError(boolean[] correct) {
 		double error = 0.0;
-		for (int i = 0; i < ds.examples.size(); i++) {
-			Example e = ds.getExample(i);
-			if (!(l.predict(e).equals(e.targetValue()))) {
+		for (int i = 0; i < correct.length; i++) {
+			if (!correct[i]) {
 				error = error + exampleWeights[i];
 			}
 		}
 		return error;
 	}
 
-	private void adjustExampleWeights(DataSet ds, Learner l, double error) {
+	private void adjustExampleWeights(boolean[] correct, double error) {
 		double epsilon = error / (1.0 - error);
-		for (int j = 0; j < ds.examples.size(); j++) {
-			Example e = ds.getExample(j);
-			if ((l.predict(e).equals(e.targetValue()))) {
+		for (int j = 0; j < correct.length; j++) {
+			if (correct[j]) {
 				exampleWeights[j] = exampleWeights[j] * epsilon;
 			}
 		}
 		exampleWeights = Util.normalize(exampleWeights);
 	}
-
-	private double scoreOfValue(String targetValue,
-			Table<String, Learner, Double> table, List<Learner> learners) {
-		double score = 0.0;
-		for (Learner l : learners) {
-			score += table.get(targetValue, l);
-		}
-		return score;
-	}
 }
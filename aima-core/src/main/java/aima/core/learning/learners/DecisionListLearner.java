@@ -2,7 +2,9 @@ package aima.core.learning.learners;
 
 import java.util.List;
 
+import aima.core.learning.framework.ColumnarDataSet;
 import aima.core.learning.framework.DataSet;
+import aima.core.learning.framework.DataSetView;
 import aima.core.learning.framework.Example;
 import aima.core.learning.framework.Learner;
 import aima.core.learning.inductive.DLTest;
@@ -40,7 +42,19 @@ public class DecisionListLearner implements Learner {
 	 */
 	@Override
 	public void train(DataSet ds) {
-		this.decisionList = decisionListLearning(ds);
+		this.decisionList = decisionListLearning(new ColumnarDataSet(ds), ds);
+	}
+
+	/**
+	 * Induces the decision list from the specified set of examples in
+	 * columnar representation
+	 * 
+	 * @param data
+	 *            a set of examples for constructing the decision list
+	 */
+	public void train(ColumnarDataSet data) {
+		// the test factory only needs the specification of the examples
+		this.decisionList = decisionListLearning(data, data.emptyDataSet());
 	}
 
 	@Override
@@ -81,45 +95,35 @@ public class DecisionListLearner implements Learner {
 	//
 	// PRIVATE METHODS
 	//
-	private DecisionList decisionListLearning(DataSet ds) {
-		if (ds.size() == 0) {
+	private DecisionList decisionListLearning(ColumnarDataSet data,
+			DataSet ds) {
+		DataSetView examples = data.allRows();
+		if (examples.size() == 0) {
 			return new DecisionList(positive, negative);
 		}
+		// the tests do not depend on the examples, create them once
 		List<DLTest> possibleTests = testFactory
 				.createDLTestsWithAttributeCount(ds, 1);
-		DLTest test = getValidTest(possibleTests, ds);
-		if (test == null) {
-			return new DecisionList(null, FAILURE);
-		}
-		// at this point there is a test that classifies some subset of examples
-		// with the same target value
-		DataSet matched = test.matchedExamples(ds);
-		DecisionList list = new DecisionList(positive, negative);
-		list.add(test, matched.getExample(0).targetValue());
-		return list.mergeWith(decisionListLearning(test.unmatchedExamples(ds)));
+		return decisionListLearning(examples, possibleTests);
 	}
 
-	private DLTest getValidTest(List<DLTest> possibleTests, DataSet ds) {
-		for (DLTest test : possibleTests) {
-			DataSet matched = test.matchedExamples(ds);
-			if (!(matched.size() == 0)) {
-				if (allExamplesHaveSameTargetValue(matched)) {
-					return test;
-				}
-			}
-
+	private DecisionList decisionListLearning(DataSetView ds,
+			List<DLTest> possibleTests) {
+		if (ds.size() == 0) {
+			return new DecisionList(positive, negative);
 		}
-		return null;
-	}
-
-	private boolean allExamplesHaveSameTargetValue(DataSet matched) {
-		// assumes at least i example in dataset
-		String targetValue = matched.getExample(0).targetValue();
-		for (Example e : matched.examples) {
-			if (!(e.targetValue().equals(targetValue))) {
-				return false;
+		for (DLTest test : possibleTests) {
+			DataSetView[] partition = test.partition(ds);
+			DataSetView matched = partition[0];
+			if (matched.size() > 0 && matched.allExamplesHaveSameTargetValue()) {
+				// test classifies some subset of examples with the same
+				// target value
+				DecisionList list = new DecisionList(positive, negative);
+				list.add(test, matched.targetValue(0));
+				return list.mergeWith(decisionListLearning(partition[1],
+						possibleTests));
 			}
 		}
-		return true;
+		return new DecisionList(null, FAILURE);
 	}
 }
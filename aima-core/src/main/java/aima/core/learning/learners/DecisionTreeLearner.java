@@ -1,9 +1,11 @@
 package aima.core.learning.learners;
 
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 
+import aima.core.learning.framework.ColumnarDataSet;
 import aima.core.learning.framework.DataSet;
+import aima.core.learning.framework.DataSetView;
 import aima.core.learning.framework.Example;
 import aima.core.learning.framework.Learner;
 import aima.core.learning.inductive.ConstantDecisonTree;
@@ -41,8 +43,20 @@ public class DecisionTreeLearner implements Learner {
 	 */
 	@Override
 	public void train(DataSet ds) {
-		List<String> attributes = ds.getNonTargetAttributes();
-		this.tree = decisionTreeLearning(ds, attributes,
+		train(new ColumnarDataSet(ds));
+	}
+
+	/**
+	 * Induces the decision tree from the specified set of examples in
+	 * columnar representation
+	 * 
+	 * @param data
+	 *            a set of examples for constructing the decision tree
+	 */
+	public void train(ColumnarDataSet data) {
+		List<String> attributes = Util.removeFrom(data.getAttributeNames(),
+				data.getTargetAttributeName());
+		this.tree = decisionTreeLearning(data.allRows(), attributes,
 				new ConstantDecisonTree(defaultValue));
 	}
 
@@ -81,13 +95,13 @@ public class DecisionTreeLearner implements Learner {
 	// PRIVATE METHODS
 	//
 
-	private DecisionTree decisionTreeLearning(DataSet ds,
+	private DecisionTree decisionTreeLearning(DataSetView ds,
 			List<String> attributeNames, ConstantDecisonTree defaultTree) {
 		if (ds.size() == 0) {
 			return defaultTree;
 		}
-		if (allExamplesHaveSameClassification(ds)) {
-			return new ConstantDecisonTree(ds.getExample(0).targetValue());
+		if (ds.allExamplesHaveSameTargetValue()) {
+			return new ConstantDecisonTree(ds.targetValue(0));
 		}
 		if (attributeNames.size() == 0) {
 			return majorityValue(ds);
@@ -97,9 +111,14 @@ public class DecisionTreeLearner implements Learner {
 		DecisionTree tree = new DecisionTree(chosenAttribute);
 		ConstantDecisonTree m = majorityValue(ds);
 
-		List<String> values = ds.getPossibleAttributeValues(chosenAttribute);
+		ColumnarDataSet data = ds.getData();
+		int col = data.getColumnIndex(chosenAttribute);
+		DataSetView[] split = ds.splitByAttribute(col);
+		DataSetView none = new DataSetView(data, new int[0], 0);
+		List<String> values = possibleValues(data, col);
 		for (String v : values) {
-			DataSet filtered = ds.matchingDataSet(chosenAttribute, v);
+			int code = data.getCodeForValue(col, v);
+			DataSetView filtered = code < 0 ? none : split[code];
 			List<String> newAttribs = Util.removeFrom(attributeNames,
 					chosenAttribute);
 			DecisionTree subTree = decisionTreeLearning(filtered, newAttribs, m);
@@ -110,13 +129,27 @@ public class DecisionTreeLearner implements Learner {
 		return tree;
 	}
 
-	private ConstantDecisonTree majorityValue(DataSet ds) {
-		Learner learner = new MajorityLearner();
-		learner.train(ds);
-		return new ConstantDecisonTree(learner.predict(ds.getExample(0)));
+	/**
+	 * Returns the possible values of a string attribute, or the values of a
+	 * numeric attribute which occur in the data set.
+	 */
+	private List<String> possibleValues(ColumnarDataSet data, int col) {
+		if (!data.isNumeric(col)) {
+			return data.getSpecification().getPossibleAttributeValues(
+					data.getColumnName(col));
+		}
+		List<String> values = new ArrayList<String>();
+		for (int code = 0; code < data.getNumberOfValues(col); code++) {
+			values.add(data.getValueForCode(col, code));
+		}
+		return values;
+	}
+
+	private ConstantDecisonTree majorityValue(DataSetView ds) {
+		return new ConstantDecisonTree(ds.getMajorityTargetValue());
 	}
 
-	private String chooseAttribute(DataSet ds, List<String> attributeNames) {
+	private String chooseAttribute(DataSetView ds, List<String> attributeNames) {
 		double greatestGain = 0.0;
 		String attributeWithGreatestGain = attributeNames.get(0);
 		for (String attr : attributeNames) {
@@ -129,17 +162,4 @@ public class DecisionTreeLearner implements Learner {
 
 		return attributeWithGreatestGain;
 	}
-
-	private boolean allExamplesHaveSameClassification(DataSet ds) {
-		String classification = ds.getExample(0).targetValue();
-		Iterator<Example> iter = ds.iterator();
-		while (iter.hasNext()) {
-			Example element = iter.next();
-			if (!(element.targetValue().equals(classification))) {
-				return false;
-			}
-
-		}
-		return true;
-	}
 }
@@ -1,5 +1,7 @@
 package aima.core.learning.neural;
 
+import java.util.List;
+
 import aima.core.util.math.Matrix;
 import aima.core.util.math.Vector;
 
@@ -65,16 +67,62 @@ public class BackPropLearning implements NNTrainingScheme {
 
 	}
 
+	/**
+	 * Trains the network on a mini-batch of examples: the gradients of all
+	 * examples are computed with the current weights and biases, averaged and
+	 * applied (with momentum) in one update. For a batch of one example this
+	 * is the same as processInput() followed by processError().
+	 * 
+	 * @param network
+	 *            the network to be trained.
+	 * @param batch
+	 *            the examples of the mini-batch.
+	 */
+	@Override
+	public void processBatch(FeedForwardNeuralNetwork network,
+			List<NNExample> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		Matrix outputWeightGradient = null, outputBiasGradient = null;
+		Matrix hiddenWeightGradient = null, hiddenBiasGradient = null;
+		for (NNExample nne : batch) {
+			processInput(network, nne.getInput());
+			Vector error = outputLayer.errorVectorFrom(nne.getTarget());
+			outputSensitivity.sensitivityMatrixFromErrorMatrix(error);
+			hiddenSensitivity
+					.sensitivityMatrixFromSucceedingLayer(outputSensitivity);
+
+			outputWeightGradient = sum(outputWeightGradient, outputSensitivity
+					.getSensitivityMatrix().times(
+							hiddenLayer.getLastActivationValues().transpose()));
+			hiddenWeightGradient = sum(hiddenWeightGradient, hiddenSensitivity
+					.getSensitivityMatrix().times(
+							hiddenLayer.getLastInputValues().transpose()));
+			outputBiasGradient = sum(outputBiasGradient,
+					outputSensitivity.getSensitivityMatrix());
+			hiddenBiasGradient = sum(hiddenBiasGradient,
+					hiddenSensitivity.getSensitivityMatrix());
+		}
+		double alpha = learningRate / batch.size();
+		acceptWeightUpdate(outputLayer, outputWeightGradient, alpha, momentum);
+		acceptWeightUpdate(hiddenLayer, hiddenWeightGradient, alpha, momentum);
+		acceptBiasUpdate(outputLayer, outputBiasGradient, alpha, momentum);
+		acceptBiasUpdate(hiddenLayer, hiddenBiasGradient, alpha, momentum);
+
+		outputLayer.updateWeights();
+		outputLayer.updateBiases();
+
+		hiddenLayer.updateWeights();
+		hiddenLayer.updateBiases();
+	}
+
 	public Matrix calculateWeightUpdates(LayerSensitivity layerSensitivity,
 			Vector previousLayerActivationOrInput, double alpha, double momentum) {
-		Layer layer = layerSensitivity.getLayer();
 		Matrix activationTranspose = previousLayerActivationOrInput.transpose();
-		Matrix momentumLessUpdate = layerSensitivity.getSensitivityMatrix()
-				.times(activationTranspose).times(alpha).times(-1.0);
-		Matrix updateWithMomentum = layer.getLastWeightUpdateMatrix()
-				.times(momentum).plus(momentumLessUpdate.times(1.0 - momentum));
-		layer.acceptNewWeightUpdate(updateWithMomentum.copy());
-		return updateWithMomentum;
+		return acceptWeightUpdate(layerSensitivity.getLayer(), layerSensitivity
+				.getSensitivityMatrix().times(activationTranspose), alpha,
+				momentum);
 	}
 
 	public static Matrix calculateWeightUpdates(
@@ -90,20 +138,8 @@ public class BackPropLearning implements NNTrainingScheme {
 
 	public Vector calculateBiasUpdates(LayerSensitivity layerSensitivity,
 			double alpha, double momentum) {
-		Layer layer = layerSensitivity.getLayer();
-		Matrix biasUpdateMatrixWithoutMomentum = layerSensitivity
-				.getSensitivityMatrix().times(alpha).times(-1.0);
-
-		Matrix biasUpdateMatrixWithMomentum = layer.getLastBiasUpdateVector()
-				.times(momentum)
-				.plus(biasUpdateMatrixWithoutMomentum.times(1.0 - momentum));
-		Vector result = new Vector(
-				biasUpdateMatrixWithMomentum.getRowDimension());
-		for (int i = 0; i < biasUpdateMatrixWithMomentum.getRowDimension(); i++) {
-			result.setValue(i, biasUpdateMatrixWithMomentum.get(i, 0));
-		}
-		layer.acceptNewBiasUpdate(result.copyVector());
-		return result;
+		return acceptBiasUpdate(layerSensitivity.getLayer(),
+				layerSensitivity.getSensitivityMatrix(), alpha, momentum);
 	}
 
 	public static Vector calculateBiasUpdates(
@@ -119,4 +155,46 @@ public class BackPropLearning implements NNTrainingScheme {
 		layer.acceptNewBiasUpdate(result.copyVector());
 		return result;
 	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private static Matrix sum(Matrix total, Matrix m) {
+		return null == total ? m.copy() : total.plusEquals(m);
+	}
+
+	/**
+	 * Computes the weight update (with momentum) for the gradient of the error
+	 * with respect to the weights and passes it to the layer. Shared by
+	 * per-example and mini-batch training.
+	 */
+	private static Matrix acceptWeightUpdate(Layer layer, Matrix gradient,
+			double alpha, double momentum) {
+		Matrix momentumLessUpdate = gradient.times(alpha).times(-1.0);
+		Matrix updateWithMomentum = layer.getLastWeightUpdateMatrix()
+				.times(momentum).plus(momentumLessUpdate.times(1.0 - momentum));
+		layer.acceptNewWeightUpdate(updateWithMomentum.copy());
+		return updateWithMomentum;
+	}
+
+	/**
+	 * Computes the bias update (with momentum) for the gradient of the error
+	 * with respect to the biases and passes it to the layer. Shared by
+	 * per-example and mini-batch training.
+	 */
+	private static Vector acceptBiasUpdate(Layer layer, Matrix gradient,
+			double alpha, double momentum) {
+		Matrix biasUpdateMatrixWithoutMomentum = gradient.times(alpha).times(
+				-1.0);
+		Matrix biasUpdateMatrixWithMomentum = layer.getLastBiasUpdateVector()
+				.times(momentum)
+				.plus(biasUpdateMatrixWithoutMomentum.times(1.0 - momentum));
+		Vector result = new Vector(
+				biasUpdateMatrixWithMomentum.getRowDimension());
+		for (int i = 0; i < biasUpdateMatrixWithMomentum.getRowDimension(); i++) {
+			result.setValue(i, biasUpdateMatrixWithMomentum.get(i, 0));
+		}
+		layer.acceptNewBiasUpdate(result.copyVector());
+		return result;
+	}
 }
@@ -1,5 +1,7 @@
 package aima.core.learning.neural;
 
+import java.util.List;
+
 import aima.core.learning.framework.DataSet;
 import aima.core.util.math.Matrix;
 import aima.core.util.math.Vector;
@@ -88,6 +90,28 @@ public class FeedForwardNeuralNetwork implements FunctionApproximator {
 
 	}
 
+	/**
+	 * Trains the network in mini-batches, the examples need not be held in
+	 * memory at once.
+	 * 
+	 * @param source
+	 *            the source of the training examples.
+	 * @param batchSize
+	 *            the number of examples per weight update.
+	 * @param numberofEpochs
+	 *            the number of passes over all examples.
+	 */
+	public void trainOn(NNExampleSource source, int batchSize,
+			int numberofEpochs) {
+		for (int i = 0; i < numberofEpochs; i++) {
+			source.reset();
+			List<NNExample> batch;
+			while (!(batch = source.nextBatch(batchSize)).isEmpty()) {
+				trainingScheme.processBatch(this, batch);
+			}
+		}
+	}
+
 	public Vector predict(NNExample nne) {
 		return processInput(nne.getInput());
 	}
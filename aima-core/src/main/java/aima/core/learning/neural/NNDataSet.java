@@ -16,7 +16,7 @@ import aima.core.util.datastructure.Pair;
  * @author Ravi Mohan
  * 
  */
-public abstract class NNDataSet {
+public abstract class NNDataSet implements NNExampleSource {
 	/*
 	 * This class represents a source of examples to the rest of the nn
 	 * framework. Assumes only one function approximator works on an instance at
@@ -136,6 +136,27 @@ public abstract class NNDataSet {
 		}
 	}
 
+	//
+	// START-NNExampleSource
+	public void reset() {
+		refreshDataset();
+	}
+
+	/*
+	 * Gets (and removes) up to batchSize random examples from the
+	 * 'presentlyProcessed'
+	 */
+	public List<NNExample> nextBatch(int batchSize) {
+		List<NNExample> batch = new ArrayList<NNExample>();
+		while (hasMoreExamples() && batch.size() < batchSize) {
+			batch.add(getExampleAtRandom());
+		}
+		return batch;
+	}
+
+	// END-NNExampleSource
+	//
+
 	/*
 	 * method called by clients to set up data set and make it ready for
 	 * processing
@@ -0,0 +1,497 @@
+package aima.core.learning.neural;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import aima.core.learning.framework.DataSet;
+import aima.core.learning.framework.DataSetFactory;
+import aima.core.learning.framework.DataSetSpecification;
+import aima.core.learning.framework.Example;
+import aima.core.util.datastructure.Pair;
+
+/**
+ * A binary, memory mapped cache of the numeric rows of a delimited text file,
+ * to train neural networks on data sets which do not fit into memory and to
+ * restart training without parsing the text file again. Files with
+ * non-numeric attributes are converted by a {@link Numerizer}.<br>
+ * <br>
+ * The cache is created in one streaming pass over the text file, which also
+ * computes the mean and standard deviation of every column. The rows are
+ * stored as raw doubles and normalized when read, as done by
+ * {@link NNDataSet}. As a {@link NNExampleSource} the rows are visited in
+ * random order of blocks of rows and in random order within each block, so
+ * that only the pages of the current block are touched at a time.
+ *
+ */
+public class NNExampleCache implements NNExampleSource, Closeable {
+	private static final int MAGIC = 0x4E4E4543; // "NNEC"
+	private static final int VERSION = 2;
+	private static final int FIXED_HEADER_SIZE = 28;
+	private static final int BLOCK_ROWS = 1024;
+	//
+	private FileChannel channel;
+	private String key;
+	private long rows;
+	private int columns;
+	private int[] targetColumns;
+	private boolean[] isTarget;
+	private double[] means;
+	private double[] stdevs;
+	private long rowsPerSegment;
+	private DoubleBuffer[] segments;
+	// epoch state
+	private Random random = new Random();
+	private int[] blockOrder = new int[0];
+	private int nextBlock = 0;
+	private int[] rowOrder = new int[0];
+	private int nextRow = 0;
+	private long blockStart = 0;
+
+	/**
+	 * Creates the cache for a delimited text file of numbers.
+	 *
+	 * @param source
+	 *            the text file, one example per line.
+	 * @param cache
+	 *            the cache file to be (over)written.
+	 * @param separator
+	 *            the regular expression separating the values of a line.
+	 * @param targetColumns
+	 *            the (zero based) columns holding the target values.
+	 * @return the opened cache.
+	 */
+	public static NNExampleCache create(File source, File cache,
+			String separator, int[] targetColumns) throws IOException {
+		return create(source, cache, new NumericRowEncoder(separator,
+				targetColumns));
+	}
+
+	/**
+	 * Creates the cache for a delimited text file of examples, which are
+	 * converted into numbers by a numerizer as done by
+	 * {@link NNDataSet#createExamplesFromDataSet(DataSet, Numerizer)}. The
+	 * inputs are followed by the targets in each row of the cache.
+	 *
+	 * @param source
+	 *            the text file, one example per line.
+	 * @param cache
+	 *            the cache file to be (over)written.
+	 * @param spec
+	 *            the specification of the examples.
+	 * @param separator
+	 *            the regular expression separating the values of a line.
+	 * @param numerizer
+	 *            converts the examples into inputs and targets.
+	 * @return the opened cache.
+	 */
+	public static NNExampleCache create(File source, File cache,
+			DataSetSpecification spec, String separator, Numerizer numerizer)
+			throws IOException {
+		return create(source, cache, new NumerizingRowEncoder(spec,
+				separator, numerizer));
+	}
+
+	/**
+	 * Opens a cache created before.
+	 */
+	public static NNExampleCache open(File cache) throws IOException {
+		return new NNExampleCache(cache);
+	}
+
+	/**
+	 * Opens the cache if it is up to date with respect to the source file
+	 * and was created with the same separator and target columns, otherwise
+	 * (re)creates it.
+	 */
+	public static NNExampleCache openOrCreate(File source, File cache,
+			String separator, int[] targetColumns) throws IOException {
+		return openOrCreate(source, cache, new NumericRowEncoder(separator,
+				targetColumns));
+	}
+
+	/**
+	 * Opens the cache if it is up to date with respect to the source file
+	 * and was created with the same separator and the same kind of numerizer,
+	 * otherwise (re)creates it.
+	 */
+	public static NNExampleCache openOrCreate(File source, File cache,
+			DataSetSpecification spec, String separator, Numerizer numerizer)
+			throws IOException {
+		return openOrCreate(source, cache, new NumerizingRowEncoder(spec,
+				separator, numerizer));
+	}
+
+	public long size() {
+		return rows;
+	}
+
+	public int getNumberOfInputs() {
+		return columns - targetColumns.length;
+	}
+
+	public int getNumberOfTargets() {
+		return targetColumns.length;
+	}
+
+	public double[] getMeans() {
+		return means.clone();
+	}
+
+	public double[] getStdevs() {
+		return stdevs.clone();
+	}
+
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+
+	/**
+	 * Returns the normalized example of a row.
+	 */
+	public NNExample getExample(long row) {
+		DoubleBuffer segment = segments[(int) (row / rowsPerSegment)];
+		int offset = (int) ((row % rowsPerSegment) * columns);
+		List<Double> input = new ArrayList<Double>(getNumberOfInputs());
+		List<Double> target = new ArrayList<Double>(getNumberOfTargets());
+		for (int i = 0; i < columns; i++) {
+			double value = (segment.get(offset + i) - means[i]) / stdevs[i];
+			if (isTarget[i]) {
+				target.add(value);
+			} else {
+				input.add(value);
+			}
+		}
+		return new NNExample(input, target);
+	}
+
+	//
+	// START-NNExampleSource
+	public void reset() {
+		int blocks = (int) ((rows + BLOCK_ROWS - 1) / BLOCK_ROWS);
+		blockOrder = shuffledIndices(blocks);
+		nextBlock = 0;
+		rowOrder = new int[0];
+		nextRow = 0;
+	}
+
+	public List<NNExample> nextBatch(int batchSize) {
+		List<NNExample> batch = new ArrayList<NNExample>(batchSize);
+		while (batch.size() < batchSize) {
+			if (nextRow == rowOrder.length) {
+				if (nextBlock == blockOrder.length) {
+					break;
+				}
+				blockStart = (long) blockOrder[nextBlock++] * BLOCK_ROWS;
+				rowOrder = shuffledIndices((int) Math.min(BLOCK_ROWS, rows
+						- blockStart));
+				nextRow = 0;
+			}
+			batch.add(getExample(blockStart + rowOrder[nextRow++]));
+		}
+		return batch;
+	}
+
+	// END-NNExampleSource
+	//
+
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private NNExampleCache(File cache) throws IOException {
+		channel = new RandomAccessFile(cache, "r").getChannel();
+		try {
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					Math.min(channel.size(), FIXED_HEADER_SIZE));
+			if (header.remaining() < FIXED_HEADER_SIZE
+					|| header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException(cache + " is not an example cache");
+			}
+			rows = header.getLong();
+			columns = header.getInt();
+			int numTargets = header.getInt();
+			int keyLength = header.getInt();
+			long dataStart = headerSize(columns, numTargets, keyLength);
+			if (channel.size() != dataStart + rows * columns * 8) {
+				throw new IOException(cache + " is truncated");
+			}
+			header = channel.map(FileChannel.MapMode.READ_ONLY,
+					FIXED_HEADER_SIZE, dataStart - FIXED_HEADER_SIZE);
+			byte[] keyBytes = new byte[keyLength];
+			header.get(keyBytes);
+			key = new String(keyBytes, StandardCharsets.UTF_8);
+			targetColumns = new int[numTargets];
+			isTarget = new boolean[columns];
+			for (int i = 0; i < numTargets; i++) {
+				targetColumns[i] = header.getInt();
+				isTarget[targetColumns[i]] = true;
+			}
+			means = new double[columns];
+			stdevs = new double[columns];
+			for (int i = 0; i < columns; i++) {
+				means[i] = header.getDouble();
+			}
+			for (int i = 0; i < columns; i++) {
+				stdevs[i] = header.getDouble();
+			}
+			// a mapping is limited to 2GB, split the rows into segments
+			rowsPerSegment = Math.max(1, Integer.MAX_VALUE / (8L * columns));
+			int numSegments = (int) ((rows + rowsPerSegment - 1) / rowsPerSegment);
+			segments = new DoubleBuffer[numSegments];
+			for (int s = 0; s < numSegments; s++) {
+				long first = s * rowsPerSegment;
+				long count = Math.min(rowsPerSegment, rows - first);
+				segments[s] = channel.map(FileChannel.MapMode.READ_ONLY,
+						dataStart + first * columns * 8,
+						count * columns * 8).asDoubleBuffer();
+			}
+		} catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+		reset();
+	}
+
+	private static NNExampleCache create(File source, File cache,
+			RowEncoder encoder) throws IOException {
+		byte[] keyBytes = encoder.getKey().getBytes(StandardCharsets.UTF_8);
+		int columns = -1;
+		int[] targetColumns = null;
+		long rows = 0;
+		double[] means = null;
+		double[] m2 = null;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(source), StandardCharsets.UTF_8));
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(cache)))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				double[] values;
+				try {
+					values = encoder.encode(line);
+				} catch (RuntimeException ex) {
+					throw new IOException("Line " + (rows + 1) + " of " + source
+							+ " cannot be encoded: " + ex.getMessage(), ex);
+				}
+				if (columns < 0) {
+					columns = values.length;
+					means = new double[columns];
+					m2 = new double[columns];
+					targetColumns = encoder.getTargetColumns(columns);
+					for (int c : targetColumns) {
+						if (c < 0 || c >= columns) {
+							throw new IllegalArgumentException(
+									"No target column " + c + " in " + source);
+						}
+					}
+					// reserve the header, written when the statistics are
+					// known
+					out.write(new byte[headerSize(columns,
+							targetColumns.length, keyBytes.length)]);
+				} else if (values.length != columns) {
+					throw new IOException("Line " + (rows + 1) + " has "
+							+ values.length + " values instead of " + columns);
+				}
+				rows++;
+				for (int i = 0; i < columns; i++) {
+					double x = values[i];
+					out.writeDouble(x);
+					// Welford's online mean and variance
+					double delta = x - means[i];
+					means[i] += delta / rows;
+					m2[i] += delta * (x - means[i]);
+				}
+			}
+		}
+		if (columns < 0) {
+			throw new IOException("No examples in " + source);
+		}
+		double[] stdevs = new double[columns];
+		for (int i = 0; i < columns; i++) {
+			// sample standard deviation as Util.calculateStDev(), columns
+			// without spread are left unscaled
+			stdevs[i] = rows > 1 ? Math.sqrt(m2[i] / (rows - 1)) : 0;
+			if (stdevs[i] == 0) {
+				stdevs[i] = 1;
+			}
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(cache, "rw")) {
+			raf.writeInt(MAGIC);
+			raf.writeInt(VERSION);
+			raf.writeLong(rows);
+			raf.writeInt(columns);
+			raf.writeInt(targetColumns.length);
+			raf.writeInt(keyBytes.length);
+			raf.write(keyBytes);
+			for (int c : targetColumns) {
+				raf.writeInt(c);
+			}
+			for (double m : means) {
+				raf.writeDouble(m);
+			}
+			for (double s : stdevs) {
+				raf.writeDouble(s);
+			}
+		}
+		return open(cache);
+	}
+
+	private static NNExampleCache openOrCreate(File source, File cache,
+			RowEncoder encoder) throws IOException {
+		if (cache.exists() && cache.lastModified() >= source.lastModified()) {
+			NNExampleCache result = null;
+			try {
+				result = open(cache);
+			} catch (IOException ex) {
+				// stale or corrupt cache, recreate it
+			}
+			if (result != null && result.key.equals(encoder.getKey())
+					&& encoder.matches(result.targetColumns)) {
+				return result;
+			}
+			if (result != null) {
+				result.close();
+			}
+		}
+		return create(source, cache, encoder);
+	}
+
+	private static int headerSize(int columns, int numTargets, int keyLength) {
+		return FIXED_HEADER_SIZE + keyLength + 4 * numTargets + 2 * 8
+				* columns;
+	}
+
+	private int[] shuffledIndices(int n) {
+		int[] result = new int[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = result[i];
+			result[i] = result[j];
+			result[j] = tmp;
+		}
+		return result;
+	}
+	/**
+	 * Converts the lines of the source file into rows of the cache. The key
+	 * identifies the encoding, a cache is only reused for the same key.
+	 */
+	private interface RowEncoder {
+		double[] encode(String line);
+
+		/** Returns the target columns, known after the first line. */
+		int[] getTargetColumns(int columns);
+
+		/** Checks whether a cache has the target columns of this encoder. */
+		boolean matches(int[] targetColumns);
+
+		String getKey();
+	}
+
+	/** Parses every value of a line as number. */
+	private static class NumericRowEncoder implements RowEncoder {
+		private String separator;
+		private int[] targetColumns;
+
+		NumericRowEncoder(String separator, int[] targetColumns) {
+			this.separator = separator;
+			this.targetColumns = targetColumns;
+		}
+
+		public double[] encode(String line) {
+			String[] values = line.split(separator);
+			double[] result = new double[values.length];
+			for (int i = 0; i < values.length; i++) {
+				result[i] = Double.parseDouble(values[i]);
+			}
+			return result;
+		}
+
+		public int[] getTargetColumns(int columns) {
+			return targetColumns;
+		}
+
+		public boolean matches(int[] targetColumns) {
+			return Arrays.equals(this.targetColumns, targetColumns);
+		}
+
+		public String getKey() {
+			return separator;
+		}
+	}
+
+	/**
+	 * Creates an example from a line and converts it with a numerizer. The
+	 * targets follow the inputs.
+	 */
+	private static class NumerizingRowEncoder implements RowEncoder {
+		private DataSetSpecification spec;
+		private String separator;
+		private Numerizer numerizer;
+		private int numTargets;
+
+		NumerizingRowEncoder(DataSetSpecification spec, String separator,
+				Numerizer numerizer) {
+			this.spec = spec;
+			this.separator = separator;
+			this.numerizer = numerizer;
+		}
+
+		public double[] encode(String line) {
+			Example e = DataSetFactory.exampleFromString(line, spec, separator);
+			Pair<List<Double>, List<Double>> io = numerizer.numerize(e);
+			List<Double> input = io.getFirst();
+			List<Double> target = io.getSecond();
+			numTargets = target.size();
+			double[] result = new double[input.size() + target.size()];
+			for (int i = 0; i < input.size(); i++) {
+				result[i] = input.get(i);
+			}
+			for (int i = 0; i < target.size(); i++) {
+				result[input.size() + i] = target.get(i);
+			}
+			return result;
+		}
+
+		public int[] getTargetColumns(int columns) {
+			int[] result = new int[numTargets];
+			for (int i = 0; i < numTargets; i++) {
+				result[i] = columns - numTargets + i;
+			}
+			return result;
+		}
+
+		public boolean matches(int[] targetColumns) {
+			// the targets are the last columns of a numerized cache
+			return true;
+		}
+
+		public String getKey() {
+			return separator + "\n" + numerizer.getClass().getName();
+		}
+	}
+}
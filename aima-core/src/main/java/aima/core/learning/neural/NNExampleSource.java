@@ -0,0 +1,28 @@
+package aima.core.learning.neural;
+
+import java.util.List;
+
+/**
+ * A source of training examples which are processed in mini-batches, one
+ * pass over all examples per epoch. Implementations need not hold all
+ * examples in memory.
+ *
+ */
+public interface NNExampleSource {
+
+	/**
+	 * Starts a new epoch, all examples become available again.
+	 */
+	void reset();
+
+	/**
+	 * Returns the next examples of the current epoch.
+	 * 
+	 * @param batchSize
+	 *            the maximum number of examples to return.
+	 * 
+	 * @return up to batchSize examples, an empty list if all examples of the
+	 *         current epoch have been returned.
+	 */
+	List<NNExample> nextBatch(int batchSize);
+}
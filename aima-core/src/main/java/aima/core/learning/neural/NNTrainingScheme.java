@@ -1,5 +1,7 @@
 package aima.core.learning.neural;
 
+import java.util.List;
+
 import aima.core.util.math.Vector;
 
 /**
@@ -11,5 +13,16 @@ public interface NNTrainingScheme {
 
 	void processError(FeedForwardNeuralNetwork network, Vector error);
 
+	/**
+	 * Trains the network on a mini-batch of examples. This default
+	 * implementation processes the examples one after another.
+	 */
+	default void processBatch(FeedForwardNeuralNetwork network, List<NNExample> batch) {
+		for (NNExample nne : batch) {
+			processInput(network, nne.getInput());
+			processError(network, network.getOutputLayer().errorVectorFrom(nne.getTarget()));
+		}
+	}
+
 	void setNeuralNetwork(FunctionApproximator ffnn);
 }
@@ -1,5 +1,7 @@
 package aima.core.learning.neural;
 
+import java.util.List;
+
 import aima.core.util.math.Matrix;
 import aima.core.util.math.Vector;
 
@@ -54,6 +56,42 @@ public class Perceptron implements FunctionApproximator {
 		}
 	}
 
+	/**
+	 * Induces the layer of this perceptron in mini-batches: the errors of all
+	 * examples of a batch are computed with the current layer and applied as
+	 * one (summed) update. The examples need not be held in memory at once.
+	 * 
+	 * @param source
+	 *            the source of the training examples.
+	 * @param batchSize
+	 *            the number of examples per update.
+	 * @param numberofEpochs
+	 *            the number of training epochs to be used.
+	 */
+	public void trainOn(NNExampleSource source, int batchSize,
+			int numberofEpochs) {
+		for (int i = 0; i < numberofEpochs; i++) {
+			source.reset();
+			List<NNExample> batch;
+			while (!(batch = source.nextBatch(batchSize)).isEmpty()) {
+				Matrix weightUpdate = null;
+				Vector errorSum = null;
+				for (NNExample nne : batch) {
+					processInput(nne.getInput());
+					Vector error = layer.errorVectorFrom(nne.getTarget());
+					Matrix update = error.times(lastInput.transpose());
+					weightUpdate = null == weightUpdate ? update
+							: weightUpdate.plusEquals(update);
+					errorSum = null == errorSum ? error : errorSum.plus(error);
+				}
+				layer.acceptNewWeightUpdate(weightUpdate);
+				layer.acceptNewBiasUpdate(errorSum);
+				layer.updateWeights();
+				layer.updateBiases();
+			}
+		}
+	}
+
 	/**
 	 * Returns the outcome predicted for the specified example
 	 * 
@@ -0,0 +1,200 @@
+package aima.core.logic.fol;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import aima.core.logic.fol.kb.data.Clause;
+import aima.core.logic.fol.kb.data.Literal;
+import aima.core.logic.fol.parsing.ast.FOLNode;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+/**
+ * Feature vector indexing (see S. Schulz: <i>Simple and Efficient Clause
+ * Subsumption with Feature Vector Indexing</i>) of clauses for forward and
+ * backward subsumption testing.<br>
+ * <br>
+ * Each clause is mapped to a fixed length vector of features, the number of
+ * positive and negative literals, the number of literals per (hashed)
+ * predicate symbol/arity and polarity, and the number of occurrences of
+ * (hashed) constant and function symbols. If a clause C subsumes a clause D
+ * then every feature of C is less than or equal to the corresponding feature
+ * of D (instantiating C can only add symbols and {@link Clause#subsumes(Clause)}
+ * maps the literals of C to distinct literals of D). The vectors are stored in
+ * a trie so that only clauses with compatible feature vectors are tested with
+ * the (expensive) {@link Clause#subsumes(Clause)} check.
+ *
+ */
+public class FeatureVectorIndex {
+	private static final int PREDICATE_BUCKETS = 8;
+	private static final int SYMBOL_BUCKETS = 8;
+	private static final int FEATURES = 2 + PREDICATE_BUCKETS + SYMBOL_BUCKETS;
+	//
+	private Node root = new Node();
+	private int size = 0;
+
+	public FeatureVectorIndex() {
+
+	}
+
+	public FeatureVectorIndex(Set<Clause> clauses) {
+		for (Clause c : clauses) {
+			add(c);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void add(Clause c) {
+		int[] features = featureVector(c);
+		Node node = root;
+		for (int i = 0; i < FEATURES; i++) {
+			Node child = node.children.get(features[i]);
+			if (null == child) {
+				child = new Node();
+				node.children.put(features[i], child);
+			}
+			node = child;
+		}
+		if (node.clauses.add(c)) {
+			size++;
+		}
+	}
+
+	public boolean remove(Clause c) {
+		boolean removed = remove(root, featureVector(c), 0, c);
+		if (removed) {
+			size--;
+		}
+		return removed;
+	}
+
+	/**
+	 * Forward subsumption.
+	 *
+	 * @param c
+	 *            a clause.
+	 * @return true if any of the indexed clauses subsumes c.
+	 */
+	public boolean isSubsumed(Clause c) {
+		return findSubsumer(root, featureVector(c), 0, c);
+	}
+
+	/**
+	 * Backward subsumption.
+	 *
+	 * @param c
+	 *            a clause.
+	 * @return the indexed clauses that are subsumed by c.
+	 */
+	public Set<Clause> findSubsumedBy(Clause c) {
+		Set<Clause> subsumed = new LinkedHashSet<Clause>();
+		findSubsumed(root, featureVector(c), 0, c, subsumed);
+		return subsumed;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private boolean remove(Node node, int[] features, int level, Clause c) {
+		if (level == FEATURES) {
+			return node.clauses.remove(c);
+		}
+		Node child = node.children.get(features[level]);
+		boolean removed = false;
+		if (null != child) {
+			removed = remove(child, features, level + 1, c);
+			if (child.isEmpty()) {
+				node.children.remove(features[level]);
+			}
+		}
+		return removed;
+	}
+
+	private boolean findSubsumer(Node node, int[] features, int level,
+			Clause c) {
+		if (level == FEATURES) {
+			for (Clause s : node.clauses) {
+				if (s.subsumes(c)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		// Candidate subsumers have all features <= those of c
+		for (Node child : node.children.headMap(features[level], true)
+				.values()) {
+			if (findSubsumer(child, features, level + 1, c)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void findSubsumed(Node node, int[] features, int level, Clause c,
+			Set<Clause> subsumed) {
+		if (level == FEATURES) {
+			for (Clause s : node.clauses) {
+				if (c.subsumes(s)) {
+					subsumed.add(s);
+				}
+			}
+			return;
+		}
+		// Candidates for being subsumed have all features >= those of c
+		for (Node child : node.children.tailMap(features[level], true)
+				.values()) {
+			findSubsumed(child, features, level + 1, c, subsumed);
+		}
+	}
+
+	private static int[] featureVector(Clause c) {
+		int[] features = new int[FEATURES];
+		features[0] = c.getNumberPositiveLiterals();
+		features[1] = c.getNumberNegativeLiterals();
+		for (Literal l : c.getLiterals()) {
+			FOLNode atom = l.getAtomicSentence();
+			List<? extends FOLNode> args = atom.getArgs();
+			int h = 31 * atom.getSymbolicName().hashCode() + args.size();
+			if (l.isNegativeLiteral()) {
+				h = ~h;
+			}
+			features[2 + bucket(h, PREDICATE_BUCKETS)]++;
+			for (FOLNode arg : args) {
+				countSymbols((Term) arg, features);
+			}
+		}
+		return features;
+	}
+
+	private static void countSymbols(Term term, int[] features) {
+		if (term instanceof Variable) {
+			return;
+		}
+		features[2 + PREDICATE_BUCKETS
+				+ bucket(term.getSymbolicName().hashCode(), SYMBOL_BUCKETS)]++;
+		if (term.isCompound()) {
+			for (Term arg : term.getArgs()) {
+				countSymbols(arg, features);
+			}
+		}
+	}
+
+	private static int bucket(int hash, int buckets) {
+		hash ^= (hash >>> 16);
+		return (hash & 0x7fffffff) % buckets;
+	}
+
+	private static class Node {
+		private TreeMap<Integer, Node> children = new TreeMap<Integer, Node>();
+		private Set<Clause> clauses = new LinkedHashSet<Clause>();
+
+		private boolean isEmpty() {
+			return children.isEmpty() && clauses.isEmpty();
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package aima.core.logic.fol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import aima.core.logic.fol.parsing.ast.FOLNode;
+import aima.core.logic.fol.parsing.ast.Function;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+/**
+ * A drop-in replacement for {@link Unifier} which computes the same most
+ * general unifiers (Figure 9.1, page 328) without recursing over the parse
+ * tree and without copying terms on every new binding.<br>
+ * <br>
+ * Both arguments are interned into a hash-consed {@link TermStore}. The
+ * unifier then works on integer ids with an explicit stack of pending pairs
+ * and a triangular substitution, i.e. a variable may be bound to a term which
+ * still contains bound variables. Bindings are recorded on a trail so that a
+ * failed attempt can be undone in time proportional to the number of bindings
+ * made. Only when unification succeeds is the triangular substitution
+ * resolved into the fully applied Map&lt;Variable, Term&gt; representation
+ * returned by {@link Unifier}.<br>
+ * <br>
+ * Sentences which cannot be interned (connected, negated and quantified
+ * sentences) are delegated to the {@link Unifier} implementation. Instances
+ * keep one working area per thread and can therefore be shared, e.g. as a
+ * static member.
+ *
+ */
+public class IterativeUnifier extends Unifier {
+	/**
+	 * Default number of interned nodes after which the store of a thread is
+	 * cleared (standardizing apart introduces new variables continuously).
+	 */
+	public static final int DEFAULT_MAX_STORE_SIZE = 1 << 16;
+	//
+	private final int maxStoreSize;
+	private final ThreadLocal<Workspace> workspace = new ThreadLocal<Workspace>() {
+		@Override
+		protected Workspace initialValue() {
+			return new Workspace();
+		}
+	};
+
+	public IterativeUnifier() {
+		this(DEFAULT_MAX_STORE_SIZE);
+	}
+
+	/**
+	 * @param maxStoreSize
+	 *            the number of interned nodes after which the term store of
+	 *            a thread is cleared before the next call.
+	 */
+	public IterativeUnifier(int maxStoreSize) {
+		this.maxStoreSize = maxStoreSize;
+	}
+
+	@Override
+	public Map<Variable, Term> unify(FOLNode x, FOLNode y,
+			Map<Variable, Term> theta) {
+		if (theta == null) {
+			return null;
+		}
+		Workspace ws = workspace();
+		int xId = ws.store.intern(x);
+		int yId = ws.store.intern(y);
+		if (xId < 0 || yId < 0) {
+			return super.unify(x, y, theta);
+		}
+		ws.reset();
+		ws.push(xId, yId);
+		return solve(ws, theta);
+	}
+
+	@Override
+	public Map<Variable, Term> unify(List<? extends FOLNode> x,
+			List<? extends FOLNode> y, Map<Variable, Term> theta) {
+		if (theta == null) {
+			return null;
+		} else if (x.size() != y.size()) {
+			return null;
+		}
+		Workspace ws = workspace();
+		ws.reset();
+		// Push in reverse order so that the pairs are processed left to
+		// right, as is the case with the recursive implementation.
+		for (int i = x.size() - 1; i >= 0; i--) {
+			int xId = ws.store.intern(x.get(i));
+			int yId = ws.store.intern(y.get(i));
+			if (xId < 0 || yId < 0) {
+				return super.unify(x, y, theta);
+			}
+			ws.push(xId, yId);
+		}
+		return solve(ws, theta);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private Workspace workspace() {
+		Workspace ws = workspace.get();
+		if (ws.store.size() > maxStoreSize) {
+			ws.store.clear();
+		}
+		return ws;
+	}
+
+	private Map<Variable, Term> solve(Workspace ws, Map<Variable, Term> theta) {
+		Map<Variable, Term> result = null;
+		// The pairs to unify are already on the stack, first establish the
+		// bindings of the substitution built up so far.
+		int[] seeds = new int[2 * theta.size()];
+		int n = 0;
+		for (Map.Entry<Variable, Term> binding : theta.entrySet()) {
+			seeds[n++] = ws.store.intern(binding.getKey());
+			seeds[n++] = ws.store.intern(binding.getValue());
+		}
+		int pending = ws.stackSize;
+		boolean consistent = true;
+		for (int i = 0; consistent && i < n; i += 2) {
+			ws.stackSize = pending;
+			ws.push(seeds[i], seeds[i + 1]);
+			consistent = ws.unify(pending);
+		}
+		if (consistent) {
+			int seeded = ws.trailSize;
+			ws.ensureBindingsCapacity();
+			if (ws.unify(0)) {
+				if (ws.trailSize > seeded) {
+					// Apply the new bindings to the existing substitution
+					// (see Unifier.cascadeSubstitution) and add them
+					for (Map.Entry<Variable, Term> binding : theta.entrySet()) {
+						binding.setValue(resolve(ws,
+								ws.store.intern(binding.getKey())));
+					}
+					for (int i = seeded; i < ws.trailSize; i++) {
+						int var = ws.trail[i];
+						theta.put(ws.store.newVariable(var), resolve(ws, var));
+					}
+				}
+				result = theta;
+			}
+		}
+		ws.undo();
+		return result;
+	}
+
+	private Term resolve(Workspace ws, int id) {
+		id = ws.deref(id);
+		TermStore store = ws.store;
+		if (store.isVariable(id)) {
+			return store.newVariable(id);
+		} else if (store.isGround(id)) {
+			return store.getGroundTerm(id);
+		}
+		int arity = store.getArity(id);
+		List<Term> args = new ArrayList<Term>(arity);
+		for (int i = 0; i < arity; i++) {
+			args.add(resolve(ws, store.getArg(id, i)));
+		}
+		return new Function(store.getSymbolName(store.getSymbol(id)), args);
+	}
+
+	/**
+	 * Per thread state: the term store, the bindings of the triangular
+	 * substitution indexed by term id, the trail of bound variables and the
+	 * stacks used by unification and the occur check.
+	 */
+	private static class Workspace {
+		private final TermStore store = new TermStore();
+		private int[] bindings = new int[0];
+		private int[] trail = new int[16];
+		private int trailSize = 0;
+		private int[] stack = new int[32];
+		private int stackSize = 0;
+		private int[] occurStack = new int[16];
+
+		private void reset() {
+			stackSize = 0;
+		}
+
+		private void ensureBindingsCapacity() {
+			if (bindings.length < store.size()) {
+				int old = bindings.length;
+				bindings = Arrays.copyOf(bindings,
+						Math.max(store.size(), 2 * old));
+				Arrays.fill(bindings, old, bindings.length, -1);
+			}
+		}
+
+		private void push(int x, int y) {
+			if (stackSize + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, 2 * stack.length);
+			}
+			stack[stackSize++] = x;
+			stack[stackSize++] = y;
+		}
+
+		private int deref(int id) {
+			while (store.isVariable(id) && bindings[id] >= 0) {
+				id = bindings[id];
+			}
+			return id;
+		}
+
+		private void bind(int var, int term) {
+			if (trailSize == trail.length) {
+				trail = Arrays.copyOf(trail, 2 * trail.length);
+			}
+			trail[trailSize++] = var;
+			bindings[var] = term;
+		}
+
+		private void undo() {
+			while (trailSize > 0) {
+				bindings[trail[--trailSize]] = -1;
+			}
+		}
+
+		/**
+		 * Unifies the pairs on the stack above the given floor.
+		 */
+		private boolean unify(int floor) {
+			ensureBindingsCapacity();
+			while (stackSize > floor) {
+				int y = deref(stack[--stackSize]);
+				int x = deref(stack[--stackSize]);
+				if (x == y) {
+					continue;
+				}
+				if (store.isVariable(x)) {
+					// UNIFY-VAR(x, y, theta)
+					if (!store.isTerm(y) || occurs(x, y)) {
+						return false;
+					}
+					bind(x, y);
+				} else if (store.isVariable(y)) {
+					// UNIFY-VAR(y, x, theta)
+					if (!store.isTerm(x) || occurs(y, x)) {
+						return false;
+					}
+					bind(y, x);
+				} else if (store.isCompound(x) && store.isCompound(y)
+						&& store.getSymbol(x) == store.getSymbol(y)
+						&& store.getArity(x) == store.getArity(y)) {
+					for (int i = store.getArity(x) - 1; i >= 0; i--) {
+						push(store.getArg(x, i), store.getArg(y, i));
+					}
+				} else {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean occurs(int var, int term) {
+			if (store.isGround(term)) {
+				return false;
+			}
+			int size = 0;
+			occurStack[size++] = term;
+			while (size > 0) {
+				int t = deref(occurStack[--size]);
+				if (t == var) {
+					return true;
+				}
+				if (store.isCompound(t) && !store.isGround(t)) {
+					int arity = store.getArity(t);
+					if (size + arity > occurStack.length) {
+						occurStack = Arrays.copyOf(occurStack,
+								2 * (size + arity));
+					}
+					for (int i = 0; i < arity; i++) {
+						occurStack[size++] = store.getArg(t, i);
+					}
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -2,6 +2,7 @@ package aima.core.logic.fol;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class ensures unique standardize apart indexicals are created.
@@ -48,7 +49,8 @@ public class StandardizeApartIndexicalFactory {
 
 class StandardizeApartIndexicalImpl implements StandardizeApartIndexical {
 	private String prefix = null;
-	private int index = 0;
+	// Resolvents may be generated concurrently, see FOLOTTERLikeTheoremProver
+	private AtomicInteger index = new AtomicInteger();
 
 	public StandardizeApartIndexicalImpl(String prefix) {
 		this.prefix = prefix;
@@ -61,7 +63,7 @@ class StandardizeApartIndexicalImpl implements StandardizeApartIndexical {
 	}
 
 	public int getNextIndex() {
-		return index++;
+		return index.getAndIncrement();
 	}
 	// END-StandardizeApartIndexical
 	//
@@ -0,0 +1,330 @@
+package aima.core.logic.fol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import aima.core.logic.fol.parsing.ast.Constant;
+import aima.core.logic.fol.parsing.ast.FOLNode;
+import aima.core.logic.fol.parsing.ast.Function;
+import aima.core.logic.fol.parsing.ast.Predicate;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.TermEquality;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+/**
+ * A hash-consed store of terms and atomic sentences. Every structurally
+ * distinct variable, constant, function, predicate or term equality is
+ * represented exactly once and identified by a small integer id, so equality
+ * of interned nodes is an integer comparison and the arguments of a compound
+ * can be read from a flat array without touching the parse tree objects.<br>
+ * <br>
+ * Connected, negated and quantified sentences are not supported and cause
+ * {@link #intern(FOLNode)} to return -1.<br>
+ * <br>
+ * Note: instances are not thread safe.
+ *
+ */
+public class TermStore {
+	public static final byte VARIABLE = 0;
+	public static final byte CONSTANT = 1;
+	public static final byte FUNCTION = 2;
+	public static final byte PREDICATE = 3;
+	public static final byte EQUALITY = 4;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private int size = 0;
+	private byte[] kinds = new byte[INITIAL_CAPACITY];
+	private int[] symbols = new int[INITIAL_CAPACITY];
+	private int[] argOffsets = new int[INITIAL_CAPACITY];
+	private int[] arities = new int[INITIAL_CAPACITY];
+	private boolean[] ground = new boolean[INITIAL_CAPACITY];
+	// Variables (always) and ground terms (lazily) in their object form
+	private FOLNode[] nodes = new FOLNode[INITIAL_CAPACITY];
+	private int[] argPool = new int[INITIAL_CAPACITY];
+	private int argPoolSize = 0;
+	// Scratch stack used while interning nested arguments
+	private int[] argStack = new int[64];
+	private int argStackSize = 0;
+	// Open addressing table holding (id + 1) of interned non-variables
+	private int[] table = new int[2 * INITIAL_CAPACITY];
+	//
+	private Map<String, Integer> symbolIds = new HashMap<String, Integer>();
+	private List<String> symbolNames = new ArrayList<String>();
+	private Map<Variable, Integer> variableIds = new HashMap<Variable, Integer>();
+
+	public TermStore() {
+
+	}
+
+	/**
+	 * Returns the id of the given node, adding it (and all of its sub-terms)
+	 * to the store if necessary.
+	 *
+	 * @param node
+	 *            a term, predicate or term equality.
+	 * @return the id of the node or -1 if the node is of a kind that cannot be
+	 *         interned.
+	 */
+	public int intern(FOLNode node) {
+		if (node instanceof Variable) {
+			Integer id = variableIds.get(node);
+			if (null == id) {
+				Variable var = (Variable) node;
+				id = add(VARIABLE, -1, 0, false,
+						new Variable(var.getValue(), var.getIndexical()));
+				variableIds.put((Variable) nodes[id], id);
+			}
+			return id;
+		}
+		byte kind;
+		if (node instanceof Constant) {
+			kind = CONSTANT;
+		} else if (node instanceof Function) {
+			kind = FUNCTION;
+		} else if (node instanceof Predicate) {
+			kind = PREDICATE;
+		} else if (node instanceof TermEquality) {
+			kind = EQUALITY;
+		} else {
+			return -1;
+		}
+		int symbol = symbolId(node.getSymbolicName());
+		int arity = 0;
+		int base = argStackSize;
+		if (kind != CONSTANT) {
+			List<? extends FOLNode> args = node.getArgs();
+			arity = args.size();
+			for (int i = 0; i < arity; i++) {
+				int argId = intern(args.get(i));
+				if (argId < 0) {
+					argStackSize = base;
+					return -1;
+				}
+				pushArg(argId);
+			}
+		}
+		int id = lookup(kind, symbol, argStack, base, arity);
+		if (id < 0) {
+			boolean isGround = true;
+			for (int i = 0; i < arity; i++) {
+				isGround &= ground[argStack[base + i]];
+			}
+			id = add(kind, symbol, arity, isGround, null);
+			ensureArgPoolCapacity(argPoolSize + arity);
+			System.arraycopy(argStack, base, argPool, argPoolSize, arity);
+			argPoolSize += arity;
+			insertIntoTable(id);
+		}
+		argStackSize = base;
+		return id;
+	}
+
+	/**
+	 * @return the number of nodes held by the store.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all nodes from the store. Previously returned ids become
+	 * invalid.
+	 */
+	public void clear() {
+		Arrays.fill(nodes, 0, size, null);
+		Arrays.fill(table, 0);
+		size = 0;
+		argPoolSize = 0;
+		argStackSize = 0;
+		symbolIds.clear();
+		symbolNames.clear();
+		variableIds.clear();
+	}
+
+	public byte getKind(int id) {
+		return kinds[id];
+	}
+
+	public boolean isVariable(int id) {
+		return kinds[id] == VARIABLE;
+	}
+
+	/**
+	 * @return true if the node with the given id may be bound to a variable,
+	 *         i.e. is a variable, constant or function.
+	 */
+	public boolean isTerm(int id) {
+		return kinds[id] <= FUNCTION;
+	}
+
+	public boolean isCompound(int id) {
+		return kinds[id] >= FUNCTION;
+	}
+
+	public boolean isGround(int id) {
+		return ground[id];
+	}
+
+	/**
+	 * @return the symbol id of a constant, function, predicate or term
+	 *         equality. Equal names share the same symbol id.
+	 */
+	public int getSymbol(int id) {
+		return symbols[id];
+	}
+
+	public String getSymbolName(int symbol) {
+		return symbolNames.get(symbol);
+	}
+
+	public int getArity(int id) {
+		return arities[id];
+	}
+
+	public int getArg(int id, int index) {
+		return argPool[argOffsets[id] + index];
+	}
+
+	/**
+	 * @return a new copy of the variable with the given id.
+	 */
+	public Variable newVariable(int id) {
+		return ((Variable) nodes[id]).copy();
+	}
+
+	/**
+	 * Returns the object form of a ground term. As ground terms contain no
+	 * (mutable) variables the returned instance is shared between calls.
+	 *
+	 * @param id
+	 *            the id of a ground constant or function.
+	 * @return the corresponding term.
+	 */
+	public Term getGroundTerm(int id) {
+		Term result = (Term) nodes[id];
+		if (null == result) {
+			if (kinds[id] == CONSTANT) {
+				result = new Constant(symbolNames.get(symbols[id]));
+			} else {
+				List<Term> args = new ArrayList<Term>(arities[id]);
+				for (int i = 0; i < arities[id]; i++) {
+					args.add(getGroundTerm(getArg(id, i)));
+				}
+				result = new Function(symbolNames.get(symbols[id]), args);
+			}
+			nodes[id] = result;
+		}
+		return result;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private int symbolId(String name) {
+		Integer symbol = symbolIds.get(name);
+		if (null == symbol) {
+			symbol = symbolNames.size();
+			symbolNames.add(name);
+			symbolIds.put(name, symbol);
+		}
+		return symbol;
+	}
+
+	private void pushArg(int argId) {
+		if (argStackSize == argStack.length) {
+			argStack = Arrays.copyOf(argStack, 2 * argStack.length);
+		}
+		argStack[argStackSize++] = argId;
+	}
+
+	private int add(byte kind, int symbol, int arity, boolean isGround,
+			FOLNode node) {
+		if (size == kinds.length) {
+			int capacity = 2 * size;
+			kinds = Arrays.copyOf(kinds, capacity);
+			symbols = Arrays.copyOf(symbols, capacity);
+			argOffsets = Arrays.copyOf(argOffsets, capacity);
+			arities = Arrays.copyOf(arities, capacity);
+			ground = Arrays.copyOf(ground, capacity);
+			nodes = Arrays.copyOf(nodes, capacity);
+		}
+		int id = size++;
+		kinds[id] = kind;
+		symbols[id] = symbol;
+		argOffsets[id] = argPoolSize;
+		arities[id] = arity;
+		ground[id] = isGround;
+		nodes[id] = node;
+		return id;
+	}
+
+	private void ensureArgPoolCapacity(int capacity) {
+		if (capacity > argPool.length) {
+			argPool = Arrays.copyOf(argPool,
+					Math.max(capacity, 2 * argPool.length));
+		}
+	}
+
+	private static int hash(byte kind, int symbol, int[] args, int from,
+			int arity) {
+		int h = 31 * kind + symbol;
+		for (int i = 0; i < arity; i++) {
+			h = 31 * h + args[from + i];
+		}
+		// spread the bits, as the table size is a power of two
+		return h ^ (h >>> 16);
+	}
+
+	private int lookup(byte kind, int symbol, int[] args, int from, int arity) {
+		int mask = table.length - 1;
+		int slot = hash(kind, symbol, args, from, arity) & mask;
+		while (table[slot] != 0) {
+			int id = table[slot] - 1;
+			if (kinds[id] == kind && symbols[id] == symbol
+					&& arities[id] == arity
+					&& sameArgs(id, args, from, arity)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private boolean sameArgs(int id, int[] args, int from, int arity) {
+		int offset = argOffsets[id];
+		for (int i = 0; i < arity; i++) {
+			if (argPool[offset + i] != args[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void insertIntoTable(int id) {
+		// Keep the load factor of the table below 0.5
+		if (2 * size > table.length) {
+			int[] old = table;
+			table = new int[2 * old.length];
+			for (int entry : old) {
+				if (entry != 0) {
+					insertIntoTable0(entry - 1);
+				}
+			}
+		}
+		insertIntoTable0(id);
+	}
+
+	private void insertIntoTable0(int id) {
+		int mask = table.length - 1;
+		int slot = hash(kinds[id], symbols[id], argPool, argOffsets[id],
+				arities[id]) & mask;
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = id + 1;
+	}
+}
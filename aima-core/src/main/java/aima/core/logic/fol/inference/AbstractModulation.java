@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.Set;
 
 import aima.core.logic.fol.SubstVisitor;
+import aima.core.logic.fol.IterativeUnifier;
 import aima.core.logic.fol.Unifier;
 import aima.core.logic.fol.VariableCollector;
 import aima.core.logic.fol.parsing.FOLVisitor;
@@ -30,7 +31,7 @@ public abstract class AbstractModulation {
 	//
 	// PROTECTED ATTRIBUTES
 	protected VariableCollector variableCollector = new VariableCollector();
-	protected Unifier unifier = new Unifier();
+	protected Unifier unifier = new IterativeUnifier();
 	protected SubstVisitor substVisitor = new SubstVisitor();
 
 	//
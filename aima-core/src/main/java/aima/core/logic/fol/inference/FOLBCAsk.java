@@ -2,6 +2,7 @@ package aima.core.logic.fol.inference;
 
 import java.util.*;
 
+import aima.core.logic.fol.IterativeUnifier;
 import aima.core.logic.fol.Unifier;
 import aima.core.logic.fol.inference.proof.*;
 import aima.core.logic.fol.kb.FOLKnowledgeBase;
@@ -51,8 +52,14 @@ public class FOLBCAsk implements InferenceProcedure{
 	List<HashMap<Variable,Term>> finalList;
 	BCASKHandler bcaskHandler = new BCASKHandler();
 	public boolean maybeFalse = false;
+	private Unifier unifier;
 
 	public FOLBCAsk() {
+		this(new IterativeUnifier());
+	}
+
+	public FOLBCAsk(Unifier unifier) {
+		this.unifier = unifier;
 		finalAnswer = new ArrayList<>();
 		substitutedLiterals = new ArrayList<>();
 	}
@@ -108,7 +115,7 @@ public class FOLBCAsk implements InferenceProcedure{
 			}
 			//for each θ' in FOL-BC-AND(KB, lhs, UNIFY(rhs, goal, θ)) do
 			// yield θ'
-			result.addAll(folBcAnd(kb, lhs, new Unifier().unify(rhs.getAtomicSentence(), goal.getAtomicSentence(), temp)));
+			result.addAll(folBcAnd(kb, lhs, unifier.unify(rhs.getAtomicSentence(), goal.getAtomicSentence(), temp)));
 		}
 		return result;
 	}
@@ -7,8 +7,10 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import aima.core.logic.fol.Connectors;
+import aima.core.logic.fol.FeatureVectorIndex;
 import aima.core.logic.fol.SubsumptionElimination;
 import aima.core.logic.fol.inference.otter.ClauseFilter;
 import aima.core.logic.fol.inference.otter.ClauseSimplifier;
@@ -28,6 +30,7 @@ import aima.core.logic.fol.parsing.ast.Sentence;
 import aima.core.logic.fol.parsing.ast.Term;
 import aima.core.logic.fol.parsing.ast.TermEquality;
 import aima.core.logic.fol.parsing.ast.Variable;
+import aima.core.search.framework.Metrics;
 
 /**
  * Artificial Intelligence A Modern Approach (2nd Edition): Figure 9.14, page
@@ -81,19 +84,37 @@ import aima.core.logic.fol.parsing.ast.Variable;
  * Library for Automated Theorem Proving</b>:<br>
  * <a href="http://www.cs.miami.edu/~tptp/">http://www.cs.miami.edu/~tptp/</a><br>
  * 
+ * <br>
+ * <b>Note:</b> Forward and backward subsumption use a
+ * {@link FeatureVectorIndex}, the candidate partners of the given clause are
+ * looked up in an index of the usable clauses by literal symbol and polarity,
+ * and the inferences with the candidates can optionally be generated in
+ * parallel (see {@link #setParallelInference(boolean)}).
+ * 
  * @author Ciaran O'Reilly
  * 
  */
 public class FOLOTTERLikeTheoremProver implements InferenceProcedure {
+	public static final String METRIC_GIVEN_CLAUSES = "givenClauses";
+	public static final String METRIC_CLAUSES_GENERATED = "clausesGenerated";
+	public static final String METRIC_CLAUSES_KEPT = "clausesKept";
+	public static final String METRIC_CLAUSES_FORWARD_SUBSUMED = "clausesForwardSubsumed";
+	public static final String METRIC_CLAUSES_BACKWARD_SUBSUMED = "clausesBackwardSubsumed";
+	public static final String METRIC_TIME_TAKEN = "timeTaken";
+	public static final String METRIC_CLAUSES_GENERATED_PER_SECOND = "clausesGeneratedPerSecond";
+	public static final String METRIC_CLAUSES_KEPT_PER_SECOND = "clausesKeptPerSecond";
+	public static final String METRIC_CLAUSES_SUBSUMED_PER_SECOND = "clausesSubsumedPerSecond";
 	//
 	// Ten seconds is default maximum query time permitted
 	private long maxQueryTime = 10 * 1000;
 	private boolean useParamodulation = true;
+	private boolean parallelInference = false;
 	private LightestClauseHeuristic lightestClauseHeuristic = new DefaultLightestClauseHeuristic();
 	private ClauseFilter clauseFilter = new DefaultClauseFilter();
 	private ClauseSimplifier clauseSimplifier = new DefaultClauseSimplifier();
 	//
 	private Paramodulation paramodulation = new Paramodulation();
+	private Metrics metrics = new Metrics();
 
 	public FOLOTTERLikeTheoremProver() {
 
@@ -129,6 +150,35 @@ public class FOLOTTERLikeTheoremProver implements InferenceProcedure {
 		this.useParamodulation = useParamodulation;
 	}
 
+	public boolean isParallelInference() {
+		return parallelInference;
+	}
+
+	/**
+	 * Sets whether the inferences between the given clause and its partners
+	 * in the usable set are generated concurrently (using the common
+	 * fork/join pool). The resulting clauses are processed in the same order
+	 * as in sequential mode.
+	 * 
+	 * @param parallelInference
+	 *            true to generate inferences in parallel.
+	 */
+	public void setParallelInference(boolean parallelInference) {
+		this.parallelInference = parallelInference;
+	}
+
+	/**
+	 * Returns the metrics of the last call to
+	 * {@link #ask(FOLKnowledgeBase, Sentence)}: the number of given clauses,
+	 * of clauses generated, kept and subsumed, the time taken (in
+	 * milliseconds) and the corresponding rates per second.
+	 * 
+	 * @return the metrics of the last query.
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
 	public LightestClauseHeuristic getLightestClauseHeuristic() {
 		return lightestClauseHeuristic;
 	}
@@ -157,6 +207,8 @@ public class FOLOTTERLikeTheoremProver implements InferenceProcedure {
 	//
 	// START-InferenceProcedure
 	public InferenceResult ask(FOLKnowledgeBase KB, Sentence alpha) {
+		metrics = new Metrics();
+		long startTime = System.currentTimeMillis();
 		Set<Clause> sos = new HashSet<Clause>();
 		Set<Clause> usable = new HashSet<Clause>();
 
@@ -219,7 +271,9 @@ public class FOLOTTERLikeTheoremProver implements InferenceProcedure {
 		IndexedClauses idxdClauses = new IndexedClauses(
 				getLightestClauseHeuristic(), sos, usable);
 
-		return otter(ansHandler, idxdClauses, sos, usable);
+		InferenceResult result = otter(ansHandler, idxdClauses, sos, usable);
+		updateMetrics(idxdClauses, System.currentTimeMillis() - startTime);
+		return result;
 	}
 
 	// END-InferenceProcedure
@@ -245,10 +299,11 @@ public class FOLOTTERLikeTheoremProver implements InferenceProcedure {
 				// * move clause from sos to usable
 				sos.remove(clause);
 				getLightestClauseHeuristic().removedClauseFromSOS(clause);
-				usable.add(clause);
+				idxdClauses.addToUsable(clause, usable);
 				// * PROCESS(INFER(clause, usable), sos)
-				process(ansHandler, idxdClauses, infer(clause, usable), sos,
-						usable);
+				process(ansHandler, idxdClauses,
+						infer(idxdClauses, clause, usable,
+								idxdClauses.getPartners(clause), true), sos, usable);
 			}
 
 			// * until sos = [] or a refutation has been found
@@ -260,30 +315,96 @@ public class FOLOTTERLikeTheoremProver implements InferenceProcedure {
 	/**
 	 * <pre>
 	 * function INFER(clause, usable) returns clauses
+	 * </pre>
+	 * 
+	 * The resulting clauses are counted as generated if
+	 * <code>countGenerated</code> is true, which is the case for the
+	 * resolution steps of the main loop but not for unit refutation checks.
 	 */
-	private Set<Clause> infer(Clause clause, Set<Clause> usable) {
+	private Set<Clause> infer(IndexedClauses idxdClauses, Clause clause,
+			Set<Clause> usable, Set<Clause> partners, boolean countGenerated) {
 		Set<Clause> resultingClauses = new LinkedHashSet<Clause>();
 
-		// * resolve clause with each member of usable
+		// Only the clauses which can possibly resolve or paramodulate
+		// with clause need to be considered.
+		List<Clause> candidates = new ArrayList<Clause>();
 		for (Clause c : usable) {
-			Set<Clause> resolvents = clause.binaryResolvents(c);
-			for (Clause rc : resolvents) {
-				resultingClauses.add(rc);
+			if (null == partners || partners.contains(c)) {
+				candidates.add(c);
 			}
+		}
 
-			// if using paramodulation to handle equality
-			if (isUseParamodulation()) {
-				Set<Clause> paras = paramodulation.apply(clause, c, true);
-				for (Clause p : paras) {
-					resultingClauses.add(p);
-				}
+		// * resolve clause with each member of usable
+		if (isParallelInference() && candidates.size() > 1) {
+			// The lazily cached state of the shared clauses is computed
+			// before the fork, the worker threads then only read it.
+			prepareForParallelInference(clause);
+			for (Clause c : candidates) {
+				prepareForParallelInference(c);
+			}
+			List<List<Clause>> inferred = candidates.parallelStream()
+					.map(c -> infer(clause, c)).collect(Collectors.toList());
+			for (List<Clause> ic : inferred) {
+				resultingClauses.addAll(ic);
+			}
+		} else {
+			for (Clause c : candidates) {
+				resultingClauses.addAll(infer(clause, c));
 			}
 		}
+		if (countGenerated) {
+			idxdClauses.clausesGenerated += resultingClauses.size();
+		}
 
 		// * return the resulting clauses after applying filter
 		return getClauseFilter().filter(resultingClauses);
 	}
 
+	private List<Clause> infer(Clause clause, Clause c) {
+		List<Clause> resultingClauses = new ArrayList<Clause>();
+		Set<Clause> resolvents = clause.binaryResolvents(c);
+		for (Clause rc : resolvents) {
+			resultingClauses.add(rc);
+		}
+
+		// if using paramodulation to handle equality
+		if (isUseParamodulation()) {
+			Set<Clause> paras = paramodulation.apply(clause, c, true);
+			for (Clause p : paras) {
+				resultingClauses.add(p);
+			}
+		}
+		return resultingClauses;
+	}
+
+	private void prepareForParallelInference(Clause clause) {
+		clause.getFactors();
+		clause.toString();
+		for (Literal l : clause.getLiterals()) {
+			l.hashCode();
+			l.toString();
+		}
+	}
+
+	private void updateMetrics(IndexedClauses idxdClauses, long timeTaken) {
+		int subsumed = idxdClauses.clausesForwardSubsumed
+				+ idxdClauses.clausesBackwardSubsumed;
+		metrics.set(METRIC_GIVEN_CLAUSES, idxdClauses.givenClauses);
+		metrics.set(METRIC_CLAUSES_GENERATED, idxdClauses.clausesGenerated);
+		metrics.set(METRIC_CLAUSES_KEPT, idxdClauses.clausesKept);
+		metrics.set(METRIC_CLAUSES_FORWARD_SUBSUMED,
+				idxdClauses.clausesForwardSubsumed);
+		metrics.set(METRIC_CLAUSES_BACKWARD_SUBSUMED,
+				idxdClauses.clausesBackwardSubsumed);
+		metrics.set(METRIC_TIME_TAKEN, timeTaken);
+		double seconds = Math.max(timeTaken, 1) / 1000.0;
+		metrics.set(METRIC_CLAUSES_GENERATED_PER_SECOND,
+				idxdClauses.clausesGenerated / seconds);
+		metrics.set(METRIC_CLAUSES_KEPT_PER_SECOND, idxdClauses.clausesKept
+				/ seconds);
+		metrics.set(METRIC_CLAUSES_SUBSUMED_PER_SECOND, subsumed / seconds);
+	}
+
 	// procedure PROCESS(clauses, sos)
 	private void process(OTTERAnswerHandler ansHandler,
 			IndexedClauses idxdClauses, Set<Clause> clauses, Set<Clause> sos,
@@ -352,7 +473,7 @@ public class FOLOTTERLikeTheoremProver implements InferenceProcedure {
 		}
 
 		if (toCheck.size() > 0) {
-			toCheck = infer(clause, toCheck);
+			toCheck = infer(idxdClauses, clause, toCheck, null, false);
 			for (Clause t : toCheck) {
 				// * clause <- SIMPLIFY(clause)
 				t = getClauseSimplifier().simplify(t);
@@ -383,67 +504,87 @@ public class FOLOTTERLikeTheoremProver implements InferenceProcedure {
 	}
 
 	// This is a simple indexing on the clauses to support
-	// more efficient forward and backward subsumption testing.
+	// more efficient forward and backward subsumption testing
+	// and the lookup of inference partners in usable.
 	class IndexedClauses {
 		private LightestClauseHeuristic lightestClauseHeuristic = null;
-		// Group the clauses by their # of literals.
-		private Map<Integer, Set<Clause>> clausesGroupedBySize = new HashMap<Integer, Set<Clause>>();
-		// Keep track of the min and max # of literals.
-		private int minNoLiterals = Integer.MAX_VALUE;
-		private int maxNoLiterals = 0;
+		// Index of the clauses by their feature vectors.
+		private FeatureVectorIndex subsumptionIndex = new FeatureVectorIndex();
+		// The usable clauses containing a literal with a given
+		// polarity, predicate symbol and arity.
+		private Map<String, Set<Clause>> usableByLiteral = new HashMap<String, Set<Clause>>();
+		// The usable clauses containing a positive term equality.
+		private Set<Clause> usableWithEquality = new HashSet<Clause>();
+		// Statistics
+		private int givenClauses = 0;
+		private int clausesGenerated = 0;
+		private int clausesKept = 0;
+		private int clausesForwardSubsumed = 0;
+		private int clausesBackwardSubsumed = 0;
 
 		public IndexedClauses(LightestClauseHeuristic lightestClauseHeuristic,
 				Set<Clause> sos, Set<Clause> usable) {
 			this.lightestClauseHeuristic = lightestClauseHeuristic;
 			for (Clause c : sos) {
-				indexClause(c);
+				subsumptionIndex.add(c);
 			}
 			for (Clause c : usable) {
-				indexClause(c);
+				subsumptionIndex.add(c);
+				indexUsable(c);
 			}
 		}
 
-		public void addClause(Clause c, Set<Clause> sos, Set<Clause> usable) {
-			// Perform forward subsumption elimination
-			boolean addToSOS = true;
-			for (int i = minNoLiterals; i < c.getNumberLiterals(); i++) {
-				Set<Clause> fs = clausesGroupedBySize.get(i);
-				if (null != fs) {
-					for (Clause s : fs) {
-						if (s.subsumes(c)) {
-							addToSOS = false;
-							break;
-						}
-					}
+		public void addToUsable(Clause c, Set<Clause> usable) {
+			givenClauses++;
+			if (usable.add(c)) {
+				indexUsable(c);
+			}
+		}
+
+		/**
+		 * Returns the usable clauses which can possibly resolve or
+		 * paramodulate with the given clause or null if all usable clauses
+		 * need to be considered.
+		 */
+		public Set<Clause> getPartners(Clause c) {
+			Set<Clause> partners = new HashSet<Clause>();
+			for (Literal l : c.getLiterals()) {
+				if (isUseParamodulation() && isEquality(l)) {
+					// can paramodulate into any clause
+					return null;
 				}
-				if (!addToSOS) {
-					break;
+				Set<Clause> complements = usableByLiteral.get(key(l,
+						!l.isNegativeLiteral()));
+				if (null != complements) {
+					partners.addAll(complements);
 				}
 			}
+			if (isUseParamodulation()) {
+				partners.addAll(usableWithEquality);
+			}
+			return partners;
+		}
 
-			if (addToSOS) {
+		public void addClause(Clause c, Set<Clause> sos, Set<Clause> usable) {
+			// Perform forward subsumption elimination
+			if (subsumptionIndex.isSubsumed(c)) {
+				clausesForwardSubsumed++;
+			} else {
 				sos.add(c);
 				lightestClauseHeuristic.addedClauseToSOS(c);
-				indexClause(c);
+				subsumptionIndex.add(c);
+				clausesKept++;
 				// Have added clause, therefore
 				// perform backward subsumption elimination
-				Set<Clause> subsumed = new HashSet<Clause>();
-				for (int i = c.getNumberLiterals() + 1; i <= maxNoLiterals; i++) {
-					subsumed.clear();
-					Set<Clause> bs = clausesGroupedBySize.get(i);
-					if (null != bs) {
-						for (Clause s : bs) {
-							if (c.subsumes(s)) {
-								subsumed.add(s);
-								if (sos.contains(s)) {
-									sos.remove(s);
-									lightestClauseHeuristic
-											.removedClauseFromSOS(s);
-								}
-								usable.remove(s);
-							}
-						}
-						bs.removeAll(subsumed);
+				for (Clause s : subsumptionIndex.findSubsumedBy(c)) {
+					subsumptionIndex.remove(s);
+					clausesBackwardSubsumed++;
+					if (sos.contains(s)) {
+						sos.remove(s);
+						lightestClauseHeuristic.removedClauseFromSOS(s);
+					}
+					if (usable.remove(s)) {
+						unindexUsable(s);
 					}
 				}
 			}
@@ -452,20 +593,41 @@ public class FOLOTTERLikeTheoremProver implements InferenceProcedure {
 		//
 		// PRIVATE METHODS
 		//
-		private void indexClause(Clause c) {
-			int size = c.getNumberLiterals();
-			if (size < minNoLiterals) {
-				minNoLiterals = size;
-			}
-			if (size > maxNoLiterals) {
-				maxNoLiterals = size;
+		private void indexUsable(Clause c) {
+			for (Literal l : c.getLiterals()) {
+				String key = key(l, l.isNegativeLiteral());
+				Set<Clause> clauses = usableByLiteral.get(key);
+				if (null == clauses) {
+					clauses = new HashSet<Clause>();
+					usableByLiteral.put(key, clauses);
+				}
+				clauses.add(c);
+				if (isEquality(l)) {
+					usableWithEquality.add(c);
+				}
 			}
-			Set<Clause> cforsize = clausesGroupedBySize.get(size);
-			if (null == cforsize) {
-				cforsize = new HashSet<Clause>();
-				clausesGroupedBySize.put(size, cforsize);
+		}
+
+		private void unindexUsable(Clause c) {
+			for (Literal l : c.getLiterals()) {
+				Set<Clause> clauses = usableByLiteral.get(key(l,
+						l.isNegativeLiteral()));
+				if (null != clauses) {
+					clauses.remove(c);
+				}
 			}
-			cforsize.add(c);
+			usableWithEquality.remove(c);
+		}
+
+		private boolean isEquality(Literal l) {
+			return l.isPositiveLiteral()
+					&& l.getAtomicSentence() instanceof TermEquality;
+		}
+
+		private String key(Literal l, boolean negated) {
+			return (negated ? "~" : "")
+					+ l.getAtomicSentence().getSymbolicName() + "/"
+					+ l.getAtomicSentence().getArgs().size();
 		}
 	}
 
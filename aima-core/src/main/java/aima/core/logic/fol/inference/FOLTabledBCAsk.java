@@ -0,0 +1,397 @@
+package aima.core.logic.fol.inference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import aima.core.logic.fol.inference.proof.Proof;
+import aima.core.logic.fol.inference.proof.ProofFinal;
+import aima.core.logic.fol.inference.proof.ProofStep;
+import aima.core.logic.fol.inference.proof.ProofStepBwChTabledAnswer;
+import aima.core.logic.fol.kb.FOLKnowledgeBase;
+import aima.core.logic.fol.kb.data.Clause;
+import aima.core.logic.fol.kb.data.Literal;
+import aima.core.logic.fol.parsing.ast.AtomicSentence;
+import aima.core.logic.fol.parsing.ast.Sentence;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+/**
+ * Backward chaining over a knowledge base of definite clauses with tabling
+ * (in the spirit of SLG resolution): the answers found for a subgoal are
+ * memoised in a table shared by all subgoals which are variants of each other
+ * (i.e. equal up to variable renaming). A subgoal whose table is complete is
+ * never re-evaluated, and a recursive call to a subgoal which is still being
+ * evaluated consumes the answers found so far instead of recursing. The
+ * evaluation of the query is repeated until no table receives a new answer,
+ * so left-recursive rule sets terminate and identical subgoals are solved
+ * once instead of once per path (compare {@link FOLBCAsk}).<br>
+ * <br>
+ * Optionally the alternative rules (OR branches) for a subgoal are explored
+ * in parallel on a {@link ForkJoinPool}. The result has the same shape as the
+ * other inference procedures: one proof per answer to the query, holding the
+ * bindings of the query variables and the steps deriving the answer.
+ *
+ */
+public class FOLTabledBCAsk implements InferenceProcedure {
+	//
+	// Ten seconds is default maximum query time permitted
+	private long maxQueryTime = 10 * 1000;
+	private ForkJoinPool pool = null;
+
+	public FOLTabledBCAsk() {
+
+	}
+
+	public FOLTabledBCAsk(long maxQueryTime) {
+		setMaxQueryTime(maxQueryTime);
+	}
+
+	/**
+	 * @param pool
+	 *            the pool on which OR branches are explored in parallel or
+	 *            null for sequential exploration.
+	 */
+	public FOLTabledBCAsk(ForkJoinPool pool) {
+		setPool(pool);
+	}
+
+	public long getMaxQueryTime() {
+		return maxQueryTime;
+	}
+
+	public void setMaxQueryTime(long maxQueryTime) {
+		this.maxQueryTime = maxQueryTime;
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	//
+	// START-InferenceProcedure
+	public InferenceResult ask(FOLKnowledgeBase KB, Sentence query) {
+		// Assertions on the type of queries this Inference procedure
+		// supports
+		if (!(query instanceof AtomicSentence)) {
+			throw new IllegalArgumentException(
+					"Only Atomic Queries are supported.");
+		}
+		Literal goal = new Literal((AtomicSentence) query);
+		Evaluation evaluation = new Evaluation(KB);
+		Table table = evaluation.solveQuery(goal);
+
+		TabledAnswerHandler ansHandler = new TabledAnswerHandler(
+				evaluation.timedOut.get());
+		List<Variable> queryVariables = new ArrayList<Variable>(
+				KB.collectAllVariables(query));
+		for (Answer answer : table.getAnswers()) {
+			Map<Variable, Term> theta = KB.unify(query, evaluation
+					.renameApart(answer).getAtomicSentence());
+			Map<Variable, Term> answerBindings = new LinkedHashMap<Variable, Term>();
+			for (Variable v : queryVariables) {
+				answerBindings.put(v, theta.get(v));
+			}
+			ansHandler.proofs.add(new ProofFinal(answer.step, answerBindings));
+		}
+		return ansHandler;
+	}
+
+	// END-InferenceProcedure
+	//
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * The state of one query: the tables and the rules of the KB indexed by
+	 * the predicate of their head.
+	 */
+	private class Evaluation {
+		private FOLKnowledgeBase kb;
+		private Map<String, List<Clause>> rulesByHead = new HashMap<String, List<Clause>>();
+		private Map<String, Table> tables = new ConcurrentHashMap<String, Table>();
+		private volatile int iteration = 0;
+		private AtomicBoolean changed = new AtomicBoolean();
+		private AtomicBoolean timedOut = new AtomicBoolean();
+		private long finishTime;
+
+		private Evaluation(FOLKnowledgeBase kb) {
+			this.kb = kb;
+			for (Clause c : kb.getAllDefiniteClauses()) {
+				String key = headKey(c.getPositiveLiterals().get(0));
+				List<Clause> rules = rulesByHead.get(key);
+				if (null == rules) {
+					rules = new ArrayList<Clause>();
+					rulesByHead.put(key, rules);
+				}
+				rules.add(c);
+			}
+			finishTime = System.currentTimeMillis() + maxQueryTime;
+		}
+
+		private Table solveQuery(Literal goal) {
+			Table table;
+			do {
+				iteration++;
+				changed.set(false);
+				table = solve(goal);
+			} while (changed.get() && !table.complete && !isTimedOut());
+			return table;
+		}
+
+		/**
+		 * Returns the table of the given subgoal, evaluating the subgoal
+		 * first unless the table is complete or already being (or has been)
+		 * evaluated during the current iteration. The caller has to treat
+		 * the answers as incomplete if the table is not complete.
+		 */
+		private Table solve(Literal goal) {
+			String key = variantKey(goal);
+			Table table = tables.get(key);
+			if (null == table) {
+				Table newTable = new Table(goal);
+				table = ((ConcurrentHashMap<String, Table>) tables)
+						.putIfAbsent(key, newTable);
+				if (null == table) {
+					table = newTable;
+				}
+			}
+			if (table.complete || isTimedOut()) {
+				return table;
+			}
+			int previous = table.evaluatedIn.get();
+			if (previous != iteration
+					&& table.evaluatedIn.compareAndSet(previous, iteration)) {
+				if (evaluate(table)) {
+					table.complete = true;
+				}
+			}
+			return table;
+		}
+
+		/**
+		 * Explores all OR branches for the table's goal and returns true if
+		 * none of them depended on an incomplete table.
+		 */
+		private boolean evaluate(final Table table) {
+			List<Clause> rules = rulesByHead.get(headKey(table.goal));
+			if (null == rules) {
+				return true;
+			}
+			final AtomicBoolean complete = new AtomicBoolean(true);
+			if (null != pool && rules.size() > 1) {
+				List<ForkJoinTask<?>> branches = new ArrayList<ForkJoinTask<?>>();
+				for (final Clause rule : rules) {
+					branches.add(ForkJoinTask.adapt(new Runnable() {
+						public void run() {
+							if (!evaluateRule(table, rule)) {
+								complete.set(false);
+							}
+						}
+					}));
+				}
+				invokeAll(branches);
+			} else {
+				for (Clause rule : rules) {
+					if (!evaluateRule(table, rule)) {
+						complete.set(false);
+					}
+				}
+			}
+			return complete.get();
+		}
+
+		private void invokeAll(final List<ForkJoinTask<?>> branches) {
+			// Tasks of other pools must not fork into them
+			if (ForkJoinTask.getPool() == pool) {
+				ForkJoinTask.invokeAll(branches);
+			} else {
+				pool.invoke(new RecursiveAction() {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected void compute() {
+						ForkJoinTask.invokeAll(branches);
+					}
+				});
+			}
+		}
+
+		private boolean evaluateRule(Table table, Clause rule) {
+			// (lhs, rhs) <- STANDARDIZE-VARIABLES((lhs, rhs))
+			Clause r = kb.standardizeApart(rule);
+			Map<Variable, Term> theta = kb.unify(r.getPositiveLiterals()
+					.get(0).getAtomicSentence(), table.goal.getAtomicSentence());
+			if (null == theta) {
+				return true;
+			}
+			List<Literal> body = new ArrayList<Literal>();
+			for (Literal l : r.getNegativeLiterals()) {
+				body.add(new Literal(l.getAtomicSentence()));
+			}
+			return evaluateBody(table, r, body, 0, theta,
+					new ArrayList<ProofStep>());
+		}
+
+		// AND node: prove the body literals from index i on.
+		private boolean evaluateBody(Table table, Clause rule,
+				List<Literal> body, int i, Map<Variable, Term> theta,
+				List<ProofStep> premises) {
+			if (i == body.size()) {
+				Literal fact = kb.subst(theta, table.goal);
+				ProofStep step = body.isEmpty() ? rule.getProofStep()
+						: new ProofStepBwChTabledAnswer(rule, fact, theta,
+								premises);
+				if (table.addAnswer(variantKey(fact), new Answer(fact, step,
+						!kb.collectAllVariables(fact.getAtomicSentence())
+								.isEmpty()))) {
+					changed.set(true);
+				}
+				return true;
+			}
+			if (isTimedOut()) {
+				return false;
+			}
+			Literal subgoal = body.get(i);
+			Table subTable = solve(kb.subst(theta, subgoal));
+			// Read the status before the answers, so that answers added
+			// after the snapshot cannot go unnoticed.
+			boolean complete = subTable.complete;
+			for (Answer answer : subTable.getAnswers()) {
+				Map<Variable, Term> thetaPrime = kb.unify(
+						subgoal.getAtomicSentence(), renameApart(answer)
+								.getAtomicSentence(),
+						new LinkedHashMap<Variable, Term>(theta));
+				if (null != thetaPrime) {
+					premises.add(answer.step);
+					if (!evaluateBody(table, rule, body, i + 1, thetaPrime,
+							premises)) {
+						complete = false;
+					}
+					premises.remove(premises.size() - 1);
+				}
+			}
+			return complete;
+		}
+
+		private Literal renameApart(Answer answer) {
+			if (answer.hasVariables) {
+				return new Literal((AtomicSentence) kb.standardizeApart(answer
+						.fact.getAtomicSentence()));
+			}
+			return answer.fact;
+		}
+
+		private boolean isTimedOut() {
+			if (!timedOut.get() && System.currentTimeMillis() > finishTime) {
+				timedOut.set(true);
+			}
+			return timedOut.get();
+		}
+
+		// Subgoals which are equal up to variable renaming share a key.
+		private String variantKey(Literal l) {
+			Map<Variable, Term> canonical = new HashMap<Variable, Term>();
+			for (Variable v : kb.collectAllVariables(l.getAtomicSentence())) {
+				canonical.put(v, new Variable("_" + canonical.size()));
+			}
+			return kb.subst(canonical, l).toString();
+		}
+
+		private String headKey(Literal l) {
+			return l.getAtomicSentence().getSymbolicName() + "/"
+					+ l.getAtomicSentence().getArgs().size();
+		}
+	}
+
+	/**
+	 * The answers found so far for all variants of a subgoal.
+	 */
+	private static class Table {
+		private final Literal goal;
+		private final Map<String, Answer> answers = new LinkedHashMap<String, Answer>();
+		private final AtomicInteger evaluatedIn = new AtomicInteger();
+		private volatile boolean complete = false;
+
+		private Table(Literal goal) {
+			this.goal = goal;
+		}
+
+		private synchronized boolean addAnswer(String key, Answer answer) {
+			if (answers.containsKey(key)) {
+				return false;
+			}
+			answers.put(key, answer);
+			return true;
+		}
+
+		private synchronized List<Answer> getAnswers() {
+			return new ArrayList<Answer>(answers.values());
+		}
+	}
+
+	private static class Answer {
+		private final Literal fact;
+		private final ProofStep step;
+		private final boolean hasVariables;
+
+		private Answer(Literal fact, ProofStep step, boolean hasVariables) {
+			this.fact = fact;
+			this.step = step;
+			this.hasVariables = hasVariables;
+		}
+	}
+
+	class TabledAnswerHandler implements InferenceResult {
+		private List<Proof> proofs = new ArrayList<Proof>();
+		private boolean timedOut = false;
+
+		public TabledAnswerHandler(boolean timedOut) {
+			this.timedOut = timedOut;
+		}
+
+		//
+		// START-InferenceResult
+		public boolean isPossiblyFalse() {
+			return !timedOut && proofs.size() == 0;
+		}
+
+		public boolean isTrue() {
+			return proofs.size() > 0;
+		}
+
+		public boolean isUnknownDueToTimeout() {
+			return timedOut && proofs.size() == 0;
+		}
+
+		public boolean isPartialResultDueToTimeout() {
+			return timedOut && proofs.size() > 0;
+		}
+
+		public List<Proof> getProofs() {
+			return proofs;
+		}
+
+		// END-InferenceResult
+		//
+
+		@Override
+		public String toString() {
+			return "result=" + proofs;
+		}
+	}
+}
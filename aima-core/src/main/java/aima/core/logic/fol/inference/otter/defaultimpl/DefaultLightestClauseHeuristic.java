@@ -1,6 +1,8 @@
 package aima.core.logic.fol.inference.otter.defaultimpl;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -9,13 +11,20 @@ import aima.core.logic.fol.inference.otter.LightestClauseHeuristic;
 import aima.core.logic.fol.kb.data.Clause;
 
 /**
+ * Keeps the set of support in one sorted bucket per number of literals, so
+ * that clauses are only compared by their equality identities with clauses of
+ * the same weight, and the lightest clause is found in the first non-empty
+ * bucket.
+ * 
  * @author Ciaran O'Reilly
  * 
  */
 public class DefaultLightestClauseHeuristic implements LightestClauseHeuristic {
 
 	private LightestClauseSorter c = new LightestClauseSorter();
-	private SortedSet<Clause> sos = new TreeSet<Clause>(c);
+	private List<SortedSet<Clause>> sos = new ArrayList<SortedSet<Clause>>();
+	// No bucket below this index contains a clause
+	private int lightestBucket = 0;
 
 	public DefaultLightestClauseHeuristic() {
 
@@ -26,8 +35,12 @@ public class DefaultLightestClauseHeuristic implements LightestClauseHeuristic {
 	public Clause getLightestClause() {
 		Clause lightest = null;
 
-		if (sos.size() > 0) {
-			lightest = sos.first();
+		while (lightestBucket < sos.size()
+				&& sos.get(lightestBucket).isEmpty()) {
+			lightestBucket++;
+		}
+		if (lightestBucket < sos.size()) {
+			lightest = sos.get(lightestBucket).first();
 		}
 
 		return lightest;
@@ -35,15 +48,28 @@ public class DefaultLightestClauseHeuristic implements LightestClauseHeuristic {
 
 	public void initialSOS(Set<Clause> clauses) {
 		sos.clear();
-		sos.addAll(clauses);
+		lightestBucket = 0;
+		for (Clause clause : clauses) {
+			addedClauseToSOS(clause);
+		}
 	}
 
 	public void addedClauseToSOS(Clause clause) {
-		sos.add(clause);
+		int weight = clause.getNumberLiterals();
+		while (sos.size() <= weight) {
+			sos.add(new TreeSet<Clause>(c));
+		}
+		sos.get(weight).add(clause);
+		if (weight < lightestBucket) {
+			lightestBucket = weight;
+		}
 	}
 
 	public void removedClauseFromSOS(Clause clause) {
-		sos.remove(clause);
+		int weight = clause.getNumberLiterals();
+		if (weight < sos.size()) {
+			sos.get(weight).remove(clause);
+		}
 	}
 
 	// END-LightestClauseHeuristic
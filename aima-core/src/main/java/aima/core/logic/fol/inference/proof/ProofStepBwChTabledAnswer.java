@@ -0,0 +1,65 @@
+package aima.core.logic.fol.inference.proof;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import aima.core.logic.fol.kb.data.Clause;
+import aima.core.logic.fol.kb.data.Literal;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+/**
+ * Records the derivation of an answer to a tabled (backward chaining)
+ * subgoal by a definite clause whose body literals were proven by the given
+ * predecessor steps.
+ *
+ */
+public class ProofStepBwChTabledAnswer extends AbstractProofStep {
+	//
+	private List<ProofStep> predecessors = new ArrayList<ProofStep>();
+	//
+	private Clause implication = null;
+	private Literal answer = null;
+	private Map<Variable, Term> bindings = new LinkedHashMap<Variable, Term>();
+
+	public ProofStepBwChTabledAnswer(Clause implication, Literal answer,
+			Map<Variable, Term> bindings, List<ProofStep> predecessors) {
+		this.implication = implication;
+		this.answer = answer;
+		this.bindings.putAll(bindings);
+		this.predecessors.add(implication.getProofStep());
+		this.predecessors.addAll(predecessors);
+	}
+
+	//
+	// START-ProofStep
+	@Override
+	public List<ProofStep> getPredecessorSteps() {
+		return Collections.unmodifiableList(predecessors);
+	}
+
+	@Override
+	public String getProof() {
+		StringBuilder sb = new StringBuilder();
+		List<Literal> nLits = implication.getNegativeLiterals();
+		for (int i = 0; i < implication.getNumberNegativeLiterals(); i++) {
+			sb.append(nLits.get(i).getAtomicSentence());
+			if (i != (implication.getNumberNegativeLiterals() - 1)) {
+				sb.append(" AND ");
+			}
+		}
+		sb.append(" => ");
+		sb.append(implication.getPositiveLiterals().get(0));
+		return sb.toString();
+	}
+
+	@Override
+	public String getJustification() {
+		return "Tabled answer " + answer.toString() + ", " + bindings;
+	}
+	// END-ProofStep
+	//
+}
@@ -10,6 +10,7 @@ import java.util.Map;
 import java.util.Set;
 
 import aima.core.logic.fol.CNFConverter;
+import aima.core.logic.fol.IterativeUnifier;
 import aima.core.logic.fol.StandardizeApart;
 import aima.core.logic.fol.StandardizeApartIndexical;
 import aima.core.logic.fol.StandardizeApartIndexicalFactory;
@@ -79,7 +80,7 @@ public class FOLKnowledgeBase {
 
 	public FOLKnowledgeBase(FOLDomain domain,
 			InferenceProcedure inferenceProcedure) {
-		this(domain, inferenceProcedure, new Unifier());
+		this(domain, inferenceProcedure, new IterativeUnifier());
 	}
 
 	public FOLKnowledgeBase(FOLDomain domain,
@@ -225,6 +226,11 @@ public class FOLKnowledgeBase {
 		return unifier.unify(x, y);
 	}
 
+	public Map<Variable, Term> unify(FOLNode x, FOLNode y,
+			Map<Variable, Term> theta) {
+		return unifier.unify(x, y, theta);
+	}
+
 	public Sentence subst(Map<Variable, Term> theta, Sentence aSentence) {
 		return substVisitor.subst(theta, aSentence);
 	}
@@ -11,6 +11,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import aima.core.logic.fol.IterativeUnifier;
 import aima.core.logic.fol.StandardizeApart;
 import aima.core.logic.fol.StandardizeApartIndexical;
 import aima.core.logic.fol.StandardizeApartIndexicalFactory;
@@ -46,7 +47,7 @@ public class Clause {
 	//
 	private static StandardizeApartIndexical _saIndexical = StandardizeApartIndexicalFactory
 			.newStandardizeApartIndexical('c');
-	private static Unifier _unifier = new Unifier();
+	private static Unifier _unifier = new IterativeUnifier();
 	private static SubstVisitor _substVisitor = new SubstVisitor();
 	private static VariableCollector _variableCollector = new VariableCollector();
 	private static StandardizeApart _standardizeApart = new StandardizeApart();
@@ -214,14 +215,14 @@ public class Clause {
 		return Collections.unmodifiableList(negativeLiterals);
 	}
 
-	public Set<Clause> getFactors() {
+	public synchronized Set<Clause> getFactors() {
 		if (null == factors) {
 			calculateFactors(null);
 		}
 		return Collections.unmodifiableSet(factors);
 	}
 
-	public Set<Clause> getNonTrivialFactors() {
+	public synchronized Set<Clause> getNonTrivialFactors() {
 		if (null == nonTrivialFactors) {
 			calculateFactors(null);
 		}
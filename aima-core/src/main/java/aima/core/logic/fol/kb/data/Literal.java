@@ -81,15 +81,19 @@ public class Literal {
 
 	@Override
 	public int hashCode() {
-		if (0 == hashCode) {
-			hashCode = 17;
-			hashCode = 37 * hashCode + (getClass().getSimpleName().hashCode())
+		// Computed locally so that concurrent callers never see a partial
+		// value.
+		int result = hashCode;
+		if (0 == result) {
+			result = 17;
+			result = 37 * result + (getClass().getSimpleName().hashCode())
 					+ (isPositiveLiteral() ? "+".hashCode() : "-".hashCode())
 					+ atom.getSymbolicName().hashCode();
 			for (Term t : atom.getArgs()) {
-				hashCode = 37 * hashCode + t.hashCode();
+				result = 37 * result + t.hashCode();
 			}
+			hashCode = result;
 		}
-		return hashCode;
+		return result;
 	}
 }
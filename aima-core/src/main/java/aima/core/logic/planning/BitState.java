@@ -0,0 +1,99 @@
+package aima.core.logic.planning;
+
+import java.util.Arrays;
+
+/**
+ * Immutable planning state of a {@link GroundProblem}. Each ground fluent is
+ * identified by an integer id, and the state stores the ids of the fluents
+ * which hold as bits in an array of words. Tests against action masks and
+ * successor generation therefore need a few word operations per 64 fluents.
+ */
+public class BitState {
+    private final long[] words;
+    private int hashCode = 0;
+
+    BitState(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Checks whether the fluent with the given id holds.
+     */
+    public boolean contains(int fluent) {
+        int w = fluent >>> 6;
+        return w < words.length && (words[w] & (1L << fluent)) != 0;
+    }
+
+    /**
+     * Checks whether all fluents of the mask hold.
+     */
+    public boolean containsAll(long[] mask) {
+        for (int i = 0; i < mask.length; i++)
+            if ((words[i] & mask[i]) != mask[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Checks whether at least one fluent of the mask holds.
+     */
+    public boolean intersects(long[] mask) {
+        for (int i = 0; i < mask.length; i++)
+            if ((words[i] & mask[i]) != 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns (this - del) + add as new state.
+     */
+    public BitState apply(long[] del, long[] add) {
+        long[] result = new long[words.length];
+        for (int i = 0; i < result.length; i++)
+            result[i] = (words[i] & ~del[i]) | add[i];
+        return new BitState(result);
+    }
+
+    /**
+     * Returns the number of fluents which hold.
+     */
+    public int size() {
+        int result = 0;
+        for (long word : words)
+            result += Long.bitCount(word);
+        return result;
+    }
+
+    /**
+     * Returns the ids of the fluents which hold in ascending order.
+     */
+    public int[] getFluents() {
+        int[] result = new int[size()];
+        int k = 0;
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                result[k++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof BitState && Arrays.equals(words, ((BitState) obj).words);
+    }
+
+    @Override
+    public int hashCode() {
+        if (hashCode == 0)
+            hashCode = Arrays.hashCode(words);
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(getFluents());
+    }
+}
@@ -0,0 +1,208 @@
+package aima.core.logic.planning;
+
+import aima.core.search.framework.Metrics;
+import aima.core.search.framework.Node;
+import aima.core.search.framework.SearchForActions;
+import aima.core.search.framework.problem.GeneralProblem;
+import aima.core.search.framework.qsearch.GraphSearch;
+import aima.core.search.framework.qsearch.QueueSearch;
+import aima.core.search.informed.BestFirstSearch;
+import aima.core.search.informed.GreedyBestFirstSearch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Artificial Intelligence A Modern Approach (3rd Edition): Section 10.2,
+ * page 373.<br>
+ * <br>
+ * Forward (progression) state-space search for planning problems. The
+ * planning problem is compiled into a {@link GroundProblem} and searched with
+ * greedy best-first search or weighted A* (f(n) = g(n) + w * h(n)) using one
+ * of the delete relaxation heuristics h_FF or h_add
+ * ({@link RelaxedPlanHeuristic}).<br>
+ * <br>
+ * With helpful-action pruning, only the helpful actions of a state are
+ * expanded as long as there are some. Pruning can cut off all plans, so a
+ * search which fails with pruning is repeated without it. States for which
+ * the relaxed problem has no solution are dead ends and are not expanded at
+ * all.
+ */
+public class ForwardPlanner {
+    public static final String METRIC_PLAN_LENGTH = "planLength";
+    public static final String METRIC_GROUND_ACTIONS = "groundActions";
+    public static final String METRIC_EVALUATIONS = "heuristicEvaluations";
+    public static final String METRIC_NODES_EXPANDED = QueueSearch.METRIC_NODES_EXPANDED;
+    public static final String METRIC_GROUNDING_TIME = "groundingTimeMillis";
+    public static final String METRIC_SEARCH_TIME = "searchTimeMillis";
+
+    private RelaxedPlanHeuristic.Type heuristicType = RelaxedPlanHeuristic.Type.H_FF;
+    private double weight = Double.POSITIVE_INFINITY;
+    private boolean helpfulActionPruning = true;
+    private Metrics metrics = new Metrics();
+
+    public ForwardPlanner() {
+    }
+
+    public ForwardPlanner(RelaxedPlanHeuristic.Type heuristicType, double weight) {
+        this.heuristicType = heuristicType;
+        this.weight = weight;
+    }
+
+    public RelaxedPlanHeuristic.Type getHeuristicType() {
+        return heuristicType;
+    }
+
+    public void setHeuristicType(RelaxedPlanHeuristic.Type heuristicType) {
+        this.heuristicType = heuristicType;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    /**
+     * Sets the weight w of the heuristic in f(n) = g(n) + w * h(n). Weight 1
+     * gives A*, and <code>Double.POSITIVE_INFINITY</code> (the default) gives
+     * greedy best-first search.
+     */
+    public void setWeight(double weight) {
+        if (!(weight > 0))
+            throw new IllegalArgumentException("Weight must be positive.");
+        this.weight = weight;
+    }
+
+    public boolean isHelpfulActionPruning() {
+        return helpfulActionPruning;
+    }
+
+    public void setHelpfulActionPruning(boolean helpfulActionPruning) {
+        this.helpfulActionPruning = helpfulActionPruning;
+    }
+
+    /**
+     * Returns the metrics of the last call of one of the plan methods.
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns a sequence of ground action schemas which leads from the
+     * initial state to a goal state, or an empty optional if there is none.
+     */
+    public Optional<List<ActionSchema>> plan(Problem problem) {
+        metrics = new Metrics();
+        long start = System.currentTimeMillis();
+        GroundProblem groundProblem = new GroundProblem(problem);
+        long groundingTime = System.currentTimeMillis() - start;
+        Optional<List<GroundAction>> plan = plan(groundProblem);
+        metrics.set(METRIC_GROUNDING_TIME, groundingTime);
+        if (!plan.isPresent())
+            return Optional.empty();
+        List<ActionSchema> result = new ArrayList<>();
+        for (GroundAction a : plan.get())
+            result.add(a.getSchema());
+        return Optional.of(result);
+    }
+
+    /**
+     * Returns a sequence of ground actions which leads from the initial state
+     * to a goal state, or an empty optional if there is none.
+     */
+    public Optional<List<GroundAction>> plan(GroundProblem problem) {
+        metrics = new Metrics();
+        metrics.set(METRIC_GROUND_ACTIONS, problem.getActions().size());
+        long start = System.currentTimeMillis();
+        RelaxedPlanHeuristic heuristic = new RelaxedPlanHeuristic(problem, heuristicType);
+        int nodesExpanded = 0;
+        Optional<List<GroundAction>> result = Optional.empty();
+        for (boolean pruning : helpfulActionPruning ? new boolean[]{true, false} : new boolean[]{false}) {
+            Evaluator evaluator = new Evaluator(heuristic);
+            SearchForActions<BitState, GroundAction> search = createSearch(evaluator);
+            result = search.findActions(createSearchProblem(problem, evaluator, pruning));
+            nodesExpanded += search.getMetrics().getInt(METRIC_NODES_EXPANDED);
+            if (result.isPresent())
+                break;
+        }
+        metrics.set(METRIC_SEARCH_TIME, System.currentTimeMillis() - start);
+        metrics.set(METRIC_NODES_EXPANDED, nodesExpanded);
+        metrics.set(METRIC_EVALUATIONS, heuristic.getEvaluations());
+        result.ifPresent(plan -> metrics.set(METRIC_PLAN_LENGTH, plan.size()));
+        return result;
+    }
+
+    /**
+     * Creates a search problem for forward state-space search without
+     * helpful-action pruning.
+     */
+    public static GeneralProblem<BitState, GroundAction> createSearchProblem(GroundProblem problem) {
+        return new GeneralProblem<>(problem.getInitialState(), problem::getApplicableActions,
+                (state, action) -> action.result(state), problem::isGoal);
+    }
+
+    //
+    // PRIVATE METHODS
+    //
+
+    private GeneralProblem<BitState, GroundAction> createSearchProblem(GroundProblem problem, Evaluator evaluator,
+                                                                       boolean pruning) {
+        return new GeneralProblem<>(problem.getInitialState(),
+                state -> {
+                    Evaluation e = evaluator.evaluate(state);
+                    if (e.h == Double.POSITIVE_INFINITY)
+                        return Collections.emptyList();
+                    if (pruning && !e.helpfulActions.isEmpty())
+                        return e.helpfulActions;
+                    return problem.getApplicableActions(state);
+                },
+                (state, action) -> action.result(state), problem::isGoal);
+    }
+
+    private SearchForActions<BitState, GroundAction> createSearch(Evaluator evaluator) {
+        ToDoubleFunction<Node<BitState, GroundAction>> h = node -> evaluator.evaluate(node.getState()).h;
+        if (weight == Double.POSITIVE_INFINITY)
+            return new GreedyBestFirstSearch<>(new GraphSearch<>(), h);
+        final double w = weight;
+        return new BestFirstSearch<>(new GraphSearch<>(), node -> node.getPathCost() + w * h.applyAsDouble(node));
+    }
+
+    /**
+     * Caches heuristic values and helpful actions per state. The priority
+     * queue of the best-first search evaluates nodes on every comparison, and
+     * the actions function needs the helpful actions of the same states.
+     */
+    private static class Evaluator {
+        private final RelaxedPlanHeuristic heuristic;
+        private final Map<BitState, Evaluation> cache = new HashMap<>();
+
+        Evaluator(RelaxedPlanHeuristic heuristic) {
+            this.heuristic = heuristic;
+        }
+
+        Evaluation evaluate(BitState state) {
+            Evaluation result = cache.get(state);
+            if (result == null) {
+                double h = heuristic.evaluate(state);
+                result = new Evaluation(h, heuristic.getHelpfulActions());
+                cache.put(state, result);
+            }
+            return result;
+        }
+    }
+
+    private static class Evaluation {
+        final double h;
+        final List<GroundAction> helpfulActions;
+
+        Evaluation(double h, List<GroundAction> helpfulActions) {
+            this.h = h;
+            this.helpfulActions = helpfulActions;
+        }
+    }
+}
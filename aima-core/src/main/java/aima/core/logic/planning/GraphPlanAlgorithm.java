@@ -1,7 +1,5 @@
 package aima.core.logic.planning;
 
-import aima.core.logic.fol.kb.data.Literal;
-
 import java.util.*;
 
 /**
@@ -36,34 +34,60 @@ public class GraphPlanAlgorithm {
      * function GRAPHPLAN(problem) returns solution or failure
      *
      * @param problem the planning problem for which the plan is to be created
-     * @return a solution or null
+     * @return a solution or null. The solution contains one list of actions
+     * per step, starting with the last step.
      */
     public List<List<ActionSchema>> graphPlan(Problem problem) {
+        List<List<GroundAction>> plan = graphPlan(new GroundProblem(problem));
+        if (plan == null)
+            return null;
+        List<List<ActionSchema>> solution = new ArrayList<>();
+        for (int i = plan.size() - 1; i >= 0; i--) {
+            List<ActionSchema> step = new ArrayList<>();
+            for (GroundAction action : plan.get(i))
+                step.add(action.getSchema());
+            solution.add(step);
+        }
+        return solution;
+    }
+
+    /**
+     * function GRAPHPLAN(problem) returns solution or failure
+     *
+     * @param problem the compiled planning problem
+     * @return a solution or null. The solution contains one list of mutually
+     * non-mutex actions per step, in execution order.
+     */
+    public List<List<GroundAction>> graphPlan(GroundProblem problem) {
         //graph ← INITIAL-PLANNING-GRAPH(problem)
-        Graph graph = initialPlanningGraph(problem);
-        // goals ← CONJUNCTS(problem.GOAL)
-        List<Literal> goals = conjuncts(problem.getGoalState());
-        // nogoods ← an empty hash table
-        Hashtable<Integer, List<Literal>> nogoods = new Hashtable<>();
-        Level state;
-        // for tl = 0 to ∞ do
+        PlanningGraph graph = new PlanningGraph(problem);
+        // goals ← CONJUNCTS(problem.GOAL)
+        int[] goals = graph.getGoalPropositions();
+        // nogoods ← an empty hash table
+        List<Nogoods> nogoods = new ArrayList<>();
+        int leveledOffAt = -1;
+        int lastNogoodCount = -1;
+        // for tl = 0 to ∞ do
         for (int tl = 0; ; tl++) {
-            //St
-            state = graph.getLevels().get(2 * tl);
-            // if goals all non-mutex in St of graph then
-            if (checkAllGoalsNonMutex(state, goals)) {
+            // if goals all non-mutex in St of graph then
+            if (graph.containsNonMutex(tl, goals)) {
                 // solution ← EXTRACT-SOLUTION(graph, goals, NUMLEVELS(graph), nogoods)
-                List<List<ActionSchema>> solution = extractSolution(graph, goals, graph.numLevels(), nogoods);
+                List<List<GroundAction>> solution = extractSolution(graph, goals, tl, nogoods);
                 //if solution ≠ failure then return solution
-                if (solution != null && solution.size() != 0)
+                if (solution != null)
                     return solution;
             }
             // if graph and nogoods have both leveled off then return failure
-            if (levelledOff(graph) && leveledOff(nogoods)) {
-                return null;
+            if (leveledOffAt != -1) {
+                int nogoodCount = nogoods.size() > leveledOffAt ? nogoods.get(leveledOffAt).size() : 0;
+                if (nogoodCount == lastNogoodCount)
+                    return null;
+                lastNogoodCount = nogoodCount;
             }
-            //   graph ← EXPAND-GRAPH(graph, problem)
-            graph = expandGraph(graph);
+            //   graph ← EXPAND-GRAPH(graph, problem)
+            graph.expand();
+            if (leveledOffAt == -1 && graph.isLeveledOff())
+                leveledOffAt = tl;
         }
     }
 
@@ -84,158 +108,188 @@ public class GraphPlanAlgorithm {
      * of their preconditions are mutex.
      * • The goal is to reach a state at level S 0 such that all the goals are satisfied.
      * • The cost of each action is 1.
+     * <p>
+     * The conflict-free subsets are not enumerated. Instead, achievers are
+     * chosen goal by goal (no-ops first), always continuing with the goal
+     * which has the fewest achievers compatible with the actions chosen so
+     * far. A failure returns a conflict set: the goals whose chosen actions
+     * caused it. Goals outside the conflict set are skipped when backtracking
+     * (conflict-directed backjumping), and the conflict sets are recorded as
+     * nogoods of their level, which rule out every goal set containing them.
+     * Since the levels up to i never change when the graph is expanded, the
+     * nogoods remain valid across iterations of GRAPHPLAN.
      *
-     * @param graph    The planning graph.
-     * @param goals    Goals of the planning problem.
-     * @param numLevel Number of levels in the graph.
-     * @param nogoods  A hash table to store previously calculated results.
+     * @param graph   The planning graph.
+     * @param goals   Goal propositions of the planning problem.
+     * @param level   Index of the proposition level which contains the goals.
+     * @param nogoods Goal sets per level which are known to fail.
      * @return a solution if found else null
      */
-    private List<List<ActionSchema>> extractSolution(Graph graph, List<Literal> goals, int numLevel,
-                                                     Hashtable<Integer, List<Literal>> nogoods) {
-        if (nogoods.contains(numLevel))
-            return null;
-
-        int level = (graph.numLevels() - 1) / 2;
-        List<Literal> goalsCurr = goals;
-        List<List<ActionSchema>> solution = new ArrayList<>();
-        Level currLevel = graph.getLevels().get(2 * level);
-        while (level > 0) {
-            List<List<ActionSchema>> setOfPossibleActions = new ArrayList<>();
-            HashMap<Object, List<Object>> mutexLinks = currLevel.getPrevLevel().getMutexLinks();
-            for (Literal literal :
-                    goalsCurr) {
-                List<ActionSchema> possiBleActionsPerLiteral = new ArrayList<>();
-                for (Object action :
-                        currLevel.getPrevLinks().get(literal)) {
-                    possiBleActionsPerLiteral.add((ActionSchema) action);
-                }
-                setOfPossibleActions.add(possiBleActionsPerLiteral);
-            }
-            List<List<ActionSchema>> allPossibleSubSets = generateCombinations(setOfPossibleActions);
-            boolean validSet;
-            List<ActionSchema> setToBeTaken = null;
-            for (List<ActionSchema> possibleSet :
-                    allPossibleSubSets) {
-                validSet = true;
-                ActionSchema firstAction, secondAction;
-                for (int i = 0; i < possibleSet.size(); i++) {
-                    firstAction = possibleSet.get(i);
-                    for (int j = i + 1; j < possibleSet.size(); j++) {
-                        secondAction = possibleSet.get(j);
-                        if (mutexLinks.containsKey(firstAction) && mutexLinks.get(firstAction).contains(secondAction))
-                            validSet = false;
-                    }
-                }
-                if (validSet) {
-                    setToBeTaken = possibleSet;
-                    break;
-                }
-            }
-            if (setToBeTaken == null) {
-                nogoods.put(level, goalsCurr);
-                return null;
-            }
+    private List<List<GroundAction>> extractSolution(PlanningGraph graph, int[] goals, int level,
+                                                     List<Nogoods> nogoods) {
+        while (nogoods.size() <= level)
+            nogoods.add(new Nogoods());
+        List<List<GroundAction>> solution = new ArrayList<>();
+        for (int i = 0; i < level; i++)
+            solution.add(null);
+        return extract(graph, goals, level, nogoods, solution) == null ? solution : null;
+    }
 
-            level--;
-            currLevel = graph.getLevels().get(2 * level);
-            goalsCurr.clear();
-            solution.add(setToBeTaken);
-            for (ActionSchema action :
-                    setToBeTaken) {
-                for (Literal literal :
-                        action.getPrecondition()) {
-                    if (!goalsCurr.contains(literal)) {
-                        goalsCurr.add(literal);
-                    }
-                }
-            }
-        }
-        return solution;
+    /**
+     * Returns null if the goals can be achieved at the level, and a subset of
+     * the goals which cannot be achieved together otherwise.
+     */
+    private BitSet extract(PlanningGraph graph, int[] goals, int level, List<Nogoods> nogoods,
+                           List<List<GroundAction>> solution) {
+        if (level == 0)
+            return null;
+        BitSet goalSet = new BitSet();
+        for (int g : goals)
+            goalSet.set(g);
+        BitSet conflict = nogoods.get(level).findSubsetOf(goalSet);
+        if (conflict != null)
+            return conflict;
+        conflict = assignGoals(graph, goals, new ArrayList<>(), new ArrayList<>(), graph.createActionSet(),
+                graph.createPropositionSet(), level, nogoods, solution);
+        if (conflict != null)
+            nogoods.get(level).add(conflict);
+        return conflict;
     }
 
     /**
-     * This method is used to check if all goals are present in a particular state
-     * and none of them has a mutex link.
+     * Chooses achievers for the goals which are not yet achieved by one of the
+     * chosen actions. If all goals are covered, continues with the
+     * preconditions of the chosen actions one level below. Returns null on
+     * success and the conflict set otherwise.
      *
-     * @param level The current level in which to check for the goals.
-     * @param goals List of goals to be checked
-     * @return Boolean representing if goals all non mutex in St
+     * @param assigned the goals for which actions were chosen
+     * @param chosen   the chosen actions
+     * @param excluded the actions which are mutex with a chosen action
+     * @param covered  the propositions added by the chosen actions
      */
-    private boolean checkAllGoalsNonMutex(Level level, List<Literal> goals) {
-        if (!level.getLevelObjects().containsAll(goals)) {
-            return false;
+    private BitSet assignGoals(PlanningGraph graph, int[] goals, List<Integer> assigned, List<Integer> chosen,
+                               long[] excluded, long[] covered, int level, List<Nogoods> nogoods,
+                               List<List<GroundAction>> solution) {
+        int goal = -1;
+        int minOptions = Integer.MAX_VALUE;
+        for (int g : goals) {
+            if (get(covered, g))
+                continue;
+            int options = 0;
+            for (int action : graph.getAchievers(g))
+                if (graph.containsAction(level - 1, action) && !get(excluded, action))
+                    options++;
+            if (options < minOptions) {
+                goal = g;
+                minOptions = options;
+                if (options == 0)
+                    break;
+            }
         }
-        boolean mutexCheck = false;
-        for (Object literal :
-                goals) {
-            List<Object> mutexOfGoal = level.getMutexLinks().get(literal);
-            if (mutexOfGoal != null) {
-                for (Object object :
-                        mutexOfGoal) {
-                    if (goals.contains((Literal) object)) {
-                        mutexCheck = true;
-                        break;
-                    }
-                }
+        if (goal == -1) {
+            Set<Integer> subgoals = new LinkedHashSet<>();
+            for (int action : chosen)
+                for (int p : graph.getPreconditions(action))
+                    subgoals.add(p);
+            int[] next = new int[subgoals.size()];
+            int k = 0;
+            for (int p : subgoals)
+                next[k++] = p;
+            BitSet lowerConflict = extract(graph, next, level - 1, nogoods, solution);
+            if (lowerConflict == null) {
+                List<GroundAction> step = new ArrayList<>();
+                for (int action : chosen)
+                    if (!graph.isNoOp(action))
+                        step.add(graph.getAction(action));
+                solution.set(level - 1, step);
+                return null;
             }
+            // regress the conflict through the chosen actions
+            BitSet conflict = new BitSet();
+            for (int i = 0; i < chosen.size(); i++)
+                for (int p : graph.getPreconditions(chosen.get(i)))
+                    if (lowerConflict.get(p))
+                        conflict.set(assigned.get(i));
+            return conflict;
         }
-        return (!mutexCheck);
+        BitSet conflict = new BitSet();
+        conflict.set(goal);
+        for (int action : graph.getAchievers(goal)) {
+            if (!graph.containsAction(level - 1, action))
+                continue;
+            if (get(excluded, action)) {
+                conflict.set(assigned.get(findMutex(graph, level - 1, action, chosen)));
+                continue;
+            }
+            long[] nextExcluded = excluded.clone();
+            graph.addActionMutexes(level - 1, action, nextExcluded);
+            long[] nextCovered = covered.clone();
+            for (int p : graph.getAddEffects(action))
+                nextCovered[p >>> 6] |= 1L << p;
+            assigned.add(goal);
+            chosen.add(action);
+            BitSet subConflict = assignGoals(graph, goals, assigned, chosen, nextExcluded, nextCovered, level,
+                    nogoods, solution);
+            assigned.remove(assigned.size() - 1);
+            chosen.remove(chosen.size() - 1);
+            if (subConflict == null)
+                return null;
+            if (!subConflict.get(goal))
+                return subConflict; // the choice for goal does not matter
+            conflict.or(subConflict);
+        }
+        return conflict;
     }
 
     /**
-     * This method adds a new state (a state level and an action level both) to the planning graph.
-     *
-     * @param graph The planning graph.
-     * @return The expanded graph.
+     * Returns the position of the first chosen action which is mutex with the
+     * action, or -1 if there is none.
      */
-    private Graph expandGraph(Graph graph) {
-        return graph.addLevel().addLevel();
+    private int findMutex(PlanningGraph graph, int level, int action, List<Integer> chosen) {
+        for (int i = 0; i < chosen.size(); i++)
+            if (graph.isActionMutex(level, action, chosen.get(i)))
+                return i;
+        return -1;
     }
 
-    /**
-     * A graph is said to be levelled off if two consecutive levels are identical.
-     *
-     * @param nogoods
-     * @return Boolean stating if the hashtable is levelled off.
-     */
-    private boolean leveledOff(Hashtable<Integer, List<Literal>> nogoods) {
-        if (nogoods.size() < 2)
-            return false;
-        return nogoods.get(nogoods.size() - 1).equals(nogoods.get(nogoods.size() - 2));
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
     }
 
     /**
-     * A graph is said to be levelled off if two consecutive levels are identical.
-     *
-     * @param graph
-     * @return Boolean stating if the graph is levelled off.
+     * Nogoods of one level. Each nogood is indexed under its smallest
+     * proposition, so that a lookup only tests nogoods which can be subsets
+     * of the goal set.
      */
-    private boolean levelledOff(Graph graph) {
-        if (graph.numLevels() < 2)
-            return false;
-        return graph.levels.get(graph.numLevels() - 1).equals(graph.levels.get(graph.numLevels() - 2));
-    }
+    private static class Nogoods {
+        private final Map<Integer, List<BitSet>> index = new HashMap<>();
+        private int size;
 
-    /**
-     * Returns a list of literals in a state.
-     *
-     * @param goalState
-     * @return List of literals.
-     */
-    private List<Literal> conjuncts(State goalState) {
-        return goalState.getFluents();
-    }
+        void add(BitSet nogood) {
+            index.computeIfAbsent(nogood.nextSetBit(0), k -> new ArrayList<>()).add(nogood);
+            size++;
+        }
 
-    /**
-     * This method initialises the planning graph for a particular problem.
-     *
-     * @param problem The planning problem.
-     * @return Graph for the planning problem.
-     */
-    private Graph initialPlanningGraph(Problem problem) {
-        Level initialLevel = new Level(null, problem);
-        return new Graph(problem, initialLevel);
+        int size() {
+            return size;
+        }
+
+        BitSet findSubsetOf(BitSet goals) {
+            BitSet test = new BitSet();
+            for (int g = goals.nextSetBit(0); g >= 0; g = goals.nextSetBit(g + 1)) {
+                List<BitSet> candidates = index.get(g);
+                if (candidates != null) {
+                    for (BitSet nogood : candidates) {
+                        test.clear();
+                        test.or(nogood);
+                        test.andNot(goals);
+                        if (test.isEmpty())
+                            return nogood;
+                    }
+                }
+            }
+            return null;
+        }
     }
 
     // Helper methods for combinations and permutations.
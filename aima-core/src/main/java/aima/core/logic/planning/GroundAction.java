@@ -0,0 +1,118 @@
+package aima.core.logic.planning;
+
+import aima.core.logic.fol.parsing.ast.Constant;
+
+import java.util.List;
+
+/**
+ * Ground action of a {@link GroundProblem}. Besides the ground action schema,
+ * it carries its positive and negative preconditions and its add and delete
+ * effects as fluent masks (for applicability tests and successor generation)
+ * and as lists of fluent ids (for heuristics which count fluents).
+ */
+public class GroundAction {
+    private final int id;
+    private final ActionSchema schema;
+    private final List<Constant> arguments;
+    private final int[] preconditions;
+    private final int[] negPreconditions;
+    private final int[] addEffects;
+    private final int[] deleteEffects;
+    private final long[] preMask;
+    private final long[] negPreMask;
+    private final long[] addMask;
+    private final long[] delMask;
+
+    GroundAction(int id, ActionSchema schema, List<Constant> arguments, int[] preconditions, int[] negPreconditions,
+                 int[] addEffects, int[] deleteEffects, int words) {
+        this.id = id;
+        this.schema = schema;
+        this.arguments = arguments;
+        this.preconditions = preconditions;
+        this.negPreconditions = negPreconditions;
+        this.addEffects = addEffects;
+        this.deleteEffects = deleteEffects;
+        preMask = toMask(preconditions, words);
+        negPreMask = toMask(negPreconditions, words);
+        addMask = toMask(addEffects, words);
+        delMask = toMask(deleteEffects, words);
+    }
+
+    /**
+     * Returns the position of this action in the action list of its problem.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the ground action schema from which this action was compiled.
+     */
+    public ActionSchema getSchema() {
+        return schema;
+    }
+
+    public String getName() {
+        return schema.getName();
+    }
+
+    /**
+     * Returns the constants which were substituted for the variables of the
+     * lifted schema, in the order of the variables.
+     */
+    public List<Constant> getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Returns the ids of the fluents which must hold before execution.
+     */
+    public int[] getPreconditions() {
+        return preconditions;
+    }
+
+    /**
+     * Returns the ids of the fluents which must not hold before execution.
+     */
+    public int[] getNegativePreconditions() {
+        return negPreconditions;
+    }
+
+    public int[] getAddEffects() {
+        return addEffects;
+    }
+
+    public int[] getDeleteEffects() {
+        return deleteEffects;
+    }
+
+    /**
+     * Checks whether all positive and no negative preconditions hold.
+     */
+    public boolean isApplicable(BitState state) {
+        return state.containsAll(preMask) && !state.intersects(negPreMask);
+    }
+
+    /**
+     * Returns RESULT(s, a) = (s - DEL(a)) + ADD(a). The action must be
+     * applicable.
+     */
+    public BitState result(BitState state) {
+        return state.apply(delMask, addMask);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(schema.getName()).append('(');
+        for (int i = 0; i < arguments.size(); i++)
+            result.append(i > 0 ? "," : "").append(arguments.get(i).getValue());
+        return result.append(')').toString();
+    }
+
+    private static long[] toMask(int[] fluents, int words) {
+        long[] result = new long[words];
+        for (int f : fluents)
+            result[f >>> 6] |= 1L << f;
+        return result;
+    }
+}
@@ -0,0 +1,477 @@
+package aima.core.logic.planning;
+
+import aima.core.logic.fol.kb.data.Literal;
+import aima.core.logic.fol.parsing.ast.Constant;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Compiled, propositional form of a planning {@link Problem}. Ground fluents
+ * are numbered, states are bit sets ({@link BitState}), and each ground action
+ * carries its preconditions and effects as masks ({@link GroundAction}).<br>
+ * <br>
+ * Actions are grounded by a reachability analysis instead of a substitution
+ * of all constant permutations: starting with the initial state, each schema
+ * is instantiated for all bindings which match its positive preconditions
+ * with fluents reached so far, and the positive effects of the new actions are
+ * added to the reached fluents until nothing changes. The analysis is
+ * semi-naive: each round only enumerates the bindings which match at least
+ * one precondition with a fluent reached in the previous round. As in
+ * {@link Problem#getPropositionalisedActions()}, different variables of a
+ * schema are bound to different constants. Negative preconditions and goals
+ * are interpreted under the closed world assumption.<br>
+ * <br>
+ * Every action is indexed under one of its positive preconditions, so that
+ * {@link #getApplicableActions(BitState)} only tests actions whose first
+ * precondition holds. A second index lists all actions with a given
+ * precondition, which is what relaxed planning heuristics need.
+ */
+public class GroundProblem {
+    private final Problem problem;
+    private final List<Literal> fluents = new ArrayList<>();
+    private final Map<Literal, Integer> fluentIds = new HashMap<>();
+    private final List<GroundAction> actions = new ArrayList<>();
+    private int words;
+    private BitState initialState;
+    private long[] goalMask;
+    private long[] negGoalMask;
+    private int[] goals;
+    private int[] negGoals;
+    /** Actions indexed by their first positive precondition. */
+    private int[][] actionsByFirstPrecondition;
+    /** Actions indexed by all their positive preconditions. */
+    private int[][] actionsByPrecondition;
+    private int[] actionsWithoutPrecondition;
+
+    /**
+     * Compiles a planning problem. The goal must be ground.
+     */
+    public GroundProblem(Problem problem) {
+        this.problem = problem;
+        for (Literal goal : problem.getGoalState().getFluents())
+            if (!isGround(goal))
+                throw new IllegalArgumentException("Goal literal is not ground: " + goal);
+        List<Binding> bindings = groundActions(problem);
+        // number all fluents which can hold or are needed by the goal
+        for (Literal fluent : problem.getInitialState().getFluents())
+            getFluentId(fluent);
+        for (Binding binding : bindings)
+            for (Literal effect : binding.action.getEffectsPositiveLiterals())
+                getFluentId(effect);
+        for (Literal goal : problem.getGoalState().getFluents())
+            getFluentId(goal);
+        words = Math.max(1, (fluents.size() + 63) / 64);
+
+        for (Binding binding : bindings) {
+            ActionSchema a = binding.action;
+            actions.add(new GroundAction(actions.size(), a, binding.arguments,
+                    toIds(a.getPrecondition(), false), toIds(a.getPrecondition(), true),
+                    toIds(a.getEffectsPositiveLiterals(), false),
+                    toIds(a.getEffectsNegativeLiterals(), true), words));
+        }
+        initialState = toBitState(problem.getInitialState().getFluents());
+        List<Literal> positiveGoals = new ArrayList<>();
+        List<Literal> negativeGoals = new ArrayList<>();
+        for (Literal goal : problem.getGoalState().getFluents())
+            (goal.isNegativeLiteral() ? negativeGoals : positiveGoals).add(goal);
+        goals = toIds(positiveGoals, false);
+        goalMask = new long[words];
+        for (int f : goals)
+            goalMask[f >>> 6] |= 1L << f;
+        negGoals = toIds(negativeGoals, true);
+        negGoalMask = new long[words];
+        for (int f : negGoals)
+            negGoalMask[f >>> 6] |= 1L << f;
+        buildIndices();
+    }
+
+    public Problem getProblem() {
+        return problem;
+    }
+
+    /**
+     * Returns the number of ground fluents. Fluent ids range from 0 to this
+     * number minus one.
+     */
+    public int getFluentCount() {
+        return fluents.size();
+    }
+
+    /**
+     * Returns the positive literal of a fluent.
+     */
+    public Literal getFluent(int id) {
+        return fluents.get(id);
+    }
+
+    /**
+     * Returns the id of a ground fluent or -1 if it never holds.
+     */
+    public int getFluentIndex(Literal fluent) {
+        Integer result = fluentIds.get(positive(fluent));
+        return result != null ? result : -1;
+    }
+
+    public List<GroundAction> getActions() {
+        return Collections.unmodifiableList(actions);
+    }
+
+    public GroundAction getAction(int id) {
+        return actions.get(id);
+    }
+
+    public BitState getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Returns the ids of the positive goal fluents.
+     */
+    public int[] getGoals() {
+        return goals;
+    }
+
+    /**
+     * Returns the ids of the fluents which must not hold in a goal state.
+     * Negative goals on fluents which never hold are omitted.
+     */
+    public int[] getNegativeGoals() {
+        return negGoals;
+    }
+
+    public boolean isGoal(BitState state) {
+        return state.containsAll(goalMask) && !state.intersects(negGoalMask);
+    }
+
+    /**
+     * Returns the ids of all actions which have the fluent as positive
+     * precondition.
+     */
+    public int[] getActionsWithPrecondition(int fluent) {
+        return actionsByPrecondition[fluent];
+    }
+
+    /**
+     * Returns the ids of all actions without positive precondition.
+     */
+    public int[] getActionsWithoutPrecondition() {
+        return actionsWithoutPrecondition;
+    }
+
+    /**
+     * Returns all actions which are applicable in the state.
+     */
+    public List<GroundAction> getApplicableActions(BitState state) {
+        List<GroundAction> result = new ArrayList<>();
+        for (int a : actionsWithoutPrecondition)
+            if (actions.get(a).isApplicable(state))
+                result.add(actions.get(a));
+        for (int f : state.getFluents())
+            for (int a : actionsByFirstPrecondition[f])
+                if (actions.get(a).isApplicable(state))
+                    result.add(actions.get(a));
+        return result;
+    }
+
+    /**
+     * Converts a conjunction of positive ground fluents into a bit state.
+     * Fluents which never hold are ignored.
+     */
+    public BitState toBitState(List<Literal> literals) {
+        long[] mask = new long[words];
+        for (Literal literal : literals) {
+            int f = getFluentIndex(literal);
+            if (f != -1)
+                mask[f >>> 6] |= 1L << f;
+        }
+        return new BitState(mask);
+    }
+
+    /**
+     * Converts a bit state into a state of fluent literals.
+     */
+    public State toState(BitState state) {
+        List<Literal> result = new ArrayList<>();
+        for (int f : state.getFluents())
+            result.add(fluents.get(f));
+        return new State(result);
+    }
+
+    //
+    // PRIVATE METHODS
+    //
+
+    private int getFluentId(Literal literal) {
+        Literal fluent = positive(literal);
+        Integer result = fluentIds.get(fluent);
+        if (result == null) {
+            result = fluents.size();
+            fluents.add(fluent);
+            fluentIds.put(fluent, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids of the (negative or positive) literals whose fluents can
+     * hold. Literals of the other polarity are skipped.
+     */
+    private int[] toIds(List<Literal> literals, boolean negative) {
+        Set<Integer> result = new LinkedHashSet<>();
+        for (Literal literal : literals) {
+            if (literal.isNegativeLiteral() == negative) {
+                Integer f = fluentIds.get(positive(literal));
+                if (f != null)
+                    result.add(f);
+            }
+        }
+        int[] ids = new int[result.size()];
+        int i = 0;
+        for (int f : result)
+            ids[i++] = f;
+        return ids;
+    }
+
+    private void buildIndices() {
+        int n = fluents.size();
+        int[] firstCounts = new int[n];
+        int[] counts = new int[n];
+        int without = 0;
+        for (GroundAction a : actions) {
+            if (a.getPreconditions().length == 0)
+                without++;
+            else
+                firstCounts[a.getPreconditions()[0]]++;
+            for (int f : a.getPreconditions())
+                counts[f]++;
+        }
+        actionsByFirstPrecondition = new int[n][];
+        actionsByPrecondition = new int[n][];
+        for (int f = 0; f < n; f++) {
+            actionsByFirstPrecondition[f] = new int[firstCounts[f]];
+            actionsByPrecondition[f] = new int[counts[f]];
+        }
+        actionsWithoutPrecondition = new int[without];
+        Arrays.fill(firstCounts, 0);
+        Arrays.fill(counts, 0);
+        without = 0;
+        for (GroundAction a : actions) {
+            int[] pre = a.getPreconditions();
+            if (pre.length == 0)
+                actionsWithoutPrecondition[without++] = a.getId();
+            else
+                actionsByFirstPrecondition[pre[0]][firstCounts[pre[0]]++] = a.getId();
+            for (int f : pre)
+                actionsByPrecondition[f][counts[f]++] = a.getId();
+        }
+    }
+
+    private static Literal positive(Literal literal) {
+        return literal.isPositiveLiteral() ? literal : new Literal(literal.getAtomicSentence());
+    }
+
+    private static boolean isGround(Literal literal) {
+        for (Term term : literal.getAtomicSentence().getArgs())
+            if (!(term instanceof Constant))
+                return false;
+        return true;
+    }
+
+    /**
+     * Computes the ground actions which are reachable from the initial state
+     * when delete effects are ignored.
+     */
+    private static List<Binding> groundActions(Problem problem) {
+        List<Constant> constants = problem.getProblemConstants();
+        // reached fluents by predicate, in the order in which they were reached
+        Map<String, List<Literal>> reached = new HashMap<>();
+        // number of fluents per predicate reached before the current round
+        Map<String, Integer> oldCounts = new HashMap<>();
+        Set<Literal> reachedSet = new LinkedHashSet<>();
+        List<Literal> newFluents = new ArrayList<>();
+        for (Literal fluent : problem.getInitialState().getFluents())
+            if (fluent.isPositiveLiteral())
+                newFluents.add(fluent);
+        Map<ActionSchema, Binding> result = new LinkedHashMap<>();
+        boolean firstRound = true;
+        while (firstRound || !newFluents.isEmpty()) {
+            for (Map.Entry<String, List<Literal>> entry : reached.entrySet())
+                oldCounts.put(entry.getKey(), entry.getValue().size());
+            for (Literal fluent : newFluents)
+                if (reachedSet.add(fluent))
+                    reached.computeIfAbsent(fluent.getAtomicSentence().getSymbolicName(),
+                            k -> new ArrayList<>()).add(fluent);
+            newFluents.clear();
+            for (ActionSchema schema : problem.getActionSchemas()) {
+                List<Literal> positivePre = new ArrayList<>();
+                for (Literal pre : schema.getPrecondition())
+                    if (pre.isPositiveLiteral())
+                        positivePre.add(pre);
+                Grounder grounder = new Grounder(schema, positivePre, constants, reached, oldCounts,
+                        action -> {
+                            if (!result.containsKey(action.action)) {
+                                result.put(action.action, action);
+                                for (Literal effect : action.action.getEffectsPositiveLiterals())
+                                    if (!reachedSet.contains(effect))
+                                        newFluents.add(effect);
+                            }
+                        });
+                if (positivePre.isEmpty()) {
+                    if (firstRound)
+                        grounder.bind(0);
+                } else {
+                    for (int d = 0; d < positivePre.size(); d++) {
+                        if (grounder.hasNewFluents(positivePre.get(d))) {
+                            grounder.newFluentIndex = d;
+                            grounder.bind(0);
+                        }
+                    }
+                }
+            }
+            firstRound = false;
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Ground action schema together with the constants substituted for the
+     * schema variables.
+     */
+    private static class Binding {
+        final ActionSchema action;
+        final List<Constant> arguments;
+
+        Binding(ActionSchema action, List<Constant> arguments) {
+            this.action = action;
+            this.arguments = arguments;
+        }
+    }
+
+    /**
+     * Enumerates the bindings of the variables of a schema which match its
+     * positive preconditions with reached fluents. Variables which do not
+     * occur in positive preconditions are bound to all remaining constants.
+     * The precondition at <code>newFluentIndex</code> is only matched with
+     * fluents of the current round, the ones before it only with older
+     * fluents, so that each binding is enumerated in exactly one round.
+     */
+    private static class Grounder {
+        final ActionSchema schema;
+        final List<Literal> positivePre;
+        final List<Constant> constants;
+        final Map<String, List<Literal>> reached;
+        final Map<String, Integer> oldCounts;
+        final Consumer<Binding> consumer;
+        final List<Term> variables;
+        final Constant[] values;
+        int newFluentIndex = -1;
+
+        Grounder(ActionSchema schema, List<Literal> positivePre, List<Constant> constants,
+                 Map<String, List<Literal>> reached, Map<String, Integer> oldCounts,
+                 Consumer<Binding> consumer) {
+            this.schema = schema;
+            this.positivePre = positivePre;
+            this.constants = constants;
+            this.reached = reached;
+            this.oldCounts = oldCounts;
+            this.consumer = consumer;
+            variables = schema.getVariables();
+            values = new Constant[variables.size()];
+            // some schemas list constants among their variables
+            for (int v = 0; v < values.length; v++)
+                if (variables.get(v) instanceof Constant)
+                    values[v] = (Constant) variables.get(v);
+        }
+
+        void bind(int preIndex) {
+            if (preIndex == positivePre.size()) {
+                bindRemaining(0);
+                return;
+            }
+            Literal pre = positivePre.get(preIndex);
+            String name = pre.getAtomicSentence().getSymbolicName();
+            List<Literal> candidates = reached.get(name);
+            if (candidates == null)
+                return;
+            int oldCount = oldCounts.getOrDefault(name, 0);
+            int from = preIndex == newFluentIndex ? oldCount : 0;
+            int to = preIndex < newFluentIndex ? oldCount : candidates.size();
+            List<Term> args = pre.getAtomicSentence().getArgs();
+            int[] newlyBound = new int[args.size()];
+            for (Literal fluent : candidates.subList(from, to)) {
+                List<Term> fluentArgs = fluent.getAtomicSentence().getArgs();
+                if (fluentArgs.size() != args.size())
+                    continue;
+                int bound = 0;
+                boolean match = true;
+                for (int i = 0; i < args.size() && match; i++) {
+                    Term arg = args.get(i);
+                    if (!(fluentArgs.get(i) instanceof Constant)) {
+                        match = false;
+                        break;
+                    }
+                    Constant value = (Constant) fluentArgs.get(i);
+                    if (arg instanceof Variable) {
+                        int v = variables.lastIndexOf(arg);
+                        if (values[v] == null) {
+                            match = !isUsed(value);
+                            if (match) {
+                                values[v] = value;
+                                newlyBound[bound++] = v;
+                            }
+                        } else {
+                            match = values[v].equals(value);
+                        }
+                    } else {
+                        match = arg.equals(value);
+                    }
+                }
+                if (match)
+                    bind(preIndex + 1);
+                for (int i = 0; i < bound; i++)
+                    values[newlyBound[i]] = null;
+            }
+        }
+
+        boolean hasNewFluents(Literal pre) {
+            String name = pre.getAtomicSentence().getSymbolicName();
+            List<Literal> candidates = reached.get(name);
+            return candidates != null && candidates.size() > oldCounts.getOrDefault(name, 0);
+        }
+
+        void bindRemaining(int v) {
+            if (v == values.length) {
+                List<Constant> arguments = Arrays.asList(values.clone());
+                consumer.accept(new Binding(schema.getActionBySubstitution(arguments), arguments));
+            } else if (values[v] != null) {
+                bindRemaining(v + 1);
+            } else {
+                for (Constant c : constants) {
+                    if (!isUsed(c)) {
+                        values[v] = c;
+                        bindRemaining(v + 1);
+                        values[v] = null;
+                    }
+                }
+            }
+        }
+
+        private boolean isUsed(Constant c) {
+            for (Constant value : values)
+                if (c.equals(value))
+                    return true;
+            return false;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package aima.core.logic.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Artificial Intelligence A Modern Approach (3rd Edition): Section 10.3, page
+ * 379.<br>
+ * <br>
+ * Planning graph of a {@link GroundProblem} with integer indexed propositions
+ * and actions. Under the closed world assumption, every fluent f of the
+ * problem gives two propositions: f itself (id f) and its negation (id n + f,
+ * n being the number of fluents). Real actions keep the ids of the ground
+ * problem, and the persistence action (no-op) of proposition p has id a + p,
+ * a being the number of real actions.<br>
+ * <br>
+ * Levels are bit sets. Action level i lies between proposition levels i and
+ * i + 1. Action mutexes are split into the static part (inconsistent effects
+ * and interference), which is computed once per action, and the competing
+ * needs part, which is stored per level and only for actions which have
+ * mutex preconditions. Proposition mutexes are stored per level as rows of
+ * bits. Both kinds of mutex relations shrink monotonically with the level.
+ */
+public class PlanningGraph {
+    private final GroundProblem problem;
+    private final int fluentCount;
+    private final int propCount;
+    private final int realActionCount;
+    private final int actionCount;
+    private final int propWords;
+    private final int actionWords;
+    private final int[][] pre;
+    private final int[][] add;
+    private final int[][] del;
+    /** Actions by added proposition, no-op first. */
+    private final int[][] achievers;
+    private final long[][] consumerMask;
+    private final long[][] producerMask;
+    private final long[][] deleterMask;
+    /** Inconsistent effects and interference, computed on first appearance. */
+    private final long[][] staticMutex;
+
+    private final List<long[]> propLevels = new ArrayList<>();
+    private final List<long[][]> propMutex = new ArrayList<>();
+    private final List<Integer> propMutexCounts = new ArrayList<>();
+    private final List<long[]> actionLevels = new ArrayList<>();
+    private final List<long[][]> needsMutex = new ArrayList<>();
+
+    /**
+     * Creates the initial planning graph, which consists of proposition level
+     * 0 only.
+     */
+    public PlanningGraph(GroundProblem problem) {
+        this.problem = problem;
+        fluentCount = problem.getFluentCount();
+        propCount = 2 * fluentCount;
+        realActionCount = problem.getActions().size();
+        actionCount = realActionCount + propCount;
+        propWords = Math.max(1, (propCount + 63) / 64);
+        actionWords = Math.max(1, (actionCount + 63) / 64);
+
+        pre = new int[actionCount][];
+        add = new int[actionCount][];
+        del = new int[actionCount][];
+        for (GroundAction a : problem.getActions()) {
+            int id = a.getId();
+            pre[id] = toPropositions(a.getPreconditions(), a.getNegativePreconditions());
+            add[id] = toPropositions(a.getAddEffects(), a.getDeleteEffects());
+            del[id] = toPropositions(a.getDeleteEffects(), a.getAddEffects());
+        }
+        for (int p = 0; p < propCount; p++) {
+            pre[realActionCount + p] = new int[]{p};
+            add[realActionCount + p] = new int[]{p};
+            del[realActionCount + p] = new int[0];
+        }
+        consumerMask = new long[propCount][actionWords];
+        producerMask = new long[propCount][actionWords];
+        deleterMask = new long[propCount][actionWords];
+        int[] counts = new int[propCount];
+        for (int t = 0; t < actionCount; t++) {
+            for (int p : pre[t])
+                set(consumerMask[p], t);
+            for (int p : add[t]) {
+                set(producerMask[p], t);
+                counts[p]++;
+            }
+            for (int p : del[t])
+                set(deleterMask[p], t);
+        }
+        achievers = new int[propCount][];
+        for (int p = 0; p < propCount; p++) {
+            achievers[p] = new int[counts[p]];
+            achievers[p][0] = realActionCount + p;
+            counts[p] = 1;
+        }
+        for (int t = 0; t < realActionCount; t++)
+            for (int p : add[t])
+                achievers[p][counts[p]++] = t;
+        staticMutex = new long[actionCount][];
+
+        long[] initial = new long[propWords];
+        BitState init = problem.getInitialState();
+        for (int f = 0; f < fluentCount; f++)
+            set(initial, init.contains(f) ? f : fluentCount + f);
+        propLevels.add(initial);
+        propMutex.add(new long[propCount][]);
+        propMutexCounts.add(0);
+    }
+
+    public GroundProblem getProblem() {
+        return problem;
+    }
+
+    /**
+     * Returns the number of proposition levels. The number of action levels
+     * is one less.
+     */
+    public int numLevels() {
+        return propLevels.size();
+    }
+
+    public int getFluentCount() {
+        return fluentCount;
+    }
+
+    /**
+     * Returns the id of the proposition which states that the fluent holds
+     * (positive = true) or does not hold.
+     */
+    public int toProposition(int fluent, boolean positive) {
+        return positive ? fluent : fluentCount + fluent;
+    }
+
+    /**
+     * Returns the propositions of the goal, the positive ones first.
+     */
+    public int[] getGoalPropositions() {
+        return toPropositions(problem.getGoals(), problem.getNegativeGoals());
+    }
+
+    /**
+     * Returns the ground action with the given id, or null for a no-op.
+     */
+    public GroundAction getAction(int action) {
+        return action < realActionCount ? problem.getAction(action) : null;
+    }
+
+    public boolean isNoOp(int action) {
+        return action >= realActionCount;
+    }
+
+    public int[] getPreconditions(int action) {
+        return pre[action];
+    }
+
+    public int[] getAddEffects(int action) {
+        return add[action];
+    }
+
+    /**
+     * Returns all actions which add the proposition, the no-op first.
+     * Whether they are present at some level has to be checked with
+     * {@link #containsAction(int, int)}.
+     */
+    public int[] getAchievers(int prop) {
+        return achievers[prop];
+    }
+
+    public boolean containsProposition(int level, int prop) {
+        return get(propLevels.get(level), prop);
+    }
+
+    public boolean containsAction(int level, int action) {
+        return get(actionLevels.get(level), action);
+    }
+
+    public boolean isPropositionMutex(int level, int p, int q) {
+        long[] row = propMutex.get(level)[p];
+        return row != null && get(row, q);
+    }
+
+    public boolean isActionMutex(int level, int a, int b) {
+        if (get(staticMutex[a], b))
+            return true;
+        long[] row = needsMutex.get(level)[a];
+        return row != null && get(row, b);
+    }
+
+    /**
+     * Returns an empty bit set which can hold all actions (including no-ops).
+     */
+    public long[] createActionSet() {
+        return new long[actionWords];
+    }
+
+    /**
+     * Returns an empty bit set which can hold all propositions.
+     */
+    public long[] createPropositionSet() {
+        return new long[propWords];
+    }
+
+    /**
+     * Adds all actions which are mutex with the given action at the level to
+     * the action set.
+     */
+    public void addActionMutexes(int level, int action, long[] actionSet) {
+        or(actionSet, staticMutex[action]);
+        long[] row = needsMutex.get(level)[action];
+        if (row != null)
+            or(actionSet, row);
+    }
+
+    /**
+     * Checks whether all propositions are contained in the level and no two
+     * of them are mutex.
+     */
+    public boolean containsNonMutex(int level, int[] props) {
+        for (int i = 0; i < props.length; i++) {
+            if (!containsProposition(level, props[i]))
+                return false;
+            for (int j = i + 1; j < props.length; j++)
+                if (isPropositionMutex(level, props[i], props[j]))
+                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the last two proposition levels are identical, including
+     * their mutexes. From then on, all further levels are identical.
+     */
+    public boolean isLeveledOff() {
+        int n = propLevels.size();
+        return n > 1 && Arrays.equals(propLevels.get(n - 1), propLevels.get(n - 2))
+                && propMutexCounts.get(n - 1).equals(propMutexCounts.get(n - 2));
+    }
+
+    /**
+     * Adds an action level and the following proposition level.
+     */
+    public PlanningGraph expand() {
+        int level = propLevels.size() - 1;
+        long[] props = propLevels.get(level);
+        long[][] pMutex = propMutex.get(level);
+
+        // actions whose preconditions are present and pairwise non-mutex
+        long[] actions = new long[actionWords];
+        for (int t = 0; t < actionCount; t++) {
+            if (isApplicable(t, props, pMutex)) {
+                set(actions, t);
+                if (staticMutex[t] == null)
+                    staticMutex[t] = computeStaticMutex(t);
+            }
+        }
+        // competing needs
+        long[][] mutexConsumers = new long[propCount][];
+        for (int p = 0; p < propCount; p++) {
+            if (pMutex[p] != null) {
+                long[] row = new long[actionWords];
+                for (int q = nextSetBit(pMutex[p], 0); q >= 0; q = nextSetBit(pMutex[p], q + 1))
+                    or(row, consumerMask[q]);
+                and(row, actions);
+                mutexConsumers[p] = row;
+            }
+        }
+        long[][] needs = new long[actionCount][];
+        for (int t = nextSetBit(actions, 0); t >= 0; t = nextSetBit(actions, t + 1)) {
+            long[] row = null;
+            for (int p : pre[t]) {
+                if (mutexConsumers[p] != null) {
+                    if (row == null)
+                        row = new long[actionWords];
+                    or(row, mutexConsumers[p]);
+                }
+            }
+            needs[t] = row;
+        }
+        actionLevels.add(actions);
+        needsMutex.add(needs);
+
+        // next proposition level and its mutexes
+        long[] nextProps = new long[propWords];
+        for (int t = nextSetBit(actions, 0); t >= 0; t = nextSetBit(actions, t + 1))
+            for (int p : add[t])
+                set(nextProps, p);
+        long[][] nextMutex = new long[propCount][];
+        int mutexCount = 0;
+        long[] compatible = new long[actionWords];
+        for (int p = nextSetBit(nextProps, 0); p >= 0; p = nextSetBit(nextProps, p + 1)) {
+            // actions which are compatible with at least one achiever of p
+            Arrays.fill(compatible, 0);
+            for (int a : achievers[p]) {
+                if (get(actions, a)) {
+                    long[] s = staticMutex[a];
+                    long[] n = needs[a];
+                    for (int w = 0; w < actionWords; w++)
+                        compatible[w] |= ~(s[w] | (n != null ? n[w] : 0)) & actions[w];
+                }
+            }
+            for (int q = nextSetBit(nextProps, p + 1); q >= 0; q = nextSetBit(nextProps, q + 1)) {
+                boolean mutex = true;
+                for (int b : achievers[q]) {
+                    if (get(compatible, b)) {
+                        mutex = false;
+                        break;
+                    }
+                }
+                if (mutex) {
+                    if (nextMutex[p] == null)
+                        nextMutex[p] = new long[propWords];
+                    if (nextMutex[q] == null)
+                        nextMutex[q] = new long[propWords];
+                    set(nextMutex[p], q);
+                    set(nextMutex[q], p);
+                    mutexCount++;
+                }
+            }
+        }
+        propLevels.add(nextProps);
+        propMutex.add(nextMutex);
+        propMutexCounts.add(mutexCount);
+        return this;
+    }
+
+    /**
+     * Returns the ids of the actions (including no-ops) of an action level.
+     */
+    public int[] getActions(int level) {
+        long[] actions = actionLevels.get(level);
+        int count = 0;
+        for (long word : actions)
+            count += Long.bitCount(word);
+        int[] result = new int[count];
+        int i = 0;
+        for (int t = nextSetBit(actions, 0); t >= 0; t = nextSetBit(actions, t + 1))
+            result[i++] = t;
+        return result;
+    }
+
+    //
+    // PRIVATE METHODS
+    //
+
+    private boolean isApplicable(int action, long[] props, long[][] pMutex) {
+        int[] p = pre[action];
+        for (int i = 0; i < p.length; i++) {
+            if (!get(props, p[i]))
+                return false;
+            if (pMutex[p[i]] != null)
+                for (int j = i + 1; j < p.length; j++)
+                    if (get(pMutex[p[i]], p[j]))
+                        return false;
+        }
+        return true;
+    }
+
+    /**
+     * Two actions are mutex regardless of the level if one deletes a
+     * precondition or an effect of the other.
+     */
+    private long[] computeStaticMutex(int action) {
+        long[] result = new long[actionWords];
+        for (int p : del[action]) {
+            or(result, consumerMask[p]);
+            or(result, producerMask[p]);
+        }
+        for (int p : pre[action])
+            or(result, deleterMask[p]);
+        for (int p : add[action])
+            or(result, deleterMask[p]);
+        result[action >>> 6] &= ~(1L << action);
+        return result;
+    }
+
+    /**
+     * Returns the propositions for the positive and the negative fluents.
+     */
+    private int[] toPropositions(int[] positive, int[] negative) {
+        int[] result = Arrays.copyOf(positive, positive.length + negative.length);
+        for (int i = 0; i < negative.length; i++)
+            result[positive.length + i] = fluentCount + negative[i];
+        return result;
+    }
+
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    private static void or(long[] target, long[] source) {
+        for (int w = 0; w < target.length; w++)
+            target[w] |= source[w];
+    }
+
+    private static void and(long[] target, long[] source) {
+        for (int w = 0; w < target.length; w++)
+            target[w] &= source[w];
+    }
+
+    private static int nextSetBit(long[] bits, int from) {
+        int w = from >>> 6;
+        if (w >= bits.length)
+            return -1;
+        long word = bits[w] & (-1L << from);
+        while (true) {
+            if (word != 0)
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == bits.length)
+                return -1;
+            word = bits[w];
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class Problem {
     State initialState;// initialState
     Set<ActionSchema> actionSchemas;// Planning Domain
     State goalState;// goalState
+    private List<ActionSchema> propositionalisedActions;// computed on demand
 
 
     public Problem(State initialState, State goalState, Set<ActionSchema> actionSchemas) {
@@ -87,9 +88,16 @@ public class Problem {
     }
 
     /**
-     * @return Propositionalises all the actionschemas to return a set of possible ground actions
+     * @return Propositionalises all the actionschemas to return a set of possible ground actions.
+     * The list is computed on first request and shared by all callers.
      */
     public List<ActionSchema> getPropositionalisedActions() {
+        if (propositionalisedActions == null)
+            propositionalisedActions = Collections.unmodifiableList(propositionalise());
+        return propositionalisedActions;
+    }
+
+    private List<ActionSchema> propositionalise() {
         List<Constant> problemConstants = getProblemConstants();
         List<ActionSchema> result = new ArrayList<>();
         for (ActionSchema actionSchema :
@@ -0,0 +1,238 @@
+package aima.core.logic.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Delete relaxation heuristics for a {@link GroundProblem}. The relaxed
+ * problem ignores delete effects and negative preconditions, so that a fluent
+ * once reached stays true.<br>
+ * <br>
+ * <b>h_add</b> estimates the cost of a fluent as the cost of its cheapest
+ * achiever plus the sum of the costs of the achiever's preconditions, and the
+ * cost of the goal as the sum of the costs of its fluents. The costs are
+ * computed by a generalised Dijkstra search over fluents: each action counts
+ * its preconditions which still have to be settled and fires as soon as the
+ * counter reaches zero. The search stops when all goal fluents are settled.
+ * <br>
+ * <b>h_FF</b> extracts a relaxed plan from the best supporters found by the
+ * h_add computation and returns its length. The actions of the relaxed plan
+ * which are applicable in the evaluated state are called helpful actions;
+ * they are likely to lead towards the goal and can be used to prune the
+ * search.<br>
+ * <br>
+ * All working arrays are allocated once per problem and reset per
+ * evaluation, so an instance must not be shared between threads.
+ */
+public class RelaxedPlanHeuristic {
+
+    public enum Type {
+        /** Sum of the costs of the goal fluents. */
+        H_ADD,
+        /** Length of the relaxed plan. */
+        H_FF
+    }
+
+    private final GroundProblem problem;
+    private final Type type;
+    private final int[] cost;
+    private final int[] supporter;
+    private final boolean[] settled;
+    private final boolean[] goal;
+    private final int[] preconditionCount;
+    private final int[] unsatisfied;
+    private final int[] preconditionCost;
+    private final boolean[] inPlan;
+    private final boolean[] marked;
+    private final int[] stack;
+    private final List<GroundAction> helpfulActions = new ArrayList<>();
+    /** Binary min-heap of (cost << 32 | fluent) entries. */
+    private long[] heap = new long[64];
+    private int heapSize;
+    private int evaluations;
+
+    public RelaxedPlanHeuristic(GroundProblem problem, Type type) {
+        this.problem = problem;
+        this.type = type;
+        int fluents = problem.getFluentCount();
+        int actions = problem.getActions().size();
+        cost = new int[fluents];
+        supporter = new int[fluents];
+        settled = new boolean[fluents];
+        goal = new boolean[fluents];
+        for (int g : problem.getGoals())
+            goal[g] = true;
+        preconditionCount = new int[actions];
+        for (GroundAction a : problem.getActions())
+            preconditionCount[a.getId()] = a.getPreconditions().length;
+        unsatisfied = new int[actions];
+        preconditionCost = new int[actions];
+        inPlan = new boolean[actions];
+        marked = new boolean[fluents];
+        stack = new int[fluents];
+    }
+
+    public GroundProblem getProblem() {
+        return problem;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the number of calls of {@link #evaluate(BitState)}.
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Returns the heuristic value of the state, or
+     * <code>Double.POSITIVE_INFINITY</code> if the goal is not reachable even
+     * in the relaxed problem. After the call, {@link #getHelpfulActions()}
+     * returns the helpful actions for the state.
+     */
+    public double evaluate(BitState state) {
+        evaluations++;
+        helpfulActions.clear();
+        if (!computeCosts(state))
+            return Double.POSITIVE_INFINITY;
+        int[] goals = problem.getGoals();
+        long hAdd = 0;
+        for (int g : goals)
+            hAdd += cost[g];
+        int planLength = extractRelaxedPlan(state, goals);
+        return type == Type.H_ADD ? hAdd : planLength;
+    }
+
+    /**
+     * Returns the helpful actions of the state which was evaluated last, that
+     * is, the actions of its relaxed plan which are applicable in the state.
+     */
+    public List<GroundAction> getHelpfulActions() {
+        return new ArrayList<>(helpfulActions);
+    }
+
+    //
+    // PRIVATE METHODS
+    //
+
+    /**
+     * Computes h_add costs and best supporters until all goals are settled.
+     * Returns false if some goal is unreachable.
+     */
+    private boolean computeCosts(BitState state) {
+        Arrays.fill(cost, Integer.MAX_VALUE);
+        Arrays.fill(supporter, -1);
+        Arrays.fill(settled, false);
+        System.arraycopy(preconditionCount, 0, unsatisfied, 0, unsatisfied.length);
+        Arrays.fill(preconditionCost, 0);
+        List<GroundAction> actions = problem.getActions();
+        heapSize = 0;
+        for (int f : state.getFluents()) {
+            cost[f] = 0;
+            push(f, 0);
+        }
+        for (int a : problem.getActionsWithoutPrecondition())
+            fire(actions.get(a));
+
+        int goalsLeft = problem.getGoals().length;
+        if (goalsLeft == 0)
+            return true;
+        while (heapSize > 0) {
+            long entry = pop();
+            int f = (int) entry;
+            if (settled[f] || (int) (entry >>> 32) > cost[f])
+                continue;
+            settled[f] = true;
+            if (goal[f] && --goalsLeft == 0)
+                return true;
+            for (int a : problem.getActionsWithPrecondition(f)) {
+                preconditionCost[a] += cost[f];
+                if (--unsatisfied[a] == 0)
+                    fire(actions.get(a));
+            }
+        }
+        return false;
+    }
+
+    private void fire(GroundAction action) {
+        int c = preconditionCost[action.getId()] + 1;
+        for (int f : action.getAddEffects()) {
+            if (c < cost[f]) {
+                cost[f] = c;
+                supporter[f] = action.getId();
+                push(f, c);
+            }
+        }
+    }
+
+    /**
+     * Collects the best supporters of the goals and, recursively, of their
+     * preconditions. Returns the number of distinct actions.
+     */
+    private int extractRelaxedPlan(BitState state, int[] goals) {
+        Arrays.fill(inPlan, false);
+        Arrays.fill(marked, false);
+        int top = 0;
+        for (int g : goals) {
+            if (!marked[g]) {
+                marked[g] = true;
+                stack[top++] = g;
+            }
+        }
+        int length = 0;
+        while (top > 0) {
+            int f = stack[--top];
+            int a = supporter[f];
+            if (cost[f] == 0 || a == -1 || inPlan[a])
+                continue;
+            inPlan[a] = true;
+            length++;
+            GroundAction action = problem.getAction(a);
+            if (preconditionCost[a] == 0 && action.isApplicable(state))
+                helpfulActions.add(action);
+            for (int p : action.getPreconditions()) {
+                if (!marked[p]) {
+                    marked[p] = true;
+                    stack[top++] = p;
+                }
+            }
+        }
+        return length;
+    }
+
+    private void push(int fluent, int c) {
+        if (heapSize == heap.length)
+            heap = Arrays.copyOf(heap, 2 * heap.length);
+        long entry = ((long) c << 32) | fluent;
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry)
+                break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private long pop() {
+        long result = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        int child;
+        while ((child = 2 * i + 1) < heapSize) {
+            if (child + 1 < heapSize && heap[child + 1] < heap[child])
+                child++;
+            if (last <= heap[child])
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return result;
+    }
+}
@@ -0,0 +1,446 @@
+package aima.core.probability.hmm.exact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import aima.core.probability.CategoricalDistribution;
+import aima.core.probability.hmm.HiddenMarkovModel;
+import aima.core.probability.proposition.AssignmentProposition;
+import aima.core.probability.temporal.ForwardBackwardInference;
+import aima.core.probability.util.ProbabilityTable;
+import aima.core.util.math.Matrix;
+
+/**
+ * Artificial Intelligence A Modern Approach (3rd Edition): pages 576-579.<br>
+ * <br>
+ * An implementation of the forward-backward algorithm (see
+ * {@link HMMForwardBackward}) and of the Viterbi algorithm which compiles the
+ * hidden Markov model once into flat arrays. The transition model <b>T</b> is
+ * stored row by row, either dense or, if at most a third of its entries are
+ * non-zero, in compressed sparse row (CSR) form. The sensor model is stored as
+ * one vector per evidence value holding the diagonal of <b>O</b>, so applying
+ * it is an element-wise product.<br>
+ * <br>
+ * All messages are computed in buffers which are allocated once and only grow
+ * with the longest sequence seen. Forward messages are normalized at every step
+ * and the logarithms of the normalization constants are summed up, which gives
+ * the log-likelihood of the evidence without underflow for long sequences.
+ * Backward messages are rescaled for the same reason, and the Viterbi
+ * algorithm works in log space.<br>
+ * <br>
+ * The array based methods take evidence as indices of evidence values (see
+ * {@link #getEvidenceIndex(Object)}) and reuse the buffers, so an instance must
+ * not be used by several threads at the same time. The methods of
+ * {@link ForwardBackwardInference} are implemented on top of them.
+ */
+public class HMMArrayForwardBackward implements ForwardBackwardInference {
+
+	private final HiddenMarkovModel hmm;
+	private final int size;
+	// dense transition model in row major order, null if stored as CSR
+	private final double[] transition;
+	private final double[] logTransition;
+	// CSR transition model, null if stored dense
+	private final int[] rowStart;
+	private final int[] columns;
+	private final double[] values;
+	// diagonals of the sensor model, indexed by evidence index
+	private final Map<Object, Integer> evidenceIndices = new HashMap<Object, Integer>();
+	private final double[][] sensor;
+	private final double[][] logSensor;
+	private final double[] prior;
+
+	// buffers
+	private final double[] tmp;
+	private final double[] message;
+	private final double[] viterbiNext;
+	private double[] forwardMessages = new double[0];
+	private int[] backPointers = new int[0];
+
+	public HMMArrayForwardBackward(HiddenMarkovModel hmm) {
+		this.hmm = hmm;
+		Matrix t = hmm.getTransitionModel();
+		size = t.getRowDimension();
+		int nonZeros = 0;
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				if (t.get(i, j) != 0)
+					nonZeros++;
+		if (3 * nonZeros <= size * size) {
+			transition = null;
+			rowStart = new int[size + 1];
+			columns = new int[nonZeros];
+			values = new double[nonZeros];
+			int k = 0;
+			for (int i = 0; i < size; i++) {
+				rowStart[i] = k;
+				for (int j = 0; j < size; j++) {
+					if (t.get(i, j) != 0) {
+						columns[k] = j;
+						values[k++] = t.get(i, j);
+					}
+				}
+			}
+			rowStart[size] = k;
+			logTransition = log(values);
+		} else {
+			transition = t.getRowPackedCopy();
+			rowStart = null;
+			columns = null;
+			values = null;
+			logTransition = log(transition);
+		}
+
+		sensor = new double[hmm.getSensorModel().size()][];
+		logSensor = new double[sensor.length][];
+		for (Map.Entry<Object, Matrix> entry : hmm.getSensorModel().entrySet()) {
+			int e = evidenceIndices.size();
+			evidenceIndices.put(entry.getKey(), e);
+			sensor[e] = new double[size];
+			for (int i = 0; i < size; i++)
+				sensor[e][i] = entry.getValue().get(i, i);
+			logSensor[e] = log(sensor[e]);
+		}
+		prior = hmm.getPrior().getColumnPackedCopy();
+
+		tmp = new double[size];
+		message = new double[size];
+		viterbiNext = new double[size];
+	}
+
+	/** Returns the number of states of the model. */
+	public int getStateCount() {
+		return size;
+	}
+
+	/** Returns true if the transition model is stored in CSR form. */
+	public boolean isSparse() {
+		return transition == null;
+	}
+
+	/** Returns a copy of the prior distribution of the model. */
+	public double[] getPrior() {
+		return prior.clone();
+	}
+
+	/**
+	 * Returns the index which represents the given evidence value in the array
+	 * based methods.
+	 */
+	public int getEvidenceIndex(Object evidenceValue) {
+		Integer e = evidenceIndices.get(evidenceValue);
+		if (e == null)
+			throw new IllegalArgumentException("Evidence does not map to sensor model.");
+		return e;
+	}
+
+	/**
+	 * Returns the index of the single evidence observation value of the given
+	 * evidence assignment.
+	 */
+	public int getEvidenceIndex(List<AssignmentProposition> evidence) {
+		if (evidence.size() != 1)
+			throw new IllegalArgumentException("Only a single evidence observation value should be provided.");
+		return getEvidenceIndex(evidence.get(0).getValue());
+	}
+
+	/**
+	 * The forward equation (15.12):<br>
+	 *
+	 * <pre>
+	 * <b>f</b><sub>1:t+1</sub> = &alpha;<b>O</b><sub>t+1</sub><b>T</b><sup>T</sup><b>f</b><sub>1:t</sub>
+	 * </pre>
+	 *
+	 * @param f1_t
+	 *            <b>f</b><sub>1:t</sub>, a normalized forward message.
+	 * @param e_tp1
+	 *            the index of the evidence value at t+1.
+	 * @param result
+	 *            the array receiving <b>f</b><sub>1:t+1</sub>, may be f1_t.
+	 * @return the logarithm of 1/&alpha;, which is log
+	 *         P(e<sub>t+1</sub> | e<sub>1:t</sub>).
+	 */
+	public double forward(double[] f1_t, int e_tp1, double[] result) {
+		return forward(f1_t, 0, e_tp1, result, 0);
+	}
+
+	/**
+	 * The backward equation (15.13):<br>
+	 *
+	 * <pre>
+	 * <b>b</b><sub>k+1:t</sub> = <b>T</b><b>O</b><sub>k+1</sub><b>b</b><sub>k+2:t</sub>
+	 * </pre>
+	 *
+	 * @param b_kp2t
+	 *            <b>b</b><sub>k+2:t</sub>
+	 * @param e_kp1
+	 *            the index of the evidence value at k+1.
+	 * @param result
+	 *            the array receiving <b>b</b><sub>k+1:t</sub>, may be b_kp2t.
+	 */
+	public void backward(double[] b_kp2t, int e_kp1, double[] result) {
+		double[] o = sensor[e_kp1];
+		for (int j = 0; j < size; j++)
+			tmp[j] = o[j] * b_kp2t[j];
+		times(tmp, result);
+	}
+
+	/**
+	 * Computes the normalized forward message <b>f</b><sub>1:t</sub> for a
+	 * sequence of evidence.
+	 *
+	 * @param ev
+	 *            the indices of the evidence values for steps 1,...,t.
+	 * @param length
+	 *            t, the number of evidence values to be used.
+	 * @param prior
+	 *            the prior distribution on the initial state.
+	 * @param result
+	 *            the array receiving <b>f</b><sub>1:t</sub>.
+	 * @return the log-likelihood log P(e<sub>1:t</sub>).
+	 */
+	public double filter(int[] ev, int length, double[] prior, double[] result) {
+		System.arraycopy(prior, 0, result, 0, size);
+		double logLikelihood = 0;
+		for (int i = 0; i < length; i++)
+			logLikelihood += forward(result, ev[i], result);
+		return logLikelihood;
+	}
+
+	/**
+	 * The forward-backward algorithm for smoothing.
+	 *
+	 * @param ev
+	 *            the indices of the evidence values for steps 1,...,t.
+	 * @param length
+	 *            t, the number of evidence values to be used.
+	 * @param prior
+	 *            the prior distribution on the initial state.
+	 * @param smoothed
+	 *            an array of at least t * S entries receiving the smoothed
+	 *            estimate of step i at offset (i - 1) * S, where S is the
+	 *            number of states.
+	 * @return the log-likelihood log P(e<sub>1:t</sub>).
+	 */
+	public double forwardBackward(int[] ev, int length, double[] prior, double[] smoothed) {
+		if (forwardMessages.length < length * size)
+			forwardMessages = new double[length * size];
+		double logLikelihood = 0;
+		// fv[i] <- FORWARD(fv[i-1], ev[i]), fv[i] is stored at offset (i - 1) * S
+		for (int i = 0; i < length; i++) {
+			if (i == 0)
+				logLikelihood += forward(prior, 0, ev[i], forwardMessages, 0);
+			else
+				logLikelihood += forward(forwardMessages, (i - 1) * size, ev[i], forwardMessages, i * size);
+		}
+		// b is kept in message and scaled to sum 1
+		Arrays.fill(message, 1.0);
+		for (int i = length - 1; i >= 0; i--) {
+			// sv[i] <- NORMALIZE(fv[i] * b)
+			int offset = i * size;
+			double sum = 0;
+			for (int j = 0; j < size; j++) {
+				smoothed[offset + j] = forwardMessages[offset + j] * message[j];
+				sum += smoothed[offset + j];
+			}
+			for (int j = 0; j < size; j++)
+				smoothed[offset + j] /= sum;
+			// b <- BACKWARD(b, ev[i])
+			backward(message, ev[i], message);
+			scale(message);
+		}
+		return logLikelihood;
+	}
+
+	/**
+	 * The Viterbi algorithm (AIMA3e page 577): computes the most likely
+	 * sequence of states x<sub>1:t</sub> given the evidence, using the
+	 * recursion
+	 *
+	 * <pre>
+	 * <b>m</b><sub>1:t+1</sub> = <b>P</b>(e<sub>t+1</sub> | X<sub>t+1</sub>) max<sub>x<sub>t</sub></sub>(<b>P</b>(X<sub>t+1</sub> | x<sub>t</sub>) <b>m</b><sub>1:t</sub>)
+	 * </pre>
+	 *
+	 * in log space.
+	 *
+	 * @param ev
+	 *            the indices of the evidence values for steps 1,...,t.
+	 * @param length
+	 *            t, the number of evidence values to be used.
+	 * @param prior
+	 *            the prior distribution on the initial state.
+	 * @param path
+	 *            an array of at least t entries receiving the indices of the
+	 *            states x<sub>1</sub>,...,x<sub>t</sub>.
+	 * @return log max<sub>x<sub>1:t</sub></sub> P(x<sub>1:t</sub>,
+	 *         e<sub>1:t</sub>).
+	 */
+	public double viterbi(int[] ev, int length, double[] prior, int[] path) {
+		if (length == 0)
+			return 0;
+		if (backPointers.length < length * size)
+			backPointers = new int[length * size];
+		// m1:1 = P(e1 | X1) sum_x0 P(X1 | x0) P(x0)
+		transposeTimes(prior, 0, tmp, 0);
+		double[] logO = logSensor[ev[0]];
+		for (int j = 0; j < size; j++)
+			message[j] = Math.log(tmp[j]) + logO[j];
+		for (int i = 1; i < length; i++) {
+			int offset = i * size;
+			Arrays.fill(viterbiNext, Double.NEGATIVE_INFINITY);
+			for (int r = 0; r < size; r++) {
+				double m = message[r];
+				if (m == Double.NEGATIVE_INFINITY)
+					continue;
+				if (transition != null) {
+					int base = r * size;
+					for (int c = 0; c < size; c++) {
+						double v = m + logTransition[base + c];
+						if (v > viterbiNext[c]) {
+							viterbiNext[c] = v;
+							backPointers[offset + c] = r;
+						}
+					}
+				} else {
+					for (int k = rowStart[r]; k < rowStart[r + 1]; k++) {
+						int c = columns[k];
+						double v = m + logTransition[k];
+						if (v > viterbiNext[c]) {
+							viterbiNext[c] = v;
+							backPointers[offset + c] = r;
+						}
+					}
+				}
+			}
+			logO = logSensor[ev[i]];
+			for (int j = 0; j < size; j++)
+				message[j] = viterbiNext[j] + logO[j];
+		}
+		int best = 0;
+		for (int j = 1; j < size; j++)
+			if (message[j] > message[best])
+				best = j;
+		if (message[best] == Double.NEGATIVE_INFINITY)
+			throw new IllegalArgumentException("Evidence is impossible in the model.");
+		path[length - 1] = best;
+		for (int i = length - 1; i > 0; i--)
+			path[i - 1] = backPointers[i * size + path[i]];
+		return message[best];
+	}
+
+	//
+	// START-ForwardBackwardInference
+	@Override
+	public List<CategoricalDistribution> forwardBackward(
+			List<List<AssignmentProposition>> ev, CategoricalDistribution prior) {
+		int[] evidence = new int[ev.size()];
+		for (int i = 0; i < evidence.length; i++)
+			evidence[i] = getEvidenceIndex(ev.get(i));
+		double[] smoothed = new double[evidence.length * size];
+		forwardBackward(evidence, evidence.length, prior.getValues(), smoothed);
+		List<Matrix> sv = new ArrayList<Matrix>(evidence.length);
+		for (int i = 0; i < evidence.length; i++)
+			sv.add(new Matrix(Arrays.copyOfRange(smoothed, i * size, (i + 1) * size), size));
+		return hmm.convert(sv);
+	}
+
+	@Override
+	public CategoricalDistribution forward(CategoricalDistribution f1_t,
+			List<AssignmentProposition> e_tp1) {
+		double[] result = new double[size];
+		forward(f1_t.getValues(), getEvidenceIndex(e_tp1), result);
+		return new ProbabilityTable(result, hmm.getStateVariable());
+	}
+
+	@Override
+	public CategoricalDistribution backward(CategoricalDistribution b_kp2t,
+			List<AssignmentProposition> e_kp1) {
+		double[] result = new double[size];
+		backward(b_kp2t.getValues(), getEvidenceIndex(e_kp1), result);
+		return new ProbabilityTable(result, hmm.getStateVariable());
+	}
+
+	// END-ForwardBackwardInference
+	//
+
+	/**
+	 * Computes out = <b>T</b><sup>T</sup>v, i.e. out[j] = &sum;<sub>i</sub>
+	 * <b>T</b><sub>ij</sub>v[i], for the vectors starting at the given
+	 * offsets. The vectors must not overlap.
+	 */
+	void transposeTimes(double[] v, int vOffset, double[] out, int outOffset) {
+		Arrays.fill(out, outOffset, outOffset + size, 0.0);
+		for (int i = 0; i < size; i++) {
+			double vi = v[vOffset + i];
+			if (vi == 0)
+				continue;
+			if (transition != null) {
+				int base = i * size;
+				for (int j = 0; j < size; j++)
+					out[outOffset + j] += transition[base + j] * vi;
+			} else {
+				for (int k = rowStart[i]; k < rowStart[i + 1]; k++)
+					out[outOffset + columns[k]] += values[k] * vi;
+			}
+		}
+	}
+
+	/** Returns the diagonal of the sensor matrix of the given evidence index. */
+	double[] getSensorDiagonal(int e) {
+		return sensor[e];
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private double forward(double[] f, int fOffset, int e, double[] result, int resultOffset) {
+		transposeTimes(f, fOffset, tmp, 0);
+		double[] o = sensor[e];
+		double sum = 0;
+		for (int j = 0; j < size; j++) {
+			tmp[j] *= o[j];
+			sum += tmp[j];
+		}
+		if (sum == 0)
+			throw new IllegalArgumentException("Evidence is impossible in the model.");
+		for (int j = 0; j < size; j++)
+			result[resultOffset + j] = tmp[j] / sum;
+		return Math.log(sum);
+	}
+
+	/** Computes out = <b>T</b>v, v and out must not be the same array. */
+	private void times(double[] v, double[] out) {
+		for (int i = 0; i < size; i++) {
+			double sum = 0;
+			if (transition != null) {
+				int base = i * size;
+				for (int j = 0; j < size; j++)
+					sum += transition[base + j] * v[j];
+			} else {
+				for (int k = rowStart[i]; k < rowStart[i + 1]; k++)
+					sum += values[k] * v[columns[k]];
+			}
+			out[i] = sum;
+		}
+	}
+
+	private void scale(double[] v) {
+		double sum = 0;
+		for (int j = 0; j < size; j++)
+			sum += v[j];
+		if (sum > 0)
+			for (int j = 0; j < size; j++)
+				v[j] /= sum;
+	}
+
+	private static double[] log(double[] values) {
+		double[] result = new double[values.length];
+		for (int i = 0; i < values.length; i++)
+			result[i] = Math.log(values[i]);
+		return result;
+	}
+}
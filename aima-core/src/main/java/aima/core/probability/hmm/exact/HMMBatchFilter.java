@@ -0,0 +1,338 @@
+package aima.core.probability.hmm.exact;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import aima.core.probability.CategoricalDistribution;
+import aima.core.probability.hmm.HiddenMarkovModel;
+import aima.core.probability.util.ProbabilityTable;
+import aima.core.search.framework.Metrics;
+
+/**
+ * Artificial Intelligence A Modern Approach (3rd Edition): page 572.<br>
+ * <br>
+ * Filtering for many independent tracks (sequences of evidence) which share
+ * the same hidden Markov model. The forward messages of all tracks are kept as
+ * the rows of one matrix <b>F</b>, so a time step applies the forward equation
+ * (15.12) to all tracks at once: the rows of <b>F</b><b>T</b> are multiplied
+ * element-wise with the sensor diagonals of the observed evidence and
+ * normalized. The model is compiled once by {@link HMMArrayForwardBackward}.<br>
+ * <br>
+ * Evidence is streamed in with {@link #observe(Object, Object)}, which may be
+ * called from any thread. Each call to {@link #step()} advances every track
+ * with pending evidence by one time step, consuming one observation per track;
+ * tracks without evidence keep their message. If a {@link ForkJoinPool} is
+ * set, the rows are processed in parallel. All other methods must be called
+ * from the thread which calls {@link #step()}.<br>
+ * <br>
+ * Metrics report the number of steps, the number of tracks updated in the last
+ * step, the duration of the last step, the maximal and mean step durations,
+ * and the maximal time an observation of the last step waited between
+ * {@link #observe(Object, Object)} and being filtered (all times in
+ * nanoseconds).
+ */
+public class HMMBatchFilter {
+
+	public static final String METRIC_STEPS = "steps";
+	public static final String METRIC_UPDATED_TRACKS = "updatedTracks";
+	public static final String METRIC_STEP_TIME = "stepTime";
+	public static final String METRIC_MAX_STEP_TIME = "maxStepTime";
+	public static final String METRIC_MEAN_STEP_TIME = "meanStepTime";
+	public static final String METRIC_MAX_OBSERVATION_LATENCY = "maxObservationLatency";
+
+	private final HiddenMarkovModel hmm;
+	private final HMMArrayForwardBackward model;
+	private final int size;
+	private ForkJoinPool pool = null;
+	private Metrics metrics = new Metrics();
+	private long totalStepTime;
+
+	private final ConcurrentHashMap<Object, Track> tracks = new ConcurrentHashMap<Object, Track>();
+	private final Queue<Observation> submitted = new ConcurrentLinkedQueue<Observation>();
+	// row i of the matrices belongs to rowTracks[i]
+	private Track[] rowTracks = new Track[16];
+	private int trackCount;
+	private double[] messages;
+	private double[] products;
+	private double[] logLikelihoods = new double[16];
+	// rows and evidence indices of the tracks updated in the current step
+	private int[] activeRows = new int[16];
+	private int[] activeEvidence = new int[16];
+
+	public HMMBatchFilter(HiddenMarkovModel hmm) {
+		this.hmm = hmm;
+		model = new HMMArrayForwardBackward(hmm);
+		size = model.getStateCount();
+		messages = new double[rowTracks.length * size];
+		products = new double[rowTracks.length * size];
+		resetMetrics();
+	}
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool
+	 *            the pool on which the tracks are filtered in parallel or null
+	 *            for sequential filtering.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Adds a track starting with the prior distribution of the model.
+	 */
+	public void addTrack(Object trackId) {
+		addTrack(trackId, model.getPrior());
+	}
+
+	/**
+	 * Adds a track starting with the given distribution on the initial state.
+	 */
+	public void addTrack(Object trackId, double[] prior) {
+		if (prior.length != size)
+			throw new IllegalArgumentException("Prior is not of the correct dimensions.");
+		Track track = new Track(trackCount);
+		if (tracks.putIfAbsent(trackId, track) != null)
+			throw new IllegalArgumentException("Track " + trackId + " already exists.");
+		if (trackCount == rowTracks.length) {
+			int capacity = 2 * rowTracks.length;
+			rowTracks = Arrays.copyOf(rowTracks, capacity);
+			messages = Arrays.copyOf(messages, capacity * size);
+			products = new double[capacity * size];
+			logLikelihoods = Arrays.copyOf(logLikelihoods, capacity);
+			activeRows = new int[capacity];
+			activeEvidence = new int[capacity];
+		}
+		rowTracks[trackCount] = track;
+		System.arraycopy(prior, 0, messages, trackCount * size, size);
+		logLikelihoods[trackCount] = 0;
+		trackCount++;
+	}
+
+	/**
+	 * Removes a track together with its pending evidence.
+	 *
+	 * @return false if there was no such track.
+	 */
+	public boolean removeTrack(Object trackId) {
+		Track track = tracks.remove(trackId);
+		if (track == null)
+			return false;
+		int last = --trackCount;
+		if (track.row != last) {
+			// the last row takes the place of the removed one
+			Track moved = rowTracks[last];
+			moved.row = track.row;
+			rowTracks[track.row] = moved;
+			System.arraycopy(messages, last * size, messages, track.row * size, size);
+			logLikelihoods[track.row] = logLikelihoods[last];
+		}
+		rowTracks[last] = null;
+		track.row = -1;
+		return true;
+	}
+
+	public int getTrackCount() {
+		return trackCount;
+	}
+
+	/**
+	 * Queues an evidence value for the given track. This method is thread
+	 * safe.
+	 */
+	public void observe(Object trackId, Object evidenceValue) {
+		Track track = tracks.get(trackId);
+		if (track == null)
+			throw new IllegalArgumentException("Unknown track " + trackId + ".");
+		submitted.add(new Observation(track, model.getEvidenceIndex(evidenceValue), System.nanoTime()));
+	}
+
+	/**
+	 * Advances every track with pending evidence by one time step.
+	 *
+	 * @return the number of updated tracks.
+	 */
+	public int step() {
+		long start = System.nanoTime();
+		Observation observation;
+		while ((observation = submitted.poll()) != null) {
+			if (observation.track.row >= 0)
+				observation.track.pending.add(observation);
+		}
+		int active = 0;
+		long maxLatency = 0;
+		for (int row = 0; row < trackCount; row++) {
+			observation = rowTracks[row].pending.poll();
+			if (observation != null) {
+				activeRows[active] = row;
+				activeEvidence[active++] = observation.evidence;
+				maxLatency = Math.max(maxLatency, start - observation.time);
+			}
+		}
+		RowTask task = new RowTask(0, active);
+		if (pool == null)
+			task.compute();
+		else
+			pool.invoke(task);
+		for (int i = 0; i < active; i++)
+			rowTracks[activeRows[i]].time++;
+
+		long time = System.nanoTime() - start;
+		totalStepTime += time;
+		metrics.incrementInt(METRIC_STEPS);
+		metrics.set(METRIC_UPDATED_TRACKS, active);
+		metrics.set(METRIC_STEP_TIME, time);
+		metrics.set(METRIC_MAX_STEP_TIME, Math.max(metrics.getLong(METRIC_MAX_STEP_TIME), time));
+		metrics.set(METRIC_MEAN_STEP_TIME, (double) totalStepTime / metrics.getInt(METRIC_STEPS));
+		metrics.set(METRIC_MAX_OBSERVATION_LATENCY, maxLatency);
+		return active;
+	}
+
+	/** Returns true if evidence is waiting for a call of {@link #step()}. */
+	public boolean hasPendingEvidence() {
+		if (!submitted.isEmpty())
+			return true;
+		for (int row = 0; row < trackCount; row++)
+			if (!rowTracks[row].pending.isEmpty())
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the filtered distribution <b>P</b>(X<sub>t</sub> |
+	 * e<sub>1:t</sub>) of the track.
+	 */
+	public CategoricalDistribution getFiltered(Object trackId) {
+		double[] values = new double[size];
+		getMessage(trackId, values);
+		return new ProbabilityTable(values, hmm.getStateVariable());
+	}
+
+	/**
+	 * Copies the forward message <b>f</b><sub>1:t</sub> of the track into the
+	 * given array.
+	 */
+	public void getMessage(Object trackId, double[] result) {
+		System.arraycopy(messages, getTrack(trackId).row * size, result, 0, size);
+	}
+
+	/**
+	 * Returns log P(e<sub>1:t</sub>) of the track, negative infinity if the
+	 * track received evidence which is impossible in the model. Impossible
+	 * evidence leaves the forward message unchanged.
+	 */
+	public double getLogLikelihood(Object trackId) {
+		return logLikelihoods[getTrack(trackId).row];
+	}
+
+	/** Returns the number of time steps the track was advanced. */
+	public long getTime(Object trackId) {
+		return getTrack(trackId).time;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void resetMetrics() {
+		metrics = new Metrics();
+		metrics.set(METRIC_STEPS, 0);
+		metrics.set(METRIC_UPDATED_TRACKS, 0);
+		metrics.set(METRIC_STEP_TIME, 0L);
+		metrics.set(METRIC_MAX_STEP_TIME, 0L);
+		metrics.set(METRIC_MEAN_STEP_TIME, 0.0);
+		metrics.set(METRIC_MAX_OBSERVATION_LATENCY, 0L);
+		totalStepTime = 0;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private Track getTrack(Object trackId) {
+		Track track = tracks.get(trackId);
+		if (track == null)
+			throw new IllegalArgumentException("Unknown track " + trackId + ".");
+		return track;
+	}
+
+	/**
+	 * Applies the forward equation to the rows of the given range of active
+	 * rows.
+	 */
+	private void forward(int from, int to) {
+		for (int i = from; i < to; i++) {
+			int offset = activeRows[i] * size;
+			model.transposeTimes(messages, offset, products, offset);
+			double[] o = model.getSensorDiagonal(activeEvidence[i]);
+			double sum = 0;
+			for (int j = 0; j < size; j++) {
+				products[offset + j] *= o[j];
+				sum += products[offset + j];
+			}
+			if (sum == 0) {
+				logLikelihoods[activeRows[i]] = Double.NEGATIVE_INFINITY;
+				continue;
+			}
+			for (int j = 0; j < size; j++)
+				messages[offset + j] = products[offset + j] / sum;
+			logLikelihoods[activeRows[i]] += Math.log(sum);
+		}
+	}
+
+	/**
+	 * Filters a range of active rows, splitting large ranges into subtasks.
+	 */
+	private class RowTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 64;
+
+		private final int from;
+		private final int to;
+
+		RowTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (pool == null || to - from <= THRESHOLD) {
+				forward(from, to);
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RowTask(from, middle), new RowTask(middle, to));
+			}
+		}
+	}
+
+	private static class Track {
+		int row;
+		long time;
+		final ArrayDeque<Observation> pending = new ArrayDeque<Observation>();
+
+		Track(int row) {
+			this.row = row;
+		}
+	}
+
+	private static class Observation {
+		final Track track;
+		final int evidence;
+		final long time;
+
+		Observation(Track track, int evidence, long time) {
+			this.track = track;
+			this.evidence = evidence;
+			this.time = time;
+		}
+	}
+}
@@ -0,0 +1,490 @@
+package aima.core.probability.temporal.generic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import aima.core.probability.CategoricalDistribution;
+import aima.core.probability.RandomVariable;
+import aima.core.probability.bayes.BayesianNetwork;
+import aima.core.probability.bayes.ConditionalProbabilityTable;
+import aima.core.probability.bayes.DynamicBayesianNetwork;
+import aima.core.probability.bayes.FiniteNode;
+import aima.core.probability.bayes.Node;
+import aima.core.probability.domain.FiniteDomain;
+import aima.core.probability.proposition.AssignmentProposition;
+import aima.core.probability.temporal.ForwardBackwardInference;
+import aima.core.probability.util.ProbabilityTable;
+
+/**
+ * Artificial Intelligence A Modern Approach (3rd Edition): pages 576 and
+ * 590.<br>
+ * <br>
+ * An implementation of filtering and of the forward-backward algorithm for a
+ * dynamic Bayesian network with finite variables. The messages are
+ * distributions over the joint values of the state variables
+ * <b>X</b><sub>t</sub>, which form the interface between two slices. Unlike
+ * {@link ForwardBackward}, which answers generic probability queries at every
+ * step, the two-slice network is compiled once into flat arrays:
+ * <ul>
+ * <li>the transition model <b>P</b>(<b>X</b><sub>1</sub> |
+ * <b>X</b><sub>0</sub>), the product of the CPTs of the X<sub>1</sub>
+ * variables, as a matrix over the joint state values,</li>
+ * <li>the prior <b>P</b>(<b>X</b><sub>0</sub>) of the prior network as a
+ * vector,</li>
+ * <li>the CPT of each evidence variable as a factor over the joint state values
+ * and the values of its evidence parents.</li>
+ * </ul>
+ * For every distinct evidence assignment, the sensor factors are combined once
+ * into a vector P(<b>e</b> | <b>X</b><sub>1</sub>), summing out evidence
+ * variables which are not observed. The vectors are cached, so after
+ * compilation a time step costs one matrix-vector product and a few vector
+ * operations.<br>
+ * <br>
+ * State variables may have parents in X<sub>0</sub> and X<sub>1</sub>,
+ * evidence variables in X<sub>1</sub> and E<sub>1</sub>. The filtered belief
+ * is kept between calls of {@link #step(List)}, so the class can be used for
+ * online filtering. Instances are not thread safe.
+ */
+public class DBNForwardBackward implements ForwardBackwardInference {
+
+	private final RandomVariable[] stateVars;
+	private final RandomVariable[] priorStateVars;
+	private final RandomVariable[] evidenceVars;
+	private final Map<RandomVariable, Integer> evidencePositions = new HashMap<RandomVariable, Integer>();
+	// number of joint state values
+	private final int size;
+	// digits[s][k] is the index of the value of stateVars[k] in state s
+	private final int[][] digits;
+	// maps joint state values to indices of a ProbabilityTable over stateVars
+	private final int[] tableIndices;
+	// T[x0 * size + x1] = P(x1 | x0)
+	private final double[] transition;
+	private final double[] prior;
+	private final Factor[] sensorFactors;
+	private final Map<List<Object>, double[]> likelihoods = new HashMap<List<Object>, double[]>();
+
+	// current belief state and buffers
+	private final double[] belief;
+	private final double[] tmp;
+	private int time;
+	private double logLikelihood;
+	private double[] forwardMessages = new double[0];
+	private double[][] stepLikelihoods = new double[0][];
+
+	public DBNForwardBackward(DynamicBayesianNetwork dbn) {
+		List<RandomVariable> x1 = dbn.getX_1_VariablesInTopologicalOrder();
+		stateVars = x1.toArray(new RandomVariable[x1.size()]);
+		priorStateVars = new RandomVariable[stateVars.length];
+		int[] radices = new int[stateVars.length];
+		int n = 1;
+		for (int k = 0; k < stateVars.length; k++) {
+			priorStateVars[k] = dbn.getX_1_to_X_0().get(stateVars[k]);
+			radices[k] = domain(stateVars[k]).size();
+			n *= radices[k];
+		}
+		size = n;
+		digits = new int[size][stateVars.length];
+		Object[] values = new Object[stateVars.length];
+		ProbabilityTable table = new ProbabilityTable(stateVars);
+		tableIndices = new int[size];
+		for (int s = 0; s < size; s++) {
+			for (int k = stateVars.length - 1, rest = s; k >= 0; rest /= radices[k], k--) {
+				digits[s][k] = rest % radices[k];
+				values[k] = domain(stateVars[k]).getValueAt(digits[s][k]);
+			}
+			tableIndices[s] = table.getIndex(values);
+		}
+
+		evidenceVars = dbn.getE_1().toArray(new RandomVariable[dbn.getE_1().size()]);
+		for (int j = 0; j < evidenceVars.length; j++)
+			evidencePositions.put(evidenceVars[j], j);
+
+		Factor[] transitionFactors = new Factor[stateVars.length];
+		for (int k = 0; k < stateVars.length; k++)
+			transitionFactors[k] = new Factor(dbn, stateVars[k], false);
+		transition = new double[size * size];
+		for (int x0 = 0; x0 < size; x0++) {
+			for (int x1v = 0; x1v < size; x1v++) {
+				double p = 1;
+				for (Factor factor : transitionFactors)
+					p *= factor.value(digits[x0], digits[x1v], null);
+				transition[x0 * size + x1v] = p;
+			}
+		}
+
+		BayesianNetwork priorNetwork = dbn.getPriorNetwork();
+		Factor[] priorFactors = new Factor[stateVars.length];
+		for (int k = 0; k < stateVars.length; k++)
+			priorFactors[k] = new Factor(priorNetwork, priorStateVars[k], true);
+		prior = new double[size];
+		for (int x0 = 0; x0 < size; x0++) {
+			double p = 1;
+			for (Factor factor : priorFactors)
+				p *= factor.value(digits[x0], null, null);
+			prior[x0] = p;
+		}
+
+		sensorFactors = new Factor[evidenceVars.length];
+		for (int j = 0; j < evidenceVars.length; j++)
+			sensorFactors[j] = new Factor(dbn, evidenceVars[j], false);
+
+		belief = new double[size];
+		tmp = new double[size];
+		reset();
+	}
+
+	/** Returns the number of joint values of the state variables. */
+	public int getStateCount() {
+		return size;
+	}
+
+	/**
+	 * Returns the state variables X<sub>1</sub> over which the messages are
+	 * defined.
+	 */
+	public List<RandomVariable> getStateVariables() {
+		return Arrays.asList(stateVars);
+	}
+
+	/** Returns a copy of the compiled prior <b>P</b>(<b>X</b><sub>0</sub>). */
+	public double[] getPrior() {
+		return prior.clone();
+	}
+
+	/** Restarts online filtering with the prior of the network. */
+	public void reset() {
+		reset(prior);
+	}
+
+	/** Restarts online filtering with the given joint prior. */
+	public void reset(double[] prior) {
+		System.arraycopy(prior, 0, belief, 0, size);
+		time = 0;
+		logLikelihood = 0;
+	}
+
+	/**
+	 * Advances the filtered belief by one time slice.
+	 *
+	 * @param evidence
+	 *            the observed values of (some of) the evidence variables.
+	 * @return log P(<b>e</b><sub>t+1</sub> | <b>e</b><sub>1:t</sub>).
+	 */
+	public double step(List<AssignmentProposition> evidence) {
+		double logP = forward(belief, 0, getLikelihood(evidence), belief, 0);
+		time++;
+		logLikelihood += logP;
+		return logP;
+	}
+
+	/** Returns the number of time slices filtered since the last reset. */
+	public int getTime() {
+		return time;
+	}
+
+	/** Returns log P(<b>e</b><sub>1:t</sub>) of the evidence since the last reset. */
+	public double getLogLikelihood() {
+		return logLikelihood;
+	}
+
+	/** Returns the current filtered belief <b>P</b>(<b>X</b><sub>t</sub> | <b>e</b><sub>1:t</sub>). */
+	public CategoricalDistribution getBelief() {
+		return toDistribution(belief);
+	}
+
+	/** Copies the current filtered belief into the given array. */
+	public void getBelief(double[] result) {
+		System.arraycopy(belief, 0, result, 0, size);
+	}
+
+	/**
+	 * Returns the vector P(<b>e</b> | <b>X</b><sub>1</sub>) for the given
+	 * evidence. The returned array is cached and must not be modified.
+	 */
+	public double[] getLikelihood(List<AssignmentProposition> evidence) {
+		Object[] observed = new Object[evidenceVars.length];
+		for (AssignmentProposition ap : evidence) {
+			Integer j = evidencePositions.get(ap.getTermVariable());
+			if (j == null)
+				throw new IllegalArgumentException(ap.getTermVariable() + " is not an evidence variable.");
+			observed[j] = ap.getValue();
+		}
+		List<Object> key = Arrays.asList(observed);
+		double[] likelihood = likelihoods.get(key);
+		if (likelihood == null) {
+			likelihood = computeLikelihood(observed);
+			likelihoods.put(key, likelihood);
+		}
+		return likelihood;
+	}
+
+	/**
+	 * The forward-backward algorithm for smoothing over the joint state
+	 * values.
+	 *
+	 * @param ev
+	 *            a vector of evidence values for steps 1,...,t
+	 * @param prior
+	 *            the joint prior distribution on the initial state.
+	 * @param smoothed
+	 *            an array of at least t * S entries receiving the smoothed
+	 *            estimate of step i at offset (i - 1) * S, where S is the
+	 *            number of joint state values.
+	 * @return the log-likelihood log P(<b>e</b><sub>1:t</sub>).
+	 */
+	public double forwardBackward(List<List<AssignmentProposition>> ev, double[] prior, double[] smoothed) {
+		int length = ev.size();
+		if (forwardMessages.length < length * size)
+			forwardMessages = new double[length * size];
+		if (stepLikelihoods.length < length)
+			stepLikelihoods = new double[length][];
+		double result = 0;
+		for (int i = 0; i < length; i++) {
+			stepLikelihoods[i] = getLikelihood(ev.get(i));
+			if (i == 0)
+				result += forward(prior, 0, stepLikelihoods[i], forwardMessages, 0);
+			else
+				result += forward(forwardMessages, (i - 1) * size, stepLikelihoods[i], forwardMessages, i * size);
+		}
+		double[] b = new double[size];
+		Arrays.fill(b, 1.0);
+		for (int i = length - 1; i >= 0; i--) {
+			int offset = i * size;
+			double sum = 0;
+			for (int s = 0; s < size; s++) {
+				smoothed[offset + s] = forwardMessages[offset + s] * b[s];
+				sum += smoothed[offset + s];
+			}
+			for (int s = 0; s < size; s++)
+				smoothed[offset + s] /= sum;
+			backward(b, stepLikelihoods[i], b);
+			scale(b);
+		}
+		return result;
+	}
+
+	//
+	// START-ForwardBackwardInference
+	@Override
+	public List<CategoricalDistribution> forwardBackward(
+			List<List<AssignmentProposition>> ev, CategoricalDistribution prior) {
+		double[] smoothed = new double[ev.size() * size];
+		forwardBackward(ev, toArray(prior), smoothed);
+		List<CategoricalDistribution> sv = new ArrayList<CategoricalDistribution>(ev.size());
+		for (int i = 0; i < ev.size(); i++)
+			sv.add(toDistribution(Arrays.copyOfRange(smoothed, i * size, (i + 1) * size)));
+		return sv;
+	}
+
+	@Override
+	public CategoricalDistribution forward(CategoricalDistribution f1_t,
+			List<AssignmentProposition> e_tp1) {
+		double[] f = toArray(f1_t);
+		forward(f, 0, getLikelihood(e_tp1), f, 0);
+		return toDistribution(f);
+	}
+
+	@Override
+	public CategoricalDistribution backward(CategoricalDistribution b_kp2t,
+			List<AssignmentProposition> e_kp1) {
+		double[] b = toArray(b_kp2t);
+		backward(b, getLikelihood(e_kp1), b);
+		return toDistribution(b);
+	}
+
+	// END-ForwardBackwardInference
+	//
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * f<sub>1:t+1</sub>(x1) = &alpha; P(e | x1) &sum;<sub>x0</sub> P(x1 | x0)
+	 * f<sub>1:t</sub>(x0); result may be f.
+	 */
+	private double forward(double[] f, int fOffset, double[] likelihood, double[] result, int resultOffset) {
+		Arrays.fill(tmp, 0.0);
+		for (int x0 = 0; x0 < size; x0++) {
+			double p = f[fOffset + x0];
+			if (p == 0)
+				continue;
+			int base = x0 * size;
+			for (int x1 = 0; x1 < size; x1++)
+				tmp[x1] += transition[base + x1] * p;
+		}
+		double sum = 0;
+		for (int x1 = 0; x1 < size; x1++) {
+			tmp[x1] *= likelihood[x1];
+			sum += tmp[x1];
+		}
+		if (sum == 0)
+			throw new IllegalArgumentException("Evidence is impossible in the model.");
+		for (int x1 = 0; x1 < size; x1++)
+			result[resultOffset + x1] = tmp[x1] / sum;
+		return Math.log(sum);
+	}
+
+	/**
+	 * b<sub>k+1:t</sub>(x0) = &sum;<sub>x1</sub> P(x1 | x0) P(e | x1)
+	 * b<sub>k+2:t</sub>(x1); result may be b.
+	 */
+	private void backward(double[] b, double[] likelihood, double[] result) {
+		for (int x1 = 0; x1 < size; x1++)
+			tmp[x1] = likelihood[x1] * b[x1];
+		for (int x0 = 0; x0 < size; x0++) {
+			double sum = 0;
+			int base = x0 * size;
+			for (int x1 = 0; x1 < size; x1++)
+				sum += transition[base + x1] * tmp[x1];
+			result[x0] = sum;
+		}
+	}
+
+	private void scale(double[] v) {
+		double sum = 0;
+		for (int s = 0; s < size; s++)
+			sum += v[s];
+		if (sum > 0)
+			for (int s = 0; s < size; s++)
+				v[s] /= sum;
+	}
+
+	/**
+	 * Multiplies the sensor factors for every joint state value, summing over
+	 * the values of the unobserved evidence variables.
+	 */
+	private double[] computeLikelihood(Object[] observed) {
+		int[] evidenceDigits = new int[evidenceVars.length];
+		List<Integer> hidden = new ArrayList<Integer>();
+		for (int j = 0; j < evidenceVars.length; j++) {
+			if (observed[j] == null)
+				hidden.add(j);
+			else
+				evidenceDigits[j] = domain(evidenceVars[j]).getOffset(observed[j]);
+		}
+		double[] result = new double[size];
+		for (int x1 = 0; x1 < size; x1++) {
+			for (int j : hidden)
+				evidenceDigits[j] = 0;
+			double sum = 0;
+			boolean done = false;
+			while (!done) {
+				double p = 1;
+				for (Factor factor : sensorFactors)
+					p *= factor.value(null, digits[x1], evidenceDigits);
+				sum += p;
+				// next combination of hidden evidence values
+				done = true;
+				for (int j : hidden) {
+					if (++evidenceDigits[j] < domain(evidenceVars[j]).size()) {
+						done = false;
+						break;
+					}
+					evidenceDigits[j] = 0;
+				}
+			}
+			result[x1] = sum;
+		}
+		return result;
+	}
+
+	private double[] toArray(CategoricalDistribution d) {
+		double[] result = new double[size];
+		AssignmentProposition[] aps = new AssignmentProposition[stateVars.length];
+		for (int s = 0; s < size; s++) {
+			for (int k = 0; k < stateVars.length; k++) {
+				RandomVariable rv = d.contains(stateVars[k]) ? stateVars[k] : priorStateVars[k];
+				aps[k] = new AssignmentProposition(rv, domain(rv).getValueAt(digits[s][k]));
+			}
+			result[s] = d.getValue(aps);
+		}
+		return result;
+	}
+
+	private CategoricalDistribution toDistribution(double[] values) {
+		ProbabilityTable result = new ProbabilityTable(stateVars);
+		for (int s = 0; s < size; s++)
+			result.setValue(tableIndices[s], values[s]);
+		return result;
+	}
+
+	private static FiniteDomain domain(RandomVariable rv) {
+		if (!rv.getDomain().isFinite())
+			throw new IllegalArgumentException(rv + " does not have a finite domain.");
+		return (FiniteDomain) rv.getDomain();
+	}
+
+	/**
+	 * The CPT of a variable as a flat array. The value of the variable is the
+	 * least significant digit of the index, preceded by the values of the
+	 * parents in CPT order.
+	 */
+	private class Factor {
+		final double[] values;
+		// for every parent and the variable itself: slice (0 = X_0, 1 = X_1,
+		// 2 = E_1) and position within the slice
+		final int[] slices;
+		final int[] positions;
+		final int[] radices;
+
+		Factor(BayesianNetwork network, RandomVariable rv, boolean priorNetwork) {
+			Node node = network.getNode(rv);
+			if (!(node instanceof FiniteNode))
+				throw new IllegalArgumentException(rv + " is not represented by a finite node.");
+			ConditionalProbabilityTable cpt = ((FiniteNode) node).getCPT();
+			List<RandomVariable> vars = new ArrayList<RandomVariable>(cpt.getParents());
+			vars.add(rv);
+			boolean isEvidence = evidencePositions.containsKey(rv);
+			slices = new int[vars.size()];
+			positions = new int[vars.size()];
+			radices = new int[vars.size()];
+			int n = 1;
+			for (int i = 0; i < vars.size(); i++) {
+				RandomVariable v = vars.get(i);
+				int k0 = Arrays.asList(priorStateVars).indexOf(v);
+				int k1 = Arrays.asList(stateVars).indexOf(v);
+				Integer j = evidencePositions.get(v);
+				if (k0 >= 0 && (priorNetwork || !isEvidence)) {
+					slices[i] = 0;
+					positions[i] = k0;
+				} else if (k1 >= 0 && !priorNetwork) {
+					slices[i] = 1;
+					positions[i] = k1;
+				} else if (j != null && isEvidence) {
+					slices[i] = 2;
+					positions[i] = j;
+				} else {
+					throw new IllegalArgumentException("Unsupported dependency of " + rv + " on " + v + ".");
+				}
+				radices[i] = domain(v).size();
+				n *= radices[i];
+			}
+			values = new double[n];
+			Object[] assignment = new Object[vars.size()];
+			for (int index = 0; index < n; index++) {
+				for (int i = vars.size() - 1, rest = index; i >= 0; rest /= radices[i], i--)
+					assignment[i] = domain(vars.get(i)).getValueAt(rest % radices[i]);
+				values[index] = cpt.getValue(assignment);
+			}
+		}
+
+		double value(int[] x0, int[] x1, int[] e) {
+			int index = 0;
+			for (int i = 0; i < slices.length; i++) {
+				int digit;
+				if (slices[i] == 0)
+					digit = x0[positions[i]];
+				else if (slices[i] == 1)
+					digit = x1[positions[i]];
+				else
+					digit = e[positions[i]];
+				index = index * radices[i] + digit;
+			}
+			return values[index];
+		}
+	}
+}
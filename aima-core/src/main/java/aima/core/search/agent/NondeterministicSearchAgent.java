@@ -23,6 +23,7 @@ public class NondeterministicSearchAgent<S, A extends Action> extends AbstractAg
 	private Function<Percept, S> ptsFunction;
 	private EnvironmentViewNotifier notifier;
 
+	private AndOrSearch<S, A> andOrSearch = new AndOrSearch<>();
 	private NondeterministicProblem<S, A> problem;
 	private Plan<S, A> contingencyPlan;
 	private int currStep;
@@ -45,7 +46,6 @@ public class NondeterministicSearchAgent<S, A extends Action> extends AbstractAg
 	public void makePlan(NondeterministicProblem<S, A> problem) {
 		this.problem = problem;
 		setAlive(true);
-		AndOrSearch<S, A> andOrSearch = new AndOrSearch<>();
 		Optional<Plan<S, A>> plan = andOrSearch.search(problem);
 		contingencyPlan = plan.isPresent() ? plan.get() : null;
 		currStep = -1;
@@ -53,6 +53,18 @@ public class NondeterministicSearchAgent<S, A extends Action> extends AbstractAg
 			notifier.notifyViews("Contingency plan: " + contingencyPlan);
 	}
 
+	public AndOrSearch<S, A> getSearch() {
+		return andOrSearch;
+	}
+
+	/**
+	 * Sets the search which computes the contingency plans of this agent,
+	 * e.g. a {@link aima.core.search.nondeterministic.MemoizedAndOrSearch}.
+	 */
+	public void setSearch(AndOrSearch<S, A> andOrSearch) {
+		this.andOrSearch = andOrSearch;
+	}
+
 	/**
 	 * Returns the search problem for this agent.
 	 *
@@ -0,0 +1,371 @@
+package aima.core.search.informed;
+
+import aima.core.search.framework.Metrics;
+import aima.core.search.framework.Node;
+import aima.core.search.framework.NodeExpander;
+import aima.core.search.framework.SearchForActions;
+import aima.core.search.framework.SearchUtils;
+import aima.core.search.framework.problem.BidirectionalProblem;
+import aima.core.search.framework.problem.Problem;
+import aima.core.util.Tasks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bidirectional heuristic search which meets in the middle (MM, Holte et al.
+ * 2016). Two A*-like searches run towards each other, one on the original
+ * problem guided by <em>h(n)</em> and one on the reverse problem guided by a
+ * heuristic which estimates the cost to the initial state. Nodes are ordered
+ * by pr(n) = max(g(n) + h(n), 2 g(n)) and the search with the smaller minimal
+ * priority is expanded next. This guarantees that neither search expands a
+ * node beyond the midpoint of an optimal solution.<br>
+ * <br>
+ * Whenever a generated state is known to the other search, the two paths form
+ * a solution, and the cheapest one, U, is remembered. The search stops as soon
+ * as U &lt;= max(C, fmin<sub>F</sub>, fmin<sub>B</sub>, gmin<sub>F</sub> +
+ * gmin<sub>B</sub> + &epsilon;), where C is the smaller of the two minimal
+ * priorities and &epsilon; the minimal step cost. With admissible heuristics,
+ * the solution is optimal. Nodes are kept in indexed priority queues which
+ * support decrease-key, so each state occurs at most once per direction.<br>
+ * <br>
+ * Like {@link aima.core.search.framework.qsearch.BidirectionalSearch}, the
+ * search needs a {@link BidirectionalProblem} whose reverse problem provides a
+ * reverse action for each action of the original problem.
+ *
+ * @param <S> The type used to represent states
+ * @param <A> The type of the actions to be used to navigate through the state space
+ */
+public class BidirectionalAStarSearch<S, A> implements SearchForActions<S, A>, Informed<S, A> {
+
+    public static final String METRIC_NODES_EXPANDED = "nodesExpanded";
+    public static final String METRIC_NODES_EXPANDED_FORWARD = "nodesExpandedForward";
+    public static final String METRIC_NODES_EXPANDED_BACKWARD = "nodesExpandedBackward";
+    public static final String METRIC_MAX_QUEUE_SIZE = "maxQueueSize";
+    public static final String METRIC_PATH_COST = "pathCost";
+
+    private static final int PR = 0;
+    private static final int F = 1;
+    private static final int G = 2;
+
+    private ToDoubleFunction<Node<S, A>> h;
+    private ToDoubleFunction<Node<S, A>> reverseH;
+    private double minStepCost = 0.0;
+    private final NodeExpander<S, A> nodeExpander;
+    private Metrics metrics = new Metrics();
+
+    /**
+     * Constructs a bidirectional A* search.
+     *
+     * @param h        a heuristic function which estimates the cost of the
+     *                 cheapest path from the state at node <em>n</em> to a
+     *                 goal state.
+     * @param reverseH a heuristic function which estimates the cost of the
+     *                 cheapest path from the initial state to the state at
+     *                 node <em>n</em>.
+     */
+    public BidirectionalAStarSearch(ToDoubleFunction<Node<S, A>> h, ToDoubleFunction<Node<S, A>> reverseH) {
+        this(h, reverseH, new NodeExpander<>());
+    }
+
+    public BidirectionalAStarSearch(ToDoubleFunction<Node<S, A>> h, ToDoubleFunction<Node<S, A>> reverseH,
+                                    NodeExpander<S, A> nodeExpander) {
+        this.h = h;
+        this.reverseH = reverseH;
+        this.nodeExpander = nodeExpander;
+        nodeExpander.useParentLinks(true);
+    }
+
+    /**
+     * Sets the heuristic function of the search on the original problem.
+     */
+    @Override
+    public void setHeuristicFunction(ToDoubleFunction<Node<S, A>> h) {
+        this.h = h;
+    }
+
+    /**
+     * Sets the heuristic function of the search on the reverse problem.
+     */
+    public void setReverseHeuristicFunction(ToDoubleFunction<Node<S, A>> reverseH) {
+        this.reverseH = reverseH;
+    }
+
+    /**
+     * Sets a lower bound for the step costs of the problem (default 0). A
+     * positive bound makes the stopping rule more effective.
+     */
+    public void setMinStepCost(double minStepCost) {
+        this.minStepCost = minStepCost;
+    }
+
+    @Override
+    public Optional<List<A>> findActions(Problem<S, A> p) {
+        Optional<Node<S, A>> node = findNode(p);
+        return node.isPresent() ? Optional.of(SearchUtils.getSequenceOfActions(node.get())) : Optional.empty();
+    }
+
+    /**
+     * Returns a node whose path from the root is an optimal solution of the
+     * original problem, or empty if there is no solution.
+     */
+    public Optional<Node<S, A>> findNode(Problem<S, A> p) {
+        if (!(p instanceof BidirectionalProblem))
+            throw new IllegalArgumentException("Bidirectional A* needs a bidirectional problem.");
+        clearMetrics();
+        Problem<S, A> orgP = ((BidirectionalProblem<S, A>) p).getOriginalProblem();
+        Problem<S, A> revP = ((BidirectionalProblem<S, A>) p).getReverseProblem();
+        Direction<S, A> forward = new Direction<>(orgP, h);
+        Direction<S, A> backward = new Direction<>(revP, reverseH);
+        forward.add(nodeExpander.createRootNode(orgP.getInitialState()));
+        backward.add(nodeExpander.createRootNode(revP.getInitialState()));
+
+        double bestCost = Double.POSITIVE_INFINITY;
+        Node<S, A> bestForward = null;
+        Node<S, A> bestBackward = null;
+        if (orgP.getInitialState().equals(revP.getInitialState())) {
+            bestCost = 0;
+            bestForward = forward.nodes.get(orgP.getInitialState());
+            bestBackward = backward.nodes.get(revP.getInitialState());
+        }
+        while (!forward.isOpenEmpty() && !backward.isOpenEmpty() && !Tasks.currIsCancelled()) {
+            double c = Math.min(forward.getMin(PR), backward.getMin(PR));
+            double bound = Math.max(Math.max(c, forward.getMin(F)), Math.max(backward.getMin(F),
+                    forward.getMin(G) + backward.getMin(G) + minStepCost));
+            if (bestCost <= bound)
+                break;
+            boolean isForward = forward.getMin(PR) <= backward.getMin(PR);
+            Direction<S, A> dir = isForward ? forward : backward;
+            Direction<S, A> other = isForward ? backward : forward;
+            Node<S, A> node = dir.poll();
+            metrics.incrementInt(isForward ? METRIC_NODES_EXPANDED_FORWARD : METRIC_NODES_EXPANDED_BACKWARD);
+            metrics.incrementInt(METRIC_NODES_EXPANDED);
+            for (Node<S, A> child : nodeExpander.expand(node, dir.problem)) {
+                if (!isForward && getReverseAction(orgP, child) == null)
+                    continue;
+                if (!dir.add(child))
+                    continue;
+                Node<S, A> match = other.nodes.get(child.getState());
+                if (match != null && child.getPathCost() + match.getPathCost() < bestCost) {
+                    bestCost = child.getPathCost() + match.getPathCost();
+                    bestForward = isForward ? child : match;
+                    bestBackward = isForward ? match : child;
+                }
+            }
+            metrics.set(METRIC_MAX_QUEUE_SIZE, Math.max(metrics.getInt(METRIC_MAX_QUEUE_SIZE),
+                    forward.open[PR].size() + backward.open[PR].size()));
+        }
+        if (bestForward == null)
+            return Optional.empty();
+        Node<S, A> result = getSolution(orgP, bestForward, bestBackward);
+        metrics.set(METRIC_PATH_COST, result.getPathCost());
+        return Optional.of(result);
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void addNodeListener(Consumer<Node<S, A>> listener) {
+        nodeExpander.addNodeListener(listener);
+    }
+
+    @Override
+    public boolean removeNodeListener(Consumer<Node<S, A>> listener) {
+        return nodeExpander.removeNodeListener(listener);
+    }
+
+    //
+    // PRIVATE METHODS
+    //
+
+    private void clearMetrics() {
+        metrics = new Metrics();
+        metrics.set(METRIC_NODES_EXPANDED, 0);
+        metrics.set(METRIC_NODES_EXPANDED_FORWARD, 0);
+        metrics.set(METRIC_NODES_EXPANDED_BACKWARD, 0);
+        metrics.set(METRIC_MAX_QUEUE_SIZE, 0);
+        metrics.set(METRIC_PATH_COST, 0.0);
+    }
+
+    /**
+     * Extends the path of the forward node by the reverse actions of the path
+     * of the backward node. Both nodes must be linked to the same state.
+     */
+    private Node<S, A> getSolution(Problem<S, A> orgP, Node<S, A> orgNode, Node<S, A> revNode) {
+        while (revNode.getParent() != null) {
+            A action = getReverseAction(orgP, revNode);
+            S nextState = revNode.getParent().getState();
+            double stepCosts = orgP.getStepCosts(revNode.getState(), action, nextState);
+            orgNode = nodeExpander.createNode(nextState, orgNode, action, stepCosts);
+            revNode = revNode.getParent();
+        }
+        return orgNode;
+    }
+
+    /**
+     * Returns the action which leads from the state of <code>node</code> to the
+     * state of the node's parent, if such an action exists in problem
+     * <code>orgP</code>.
+     */
+    private A getReverseAction(Problem<S, A> orgP, Node<S, A> node) {
+        S currState = node.getState();
+        S nextState = node.getParent().getState();
+        for (A action : orgP.getActions(currState)) {
+            if (nextState.equals(orgP.getResult(currState, action)))
+                return action;
+        }
+        return null;
+    }
+
+    /**
+     * The nodes of the search in one direction. Open nodes are kept in three
+     * indexed heaps, ordered by priority, f, and g.
+     */
+    private static class Direction<S, A> {
+        final Problem<S, A> problem;
+        final ToDoubleFunction<Node<S, A>> h;
+        // best node found so far for each generated state, open or closed
+        final Map<S, Node<S, A>> nodes = new HashMap<>();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final IndexedHeap<S, A>[] open = new IndexedHeap[]{new IndexedHeap<>(PR), new IndexedHeap<>(F),
+                new IndexedHeap<>(G)};
+
+        Direction(Problem<S, A> problem, ToDoubleFunction<Node<S, A>> h) {
+            this.problem = problem;
+            this.h = h;
+        }
+
+        boolean isOpenEmpty() {
+            return open[PR].size() == 0;
+        }
+
+        double getMin(int key) {
+            return open[key].peek().keys[key];
+        }
+
+        Node<S, A> poll() {
+            Entry<S, A> entry = open[PR].peek();
+            for (IndexedHeap<S, A> heap : open)
+                heap.remove(entry.node.getState());
+            return entry.node;
+        }
+
+        /**
+         * Adds the node to the open list unless a path to its state which is
+         * at least as cheap is already known. Closed nodes are reopened.
+         */
+        boolean add(Node<S, A> node) {
+            S state = node.getState();
+            Node<S, A> known = nodes.get(state);
+            if (known != null && known.getPathCost() <= node.getPathCost())
+                return false;
+            nodes.put(state, node);
+            double g = node.getPathCost();
+            double f = g + h.applyAsDouble(node);
+            Entry<S, A> entry = new Entry<>(node, Math.max(f, 2 * g), f, g);
+            for (IndexedHeap<S, A> heap : open)
+                heap.addOrReplace(entry);
+            return true;
+        }
+    }
+
+    private static class Entry<S, A> {
+        final Node<S, A> node;
+        final double[] keys;
+
+        Entry(Node<S, A> node, double pr, double f, double g) {
+            this.node = node;
+            this.keys = new double[]{pr, f, g};
+        }
+    }
+
+    /**
+     * Binary heap which knows the position of each state and can therefore
+     * replace or remove the entry of a state in logarithmic time.
+     */
+    private static class IndexedHeap<S, A> {
+        private final int key;
+        private final List<Entry<S, A>> heap = new ArrayList<>();
+        private final Map<S, Integer> positions = new HashMap<>();
+
+        IndexedHeap(int key) {
+            this.key = key;
+        }
+
+        int size() {
+            return heap.size();
+        }
+
+        Entry<S, A> peek() {
+            return heap.get(0);
+        }
+
+        void addOrReplace(Entry<S, A> entry) {
+            Integer pos = positions.get(entry.node.getState());
+            if (pos == null) {
+                heap.add(entry);
+                pos = heap.size() - 1;
+            } else {
+                heap.set(pos, entry);
+            }
+            positions.put(entry.node.getState(), pos);
+            siftDown(siftUp(pos));
+        }
+
+        void remove(S state) {
+            Integer pos = positions.remove(state);
+            if (pos == null)
+                return;
+            Entry<S, A> last = heap.remove(heap.size() - 1);
+            if (pos < heap.size()) {
+                heap.set(pos, last);
+                positions.put(last.node.getState(), pos);
+                siftDown(siftUp(pos));
+            }
+        }
+
+        private int siftUp(int pos) {
+            Entry<S, A> entry = heap.get(pos);
+            while (pos > 0) {
+                int parent = (pos - 1) / 2;
+                if (heap.get(parent).keys[key] <= entry.keys[key])
+                    break;
+                move(parent, pos);
+                pos = parent;
+            }
+            heap.set(pos, entry);
+            positions.put(entry.node.getState(), pos);
+            return pos;
+        }
+
+        private void siftDown(int pos) {
+            Entry<S, A> entry = heap.get(pos);
+            int size = heap.size();
+            while (2 * pos + 1 < size) {
+                int child = 2 * pos + 1;
+                if (child + 1 < size && heap.get(child + 1).keys[key] < heap.get(child).keys[key])
+                    child++;
+                if (entry.keys[key] <= heap.get(child).keys[key])
+                    break;
+                move(child, pos);
+                pos = child;
+            }
+            heap.set(pos, entry);
+            positions.put(entry.node.getState(), pos);
+        }
+
+        private void move(int from, int to) {
+            Entry<S, A> entry = heap.get(from);
+            heap.set(to, entry);
+            positions.put(entry.node.getState(), to);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package aima.core.search.informed;
+
+import aima.core.search.framework.Metrics;
+import aima.core.search.framework.Node;
+import aima.core.search.framework.NodeExpander;
+import aima.core.search.framework.SearchForActions;
+import aima.core.search.framework.SearchUtils;
+import aima.core.search.framework.problem.Problem;
+import aima.core.util.Tasks;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Artificial Intelligence A Modern Approach (3rd Edition): page 99.<br>
+ * <br>
+ * Iterative-deepening A* (IDA*). Depth-first search is repeated with an
+ * increasing cutoff on f(n) = g(n) + h(n). The cutoff of the next iteration is
+ * the smallest f-value which exceeded the cutoff of the current one. Memory
+ * is linear in the depth of the solution, and with an admissible heuristic the
+ * solution is optimal.<br>
+ * <br>
+ * Without further measures, states reachable on several paths are searched
+ * once per path. Optionally, a transposition table of fixed size remembers the
+ * cheapest g-value with which a state was reached in the current iteration,
+ * and later visits with no lower g-value are pruned. The table is a direct
+ * mapped array, so memory stays bounded: colliding states overwrite each
+ * other, which only weakens pruning.<br>
+ * <br>
+ * Metrics count all expansions, the expansions of nodes whose f-value was
+ * within the cutoff of the previous iteration (which were therefore
+ * re-expansions), and the number of iterations.
+ *
+ * @param <S> The type used to represent states
+ * @param <A> The type of the actions to be used to navigate through the state space
+ */
+public class IterativeDeepeningAStarSearch<S, A> implements SearchForActions<S, A>, Informed<S, A> {
+
+    public static final String METRIC_NODES_EXPANDED = "nodesExpanded";
+    public static final String METRIC_REEXPANSIONS = "reExpansions";
+    public static final String METRIC_ITERATIONS = "iterations";
+    public static final String METRIC_PATH_COST = "pathCost";
+
+    private ToDoubleFunction<Node<S, A>> h;
+    private final NodeExpander<S, A> nodeExpander;
+    private Metrics metrics = new Metrics();
+
+    // transposition table, null if disabled
+    private Object[] tableStates;
+    private double[] tableG;
+    private int[] tableIteration;
+
+    private final Set<S> onPath = new HashSet<>();
+    private int iteration;
+    private double previousCutoff;
+    private double nextCutoff;
+
+    public IterativeDeepeningAStarSearch(ToDoubleFunction<Node<S, A>> h) {
+        this(h, new NodeExpander<>());
+    }
+
+    public IterativeDeepeningAStarSearch(ToDoubleFunction<Node<S, A>> h, NodeExpander<S, A> nodeExpander) {
+        this.h = h;
+        this.nodeExpander = nodeExpander;
+        nodeExpander.useParentLinks(true);
+    }
+
+    @Override
+    public void setHeuristicFunction(ToDoubleFunction<Node<S, A>> h) {
+        this.h = h;
+    }
+
+    /**
+     * Enables a transposition table with at least the given number of entries
+     * (rounded up to a power of two). A size of 0 disables the table.
+     */
+    public void setTranspositionTableSize(int size) {
+        if (size < 0)
+            throw new IllegalArgumentException("Table size must not be negative.");
+        if (size == 0) {
+            tableStates = null;
+            tableG = null;
+            tableIteration = null;
+        } else {
+            int capacity = 1;
+            while (capacity < size)
+                capacity <<= 1;
+            tableStates = new Object[capacity];
+            tableG = new double[capacity];
+            tableIteration = new int[capacity];
+        }
+    }
+
+    @Override
+    public Optional<List<A>> findActions(Problem<S, A> p) {
+        metrics = new Metrics();
+        metrics.set(METRIC_NODES_EXPANDED, 0);
+        metrics.set(METRIC_REEXPANSIONS, 0);
+        metrics.set(METRIC_ITERATIONS, 0);
+        metrics.set(METRIC_PATH_COST, 0.0);
+        if (tableStates != null)
+            Arrays.fill(tableStates, null);
+        onPath.clear();
+
+        Node<S, A> root = nodeExpander.createRootNode(p.getInitialState());
+        double cutoff = h.applyAsDouble(root);
+        previousCutoff = Double.NEGATIVE_INFINITY;
+        iteration = 0;
+        while (!Tasks.currIsCancelled()) {
+            iteration++;
+            metrics.incrementInt(METRIC_ITERATIONS);
+            nextCutoff = Double.POSITIVE_INFINITY;
+            Node<S, A> solution = search(p, root, cutoff);
+            if (solution != null) {
+                metrics.set(METRIC_PATH_COST, solution.getPathCost());
+                return Optional.of(SearchUtils.getSequenceOfActions(solution));
+            }
+            if (nextCutoff == Double.POSITIVE_INFINITY)
+                break;
+            previousCutoff = cutoff;
+            cutoff = nextCutoff;
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void addNodeListener(Consumer<Node<S, A>> listener) {
+        nodeExpander.addNodeListener(listener);
+    }
+
+    @Override
+    public boolean removeNodeListener(Consumer<Node<S, A>> listener) {
+        return nodeExpander.removeNodeListener(listener);
+    }
+
+    //
+    // PRIVATE METHODS
+    //
+
+    /**
+     * Depth-first search bounded by the cutoff. Returns a solution node or
+     * null and lowers nextCutoff to the smallest f-value above the cutoff.
+     */
+    private Node<S, A> search(Problem<S, A> p, Node<S, A> node, double cutoff) {
+        double f = node.getPathCost() + h.applyAsDouble(node);
+        if (f > cutoff) {
+            nextCutoff = Math.min(nextCutoff, f);
+            return null;
+        }
+        if (p.testSolution(node))
+            return node;
+        if (isTransposition(node) || Tasks.currIsCancelled())
+            return null;
+
+        metrics.incrementInt(METRIC_NODES_EXPANDED);
+        if (f <= previousCutoff)
+            metrics.incrementInt(METRIC_REEXPANSIONS);
+        onPath.add(node.getState());
+        Node<S, A> result = null;
+        for (Node<S, A> child : nodeExpander.expand(node, p)) {
+            if (!onPath.contains(child.getState())) {
+                result = search(p, child, cutoff);
+                if (result != null)
+                    break;
+            }
+        }
+        onPath.remove(node.getState());
+        return result;
+    }
+
+    /**
+     * Checks whether the state of the node was reached with lower or equal
+     * g-value before in this iteration and records the visit otherwise.
+     */
+    private boolean isTransposition(Node<S, A> node) {
+        if (tableStates == null)
+            return false;
+        S state = node.getState();
+        int hash = state.hashCode() * 0x9E3779B9;
+        int i = (hash ^ (hash >>> 16)) & (tableStates.length - 1);
+        if (tableIteration[i] == iteration && state.equals(tableStates[i]) && tableG[i] <= node.getPathCost())
+            return true;
+        tableStates[i] = state;
+        tableG[i] = node.getPathCost();
+        tableIteration[i] = iteration;
+        return false;
+    }
+}
@@ -0,0 +1,270 @@
+package aima.core.search.informed;
+
+import aima.core.search.framework.Metrics;
+import aima.core.search.framework.Node;
+import aima.core.search.framework.NodeExpander;
+import aima.core.search.framework.SearchForActions;
+import aima.core.search.framework.SearchUtils;
+import aima.core.search.framework.problem.Problem;
+import aima.core.util.Tasks;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Artificial Intelligence A Modern Approach (3rd Edition): page 101.<br>
+ * <br>
+ * Simplified memory-bounded A* (SMA*). SMA* proceeds like A*, expanding the
+ * best leaf, until the number of nodes in memory reaches a given budget. Then
+ * it drops the worst leaf (highest f-value, shallowest among equals) and
+ * stores its f-value in the parent, so that the parent knows the quality of
+ * the best path in the forgotten subtree. The f-value of each node is backed
+ * up from its children, and a node whose forgotten subtrees look most
+ * promising is expanded again to regenerate them.<br>
+ * <br>
+ * This implementation generates all successors of a node at once and counts
+ * the nodes of the search tree against the budget, which may therefore be
+ * exceeded by the successors of one node until the worst leaves are dropped. A path whose nodes alone
+ * exhaust the budget cannot be completed; its last node gets an infinite
+ * f-value. With an admissible heuristic, SMA* returns an optimal solution if
+ * the nodes on the path of some optimal solution fit into memory, and
+ * otherwise the best solution that fits.<br>
+ * <br>
+ * Metrics report all expansions, the expansions of nodes which had been
+ * expanded before (i.e. whose successors were forgotten), and the maximal
+ * number of nodes in memory.
+ *
+ * @param <S> The type used to represent states
+ * @param <A> The type of the actions to be used to navigate through the state space
+ */
+public class SMAStarSearch<S, A> implements SearchForActions<S, A>, Informed<S, A> {
+
+    public static final String METRIC_NODES_EXPANDED = "nodesExpanded";
+    public static final String METRIC_REEXPANSIONS = "reExpansions";
+    public static final String METRIC_MAX_NODES_IN_MEMORY = "maxNodesInMemory";
+    public static final String METRIC_PATH_COST = "pathCost";
+
+    private ToDoubleFunction<Node<S, A>> h;
+    private final int maxNodes;
+    private final NodeExpander<S, A> nodeExpander;
+    private Metrics metrics = new Metrics();
+
+    // nodes which are leaves or have forgotten successors
+    private TreeSet<TreeNode<S, A>> open;
+    private int nodesInMemory;
+    private long nextId;
+
+    /**
+     * Constructs an SMA* search.
+     *
+     * @param h        a heuristic function <em>h(n)</em>, which estimates the
+     *                 cost of the cheapest path from the state at node
+     *                 <em>n</em> to a goal state.
+     * @param maxNodes the maximal number of nodes kept in memory.
+     */
+    public SMAStarSearch(ToDoubleFunction<Node<S, A>> h, int maxNodes) {
+        this(h, maxNodes, new NodeExpander<>());
+    }
+
+    public SMAStarSearch(ToDoubleFunction<Node<S, A>> h, int maxNodes, NodeExpander<S, A> nodeExpander) {
+        if (maxNodes < 1)
+            throw new IllegalArgumentException("At least one node must fit into memory.");
+        this.h = h;
+        this.maxNodes = maxNodes;
+        this.nodeExpander = nodeExpander;
+        nodeExpander.useParentLinks(true);
+    }
+
+    @Override
+    public void setHeuristicFunction(ToDoubleFunction<Node<S, A>> h) {
+        this.h = h;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    @Override
+    public Optional<List<A>> findActions(Problem<S, A> p) {
+        metrics = new Metrics();
+        metrics.set(METRIC_NODES_EXPANDED, 0);
+        metrics.set(METRIC_REEXPANSIONS, 0);
+        metrics.set(METRIC_PATH_COST, 0.0);
+        // lowest f first, deepest among equals
+        open = new TreeSet<>(Comparator.<TreeNode<S, A>>comparingDouble(n -> n.f)
+                .thenComparing(n -> -n.depth).thenComparingLong(n -> n.id));
+        nodesInMemory = 0;
+        nextId = 0;
+
+        Node<S, A> rootNode = nodeExpander.createRootNode(p.getInitialState());
+        TreeNode<S, A> root = createTreeNode(rootNode, null, h.applyAsDouble(rootNode));
+        open.add(root);
+        metrics.set(METRIC_MAX_NODES_IN_MEMORY, nodesInMemory);
+        while (!open.isEmpty() && !Tasks.currIsCancelled()) {
+            TreeNode<S, A> best = open.first();
+            if (best.f == Double.POSITIVE_INFINITY)
+                break;
+            if (p.testSolution(best.node)) {
+                metrics.set(METRIC_PATH_COST, best.node.getPathCost());
+                return Optional.of(SearchUtils.getSequenceOfActions(best.node));
+            }
+            expand(p, best);
+            // the peak is reached before the worst leaves are dropped
+            metrics.set(METRIC_MAX_NODES_IN_MEMORY,
+                    Math.max(metrics.getInt(METRIC_MAX_NODES_IN_MEMORY), nodesInMemory));
+            while (nodesInMemory > maxNodes) {
+                if (!forgetWorstLeaf(root))
+                    break;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void addNodeListener(Consumer<Node<S, A>> listener) {
+        nodeExpander.addNodeListener(listener);
+    }
+
+    @Override
+    public boolean removeNodeListener(Consumer<Node<S, A>> listener) {
+        return nodeExpander.removeNodeListener(listener);
+    }
+
+    //
+    // PRIVATE METHODS
+    //
+
+    /**
+     * Generates the successors of the node which are not in memory and backs
+     * up the f-values.
+     */
+    private void expand(Problem<S, A> p, TreeNode<S, A> node) {
+        metrics.incrementInt(METRIC_NODES_EXPANDED);
+        if (node.expanded)
+            metrics.incrementInt(METRIC_REEXPANSIONS);
+        node.expanded = true;
+        open.remove(node);
+        double forgottenF = node.forgottenF;
+        node.forgottenF = Double.POSITIVE_INFINITY;
+        for (Node<S, A> successor : nodeExpander.expand(node.node, p)) {
+            if (isOnPath(node, successor.getState()) || hasChild(node, successor.getState()))
+                continue;
+            double f;
+            if (node.depth + 2 >= maxNodes && !p.testSolution(successor))
+                // no room to extend the path further
+                f = Double.POSITIVE_INFINITY;
+            else if (forgottenF < Double.POSITIVE_INFINITY)
+                // regenerated successor, was at least as bad as the best forgotten one
+                f = Math.max(successor.getPathCost() + h.applyAsDouble(successor), Math.max(node.f, forgottenF));
+            else
+                f = Math.max(successor.getPathCost() + h.applyAsDouble(successor), node.f);
+            TreeNode<S, A> child = createTreeNode(successor, node, f);
+            node.children.add(child);
+            open.add(child);
+        }
+        if (node.children.isEmpty())
+            // dead end, backing up gives it an infinite f-value
+            open.add(node);
+        backUp(node);
+    }
+
+    /**
+     * Removes the leaf with the highest f-value (the shallowest one among
+     * equals) from memory and remembers its f-value in its parent. Returns
+     * false if there is no leaf besides the root.
+     */
+    private boolean forgetWorstLeaf(TreeNode<S, A> root) {
+        Iterator<TreeNode<S, A>> iter = open.descendingIterator();
+        TreeNode<S, A> worst = null;
+        while (iter.hasNext()) {
+            TreeNode<S, A> candidate = iter.next();
+            if (candidate != root && candidate.children.isEmpty()) {
+                worst = candidate;
+                break;
+            }
+        }
+        if (worst == null)
+            return false;
+        open.remove(worst);
+        TreeNode<S, A> parent = worst.parent;
+        parent.children.remove(worst);
+        nodesInMemory--;
+        open.remove(parent);
+        parent.forgottenF = Math.min(parent.forgottenF, worst.f);
+        open.add(parent);
+        backUp(parent);
+        return true;
+    }
+
+    /**
+     * Sets the f-value of the expanded node to the smallest f-value of its
+     * children and forgotten successors and propagates changes to the root.
+     */
+    private void backUp(TreeNode<S, A> node) {
+        while (node != null && node.expanded) {
+            double f = node.forgottenF;
+            for (TreeNode<S, A> child : node.children)
+                f = Math.min(f, child.f);
+            if (f == node.f)
+                break;
+            boolean inOpen = open.remove(node);
+            node.f = f;
+            if (inOpen)
+                open.add(node);
+            node = node.parent;
+        }
+    }
+
+    private TreeNode<S, A> createTreeNode(Node<S, A> node, TreeNode<S, A> parent, double f) {
+        nodesInMemory++;
+        return new TreeNode<>(node, parent, f, nextId++);
+    }
+
+    private boolean isOnPath(TreeNode<S, A> node, S state) {
+        for (TreeNode<S, A> n = node; n != null; n = n.parent)
+            if (n.node.getState().equals(state))
+                return true;
+        return false;
+    }
+
+    private boolean hasChild(TreeNode<S, A> node, S state) {
+        for (TreeNode<S, A> child : node.children)
+            if (child.node.getState().equals(state))
+                return true;
+        return false;
+    }
+
+    /**
+     * A node of the search tree in memory.
+     */
+    private static class TreeNode<S, A> {
+        final Node<S, A> node;
+        final TreeNode<S, A> parent;
+        final int depth;
+        final long id;
+        final List<TreeNode<S, A>> children = new ArrayList<>();
+        double f;
+        // smallest f-value of the forgotten successors
+        double forgottenF = Double.POSITIVE_INFINITY;
+        boolean expanded;
+
+        TreeNode(Node<S, A> node, TreeNode<S, A> parent, double f, long id) {
+            this.node = node;
+            this.parent = parent;
+            this.depth = parent != null ? parent.depth + 1 : 0;
+            this.f = f;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package aima.core.search.nondeterministic;
+
+import aima.core.search.framework.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * AND-OR graph search which remembers the outcome of OR-SEARCH for each state.
+ * {@link AndOrSearch} only checks the current path for cycles and therefore
+ * solves a state again whenever it is reached on another path, which takes
+ * exponential time in problems where many action sequences lead to the same
+ * states. This version stores the plan found for a state and returns the same
+ * plan object whenever the state is reached again. The resulting plan is a
+ * DAG: subplans are shared by all if-statements which refer to the same state.
+ * To make sharing possible, each action step is followed by if-statements,
+ * even if the action has just one outcome.<br>
+ * <br>
+ * Plans are valid independent of the path on which they were found. Failures
+ * are not: OR-SEARCH fails for a state if all actions lead back to states on
+ * the current path, and the same state may be solvable when reached on a
+ * different path. Therefore, each failure reports the depth of the shallowest
+ * path state it ran into, and a state is only remembered as unsolvable if its
+ * failure did not depend on any state above it on the path.<br>
+ * <br>
+ * If a pool is set, the outcomes of AND nodes are searched in parallel while
+ * the pool has too little work. Once an outcome fails, the remaining outcomes
+ * are cancelled: tasks which have not started are dropped, running tasks stop
+ * at their next node and are joined, so no task outlives the AND node which
+ * forked it. Failures caused by cancellation are not remembered.
+ *
+ * @param <S> The type used to represent states
+ * @param <A> The type of the actions to be used to navigate through the state space
+ */
+public class MemoizedAndOrSearch<S, A> extends AndOrSearch<S, A> {
+	public static final String METRIC_EXPANDED_NODES = "expandedNodes";
+	public static final String METRIC_CACHE_HITS = "cacheHits";
+	public static final String METRIC_SOLVED_STATES = "solvedStates";
+	public static final String METRIC_FAILED_STATES = "failedStates";
+
+	/** Outcomes are forked while fewer tasks than this wait in the queue. */
+	private static final int SURPLUS_THRESHOLD = 3;
+
+	private ForkJoinPool pool = null;
+	private final Map<S, Plan<S, A>> solved = new ConcurrentHashMap<>();
+	private final Set<S> failed = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger expanded = new AtomicInteger();
+	private final AtomicInteger cacheHits = new AtomicInteger();
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool
+	 *            the pool on which the outcomes of AND nodes are searched in
+	 *            parallel or null for sequential search.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Searches a conditional plan for the given problem. Results of earlier
+	 * calls are forgotten.
+	 *
+	 * @return a conditional plan or empty on failure
+	 */
+	@Override
+	public Optional<Plan<S, A>> search(NondeterministicProblem<S, A> problem) {
+		clear();
+		Plan<S, A> plan = orSearch(problem.getInitialState(), problem, new Path<>());
+		return plan != null ? Optional.of(plan) : Optional.empty();
+	}
+
+	/**
+	 * Returns a conditional plan for the state or null on failure. Plans and
+	 * failures remembered by earlier calls are reused.
+	 *
+	 * @param path
+	 *            the states above the given state, the nearest one first.
+	 */
+	@Override
+	public Plan<S, A> orSearch(S state, NondeterministicProblem<S, A> problem, Path<S> path) {
+		Result<S, A> result = run(() -> orSearch(state, problem, toNode(path), null));
+		return result.plan;
+	}
+
+	/**
+	 * Returns a plan consisting of one if-statement per state or null on
+	 * failure. Plans and failures remembered by earlier calls are reused.
+	 *
+	 * @param path
+	 *            the states above the given states, the nearest one first.
+	 */
+	@Override
+	public Plan<S, A> andSearch(List<S> states, NondeterministicProblem<S, A> problem, Path<S> path) {
+		Result<S, A> result = run(() -> andSearch(states, problem, toNode(path), null));
+		return result.plan;
+	}
+
+	/**
+	 * Returns the number of expanded nodes, the number of cache hits, and the
+	 * numbers of remembered solved and failed states.
+	 */
+	@Override
+	public Metrics getMetrics() {
+		Metrics result = new Metrics();
+		result.set(METRIC_EXPANDED_NODES, expanded.get());
+		result.set(METRIC_CACHE_HITS, cacheHits.get());
+		result.set(METRIC_SOLVED_STATES, solved.size());
+		result.set(METRIC_FAILED_STATES, failed.size());
+		return result;
+	}
+
+	/**
+	 * Forgets all remembered plans and failures and resets the metrics.
+	 */
+	public void clear() {
+		solved.clear();
+		failed.clear();
+		expanded.set(0);
+		cacheHits.set(0);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private Result<S, A> run(Supplier<Result<S, A>> search) {
+		if (pool == null || ForkJoinTask.getPool() == pool)
+			return search.get();
+		return pool.invoke(new RecursiveTask<Result<S, A>>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected Result<S, A> compute() {
+				return search.get();
+			}
+		});
+	}
+
+	private Result<S, A> orSearch(S state, NondeterministicProblem<S, A> problem, PathNode<S> path,
+			Cancellation cancellation) {
+		if (Cancellation.isCancelled(cancellation))
+			return Result.failure(0);
+		expanded.incrementAndGet();
+		Plan<S, A> plan = solved.get(state);
+		if (plan != null) {
+			cacheHits.incrementAndGet();
+			return new Result<>(plan);
+		}
+		if (failed.contains(state)) {
+			cacheHits.incrementAndGet();
+			return Result.failure(Integer.MAX_VALUE);
+		}
+		if (problem.testGoal(state))
+			return new Result<>(remember(state, new Plan<>()));
+		for (PathNode<S> node = path; node != null; node = node.parent)
+			if (node.state.equals(state))
+				return Result.failure(node.depth);
+
+		PathNode<S> node = new PathNode<>(state, path);
+		int cycleDepth = Integer.MAX_VALUE;
+		for (A action : problem.getActions(state)) {
+			Result<S, A> result = andSearch(problem.getResults(state, action), problem, node, cancellation);
+			if (result.plan != null)
+				return new Result<>(remember(state, result.plan.prepend(action)));
+			cycleDepth = Math.min(cycleDepth, result.cycleDepth);
+		}
+		if (cycleDepth < node.depth || Cancellation.isCancelled(cancellation))
+			// may be solvable on another path or when not cancelled
+			return Result.failure(cycleDepth);
+		failed.add(state);
+		return Result.failure(Integer.MAX_VALUE);
+	}
+
+	private Result<S, A> andSearch(List<S> states, NondeterministicProblem<S, A> problem, PathNode<S> path,
+			Cancellation cancellation) {
+		expanded.incrementAndGet();
+		List<Plan<S, A>> subPlans = new ArrayList<>(states.size());
+		if (pool != null && states.size() > 1 && ForkJoinTask.getPool() == pool
+				&& ForkJoinTask.getSurplusQueuedTaskCount() < SURPLUS_THRESHOLD) {
+			Cancellation forked = new Cancellation(cancellation);
+			List<OrSearchTask> tasks = new ArrayList<>(states.size() - 1);
+			for (int i = 1; i < states.size(); i++)
+				tasks.add((OrSearchTask) new OrSearchTask(states.get(i), problem, path, forked).fork());
+			Result<S, A> result = orSearch(states.get(0), problem, path, cancellation);
+			for (int i = 0; result.plan != null; i++) {
+				subPlans.add(result.plan);
+				if (i == tasks.size())
+					break;
+				result = tasks.get(i).join();
+			}
+			if (result.plan == null) {
+				forked.cancelled = true;
+				// drop tasks which were not started, wait for the others
+				for (int i = tasks.size() - 1; i >= 0; i--)
+					if (!tasks.get(i).tryUnfork())
+						tasks.get(i).quietlyJoin();
+				return result;
+			}
+		} else {
+			for (S state : states) {
+				Result<S, A> result = orSearch(state, problem, path, cancellation);
+				if (result.plan == null)
+					return result;
+				subPlans.add(result.plan);
+			}
+		}
+		Plan<S, A> plan = new Plan<>();
+		for (int i = 0; i < subPlans.size(); i++)
+			plan.addIfStatement(states.get(i), subPlans.get(i));
+		return new Result<>(plan);
+	}
+
+	/**
+	 * Stores the plan for the state unless another thread was faster and
+	 * returns the stored plan.
+	 */
+	private Plan<S, A> remember(S state, Plan<S, A> plan) {
+		Plan<S, A> existing = solved.putIfAbsent(state, plan);
+		return existing != null ? existing : plan;
+	}
+
+	private static <S> PathNode<S> toNode(Path<S> path) {
+		PathNode<S> result = null;
+		for (int i = path.size() - 1; i >= 0; i--)
+			result = new PathNode<>(path.get(i), result);
+		return result;
+	}
+
+	/** Immutable path which can be shared by parallel tasks. */
+	private static class PathNode<S> {
+		final S state;
+		final PathNode<S> parent;
+		final int depth;
+
+		PathNode(S state, PathNode<S> parent) {
+			this.state = state;
+			this.parent = parent;
+			this.depth = parent != null ? parent.depth + 1 : 0;
+		}
+	}
+
+	/**
+	 * A plan or, on failure, the depth of the shallowest path state the
+	 * failure depends on.
+	 */
+	private static class Result<S, A> {
+		final Plan<S, A> plan;
+		final int cycleDepth;
+
+		Result(Plan<S, A> plan) {
+			this(plan, Integer.MAX_VALUE);
+		}
+
+		private Result(Plan<S, A> plan, int cycleDepth) {
+			this.plan = plan;
+			this.cycleDepth = cycleDepth;
+		}
+
+		static <S, A> Result<S, A> failure(int cycleDepth) {
+			return new Result<>(null, cycleDepth);
+		}
+	}
+
+	/**
+	 * Cancellation flag of a group of forked outcomes. A group is also
+	 * cancelled if an enclosing group is.
+	 */
+	private static class Cancellation {
+		final Cancellation parent;
+		volatile boolean cancelled;
+
+		Cancellation(Cancellation parent) {
+			this.parent = parent;
+		}
+
+		static boolean isCancelled(Cancellation cancellation) {
+			for (Cancellation c = cancellation; c != null; c = c.parent)
+				if (c.cancelled)
+					return true;
+			return false;
+		}
+	}
+
+	private class OrSearchTask extends RecursiveTask<Result<S, A>> {
+		private static final long serialVersionUID = 1L;
+
+		private final S state;
+		private final NondeterministicProblem<S, A> problem;
+		private final PathNode<S> path;
+		private final Cancellation cancellation;
+
+		OrSearchTask(S state, NondeterministicProblem<S, A> problem, PathNode<S> path,
+				Cancellation cancellation) {
+			this.state = state;
+			this.problem = problem;
+			this.path = path;
+			this.cancellation = cancellation;
+		}
+
+		@Override
+		protected Result<S, A> compute() {
+			return orSearch(state, problem, path, cancellation);
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package aima.core.search.online;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Table of learned cost estimates H for the states of an online search
+ * problem. States without learned value are estimated by the heuristic
+ * function h.<br>
+ * <br>
+ * By default, values are stored in a hash map. If the states can be numbered
+ * (e.g. cells of a grid), an indexer can be provided which maps each state to
+ * a non-negative integer. Values are then stored in a growing array of
+ * doubles, which avoids boxing and hashing of states in large state spaces.
+ *
+ * @param <S> The type used to represent states
+ */
+public class HeuristicTable<S> {
+	private final ToDoubleFunction<S> h;
+	private final ToIntFunction<S> indexer;
+	private final HashMap<S, Double> values;
+	private double[] indexedValues;
+	private int size;
+
+	/**
+	 * Creates a hash based table.
+	 */
+	public HeuristicTable(ToDoubleFunction<S> h) {
+		this(h, null);
+	}
+
+	/**
+	 * Creates an array based table if an indexer is provided and a hash based
+	 * table otherwise.
+	 */
+	public HeuristicTable(ToDoubleFunction<S> h, ToIntFunction<S> indexer) {
+		this.h = h;
+		this.indexer = indexer;
+		values = indexer == null ? new HashMap<>() : null;
+		indexedValues = new double[0];
+	}
+
+	public ToDoubleFunction<S> getHeuristicFunction() {
+		return h;
+	}
+
+	/**
+	 * Returns the learned value of the state if there is one and h(state)
+	 * otherwise.
+	 */
+	public double get(S state) {
+		if (indexer == null) {
+			Double result = values.get(state);
+			return result != null ? result : h.applyAsDouble(state);
+		}
+		int i = indexer.applyAsInt(state);
+		if (i < indexedValues.length && !Double.isNaN(indexedValues[i]))
+			return indexedValues[i];
+		return h.applyAsDouble(state);
+	}
+
+	/**
+	 * Checks whether a value has been learned for the state.
+	 */
+	public boolean contains(S state) {
+		if (indexer == null)
+			return values.containsKey(state);
+		int i = indexer.applyAsInt(state);
+		return i < indexedValues.length && !Double.isNaN(indexedValues[i]);
+	}
+
+	public void put(S state, double value) {
+		if (indexer == null) {
+			values.put(state, value);
+		} else {
+			int i = indexer.applyAsInt(state);
+			if (i >= indexedValues.length) {
+				int oldLength = indexedValues.length;
+				indexedValues = Arrays.copyOf(indexedValues, Math.max(i + 1, 2 * oldLength));
+				Arrays.fill(indexedValues, oldLength, indexedValues.length, Double.NaN);
+			}
+			if (Double.isNaN(indexedValues[i]))
+				size++;
+			indexedValues[i] = value;
+		}
+	}
+
+	/**
+	 * Returns the number of states with learned value.
+	 */
+	public int size() {
+		return indexer == null ? values.size() : size;
+	}
+
+	public void clear() {
+		if (indexer == null)
+			values.clear();
+		else
+			Arrays.fill(indexedValues, Double.NaN);
+		size = 0;
+	}
+}
@@ -0,0 +1,67 @@
+package aima.core.search.online;
+
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import aima.core.agent.Action;
+import aima.core.agent.Percept;
+import aima.core.search.framework.problem.OnlineSearchProblem;
+import aima.core.search.framework.problem.ResultFunction;
+
+/**
+ * Local search space LRTA* (LSS-LRTA*, Koenig and Sun 2009). After each
+ * bounded A* lookahead, the cost estimates of all expanded states are set to
+ * the cost of the cheapest path to a frontier state plus the cost estimate of
+ * that frontier state. The new values are computed with a Dijkstra-style
+ * backup which starts at the frontier. Expanded states from which no frontier
+ * state can be reached get an infinite estimate. With lookahead 1, the agent
+ * behaves like {@link LRTAStarAgent}.
+ *
+ * @param <S> The type used to represent states
+ * @param <A> The type of the actions to be used to navigate through the state space
+ */
+public class LSSLRTAStarAgent<S, A extends Action> extends RealTimeSearchAgent<S, A> {
+
+	public LSSLRTAStarAgent(OnlineSearchProblem<S, A> problem, Function<Percept, S> ptsFn,
+			ResultFunction<S, A> model, ToDoubleFunction<S> h) {
+		super(problem, ptsFn, model, h);
+	}
+
+	@Override
+	protected void updateHeuristic(LocalSearchSpace<S, A> lss) {
+		HeuristicTable<S> table = getHeuristicTable();
+		for (S state : lss.getClosed())
+			table.put(state, Double.POSITIVE_INFINITY);
+		PriorityQueue<Backup<S>> queue = new PriorityQueue<>();
+		for (S state : lss.getOpen())
+			queue.add(new Backup<>(state, table.get(state)));
+		while (!queue.isEmpty()) {
+			Backup<S> backup = queue.remove();
+			if (backup.value > table.get(backup.state))
+				continue;
+			for (Edge<S> edge : lss.getPredecessors(backup.state)) {
+				double value = edge.cost + backup.value;
+				if (value < table.get(edge.from)) {
+					table.put(edge.from, value);
+					queue.add(new Backup<>(edge.from, value));
+				}
+			}
+		}
+	}
+
+	private static class Backup<S> implements Comparable<Backup<S>> {
+		final S state;
+		final double value;
+
+		Backup(S state, double value) {
+			this.state = state;
+			this.value = value;
+		}
+
+		@Override
+		public int compareTo(Backup<S> other) {
+			return Double.compare(value, other.value);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package aima.core.search.online;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import aima.core.agent.Action;
+import aima.core.agent.Percept;
+import aima.core.search.framework.problem.OnlineSearchProblem;
+import aima.core.search.framework.problem.ResultFunction;
+
+/**
+ * Real-time adaptive A* (RTAA*, Koenig and Likhachev 2006). After each bounded
+ * A* lookahead, the cost estimate of each expanded state s is set to f* - g(s),
+ * where f* is the smallest f-value on the frontier. The update needs only one
+ * pass over the expanded states. The estimates are less informed than those of
+ * {@link LSSLRTAStarAgent}, but remain consistent if h is consistent.
+ *
+ * @param <S> The type used to represent states
+ * @param <A> The type of the actions to be used to navigate through the state space
+ */
+public class RTAAStarAgent<S, A extends Action> extends RealTimeSearchAgent<S, A> {
+
+	public RTAAStarAgent(OnlineSearchProblem<S, A> problem, Function<Percept, S> ptsFn,
+			ResultFunction<S, A> model, ToDoubleFunction<S> h) {
+		super(problem, ptsFn, model, h);
+	}
+
+	@Override
+	protected void updateHeuristic(LocalSearchSpace<S, A> lss) {
+		HeuristicTable<S> table = getHeuristicTable();
+		// infinite if the frontier is empty, i.e. no goal is reachable
+		double f = lss.getTargetF();
+		for (S state : lss.getClosed())
+			table.put(state, f - lss.getG(state));
+	}
+}
@@ -0,0 +1,393 @@
+package aima.core.search.online;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+import aima.core.agent.Action;
+import aima.core.agent.Percept;
+import aima.core.agent.impl.AbstractAgent;
+import aima.core.agent.impl.NoOpAction;
+import aima.core.search.framework.Metrics;
+import aima.core.search.framework.problem.OnlineSearchProblem;
+import aima.core.search.framework.problem.ResultFunction;
+import aima.core.util.datastructure.TwoKeyHashMap;
+
+/**
+ * Base class for real-time search agents which interleave bounded A*
+ * lookahead with heuristic learning and acting. Before moving, the agent runs
+ * A* from its current state until a configurable number of states has been
+ * expanded, a time limit is exceeded, or a goal state is about to be
+ * expanded. The expanded states form the local search space. Subclasses
+ * update the cost estimates H of these states, and the agent then moves along
+ * the A* path towards the best state on the frontier of the local search
+ * space. While the observed states agree with the predicted ones, the agent
+ * follows this path without searching again.<br>
+ * <br>
+ * The online search problem only tells the agent which actions are
+ * applicable, so lookahead needs a model which predicts the results of
+ * actions (e.g. a map of the terrain). Observed results override the
+ * predictions of the model, so the agent adapts to a model which is wrong.
+ *
+ * @param <S> The type used to represent states
+ * @param <A> The type of the actions to be used to navigate through the state space
+ */
+public abstract class RealTimeSearchAgent<S, A extends Action> extends AbstractAgent {
+	public static final String METRIC_EXPANSIONS = "expansions";
+	public static final String METRIC_SEARCH_EPISODES = "searchEpisodes";
+	public static final String METRIC_MAX_EPISODE_EXPANSIONS = "maxEpisodeExpansions";
+
+	private OnlineSearchProblem<S, A> problem;
+	private Function<Percept, S> ptsFn;
+	private ResultFunction<S, A> model;
+	private HeuristicTable<S> table;
+	private int lookahead = 1;
+	private long timeLimitNanos = Long.MAX_VALUE;
+	// observed results, override the model
+	private final TwoKeyHashMap<S, A, S> result = new TwoKeyHashMap<>();
+	// the remaining path towards the last target and the states in which
+	// its actions are to be executed
+	private final Deque<A> planActions = new ArrayDeque<>();
+	private final Deque<S> planStates = new ArrayDeque<>();
+	private S s = null;
+	private A a = null;
+	private Metrics metrics = new Metrics();
+
+	/**
+	 * Constructs a real-time search agent.
+	 *
+	 * @param problem
+	 *            an online search problem for this agent to solve.
+	 * @param ptsFn
+	 *            a function which returns the problem state associated with a
+	 *            given Percept.
+	 * @param model
+	 *            a function which predicts the state resulting from an action.
+	 * @param h
+	 *            heuristic function <em>h(n)</em>, which estimates the cost of
+	 *            the cheapest path from the state at node <em>n</em> to a goal
+	 *            state.
+	 */
+	protected RealTimeSearchAgent(OnlineSearchProblem<S, A> problem, Function<Percept, S> ptsFn,
+			ResultFunction<S, A> model, ToDoubleFunction<S> h) {
+		this.problem = problem;
+		this.ptsFn = ptsFn;
+		this.model = model;
+		this.table = new HeuristicTable<>(h);
+		init();
+	}
+
+	public OnlineSearchProblem<S, A> getProblem() {
+		return problem;
+	}
+
+	/**
+	 * Sets the search problem for this agent to solve and forgets everything
+	 * learned so far.
+	 */
+	public void setProblem(OnlineSearchProblem<S, A> problem) {
+		this.problem = problem;
+		init();
+	}
+
+	public Function<Percept, S> getPerceptToStateFunction() {
+		return ptsFn;
+	}
+
+	public void setPerceptToStateFunction(Function<Percept, S> ptsFn) {
+		this.ptsFn = ptsFn;
+	}
+
+	public ResultFunction<S, A> getModel() {
+		return model;
+	}
+
+	public void setModel(ResultFunction<S, A> model) {
+		this.model = model;
+	}
+
+	/**
+	 * Returns the table of learned cost estimates.
+	 */
+	public HeuristicTable<S> getHeuristicTable() {
+		return table;
+	}
+
+	/**
+	 * Stores learned cost estimates in an array indexed by the given function
+	 * instead of a hash map. Learned estimates are discarded.
+	 */
+	public void setStateIndexer(ToIntFunction<S> indexer) {
+		table = new HeuristicTable<>(table.getHeuristicFunction(), indexer);
+	}
+
+	public int getLookahead() {
+		return lookahead;
+	}
+
+	/**
+	 * Sets the maximal number of states expanded per search episode.
+	 */
+	public void setLookahead(int lookahead) {
+		if (lookahead < 1)
+			throw new IllegalArgumentException("Lookahead must be positive.");
+		this.lookahead = lookahead;
+	}
+
+	/**
+	 * Sets a time limit per search episode. At least one state is expanded
+	 * per episode, regardless of the limit.
+	 */
+	public void setTimeLimit(long nanos) {
+		this.timeLimitNanos = nanos;
+	}
+
+	/**
+	 * Returns the number of expansions and search episodes.
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public Action execute(Percept psPrimed) {
+		S sPrimed = ptsFn.apply(psPrimed);
+		if (s != null && a != null)
+			result.put(s, a, sPrimed);
+		if (problem.testGoal(sPrimed)) {
+			a = null;
+		} else {
+			if (planStates.isEmpty() || !planStates.peek().equals(sPrimed)) {
+				planActions.clear();
+				planStates.clear();
+				search(sPrimed);
+			}
+			a = planActions.poll();
+			planStates.poll();
+		}
+		s = sPrimed;
+		if (a == null) {
+			// at the goal or no path to a goal
+			setAlive(false);
+		}
+		return a != null ? a : NoOpAction.NO_OP;
+	}
+
+	/**
+	 * Updates the cost estimates of the expanded states of a search episode.
+	 */
+	protected abstract void updateHeuristic(LocalSearchSpace<S, A> lss);
+
+	//
+	// PROTECTED METHODS
+	//
+
+	/**
+	 * Returns the observed result of the action if there is one and the
+	 * result predicted by the model otherwise.
+	 */
+	protected S getResult(S state, A action) {
+		S observed = result.get(state, action);
+		return observed != null ? observed : model.apply(state, action);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private void init() {
+		setAlive(true);
+		result.clear();
+		table.clear();
+		planActions.clear();
+		planStates.clear();
+		s = null;
+		a = null;
+		metrics = new Metrics();
+	}
+
+	private void search(S start) {
+		LocalSearchSpace<S, A> lss = expandLocalSearchSpace(start);
+		updateHeuristic(lss);
+		metrics.incrementInt(METRIC_SEARCH_EPISODES);
+		metrics.set(METRIC_EXPANSIONS, metrics.getInt(METRIC_EXPANSIONS) + lss.closed.size());
+		metrics.set(METRIC_MAX_EPISODE_EXPANSIONS,
+				Math.max(metrics.getInt(METRIC_MAX_EPISODE_EXPANSIONS), lss.closed.size()));
+		if (lss.target != null) {
+			for (S state = lss.target; !state.equals(start); state = lss.parent.get(state)) {
+				planActions.addFirst(lss.parentAction.get(state));
+				planStates.addFirst(lss.parent.get(state));
+			}
+		}
+	}
+
+	/** A* from start with bounded number of expansions and time. */
+	private LocalSearchSpace<S, A> expandLocalSearchSpace(S start) {
+		LocalSearchSpace<S, A> lss = new LocalSearchSpace<>(start);
+		PriorityQueue<Entry<S>> open = new PriorityQueue<>();
+		long startTime = System.nanoTime();
+		int counter = 0;
+		lss.g.put(start, 0.0);
+		open.add(new Entry<>(start, 0.0, table.get(start), counter++));
+		while (!open.isEmpty()) {
+			Entry<S> entry = open.peek();
+			if (entry.g > lss.g.get(entry.state) || lss.isClosed(entry.state)) {
+				open.remove();
+				continue;
+			}
+			if (entry.f == Double.POSITIVE_INFINITY)
+				// all frontier states are known dead ends
+				break;
+			if (problem.testGoal(entry.state) || lss.closed.size() >= lookahead
+					|| !lss.closed.isEmpty() && System.nanoTime() - startTime >= timeLimitNanos) {
+				lss.target = entry.state;
+				lss.targetF = entry.f;
+				break;
+			}
+			open.remove();
+			lss.close(entry.state);
+			for (A action : problem.getActions(entry.state)) {
+				S successor = getResult(entry.state, action);
+				if (successor == null)
+					continue;
+				double cost = problem.getStepCosts(entry.state, action, successor);
+				lss.addEdge(entry.state, successor, cost);
+				double g = entry.g + cost;
+				Double oldG = lss.g.get(successor);
+				if (oldG == null || g < oldG) {
+					lss.g.put(successor, g);
+					lss.parent.put(successor, entry.state);
+					lss.parentAction.put(successor, action);
+					open.add(new Entry<>(successor, g, g + table.get(successor), counter++));
+				}
+			}
+		}
+		return lss;
+	}
+
+	/**
+	 * The states expanded and generated in one search episode, with the edges
+	 * between them.
+	 */
+	protected static class LocalSearchSpace<S, A> {
+		private final S start;
+		private final List<S> closed = new ArrayList<>();
+		private final Map<S, Boolean> closedSet = new HashMap<>();
+		private final Map<S, Double> g = new HashMap<>();
+		private final Map<S, S> parent = new HashMap<>();
+		private final Map<S, A> parentAction = new HashMap<>();
+		private final Map<S, List<Edge<S>>> predecessors = new HashMap<>();
+		private S target;
+		private double targetF = Double.POSITIVE_INFINITY;
+
+		LocalSearchSpace(S start) {
+			this.start = start;
+		}
+
+		public S getStart() {
+			return start;
+		}
+
+		/**
+		 * Returns the expanded states in order of expansion.
+		 */
+		public List<S> getClosed() {
+			return Collections.unmodifiableList(closed);
+		}
+
+		public boolean isClosed(S state) {
+			return closedSet.containsKey(state);
+		}
+
+		/**
+		 * Returns the generated states which were not expanded.
+		 */
+		public List<S> getOpen() {
+			List<S> result = new ArrayList<>();
+			for (S state : g.keySet())
+				if (!isClosed(state))
+					result.add(state);
+			return result;
+		}
+
+		/**
+		 * Returns the cost of the cheapest path from the start state found so
+		 * far.
+		 */
+		public double getG(S state) {
+			return g.get(state);
+		}
+
+		/**
+		 * Returns the edges from expanded states to the state.
+		 */
+		public List<Edge<S>> getPredecessors(S state) {
+			List<Edge<S>> result = predecessors.get(state);
+			return result != null ? result : Collections.emptyList();
+		}
+
+		/**
+		 * Returns the frontier state with the smallest f-value or null if
+		 * there is none. The agent moves towards this state.
+		 */
+		public S getTarget() {
+			return target;
+		}
+
+		public double getTargetF() {
+			return targetF;
+		}
+
+		private void close(S state) {
+			closed.add(state);
+			closedSet.put(state, Boolean.TRUE);
+		}
+
+		private void addEdge(S from, S to, double cost) {
+			predecessors.computeIfAbsent(to, k -> new ArrayList<>()).add(new Edge<>(from, cost));
+		}
+	}
+
+	/** Edge from an expanded state. */
+	protected static class Edge<S> {
+		final S from;
+		final double cost;
+
+		Edge(S from, double cost) {
+			this.from = from;
+			this.cost = cost;
+		}
+	}
+
+	private static class Entry<S> implements Comparable<Entry<S>> {
+		final S state;
+		final double g;
+		final double f;
+		final int counter;
+
+		Entry(S state, double g, double f, int counter) {
+			this.state = state;
+			this.g = g;
+			this.f = f;
+			this.counter = counter;
+		}
+
+		/** Smaller f first, ties broken in favor of larger g, then FIFO. */
+		@Override
+		public int compareTo(Entry<S> other) {
+			if (f != other.f)
+				return Double.compare(f, other.f);
+			if (g != other.g)
+				return Double.compare(other.g, g);
+			return Integer.compare(counter, other.counter);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package aima.test.core.unit.agent;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import aima.test.core.unit.agent.impl.AbstractEnvironmentTest;
 import aima.test.core.unit.agent.impl.DynamicPerceptTest;
 import aima.test.core.unit.agent.impl.PerceptSequenceTest;
 import aima.test.core.unit.agent.impl.aprog.TableDrivenAgentProgramTest;
@@ -10,7 +11,8 @@ import aima.test.core.unit.agent.impl.aprog.simplerule.RuleTest;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ RuleTest.class, TableDrivenAgentProgramTest.class,
-		DynamicPerceptTest.class, PerceptSequenceTest.class })
+		DynamicPerceptTest.class, PerceptSequenceTest.class,
+		AbstractEnvironmentTest.class })
 public class AgentTestSuite {
 
 }
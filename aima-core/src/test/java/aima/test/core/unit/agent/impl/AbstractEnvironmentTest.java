@@ -0,0 +1,166 @@
+package aima.test.core.unit.agent.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.agent.Action;
+import aima.core.agent.Agent;
+import aima.core.agent.Environment;
+import aima.core.agent.EnvironmentView;
+import aima.core.agent.Percept;
+import aima.core.agent.impl.AbstractEnvironment;
+import aima.core.agent.impl.DynamicAction;
+import aima.core.agent.impl.DynamicPercept;
+
+public class AbstractEnvironmentTest {
+	private static final int AGENT_COUNT = 200;
+
+	private CounterEnvironment env;
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() {
+		env = new CounterEnvironment();
+		for (int i = 0; i < AGENT_COUNT; i++)
+			env.addAgent(new MockAgent(p -> new DynamicAction("inc"
+					+ ((DynamicPercept) p).getAttribute("counter"))));
+		pool = new ForkJoinPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testSequentialStep() {
+		env.step();
+		Assert.assertEquals(AGENT_COUNT, env.counter);
+		// each agent sees the actions of its predecessors
+		Assert.assertEquals("inc0", env.executed.get(0));
+		Assert.assertEquals("inc" + (AGENT_COUNT - 1),
+				env.executed.get(AGENT_COUNT - 1));
+	}
+
+	@Test
+	public void testParallelStep() {
+		env.setPool(pool);
+		CountingView view = new CountingView();
+		env.addEnvironmentView(view);
+		env.step(3);
+		Assert.assertEquals(3 * AGENT_COUNT, env.counter);
+		// all agents of a step see the state at its beginning
+		for (int i = 0; i < AGENT_COUNT; i++) {
+			Assert.assertEquals("inc0", env.executed.get(i));
+			Assert.assertEquals("inc" + 2 * AGENT_COUNT,
+					env.executed.get(2 * AGENT_COUNT + i));
+		}
+		Assert.assertEquals(3 * AGENT_COUNT, view.acted);
+	}
+
+	@Test
+	public void testParallelStepSkipsDeadAgents() {
+		env.setPool(pool);
+		((MockAgent) env.getAgents().get(0)).setAlive(false);
+		env.step();
+		Assert.assertEquals(AGENT_COUNT - 1, env.counter);
+	}
+
+	@Test
+	public void testParallelViewCallbacks() {
+		ExogenousEnvironment env = new ExogenousEnvironment();
+		env.addAgent(new MockAgent(p -> new DynamicAction("inc")));
+		env.setPool(pool);
+		RecordingView view = new RecordingView();
+		env.addEnvironmentView(view);
+		env.step();
+		env.addAgent(new MockAgent(p -> new DynamicAction("inc")));
+		env.notifyViews("done");
+		env.step();
+		env.waitForViewNotifications();
+		// views see the state before the exogenous change, in issue order
+		Assert.assertEquals(Arrays.asList("acted0", "added", "done",
+				"acted1", "acted1"), view.events);
+		Assert.assertEquals(2, env.changes);
+		Assert.assertEquals(1, view.threads.size());
+		Assert.assertFalse(view.threads.contains(Thread.currentThread()));
+	}
+
+	private static class CounterEnvironment extends AbstractEnvironment {
+		int counter;
+		List<String> executed = new ArrayList<String>();
+
+		@Override
+		public void executeAction(Agent agent, Action action) {
+			executed.add(((DynamicAction) action).getName());
+			counter++;
+		}
+
+		@Override
+		public Percept getPerceptSeenBy(Agent anAgent) {
+			return new DynamicPercept("counter", counter);
+		}
+	}
+
+	private static class ExogenousEnvironment extends CounterEnvironment {
+		int changes;
+
+		@Override
+		public void createExogenousChange() {
+			changes++;
+		}
+	}
+
+	private static class RecordingView implements EnvironmentView {
+		List<String> events = new ArrayList<String>();
+		Set<Thread> threads = new HashSet<Thread>();
+
+		@Override
+		public void notify(String msg) {
+			record(msg);
+		}
+
+		@Override
+		public void agentAdded(Agent agent, Environment source) {
+			record("added");
+		}
+
+		@Override
+		public void agentActed(Agent agent, Percept percept, Action action,
+				Environment source) {
+			record("acted" + ((ExogenousEnvironment) source).changes);
+		}
+
+		private void record(String event) {
+			events.add(event);
+			threads.add(Thread.currentThread());
+		}
+	}
+
+	private static class CountingView implements EnvironmentView {
+		int acted;
+
+		@Override
+		public void notify(String msg) {
+		}
+
+		@Override
+		public void agentAdded(Agent agent, Environment source) {
+		}
+
+		@Override
+		public void agentActed(Agent agent, Percept percept, Action action,
+				Environment source) {
+			acted++;
+		}
+	}
+}
@@ -8,6 +8,7 @@ import aima.test.core.unit.environment.eightpuzzle.EightPuzzleBoardMoveTest;
 import aima.test.core.unit.environment.eightpuzzle.EightPuzzleBoardTest;
 import aima.test.core.unit.environment.eightpuzzle.EightPuzzleFunctionsTest;
 import aima.test.core.unit.environment.eightpuzzle.MisplacedTileHeuristicFunctionTest;
+import aima.test.core.unit.environment.map.LandmarkHeuristicsTest;
 import aima.test.core.unit.environment.map.MapAgentTest;
 import aima.test.core.unit.environment.map.MapEnvironmentTest;
 import aima.test.core.unit.environment.map.MapFunctionsTest;
@@ -31,7 +32,7 @@ import aima.test.core.unit.environment.xyenv.XYEnvironmentTest;
 		EightPuzzleBoardTest.class, EightPuzzleFunctionsTest.class,
 		MisplacedTileHeuristicFunctionTest.class, TicTacToeTest.class,
 		MapAgentTest.class, MapEnvironmentTest.class,
-		MapFunctionsTest.class, MapTest.class,
+		MapFunctionsTest.class, MapTest.class, LandmarkHeuristicsTest.class,
 		NQueensBoardTest.class, NQueensGenAlgoUtilTest.class,
 		NQueensFunctionsTest.class,
 		ModelBasedReflexVacuumAgentTest.class, ReflexVacuumAgentTest.class,
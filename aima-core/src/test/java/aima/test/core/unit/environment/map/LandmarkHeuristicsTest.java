@@ -0,0 +1,159 @@
+package aima.test.core.unit.environment.map;
+
+import aima.core.environment.map.BidirectionalMapProblem;
+import aima.core.environment.map.ExtendableMap;
+import aima.core.environment.map.LandmarkHeuristics;
+import aima.core.environment.map.Map;
+import aima.core.environment.map.MapFunctions;
+import aima.core.environment.map.MoveToAction;
+import aima.core.environment.map.SimplifiedRoadMapOfPartOfRomania;
+import aima.core.search.framework.Node;
+import aima.core.search.framework.SearchForActions;
+import aima.core.search.framework.problem.Problem;
+import aima.core.search.framework.qsearch.BidirectionalSearch;
+import aima.core.search.framework.qsearch.GraphSearch;
+import aima.core.search.framework.qsearch.QueueSearch;
+import aima.core.search.informed.AStarSearch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+public class LandmarkHeuristicsTest {
+
+	@Test
+	public void testEstimatesAreLowerBounds() {
+		Map romania = new SimplifiedRoadMapOfPartOfRomania();
+		for (LandmarkHeuristics.Selection selection : LandmarkHeuristics.Selection.values()) {
+			LandmarkHeuristics alt = new LandmarkHeuristics(romania, 4, selection, new Random(1));
+			Assert.assertEquals(4, alt.getLandmarks().size());
+			for (String from : romania.getLocations()) {
+				for (String to : romania.getLocations()) {
+					double cost = findPathCosts(romania, from, to, node -> 0.0);
+					Assert.assertTrue(alt.estimate(from, to) <= cost);
+				}
+			}
+			Assert.assertTrue(alt.estimate(SimplifiedRoadMapOfPartOfRomania.ARAD,
+					SimplifiedRoadMapOfPartOfRomania.BUCHAREST) > 0.0);
+			Assert.assertEquals(0.0, alt.estimate(SimplifiedRoadMapOfPartOfRomania.ARAD,
+					SimplifiedRoadMapOfPartOfRomania.ARAD), 0.0);
+		}
+	}
+
+	@Test
+	public void testEstimatesOnGridAreLowerBounds() {
+		Random random = new Random(5);
+		ExtendableMap map = createGridMap(10, random);
+		LandmarkHeuristics alt = new LandmarkHeuristics(map, 6, LandmarkHeuristics.Selection.AVOID, random);
+		List<String> locations = map.getLocations();
+		for (int i = 0; i < 5; i++) {
+			String to = locations.get(random.nextInt(locations.size()));
+			for (String from : locations) {
+				double cost = findPathCosts(map, from, to, node -> 0.0);
+				Assert.assertTrue(alt.estimate(from, to) <= cost);
+			}
+		}
+	}
+
+	@Test
+	public void testOneWays() {
+		ExtendableMap map = new ExtendableMap();
+		map.addUnidirectionalLink("A", "B", 1.0);
+		map.addUnidirectionalLink("B", "C", 1.0);
+		map.addUnidirectionalLink("C", "A", 1.0);
+		map.addUnidirectionalLink("C", "D", 1.0);
+		LandmarkHeuristics alt = new LandmarkHeuristics(map, 4, LandmarkHeuristics.Selection.FARTHEST, new Random(2));
+		Assert.assertEquals(2.0, alt.estimate("B", "A"), 1e-6);
+		Assert.assertEquals(1.0, alt.estimate("A", "B"), 1e-6);
+		// D is a dead end
+		Assert.assertEquals(Double.POSITIVE_INFINITY, alt.estimate("D", "A"), 0.0);
+	}
+
+	@Test
+	public void testBidirectionalSearch() {
+		Map romania = new SimplifiedRoadMapOfPartOfRomania();
+		LandmarkHeuristics alt = new LandmarkHeuristics(romania, 4, LandmarkHeuristics.Selection.AVOID, new Random(3));
+		Problem<String, MoveToAction> problem = new BidirectionalMapProblem(romania,
+				SimplifiedRoadMapOfPartOfRomania.ARAD, SimplifiedRoadMapOfPartOfRomania.BUCHAREST);
+		SearchForActions<String, MoveToAction> search = new AStarSearch<>(new BidirectionalSearch<>(),
+				alt.createBidirectionalHeuristicFunction(SimplifiedRoadMapOfPartOfRomania.ARAD,
+						SimplifiedRoadMapOfPartOfRomania.BUCHAREST));
+		Optional<List<MoveToAction>> actions = search.findActions(problem);
+		Assert.assertTrue(actions.isPresent());
+		Assert.assertEquals(SimplifiedRoadMapOfPartOfRomania.BUCHAREST,
+				actions.get().get(actions.get().size() - 1).getToLocation());
+	}
+
+	/**
+	 * Compares the number of node expansions of A* with straight-line distance
+	 * and with landmark heuristics on a grid of roads with detours and one-ways.
+	 */
+	@Test
+	public void testExpansionsOnGrid() {
+		Random random = new Random(4);
+		ExtendableMap map = createGridMap(30, random);
+		LandmarkHeuristics farthest = new LandmarkHeuristics(map, 8, LandmarkHeuristics.Selection.FARTHEST, random);
+		LandmarkHeuristics avoid = new LandmarkHeuristics(map, 8, LandmarkHeuristics.Selection.AVOID, random);
+		int[] expansions = new int[3];
+		for (int i = 0; i < 20; i++) {
+			List<String> locations = map.getLocations();
+			String from = locations.get(random.nextInt(locations.size()));
+			String to = locations.get(random.nextInt(locations.size()));
+			double[] costs = new double[3];
+			List<ToDoubleFunction<Node<String, MoveToAction>>> hs = Arrays.asList(
+					MapFunctions.createSLDHeuristicFunction(to, map),
+					farthest.createHeuristicFunction(to),
+					avoid.createHeuristicFunction(to));
+			for (int j = 0; j < 3; j++) {
+				AStarSearch<String, MoveToAction> search = new AStarSearch<>(new GraphSearch<>(), hs.get(j));
+				costs[j] = findPathCosts(map, from, to, search);
+				expansions[j] += search.getMetrics().getInt(QueueSearch.METRIC_NODES_EXPANDED);
+			}
+			Assert.assertEquals(costs[0], costs[1], 1e-3);
+			Assert.assertEquals(costs[0], costs[2], 1e-3);
+		}
+		Assert.assertTrue(expansions[1] < expansions[0] / 2);
+		Assert.assertTrue(expansions[2] < expansions[0] / 2);
+	}
+
+	private ExtendableMap createGridMap(int size, Random random) {
+		ExtendableMap map = new ExtendableMap();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				String loc = x + "/" + y;
+				map.setPosition(loc, x, y);
+				if (x > 0)
+					addLink(map, (x - 1) + "/" + y, loc, random);
+				if (y > 0)
+					addLink(map, x + "/" + (y - 1), loc, random);
+			}
+		}
+		return map;
+	}
+
+	/** Roads are up to three times longer than the straight line. */
+	private void addLink(ExtendableMap map, String loc1, String loc2, Random random) {
+		double length = 1.0 + 2.0 * random.nextDouble();
+		if (random.nextInt(4) == 0)
+			map.addUnidirectionalLink(loc1, loc2, length);
+		else if (random.nextInt(4) == 0)
+			map.addUnidirectionalLink(loc2, loc1, length);
+		else
+			map.addBidirectionalLink(loc1, loc2, length);
+	}
+
+	private double findPathCosts(Map map, String from, String to,
+			ToDoubleFunction<Node<String, MoveToAction>> h) {
+		return findPathCosts(map, from, to, new AStarSearch<>(new GraphSearch<>(), h));
+	}
+
+	private double findPathCosts(Map map, String from, String to, AStarSearch<String, MoveToAction> search) {
+		Optional<List<MoveToAction>> actions = search.findActions(new BidirectionalMapProblem(map, from, to));
+		return actions.isPresent() ? search.getMetrics().getDouble(QueueSearch.METRIC_PATH_COST)
+				: Double.POSITIVE_INFINITY;
+	}
+}
@@ -1,5 +1,9 @@
 package aima.test.core.unit.environment.xyenv;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.Assert;
@@ -152,6 +156,55 @@ public class XYEnvironmentTest {
 		Assert.assertEquals(1, visibleToC.size());
 	}
 
+	@Test
+	public void testGetObjectsNearWithManyObjects() {
+		Random r = new Random(7);
+		List<AbstractAgent> agents = new ArrayList<AbstractAgent>();
+		for (int i = 0; i < 200; i++) {
+			AbstractAgent b = new MockAgent();
+			agents.add(b);
+			env.addObjectToLocation(b, new XYLocation(r.nextInt(60) - 10, r.nextInt(60) - 10));
+		}
+		// relocate some agents, partly to their current location
+		for (int i = 0; i < 100; i++) {
+			AbstractAgent b = agents.get(r.nextInt(agents.size()));
+			XYLocation loc = i % 10 == 0 ? env.getCurrentLocationFor(b)
+					: new XYLocation(r.nextInt(60) - 10, r.nextInt(60) - 10);
+			env.moveObjectToAbsoluteLocation(b, loc);
+			Assert.assertEquals(loc, env.getCurrentLocationFor(b));
+		}
+		agents.add(a);
+		for (int radius : new int[] { 0, 1, 5, 17, 100 }) {
+			for (AbstractAgent b : agents) {
+				XYLocation loc = env.getCurrentLocationFor(b);
+				Set<EnvironmentObject> expected = new HashSet<EnvironmentObject>();
+				for (AbstractAgent c : agents) {
+					XYLocation cLoc = env.getCurrentLocationFor(c);
+					int dx = loc.getXCoOrdinate() - cLoc.getXCoOrdinate();
+					int dy = loc.getYCoOrdinate() - cLoc.getYCoOrdinate();
+					if (c != b && dx * dx + dy * dy <= radius * radius)
+						expected.add(c);
+				}
+				Assert.assertEquals(expected, new HashSet<EnvironmentObject>(env.getObjectsNear(b, radius)));
+			}
+		}
+	}
+
+	@Test
+	public void testGetObjectsNearWithMaximalRadius() {
+		AbstractAgent b = new MockAgent();
+		AbstractAgent c = new MockAgent();
+		env.addObjectToLocation(b, new XYLocation(500, -7));
+		env.addObjectToLocation(c, new XYLocation(-200, 9));
+		Assert.assertEquals(2, env.getObjectsNear(a, Integer.MAX_VALUE).size());
+		Assert.assertTrue(env.getObjectsAt(new XYLocation(100, 100)).isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testObjectsAtAreReadOnly() {
+		env.getObjectsAt(env.getCurrentLocationFor(a)).clear();
+	}
+
 	@Test
 	public void testMakePerimeter() {
 		env.makePerimeter();
@@ -3,8 +3,10 @@ package aima.test.core.unit.learning;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import aima.test.core.unit.learning.framework.ColumnarDataSetTest;
 import aima.test.core.unit.learning.framework.DataSetTest;
 import aima.test.core.unit.learning.framework.InformationAndGainTest;
+import aima.test.core.unit.learning.framework.StreamingDataSetReaderTest;
 import aima.test.core.unit.learning.inductive.DLTestTest;
 import aima.test.core.unit.learning.inductive.DecisionListTest;
 import aima.test.core.unit.learning.learners.DecisionTreeTest;
@@ -12,6 +14,7 @@ import aima.test.core.unit.learning.learners.EnsembleLearningTest;
 import aima.test.core.unit.learning.learners.LearnerTest;
 import aima.test.core.unit.learning.neural.BackPropagationTest;
 import aima.test.core.unit.learning.neural.LayerTest;
+import aima.test.core.unit.learning.neural.NNExampleCacheTest;
 import aima.test.core.unit.learning.reinforcement.agent.PassiveADPAgentTest;
 import aima.test.core.unit.learning.reinforcement.agent.PassiveTDAgentTest;
 import aima.test.core.unit.learning.reinforcement.agent.QLearningAgentTest;
@@ -22,7 +25,8 @@ import aima.test.core.unit.learning.reinforcement.agent.QLearningAgentTest;
 		EnsembleLearningTest.class, LearnerTest.class,
 		BackPropagationTest.class, LayerTest.class,
 		PassiveADPAgentTest.class, PassiveTDAgentTest.class,
-		QLearningAgentTest.class })
+		QLearningAgentTest.class, ColumnarDataSetTest.class,
+		StreamingDataSetReaderTest.class, NNExampleCacheTest.class })
 public class LearningTestSuite {
 
 }
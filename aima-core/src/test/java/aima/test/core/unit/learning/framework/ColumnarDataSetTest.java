@@ -0,0 +1,177 @@
+package aima.test.core.unit.learning.framework;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import aima.core.learning.framework.ColumnarDataSet;
+import aima.core.learning.framework.DataSet;
+import aima.core.learning.framework.DataSetFactory;
+import aima.core.learning.framework.DataSetSpecification;
+import aima.core.learning.framework.DataSetView;
+import aima.core.learning.framework.Learner;
+import aima.core.learning.inductive.DLTestFactory;
+import aima.core.learning.learners.AdaBoostLearner;
+import aima.core.learning.learners.DecisionListLearner;
+import aima.core.learning.learners.DecisionTreeLearner;
+
+public class ColumnarDataSetTest {
+
+	@Test
+	public void testColumnarEncodingOfFileBasedData() throws Exception {
+		DataSet ds = DataSetFactory.getRestaurantDataSet();
+		ColumnarDataSet data = DataSetFactory.getRestaurantColumnarDataSet();
+
+		Assert.assertEquals(ds.size(), data.size());
+		Assert.assertEquals(ds.getAttributeNames().size(),
+				data.getNumberOfColumns());
+		int patrons = data.getColumnIndex("patrons");
+		// codes follow the order of the possible values of the specification
+		Assert.assertEquals(3, data.getNumberOfValues(patrons));
+		Assert.assertEquals("Some", data.getValueForCode(patrons, 1));
+		for (int row = 0; row < ds.size(); row++) {
+			for (String attribute : ds.getAttributeNames()) {
+				Assert.assertEquals(ds.getExample(row)
+						.getAttributeValueAsString(attribute), data
+						.getExample(row).getAttributeValueAsString(attribute));
+			}
+			Assert.assertEquals(ds.getExample(row).targetValue(), data
+					.getValueForCode(data.getTargetColumn(),
+							data.getTargetCode(row)));
+		}
+
+		ColumnarDataSet iris = DataSetFactory.getIrisColumnarDataSet();
+		Assert.assertEquals(150, iris.size());
+		Assert.assertTrue(iris.isNumeric(0));
+		Assert.assertEquals(5.1, iris.getValue(0, 0), 0.0);
+		Assert.assertEquals(DataSetFactory.getIrisDataSet().getExample(0)
+				.getAttributeValueAsDouble("petal_width"), iris.getExample(0)
+				.getAttributeValueAsDouble("petal_width"), 0.0);
+	}
+
+	@Test
+	public void testNumericTargetIsEncoded() {
+		DataSetSpecification spec = new DataSetSpecification();
+		spec.defineStringAttribute("size", new String[] { "small", "large" });
+		spec.defineNumericAttribute("grade");
+		spec.setTarget("grade");
+		ColumnarDataSet data = new ColumnarDataSet(spec);
+		for (int i = 0; i < 20; i++) {
+			data.addRow(Arrays.asList(i % 2 == 0 ? "small" : "large",
+					i % 2 == 0 ? "1" : "2.5"));
+		}
+		int grade = data.getTargetColumn();
+		Assert.assertTrue(data.isNumeric(grade));
+		Assert.assertEquals(2.5, data.getValue(1, grade), 0.0);
+		Assert.assertEquals(2, data.getNumberOfValues(grade));
+		Assert.assertEquals("2.5",
+				data.getValueForCode(grade, data.getTargetCode(1)));
+
+		DataSetView[] split = data.allRows().splitByAttribute(
+				data.getColumnIndex("size"));
+		Assert.assertTrue(split[0].allExamplesHaveSameTargetValue());
+		Assert.assertEquals("1.0", split[0].targetValue(0));
+
+		// the row oriented data set is encoded in the same way
+		ColumnarDataSet copy = new ColumnarDataSet(data.toDataSet());
+		Assert.assertEquals(data.getValueForCode(grade, data.getTargetCode(1)),
+				copy.getValueForCode(grade, copy.getTargetCode(1)));
+		DecisionTreeLearner tree = new DecisionTreeLearner();
+		tree.train(copy);
+		Assert.assertEquals(0, tree.test(data.toDataSet())[1]);
+	}
+
+	@Test
+	public void testNumericAttributeIsEncoded() {
+		DataSetSpecification spec = new DataSetSpecification();
+		spec.defineStringAttribute("size", new String[] { "small", "large" });
+		spec.defineNumericAttribute("weight");
+		spec.defineStringAttribute("fits", new String[] { "yes", "no" });
+		spec.setTarget("fits");
+		ColumnarDataSet data = new ColumnarDataSet(spec);
+		for (int i = 0; i < 12; i++) {
+			data.addRow(Arrays.asList(i % 2 == 0 ? "small" : "large",
+					Integer.toString(i % 3), i % 3 == 0 ? "yes" : "no"));
+		}
+		int weight = data.getColumnIndex("weight");
+		Assert.assertTrue(data.isNumeric(weight));
+		Assert.assertEquals(3, data.getNumberOfValues(weight));
+		Assert.assertEquals("2.0",
+				data.getValueForCode(weight, data.getCode(2, weight)));
+
+		DataSet ds = data.toDataSet();
+		DataSetView view = data.allRows();
+		for (String attribute : ds.getNonTargetAttributes()) {
+			Assert.assertEquals(ds.calculateGainFor(attribute),
+					view.calculateGainFor(attribute), 0.000001);
+		}
+		Assert.assertEquals(3, view.splitByAttribute(weight).length);
+
+		// the numeric attribute separates the target values
+		DecisionTreeLearner tree = new DecisionTreeLearner();
+		tree.train(new ColumnarDataSet(ds));
+		Assert.assertEquals("weight", tree.getDecisionTree()
+				.getAttributeName());
+		Assert.assertEquals(0, tree.test(ds)[1]);
+	}
+
+	@Test
+	public void testInformationGainAndSplitOfView() throws Exception {
+		DataSet ds = DataSetFactory.getRestaurantDataSet();
+		DataSetView view = new ColumnarDataSet(ds).allRows();
+
+		Assert.assertEquals(ds.getInformationFor(), view.getInformationFor(),
+				0.000001);
+		for (String attribute : ds.getNonTargetAttributes()) {
+			Assert.assertEquals(ds.calculateGainFor(attribute),
+					view.calculateGainFor(attribute), 0.000001);
+		}
+
+		int patrons = view.getData().getColumnIndex("patrons");
+		DataSetView[] split = view.splitByAttribute(patrons);
+		Assert.assertEquals(3, split.length);
+		Assert.assertEquals(2, split[0].size());
+		Assert.assertEquals(4, split[1].size());
+		Assert.assertEquals(6, split[2].size());
+		Assert.assertTrue(split[1].allExamplesHaveSameTargetValue());
+		Assert.assertEquals("Yes", split[1].targetValue(0));
+		// views share the examples of the underlying data set
+		Assert.assertSame(ds.getExample(split[2].getRow(0)),
+				split[2].getExample(0));
+	}
+
+	@Test
+	public void testLearnersTrainedOnColumnarData() throws Exception {
+		DataSet ds = DataSetFactory.getRestaurantDataSet();
+		ColumnarDataSet data = DataSetFactory.getRestaurantColumnarDataSet();
+
+		DecisionTreeLearner columnarTree = new DecisionTreeLearner();
+		columnarTree.train(data);
+		DecisionTreeLearner tree = new DecisionTreeLearner();
+		tree.train(ds);
+		Assert.assertEquals(tree.getDecisionTree().toString(), columnarTree
+				.getDecisionTree().toString());
+		int[] result = columnarTree.test(ds);
+		Assert.assertEquals(12, result[0]);
+		Assert.assertEquals(0, result[1]);
+
+		DecisionListLearner list = new DecisionListLearner("Yes", "No",
+				new DLTestFactory());
+		list.train(data);
+		result = list.test(ds);
+		Assert.assertEquals(12, result[0]);
+		Assert.assertEquals(0, result[1]);
+
+		// the ensemble passes the columnar data on to its learners
+		DecisionTreeLearner boostedTree = new DecisionTreeLearner();
+		AdaBoostLearner boost = new AdaBoostLearner(
+				Collections.<Learner> singletonList(boostedTree), ds);
+		boost.train(data);
+		Assert.assertEquals(tree.getDecisionTree().toString(), boostedTree
+				.getDecisionTree().toString());
+		result = boost.test(ds);
+		Assert.assertEquals(12, result[0]);
+	}
+}
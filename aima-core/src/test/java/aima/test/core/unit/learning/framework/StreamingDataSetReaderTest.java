@@ -0,0 +1,50 @@
+package aima.test.core.unit.learning.framework;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import aima.core.learning.framework.ColumnarDataSet;
+import aima.core.learning.framework.DataSet;
+import aima.core.learning.framework.DataSetFactory;
+import aima.core.learning.framework.StreamingDataSetReader;
+
+public class StreamingDataSetReaderTest {
+
+	@Test
+	public void testRestaurantDataSetIsReadInChunks() throws Exception {
+		DataSet ds = DataSetFactory.getRestaurantDataSet();
+		try (StreamingDataSetReader reader = StreamingDataSetReader
+				.fromResource("restaurant",
+						DataSetFactory.createRestaurantDataSetSpec(), "\\s+")) {
+			int row = 0;
+			int[] expectedChunkSizes = new int[] { 5, 5, 2 };
+			for (int expected : expectedChunkSizes) {
+				Assert.assertTrue(reader.hasNext());
+				DataSet chunk = reader.nextChunk(5);
+				Assert.assertEquals(expected, chunk.size());
+				for (int i = 0; i < chunk.size(); i++, row++) {
+					Assert.assertEquals(ds.getExample(row).targetValue(), chunk
+							.getExample(i).targetValue());
+				}
+			}
+			Assert.assertFalse(reader.hasNext());
+			Assert.assertEquals(0, reader.nextChunk(5).size());
+			Assert.assertEquals(12, reader.getRowsRead());
+		}
+	}
+
+	@Test
+	public void testIrisDataSetIsReadInColumnarChunks() throws Exception {
+		try (StreamingDataSetReader reader = StreamingDataSetReader
+				.fromResource("iris", DataSetFactory.createIrisDataSetSpec(),
+						",")) {
+			int total = 0;
+			while (reader.hasNext()) {
+				ColumnarDataSet chunk = reader.nextColumnarChunk(64);
+				Assert.assertTrue(chunk.size() <= 64);
+				total += chunk.size();
+			}
+			Assert.assertEquals(150, total);
+		}
+	}
+}
@@ -1,5 +1,9 @@
 package aima.test.core.unit.learning.neural;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -11,6 +15,8 @@ import aima.core.learning.neural.IrisDataSetNumerizer;
 import aima.core.learning.neural.IrisNNDataSet;
 import aima.core.learning.neural.NNConfig;
 import aima.core.learning.neural.NNDataSet;
+import aima.core.learning.neural.NNExample;
+import aima.core.learning.neural.NNExampleSource;
 import aima.core.learning.neural.Numerizer;
 import aima.core.learning.neural.Perceptron;
 import aima.core.util.math.Matrix;
@@ -158,4 +164,152 @@ public class BackPropagationTest {
 		innds.refreshDataset();
 		perc.testOnDataSet(innds);
 	}
+
+	@Test
+	public void testMiniBatchOfOneExampleEqualsOnlineUpdate() {
+		Vector input = new Vector(1);
+		input.setValue(0, 1);
+
+		FeedForwardNeuralNetwork online = createHaganNetwork(0.5);
+		FeedForwardNeuralNetwork batched = createHaganNetwork(0.5);
+		// the target for which the error of example 11.14 is 1.261
+		Vector target = new Vector(1);
+		target.setValue(0, online.processInput(input).getValue(0) + 1.261);
+
+		Vector error = new Vector(1);
+		error.setValue(0, 1.261);
+		online.processError(error);
+		batched.trainOn(new IrisNNDataSet() {
+			private boolean consumed;
+
+			@Override
+			public void reset() {
+				consumed = false;
+			}
+
+			@Override
+			public List<NNExample> nextBatch(int batchSize) {
+				List<NNExample> batch = new ArrayList<NNExample>();
+				if (!consumed) {
+					batch.add(new NNExample(Arrays.asList(1.0), Arrays
+							.asList(target.getValue(0))));
+					consumed = true;
+				}
+				return batch;
+			}
+		}, 1, 1);
+
+		for (int i = 0; i < 2; i++) {
+			Assert.assertEquals(online.getHiddenLayerWeights().get(i, 0),
+					batched.getHiddenLayerWeights().get(i, 0), 1e-9);
+			Assert.assertEquals(online.getHiddenLayerBias().getValue(i),
+					batched.getHiddenLayerBias().getValue(i), 1e-9);
+			Assert.assertEquals(online.getOutputLayerWeights().get(0, i),
+					batched.getOutputLayerWeights().get(0, i), 1e-9);
+		}
+		Assert.assertEquals(online.getOutputLayerBias().getValue(0), batched
+				.getOutputLayerBias().getValue(0), 1e-9);
+	}
+
+	@Test
+	public void testMiniBatchTraining() throws Exception {
+		DataSet irisDataSet = DataSetFactory.getIrisDataSet();
+		Numerizer numerizer = new IrisDataSetNumerizer();
+		NNDataSet innds = new IrisNNDataSet();
+
+		innds.createExamplesFromDataSet(irisDataSet, numerizer);
+
+		NNConfig config = new NNConfig();
+		config.setConfig(FeedForwardNeuralNetwork.NUMBER_OF_INPUTS, 4);
+		config.setConfig(FeedForwardNeuralNetwork.NUMBER_OF_OUTPUTS, 3);
+		config.setConfig(FeedForwardNeuralNetwork.NUMBER_OF_HIDDEN_NEURONS, 6);
+		config.setConfig(FeedForwardNeuralNetwork.LOWER_LIMIT_WEIGHTS, -2.0);
+		config.setConfig(FeedForwardNeuralNetwork.UPPER_LIMIT_WEIGHTS, 2.0);
+
+		FeedForwardNeuralNetwork ffnn = new FeedForwardNeuralNetwork(config);
+		ffnn.setTrainingScheme(new BackPropLearning(0.1, 0.9));
+		Matrix initialWeights = ffnn.getOutputLayerWeights().copy();
+
+		ffnn.trainOn(innds, 16, 10);
+
+		int[] result = ffnn.testOnDataSet(innds);
+		Assert.assertEquals(150, result[0] + result[1]);
+		boolean weightsChanged = false;
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 6; j++) {
+				if (initialWeights.get(i, j) != ffnn.getOutputLayerWeights()
+						.get(i, j)) {
+					weightsChanged = true;
+				}
+			}
+		}
+		Assert.assertTrue(weightsChanged);
+	}
+
+	@Test
+	public void testPerceptronMiniBatchTrainingLearnsAnd() {
+		// one output per class: AND is 1 resp. AND is 0
+		final List<NNExample> examples = new ArrayList<NNExample>();
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < 2; j++) {
+				double and = i * j;
+				examples.add(new NNExample(Arrays.asList((double) i,
+						(double) j), Arrays.asList(and, 1.0 - and)));
+			}
+		}
+		NNExampleSource source = new NNExampleSource() {
+			private int next;
+
+			@Override
+			public void reset() {
+				next = 0;
+			}
+
+			@Override
+			public List<NNExample> nextBatch(int batchSize) {
+				int from = next;
+				next = Math.min(next + batchSize, examples.size());
+				return examples.subList(from, next);
+			}
+		};
+
+		Perceptron perc = new Perceptron(2, 2);
+		perc.trainOn(source, 4, 50);
+
+		// the classes are linearly separable, so the perceptron converges
+		for (NNExample nne : examples) {
+			Vector prediction = perc.predict(nne);
+			for (int k = 0; k < 2; k++) {
+				Assert.assertEquals(nne.getTarget().getValue(k),
+						prediction.getValue(k), 0.0);
+			}
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private FeedForwardNeuralNetwork createHaganNetwork(double momentumFactor) {
+		// example 11.14 of Neural Network Design by Hagan, Demuth and Beale
+		Matrix hiddenLayerWeightMatrix = new Matrix(2, 1);
+		hiddenLayerWeightMatrix.set(0, 0, -0.27);
+		hiddenLayerWeightMatrix.set(1, 0, -0.41);
+
+		Vector hiddenLayerBiasVector = new Vector(2);
+		hiddenLayerBiasVector.setValue(0, -0.48);
+		hiddenLayerBiasVector.setValue(1, -0.13);
+
+		Matrix outputLayerWeightMatrix = new Matrix(1, 2);
+		outputLayerWeightMatrix.set(0, 0, 0.09);
+		outputLayerWeightMatrix.set(0, 1, -0.17);
+
+		Vector outputLayerBiasVector = new Vector(1);
+		outputLayerBiasVector.setValue(0, 0.48);
+
+		FeedForwardNeuralNetwork ffnn = new FeedForwardNeuralNetwork(
+				hiddenLayerWeightMatrix, hiddenLayerBiasVector,
+				outputLayerWeightMatrix, outputLayerBiasVector);
+		ffnn.setTrainingScheme(new BackPropLearning(0.1, momentumFactor));
+		return ffnn;
+	}
 }
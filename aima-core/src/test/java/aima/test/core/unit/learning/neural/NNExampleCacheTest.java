@@ -0,0 +1,190 @@
+package aima.test.core.unit.learning.neural;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.learning.data.DataResource;
+import aima.core.learning.framework.DataSetFactory;
+import aima.core.learning.neural.IrisDataSetNumerizer;
+import aima.core.learning.neural.IrisNNDataSet;
+import aima.core.learning.neural.NNExample;
+import aima.core.learning.neural.NNExampleCache;
+import aima.core.learning.neural.Perceptron;
+import aima.core.learning.neural.RabbitEyeDataSet;
+
+public class NNExampleCacheTest {
+	private File csv;
+	private File cache;
+
+	@Before
+	public void setUp() throws Exception {
+		csv = File.createTempFile("rabbiteyes", ".csv");
+		cache = File.createTempFile("rabbiteyes", ".cache");
+		try (InputStream in = DataResource.class
+				.getResourceAsStream("rabbiteyes.csv")) {
+			Files.copy(in, csv.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		// make the cache older than the source file
+		cache.setLastModified(csv.lastModified() - 10000);
+	}
+
+	@After
+	public void tearDown() {
+		csv.delete();
+		cache.delete();
+	}
+
+	@Test
+	public void testCacheHasStatisticsAndExamplesOfNNDataSet()
+			throws Exception {
+		RabbitEyeDataSet reds = new RabbitEyeDataSet();
+		reds.createExamplesFromFile("rabbiteyes");
+
+		try (NNExampleCache nnec = NNExampleCache.openOrCreate(csv, cache,
+				",", new int[] { 1 })) {
+			Assert.assertEquals(reds.getNormalizedData().size(), nnec.size());
+			Assert.assertEquals(1, nnec.getNumberOfInputs());
+			Assert.assertEquals(1, nnec.getNumberOfTargets());
+			Assert.assertEquals(reds.getMeans().get(0), nnec.getMeans()[0],
+					1e-9);
+			Assert.assertEquals(reds.getStdevs().get(1), nnec.getStdevs()[1],
+					1e-9);
+			List<Double> normalized = reds.getNormalizedData().get(3);
+			NNExample e = nnec.getExample(3);
+			Assert.assertEquals(normalized.get(0), e.getInput().getValue(0),
+					1e-9);
+			Assert.assertEquals(normalized.get(1), e.getTarget().getValue(0),
+					1e-9);
+		}
+		// an up to date cache is reused
+		long created = cache.lastModified();
+		try (NNExampleCache nnec = NNExampleCache.openOrCreate(csv, cache,
+				",", new int[] { 1 })) {
+			Assert.assertEquals(created, cache.lastModified());
+			Assert.assertEquals(reds.getNormalizedData().size(), nnec.size());
+		}
+	}
+
+	@Test
+	public void testNumerizerEncodesStringAttributes() throws Exception {
+		try (InputStream in = DataResource.class
+				.getResourceAsStream("iris.csv")) {
+			Files.copy(in, csv.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		cache.setLastModified(csv.lastModified() - 10000);
+		IrisNNDataSet innds = new IrisNNDataSet();
+		innds.createExamplesFromDataSet(DataSetFactory.getIrisDataSet(),
+				new IrisDataSetNumerizer());
+
+		try (NNExampleCache nnec = NNExampleCache.openOrCreate(csv, cache,
+				DataSetFactory.createIrisDataSetSpec(), ",",
+				new IrisDataSetNumerizer())) {
+			Assert.assertEquals(150, nnec.size());
+			Assert.assertEquals(4, nnec.getNumberOfInputs());
+			Assert.assertEquals(3, nnec.getNumberOfTargets());
+			for (int i = 0; i < 7; i++) {
+				Assert.assertEquals(innds.getMeans().get(i),
+						nnec.getMeans()[i], 1e-9);
+			}
+			List<Double> normalized = innds.getNormalizedData().get(60);
+			NNExample e = nnec.getExample(60);
+			Assert.assertEquals(normalized.get(2), e.getInput().getValue(2),
+					1e-9);
+			Assert.assertEquals(normalized.get(5), e.getTarget().getValue(1),
+					1e-9);
+		}
+		// the cache is reused for the same numerizer
+		long created = cache.lastModified();
+		try (NNExampleCache nnec = NNExampleCache.openOrCreate(csv, cache,
+				DataSetFactory.createIrisDataSetSpec(), ",",
+				new IrisDataSetNumerizer())) {
+			Assert.assertEquals(created, cache.lastModified());
+			Assert.assertEquals(3, nnec.getNumberOfTargets());
+		}
+	}
+
+	@Test
+	public void testCacheOfOtherSeparatorIsNotReused() throws Exception {
+		Files.write(csv.toPath(), Arrays.asList("1;2", "3;4", "5;6"));
+		cache.setLastModified(csv.lastModified() + 10000);
+		try (NNExampleCache nnec = NNExampleCache.create(csv, cache, ";",
+				new int[] { 1 })) {
+			Assert.assertEquals(3, nnec.size());
+		}
+		cache.setLastModified(csv.lastModified() + 10000);
+		// with another separator the file is parsed again, and "1;2" is no
+		// number
+		try {
+			NNExampleCache.openOrCreate(csv, cache, ",", new int[] { 1 })
+					.close();
+			Assert.fail("Cache of another separator was reused");
+		} catch (IOException ex) {
+			// expected
+		}
+		try (NNExampleCache nnec = NNExampleCache.openOrCreate(csv, cache,
+				";", new int[] { 1 })) {
+			Assert.assertEquals(3, nnec.size());
+		}
+	}
+
+	@Test
+	public void testMiniBatchesVisitEveryExampleOncePerEpoch()
+			throws Exception {
+		try (NNExampleCache nnec = NNExampleCache.create(csv, cache, ",",
+				new int[] { 1 })) {
+			nnec.setRandom(new Random(7));
+			for (int epoch = 0; epoch < 2; epoch++) {
+				nnec.reset();
+				int count = 0;
+				List<NNExample> batch;
+				while (!(batch = nnec.nextBatch(5)).isEmpty()) {
+					Assert.assertTrue(batch.size() <= 5);
+					count += batch.size();
+				}
+				Assert.assertEquals(nnec.size(), count);
+			}
+
+			Perceptron perc = new Perceptron(1, 1);
+			perc.trainOn(nnec, 8, 2);
+		}
+	}
+
+	@Test
+	public void testSingleRowIsCenteredButNotScaled() throws Exception {
+		Files.write(csv.toPath(), Arrays.asList("2.5,7"));
+		try (NNExampleCache nnec = NNExampleCache.create(csv, cache, ",",
+				new int[] { 1 })) {
+			Assert.assertArrayEquals(new double[] { 1, 1 }, nnec.getStdevs(),
+					0);
+			NNExample e = nnec.getExample(0);
+			Assert.assertEquals(0, e.getInput().getValue(0), 0);
+			Assert.assertEquals(0, e.getTarget().getValue(0), 0);
+		}
+	}
+
+	@Test
+	public void testConstantColumnIsCenteredButNotScaled() throws Exception {
+		Files.write(csv.toPath(), Arrays.asList("1,4", "2,4", "3,4"));
+		try (NNExampleCache nnec = NNExampleCache.create(csv, cache, ",",
+				new int[] { 1 })) {
+			Assert.assertEquals(1, nnec.getStdevs()[0], 1e-9);
+			Assert.assertEquals(1, nnec.getStdevs()[1], 0);
+			for (long row = 0; row < nnec.size(); row++) {
+				NNExample e = nnec.getExample(row);
+				Assert.assertEquals(row - 1, e.getInput().getValue(0), 1e-9);
+				Assert.assertEquals(0, e.getTarget().getValue(0), 0);
+			}
+		}
+	}
+}
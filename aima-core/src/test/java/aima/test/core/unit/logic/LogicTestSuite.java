@@ -4,10 +4,15 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 import aima.test.core.unit.logic.fol.FOLTestSuite;
+import aima.test.core.unit.logic.planning.ForwardPlannerTest;
+import aima.test.core.unit.logic.planning.GroundProblemTest;
+import aima.test.core.unit.logic.planning.PlanningGraphTest;
 import aima.test.core.unit.logic.propositional.PropositionalTestSuite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ FOLTestSuite.class, PropositionalTestSuite.class })
+@Suite.SuiteClasses({ FOLTestSuite.class, PropositionalTestSuite.class,
+		GroundProblemTest.class, ForwardPlannerTest.class,
+		PlanningGraphTest.class })
 public class LogicTestSuite {
 
 }
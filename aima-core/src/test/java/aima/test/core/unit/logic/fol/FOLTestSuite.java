@@ -8,6 +8,7 @@ import aima.test.core.unit.logic.fol.inference.FOLBCAskTest;
 import aima.test.core.unit.logic.fol.inference.FOLFCAskTest;
 import aima.test.core.unit.logic.fol.inference.FOLModelEliminationTest;
 import aima.test.core.unit.logic.fol.inference.FOLOTTERLikeTheoremProverTest;
+import aima.test.core.unit.logic.fol.inference.FOLTabledBCAskTest;
 import aima.test.core.unit.logic.fol.inference.FOLTFMResolutionTest;
 import aima.test.core.unit.logic.fol.inference.ParamodulationTest;
 import aima.test.core.unit.logic.fol.kb.FOLKnowledgeBaseTest;
@@ -24,7 +25,8 @@ import aima.test.core.unit.logic.fol.parsing.FOLParserTest;
 		FOLKnowledgeBaseTest.class, FOLLexerTest.class, FOLParserTest.class,
 		CNFConverterTest.class, PredicateCollectorTest.class,
 		SubstVisitorTest.class, SubsumptionEliminationTest.class,
-		UnifierTest.class, VariableCollectorTest.class })
+		UnifierTest.class, VariableCollectorTest.class,
+		IterativeUnifierTest.class, FOLTabledBCAskTest.class })
 public class FOLTestSuite {
 
 }
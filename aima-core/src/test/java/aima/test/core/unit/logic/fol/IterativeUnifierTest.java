@@ -0,0 +1,137 @@
+package aima.test.core.unit.logic.fol;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.logic.fol.IterativeUnifier;
+import aima.core.logic.fol.TermStore;
+import aima.core.logic.fol.Unifier;
+import aima.core.logic.fol.domain.DomainFactory;
+import aima.core.logic.fol.domain.FOLDomain;
+import aima.core.logic.fol.parsing.FOLParser;
+import aima.core.logic.fol.parsing.ast.Constant;
+import aima.core.logic.fol.parsing.ast.Sentence;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+
+public class IterativeUnifierTest {
+
+	private FOLParser parser;
+	private Unifier unifier;
+	private Unifier recursiveUnifier;
+
+	@Before
+	public void setUp() {
+		FOLDomain domain = new FOLDomain(DomainFactory.knowsDomain());
+		domain.addPredicate("P");
+		domain.addFunction("F");
+		domain.addFunction("SF0");
+		domain.addFunction("SF1");
+		domain.addFunction("equivalent");
+		domain.addPredicate("is_a_theorem");
+		parser = new FOLParser(domain);
+		unifier = new IterativeUnifier();
+		recursiveUnifier = new Unifier();
+	}
+
+	@Test
+	public void testTermStoreHashConsing() {
+		TermStore store = new TermStore();
+		int p1 = store.intern(parser.parse("Knows(John,Mother(x))"));
+		int p2 = store.intern(parser.parse("Knows(John,Mother(x))"));
+		int p3 = store.intern(parser.parse("Knows(John,Mother(y))"));
+		Assert.assertEquals(p1, p2);
+		Assert.assertNotEquals(p1, p3);
+		Assert.assertEquals(store.getArg(p1, 0), store.getArg(p3, 0));
+		Assert.assertTrue(store.isGround(store.getArg(p1, 0)));
+		Assert.assertFalse(store.isGround(store.getArg(p1, 1)));
+		Assert.assertEquals(-1, store.intern(parser.parse("NOT(Knows(John,x))")));
+	}
+
+	@Test
+	public void testSameResultsAsRecursiveUnifier() {
+		assertSameResult("Knows(John,x)", "Knows(John,Jane)");
+		assertSameResult("Knows(John,x)", "Knows(y,Bill)");
+		assertSameResult("Knows(John,x)", "Knows(y,Mother(y))");
+		assertSameResult("Knows(John,x)", "Knows(x,Elizabeth)");
+		assertSameResult("Knows(John,x)", "Knows(y,z)");
+		assertSameResult("P(SF1(v2),v2)", "P(v3,SF0(v3))");
+		assertSameResult("P(v1,SF0(v1),SF0(v1),SF0(v1),SF0(v1))",
+				"P(v2,SF0(v2),v2,     v3,     v2)");
+		assertSameResult("P(v1,   F(v2),F(v2),F(v2),v1,      F(F(v1)),F(F(F(v1))),v2)",
+				"P(F(v3),v4,   v5,   v6,   F(F(v5)),v4,      F(v3),      F(F(v5)))");
+		assertSameResult(
+				"is_a_theorem(equivalent(equivalent(c1744,c1743),equivalent(c1742,c1743)))",
+				"is_a_theorem(equivalent(equivalent(c1752,c1751),c1752))");
+		assertSameResult("(Knows(John,x) AND Knows(y,Mother(y)))",
+				"(Knows(John,Jane) AND Knows(z,Mother(z)))");
+	}
+
+	@Test
+	public void testThetaIsExtendedInPlace() {
+		Map<Variable, Term> theta = new LinkedHashMap<Variable, Term>();
+		theta.put(new Variable("x"), new Variable("y"));
+		Map<Variable, Term> result = unifier.unify(
+				parser.parse("Knows(y,z)"), parser.parse("Knows(John,Jane)"),
+				theta);
+
+		Assert.assertSame(theta, result);
+		Assert.assertEquals(3, theta.size());
+		Assert.assertEquals(new Constant("John"), theta.get(new Variable("x")));
+		Assert.assertEquals(new Constant("John"), theta.get(new Variable("y")));
+		Assert.assertEquals(new Constant("Jane"), theta.get(new Variable("z")));
+	}
+
+	@Test
+	public void testConflictWithTheta() {
+		Map<Variable, Term> theta = new LinkedHashMap<Variable, Term>();
+		theta.put(new Variable("x"), new Constant("Bill"));
+		Assert.assertNull(unifier.unify(parser.parse("Knows(John,x)"),
+				parser.parse("Knows(John,Jane)"), theta));
+		// A failed attempt must not leave bindings behind
+		Assert.assertNotNull(unifier.unify(parser.parse("Knows(John,x)"),
+				parser.parse("Knows(John,Jane)")));
+	}
+
+	@Test
+	public void testStoreIsClearedWhenFull() {
+		Unifier small = new IterativeUnifier(4);
+		for (int i = 0; i < 10; i++) {
+			Map<Variable, Term> result = small.unify(
+					parser.parse("Knows(John,x" + i + ")"),
+					parser.parse("Knows(y" + i + ",Mother(y" + i + "))"));
+			Assert.assertEquals("{y" + i + "=John, x" + i + "=Mother(John)}",
+					result.toString());
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private void assertSameResult(String s1, String s2) {
+		Sentence x = parser.parse(s1);
+		Sentence y = parser.parse(s2);
+		Map<Variable, Term> expected = recursiveUnifier.unify(x, y);
+		Map<Variable, Term> actual = unifier.unify(x, y);
+		if (null == expected) {
+			Assert.assertNull(actual);
+		} else {
+			// Compare including the order in which the bindings were made
+			Assert.assertEquals(entries(expected), entries(actual));
+		}
+	}
+
+	private List<String> entries(Map<Variable, Term> theta) {
+		List<String> result = new ArrayList<String>();
+		for (Map.Entry<Variable, Term> binding : theta.entrySet()) {
+			result.add(binding.toString());
+		}
+		return result;
+	}
+}
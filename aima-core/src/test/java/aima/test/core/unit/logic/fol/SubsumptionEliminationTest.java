@@ -7,6 +7,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import aima.core.logic.fol.CNFConverter;
+import aima.core.logic.fol.FeatureVectorIndex;
 import aima.core.logic.fol.SubsumptionElimination;
 import aima.core.logic.fol.domain.FOLDomain;
 import aima.core.logic.fol.kb.data.CNF;
@@ -105,4 +106,50 @@ public class SubsumptionEliminationTest {
 		Assert.assertTrue(clauses.contains(cl7));
 		Assert.assertTrue(clauses.contains(cl8));
 	}
+
+	@Test
+	public void testFeatureVectorIndex() {
+		FOLDomain domain = new FOLDomain();
+		domain.addPredicate("P");
+		domain.addPredicate("Q");
+		domain.addConstant("A");
+		domain.addConstant("B");
+		domain.addFunction("F");
+		FOLParser parser = new FOLParser(domain);
+		CNFConverter cnfConv = new CNFConverter(parser);
+
+		Clause px = cnfConv.convertToCNF(parser.parse("P(x)"))
+				.getConjunctionOfClauses().get(0);
+		Clause pfaOrQb = cnfConv
+				.convertToCNF(parser.parse("(P(F(A)) OR Q(B))"))
+				.getConjunctionOfClauses().get(0);
+		Clause paOrQb = cnfConv.convertToCNF(parser.parse("(P(A) OR Q(B))"))
+				.getConjunctionOfClauses().get(0);
+		Clause notPaOrQb = cnfConv
+				.convertToCNF(parser.parse("(NOT(P(A)) OR Q(B))"))
+				.getConjunctionOfClauses().get(0);
+
+		FeatureVectorIndex index = new FeatureVectorIndex();
+		index.add(pfaOrQb);
+		index.add(paOrQb);
+		index.add(notPaOrQb);
+		Assert.assertEquals(3, index.size());
+
+		// backward subsumption
+		Set<Clause> subsumed = index.findSubsumedBy(px);
+		Assert.assertEquals(2, subsumed.size());
+		Assert.assertTrue(subsumed.contains(pfaOrQb));
+		Assert.assertTrue(subsumed.contains(paOrQb));
+
+		// forward subsumption
+		Assert.assertFalse(index.isSubsumed(px));
+		index.add(px);
+		Assert.assertTrue(index.isSubsumed(paOrQb));
+		Assert.assertFalse(index.isSubsumed(notPaOrQb));
+
+		Assert.assertTrue(index.remove(px));
+		Assert.assertFalse(index.remove(px));
+		Assert.assertFalse(index.isSubsumed(paOrQb));
+		Assert.assertEquals(3, index.size());
+	}
 }
@@ -17,6 +17,7 @@ import aima.core.logic.fol.kb.data.Clause;
 import aima.core.logic.fol.parsing.FOLParser;
 import aima.core.logic.fol.parsing.ast.Sentence;
 import aima.core.logic.fol.parsing.ast.TermEquality;
+import aima.core.search.framework.Metrics;
 import aima.test.core.unit.logic.fol.CommonFOLInferenceProcedureTests;
 
 /**
@@ -229,4 +230,35 @@ public class FOLOTTERLikeTheoremProverTest extends
 		testEqualityAndSubstitutionNoAxiomsKBabcdPFFASucceeds(
 				new FOLOTTERLikeTheoremProver(true), false);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testParallelInferenceWeaponsQueryCriminalXReturnsWestSucceeds() {
+		FOLOTTERLikeTheoremProver otter = new FOLOTTERLikeTheoremProver(false);
+		otter.setParallelInference(true);
+		testDefiniteClauseKBWeaponsQueryCriminalXReturnsWestSucceeds(otter);
+	}
+
+	@Test
+	public void testParallelInferenceEqualityAndSubstitutionNoAxiomsKBabcdPFFASucceeds() {
+		FOLOTTERLikeTheoremProver otter = new FOLOTTERLikeTheoremProver(true);
+		otter.setParallelInference(true);
+		testEqualityAndSubstitutionNoAxiomsKBabcdPFFASucceeds(otter, false);
+	}
+
+	@Test
+	public void testMetrics() {
+		FOLOTTERLikeTheoremProver otter = new FOLOTTERLikeTheoremProver(false);
+		testDefiniteClauseKBKingsQueryKingXReturnsJohnAndRichardSucceeds(otter);
+
+		Metrics metrics = otter.getMetrics();
+		Assert.assertTrue(metrics
+				.getInt(FOLOTTERLikeTheoremProver.METRIC_GIVEN_CLAUSES) > 0);
+		int generated = metrics
+				.getInt(FOLOTTERLikeTheoremProver.METRIC_CLAUSES_GENERATED);
+		int kept = metrics.getInt(FOLOTTERLikeTheoremProver.METRIC_CLAUSES_KEPT);
+		Assert.assertTrue(generated > 0);
+		Assert.assertTrue(kept <= generated);
+		Assert.assertTrue(metrics
+				.getDouble(FOLOTTERLikeTheoremProver.METRIC_CLAUSES_GENERATED_PER_SECOND) > 0);
+	}
+}
@@ -0,0 +1,129 @@
+package aima.test.core.unit.logic.fol.inference;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import aima.core.logic.fol.domain.FOLDomain;
+import aima.core.logic.fol.inference.FOLTabledBCAsk;
+import aima.core.logic.fol.inference.InferenceProcedure;
+import aima.core.logic.fol.inference.InferenceResult;
+import aima.core.logic.fol.inference.proof.Proof;
+import aima.core.logic.fol.kb.FOLKnowledgeBase;
+import aima.core.logic.fol.parsing.ast.Variable;
+import aima.test.core.unit.logic.fol.CommonFOLInferenceProcedureTests;
+
+public class FOLTabledBCAskTest extends CommonFOLInferenceProcedureTests {
+
+	@Test
+	public void testDefiniteClauseKBKingsQueryCriminalXFalse() {
+		testDefiniteClauseKBKingsQueryCriminalXFalse(new FOLTabledBCAsk());
+	}
+
+	@Test
+	public void testDefiniteClauseKBKingsQueryRichardEvilFalse() {
+		testDefiniteClauseKBKingsQueryRichardEvilFalse(new FOLTabledBCAsk());
+	}
+
+	@Test
+	public void testDefiniteClauseKBKingsQueryJohnEvilSucceeds() {
+		testDefiniteClauseKBKingsQueryJohnEvilSucceeds(new FOLTabledBCAsk());
+	}
+
+	@Test
+	public void testDefiniteClauseKBKingsQueryEvilXReturnsJohnSucceeds() {
+		testDefiniteClauseKBKingsQueryEvilXReturnsJohnSucceeds(new FOLTabledBCAsk());
+	}
+
+	@Test
+	public void testDefiniteClauseKBKingsQueryKingXReturnsJohnAndRichardSucceeds() {
+		testDefiniteClauseKBKingsQueryKingXReturnsJohnAndRichardSucceeds(new FOLTabledBCAsk());
+	}
+
+	@Test
+	public void testDefiniteClauseKBWeaponsQueryCriminalXReturnsWestSucceeds() {
+		testDefiniteClauseKBWeaponsQueryCriminalXReturnsWestSucceeds(new FOLTabledBCAsk());
+	}
+
+	@Test
+	public void testParallelDefiniteClauseKBKingsQueryKingXReturnsJohnAndRichardSucceeds() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			testDefiniteClauseKBKingsQueryKingXReturnsJohnAndRichardSucceeds(new FOLTabledBCAsk(
+					pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelDefiniteClauseKBWeaponsQueryCriminalXReturnsWestSucceeds() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			testDefiniteClauseKBWeaponsQueryCriminalXReturnsWestSucceeds(new FOLTabledBCAsk(
+					pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testLeftRecursiveTransitiveClosure() {
+		assertTransitiveClosure(new FOLTabledBCAsk());
+	}
+
+	@Test
+	public void testParallelLeftRecursiveTransitiveClosure() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertTransitiveClosure(new FOLTabledBCAsk(pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private void assertTransitiveClosure(InferenceProcedure infp) {
+		FOLDomain domain = new FOLDomain();
+		domain.addConstant("A");
+		domain.addConstant("B");
+		domain.addConstant("C");
+		domain.addConstant("D");
+		domain.addConstant("E");
+		domain.addPredicate("Edge");
+		domain.addPredicate("Path");
+		FOLKnowledgeBase kb = new FOLKnowledgeBase(domain, infp);
+		// Left recursive and cyclic, plain backward chaining does not
+		// terminate on this knowledge base.
+		kb.tell("((Path(x,y) AND Edge(y,z)) => Path(x,z))");
+		kb.tell("(Edge(x,y) => Path(x,y))");
+		kb.tell("Edge(A,B)");
+		kb.tell("Edge(B,C)");
+		kb.tell("Edge(C,A)");
+		kb.tell("Edge(C,D)");
+		kb.tell("Edge(E,A)");
+
+		InferenceResult answer = kb.ask("Path(A,x)");
+		Assert.assertTrue(answer.isTrue());
+		Assert.assertFalse(answer.isPossiblyFalse());
+		Assert.assertFalse(answer.isUnknownDueToTimeout());
+		Set<String> reachable = new HashSet<String>();
+		for (Proof p : answer.getProofs()) {
+			Assert.assertEquals(1, p.getAnswerBindings().size());
+			reachable.add(p.getAnswerBindings().get(new Variable("x"))
+					.toString());
+		}
+		Assert.assertEquals(4, answer.getProofs().size());
+		Assert.assertEquals(new HashSet<String>(Arrays.asList("A",
+				"B", "C", "D")), reachable);
+
+		Assert.assertTrue(kb.ask("Path(E,D)").isTrue());
+		Assert.assertTrue(kb.ask("Path(D,A)").isPossiblyFalse());
+	}
+}
@@ -0,0 +1,155 @@
+package aima.test.core.unit.logic.planning;
+
+import aima.core.logic.fol.kb.data.Literal;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+import aima.core.logic.planning.ActionSchema;
+import aima.core.logic.planning.BitState;
+import aima.core.logic.planning.ForwardPlanner;
+import aima.core.logic.planning.GroundAction;
+import aima.core.logic.planning.GroundProblem;
+import aima.core.logic.planning.PlanningProblemFactory;
+import aima.core.logic.planning.Problem;
+import aima.core.logic.planning.RelaxedPlanHeuristic;
+import aima.core.logic.planning.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public class ForwardPlannerTest {
+
+    @Test
+    public void testHeuristicValues() {
+        GroundProblem gp = new GroundProblem(PlanningProblemFactory.airCargoTransportProblem());
+        RelaxedPlanHeuristic hAdd = new RelaxedPlanHeuristic(gp, RelaxedPlanHeuristic.Type.H_ADD);
+        RelaxedPlanHeuristic hFF = new RelaxedPlanHeuristic(gp, RelaxedPlanHeuristic.Type.H_FF);
+        // each cargo needs a load, a flight and an unload
+        Assert.assertEquals(6.0, hAdd.evaluate(gp.getInitialState()), 0.0);
+        // the relaxed plan may share one flight between both cargos
+        double h = hFF.evaluate(gp.getInitialState());
+        Assert.assertTrue(h == 5.0 || h == 6.0);
+        List<GroundAction> helpful = hFF.getHelpfulActions();
+        Assert.assertFalse(helpful.isEmpty());
+        for (GroundAction a : helpful)
+            Assert.assertTrue(a.isApplicable(gp.getInitialState()));
+        BitState goal = gp.getInitialState();
+        for (String name : Arrays.asList("Load(C1,P1,SFO)", "Fly(P1,SFO,JFK)", "Unload(C1,P1,JFK)",
+                "Load(C2,P2,JFK)", "Fly(P2,JFK,SFO)", "Unload(C2,P2,SFO)"))
+            goal = find(gp, name).result(goal);
+        Assert.assertTrue(gp.isGoal(goal));
+        Assert.assertEquals(0.0, hFF.evaluate(goal), 0.0);
+        Assert.assertTrue(hFF.getHelpfulActions().isEmpty());
+    }
+
+    @Test
+    public void testDeadEnd() {
+        // once the tires are left overnight, they cannot be recovered
+        Problem problem = PlanningProblemFactory.spareTireProblem();
+        GroundProblem gp = new GroundProblem(problem);
+        BitState state = find(gp, "LeaveOvernight()").result(gp.getInitialState());
+        RelaxedPlanHeuristic h = new RelaxedPlanHeuristic(gp, RelaxedPlanHeuristic.Type.H_FF);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, h.evaluate(state), 0.0);
+    }
+
+    @Test
+    public void testSmallProblems() {
+        for (RelaxedPlanHeuristic.Type type : RelaxedPlanHeuristic.Type.values()) {
+            ForwardPlanner planner = new ForwardPlanner(type, 1.0);
+            assertValidPlan(PlanningProblemFactory.spareTireProblem(), planner, 3);
+            assertValidPlan(PlanningProblemFactory.airCargoTransportProblem(), planner, 6);
+            assertValidPlan(PlanningProblemFactory.goHomeToSFOProblem(), planner, 1);
+        }
+    }
+
+    @Test
+    public void testGreedyWithoutPruning() {
+        ForwardPlanner planner = new ForwardPlanner();
+        planner.setHelpfulActionPruning(false);
+        assertValidPlan(PlanningProblemFactory.airCargoTransportProblem(), planner, -1);
+    }
+
+    @Test
+    public void testLogistics() {
+        Problem problem = logisticsProblem(40, 8, 3);
+        ForwardPlanner planner = new ForwardPlanner();
+        assertValidPlan(problem, planner, -1);
+        // at least one load and unload per cargo
+        Assert.assertTrue(planner.getMetrics().getInt(ForwardPlanner.METRIC_PLAN_LENGTH) >= 80);
+        Assert.assertTrue(planner.getMetrics().getInt(ForwardPlanner.METRIC_EVALUATIONS) > 0);
+        Assert.assertNotNull(planner.getMetrics().get(ForwardPlanner.METRIC_SEARCH_TIME));
+        Assert.assertNotNull(planner.getMetrics().get(ForwardPlanner.METRIC_GROUNDING_TIME));
+
+        planner.setHeuristicType(RelaxedPlanHeuristic.Type.H_ADD);
+        planner.setWeight(5.0);
+        assertValidPlan(logisticsProblem(12, 4, 2), planner, -1);
+    }
+
+    /**
+     * Checks that the plan leads to the goal under closed world semantics and, if expected is non-negative, that it
+     * has the expected length.
+     */
+    private static void assertValidPlan(Problem problem, ForwardPlanner planner, int expected) {
+        Optional<List<ActionSchema>> plan = planner.plan(problem);
+        Assert.assertTrue(plan.isPresent());
+        Set<Literal> state = new HashSet<>(problem.getInitialState().getFluents());
+        for (ActionSchema a : plan.get()) {
+            for (Literal pre : a.getPrecondition())
+                Assert.assertEquals(pre.isPositiveLiteral(), state.contains(new Literal(pre.getAtomicSentence())));
+            for (Literal effect : a.getEffectsNegativeLiterals())
+                state.remove(new Literal(effect.getAtomicSentence()));
+            state.addAll(a.getEffectsPositiveLiterals());
+        }
+        Assert.assertTrue(state.containsAll(problem.getGoalState().getFluents()));
+        Assert.assertEquals(plan.get().size(), planner.getMetrics().getInt(ForwardPlanner.METRIC_PLAN_LENGTH));
+        if (expected >= 0)
+            Assert.assertEquals(expected, plan.get().size());
+    }
+
+    private static GroundAction find(GroundProblem gp, String name) {
+        for (GroundAction a : gp.getActions())
+            if (a.toString().equals(name))
+                return a;
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Air cargo problem with many cargos: cargo i starts at airport i mod
+     * airports and has to be moved to the next airport.
+     */
+    static Problem logisticsProblem(int cargos, int airports, int planes) {
+        StringBuilder init = new StringBuilder();
+        StringBuilder goal = new StringBuilder();
+        for (int i = 0; i < airports; i++)
+            init.append("^Airport(A").append(i).append(")");
+        for (int i = 0; i < planes; i++)
+            init.append("^Plane(P").append(i).append(")^At(P").append(i).append(",A")
+                    .append(i % airports).append(")");
+        for (int i = 0; i < cargos; i++) {
+            init.append("^Cargo(C").append(i).append(")^At(C").append(i).append(",A")
+                    .append(i % airports).append(")");
+            goal.append("^At(C").append(i).append(",A").append((i + 1) % airports).append(")");
+        }
+        Variable c = new Variable("c");
+        Variable p = new Variable("p");
+        Variable a = new Variable("a");
+        Variable from = new Variable("from");
+        Variable to = new Variable("to");
+        List<Term> variables = Arrays.asList(c, p, a);
+        List<Term> flyVars = Arrays.asList(p, from, to);
+        ActionSchema load = new ActionSchema("Load", variables,
+                "At(c,a)^At(p,a)^Cargo(c)^Plane(p)^Airport(a)",
+                "~At(c,a)^In(c,p)");
+        ActionSchema unload = new ActionSchema("Unload", variables,
+                "In(c,p)^At(p,a)^Cargo(c)^Plane(p)^Airport(a)",
+                "At(c,a)^~In(c,p)");
+        ActionSchema fly = new ActionSchema("Fly", flyVars,
+                "At(p,from)^Plane(p)^Airport(from)^Airport(to)",
+                "~At(p,from)^At(p,to)");
+        return new Problem(new State(init.substring(1)), new State(goal.substring(1)), load, unload, fly);
+    }
+}
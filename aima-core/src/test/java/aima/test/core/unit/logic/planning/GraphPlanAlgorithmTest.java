@@ -1,9 +1,13 @@
 package aima.test.core.unit.logic.planning;
 
 import aima.core.logic.planning.ActionSchema;
+import aima.core.logic.planning.BitState;
 import aima.core.logic.planning.GraphPlanAlgorithm;
+import aima.core.logic.planning.GroundAction;
+import aima.core.logic.planning.GroundProblem;
 import aima.core.logic.planning.PlanningProblemFactory;
 import aima.core.logic.planning.Problem;
+import aima.core.logic.planning.State;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -34,4 +38,53 @@ public class GraphPlanAlgorithmTest {
         Assert.assertTrue(solution.get(0).contains(removeSpareTrunk));
         Assert.assertTrue(solution.get(1).contains(putOnSpareAxle));
     }
+
+    @Test
+    public void testAirCargo() {
+        GroundProblem problem = new GroundProblem(PlanningProblemFactory.airCargoTransportProblem());
+        List<List<GroundAction>> plan = new GraphPlanAlgorithm().graphPlan(problem);
+        // load, fly and unload both planes in parallel
+        Assert.assertEquals(3, plan.size());
+        for (List<GroundAction> step : plan)
+            Assert.assertEquals(2, step.size());
+        assertValidPlan(problem, plan);
+    }
+
+    @Test
+    public void testLogistics() {
+        GroundProblem problem = new GroundProblem(ForwardPlannerTest.logisticsProblem(30, 6, 3));
+        Assert.assertTrue(problem.getActions().size() > 1000);
+        List<List<GroundAction>> plan = new GraphPlanAlgorithm().graphPlan(problem);
+        Assert.assertNotNull(plan);
+        assertValidPlan(problem, plan);
+    }
+
+    @Test
+    public void testUnsolvable() {
+        Problem spareTire = PlanningProblemFactory.spareTireProblem();
+        // the spare cannot be in the trunk and on the axle at the same time
+        Problem problem = new Problem(spareTire.getInitialState(), new State("At(Spare,Axle)^At(Spare,Trunk)"),
+                spareTire.getActionSchemas());
+        Assert.assertNull(new GraphPlanAlgorithm().graphPlan(problem));
+    }
+
+    /**
+     * Checks that the actions of each step are applicable and that the
+     * order of execution within a step does not matter.
+     */
+    private static void assertValidPlan(GroundProblem problem, List<List<GroundAction>> plan) {
+        BitState state = problem.getInitialState();
+        for (List<GroundAction> step : plan) {
+            BitState forward = state;
+            BitState backward = state;
+            for (int i = 0; i < step.size(); i++) {
+                Assert.assertTrue(step.get(i).isApplicable(state));
+                forward = step.get(i).result(forward);
+                backward = step.get(step.size() - 1 - i).result(backward);
+            }
+            Assert.assertEquals(forward, backward);
+            state = forward;
+        }
+        Assert.assertTrue(problem.isGoal(state));
+    }
 }
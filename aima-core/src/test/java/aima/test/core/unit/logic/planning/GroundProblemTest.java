@@ -0,0 +1,136 @@
+package aima.test.core.unit.logic.planning;
+
+import aima.core.logic.fol.kb.data.Literal;
+import aima.core.logic.fol.parsing.ast.Term;
+import aima.core.logic.fol.parsing.ast.Variable;
+import aima.core.logic.planning.ActionSchema;
+import aima.core.logic.planning.BitState;
+import aima.core.logic.planning.GroundAction;
+import aima.core.logic.planning.GroundProblem;
+import aima.core.logic.planning.PlanningProblemFactory;
+import aima.core.logic.planning.Problem;
+import aima.core.logic.planning.State;
+import aima.core.logic.planning.Utils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+public class GroundProblemTest {
+
+    @Test
+    public void testSpareTireCompilation() {
+        Problem problem = PlanningProblemFactory.spareTireProblem();
+        GroundProblem gp = new GroundProblem(problem);
+        BitState init = gp.getInitialState();
+        Assert.assertEquals(4, init.size());
+        Assert.assertTrue(init.contains(gp.getFluentIndex(Utils.parse("At(Flat,Axle)").get(0))));
+        Assert.assertEquals(new State("Tire(Flat)^Tire(Spare)^At(Flat,Axle)^At(Spare,Trunk)"),
+                gp.toState(init));
+        Assert.assertFalse(gp.isGoal(init));
+        Set<String> applicable = new HashSet<>();
+        for (GroundAction a : gp.getApplicableActions(init))
+            applicable.add(a.toString());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(
+                "Remove(Flat,Axle)", "Remove(Spare,Trunk)", "LeaveOvernight()")), applicable);
+    }
+
+    @Test
+    public void testApplicabilityAgreesWithLiteralSemantics() {
+        Problem problem = PlanningProblemFactory.airCargoTransportProblem();
+        GroundProblem gp = new GroundProblem(problem);
+        // every reachable action is one of the propositionalised actions
+        Set<ActionSchema> propositionalised = new HashSet<>(problem.getPropositionalisedActions());
+        for (GroundAction a : gp.getActions())
+            Assert.assertTrue(propositionalised.contains(a.getSchema()));
+        // compare successors with the list based state representation
+        BitState state = gp.getInitialState();
+        for (int step = 0; step < 4; step++) {
+            List<GroundAction> actions = gp.getApplicableActions(state);
+            Assert.assertFalse(actions.isEmpty());
+            for (GroundAction a : actions) {
+                State expected = gp.toState(state).result(Collections.singletonList(a.getSchema()));
+                Assert.assertEquals(expected, gp.toState(a.result(state)));
+            }
+            int applicable = 0;
+            for (ActionSchema a : propositionalised)
+                if (isApplicable(gp.toState(state), a))
+                    applicable++;
+            Assert.assertEquals(applicable, actions.size());
+            state = actions.get(step % actions.size()).result(state);
+        }
+    }
+
+    @Test
+    public void testGroundingOverSeveralRounds() {
+        Variable x = new Variable("x");
+        Variable y = new Variable("y");
+        ActionSchema move = new ActionSchema("Move", new ArrayList<Term>(Arrays.asList(x, y)),
+                "At(x)^Road(x,y)", "~At(x)^At(y)");
+        // both preconditions match fluents of the same predicate
+        ActionSchema meet = new ActionSchema("Meet", new ArrayList<Term>(Arrays.asList(x, y)),
+                "At(x)^At(y)", "Met(x,y)");
+        Problem problem = new Problem(new State("At(A)^Road(A,B)^Road(B,C)^Road(C,D)^Road(D,E)"),
+                new State("At(E)"), move, meet);
+        GroundProblem gp = new GroundProblem(problem);
+        Set<String> actions = new HashSet<>();
+        for (GroundAction a : gp.getActions())
+            actions.add(a.toString());
+        // each location is only reached in the round after its predecessor
+        Assert.assertEquals(gp.getActions().size(), actions.size());
+        Assert.assertEquals(4 + 5 * 4, actions.size());
+        Assert.assertTrue(actions.contains("Move(D,E)"));
+        Assert.assertTrue(actions.contains("Meet(E,A)"));
+        Assert.assertTrue(actions.contains("Meet(A,E)"));
+        Assert.assertEquals(4, shortestPlanLength(gp));
+    }
+
+    @Test
+    public void testShortestPlans() {
+        Assert.assertEquals(3, shortestPlanLength(new GroundProblem(
+                PlanningProblemFactory.spareTireProblem())));
+        Assert.assertEquals(6, shortestPlanLength(new GroundProblem(
+                PlanningProblemFactory.airCargoTransportProblem())));
+        Assert.assertEquals(1, shortestPlanLength(new GroundProblem(
+                PlanningProblemFactory.goHomeToSFOProblem())));
+    }
+
+    /** Closed world applicability test on literal lists. */
+    private static boolean isApplicable(State state, ActionSchema a) {
+        for (Literal pre : a.getPrecondition()) {
+            boolean holds = state.getFluents().contains(new Literal(pre.getAtomicSentence()));
+            if (holds == pre.isNegativeLiteral())
+                return false;
+        }
+        return true;
+    }
+
+    private static int shortestPlanLength(GroundProblem gp) {
+        Map<BitState, Integer> depth = new HashMap<>();
+        Queue<BitState> frontier = new ArrayDeque<>();
+        depth.put(gp.getInitialState(), 0);
+        frontier.add(gp.getInitialState());
+        while (!frontier.isEmpty()) {
+            BitState s = frontier.remove();
+            if (gp.isGoal(s))
+                return depth.get(s);
+            for (GroundAction a : gp.getApplicableActions(s)) {
+                BitState next = a.result(s);
+                if (!depth.containsKey(next)) {
+                    depth.put(next, depth.get(s) + 1);
+                    frontier.add(next);
+                }
+            }
+        }
+        return -1;
+    }
+}
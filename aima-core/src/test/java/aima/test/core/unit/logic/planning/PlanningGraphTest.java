@@ -0,0 +1,81 @@
+package aima.test.core.unit.logic.planning;
+
+import aima.core.logic.planning.GroundAction;
+import aima.core.logic.planning.GroundProblem;
+import aima.core.logic.planning.PlanningGraph;
+import aima.core.logic.planning.PlanningProblemFactory;
+import aima.core.logic.planning.Utils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PlanningGraphTest {
+    private GroundProblem problem;
+    private PlanningGraph graph;
+
+    @Before
+    public void setup() {
+        problem = new GroundProblem(PlanningProblemFactory.spareTireProblem());
+        graph = new PlanningGraph(problem);
+    }
+
+    @Test
+    public void testInitialLevel() {
+        Assert.assertEquals(1, graph.numLevels());
+        Assert.assertTrue(graph.containsProposition(0, prop("At(Spare,Trunk)", true)));
+        Assert.assertTrue(graph.containsProposition(0, prop("At(Spare,Ground)", false)));
+        Assert.assertFalse(graph.containsProposition(0, prop("At(Spare,Ground)", true)));
+        Assert.assertFalse(graph.isLeveledOff());
+    }
+
+    @Test
+    public void testMutexes() {
+        graph.expand();
+        int removeSpare = action("Remove(Spare,Trunk)");
+        int removeFlat = action("Remove(Flat,Axle)");
+        int leaveOvernight = action("LeaveOvernight()");
+        int spareInTrunk = prop("At(Spare,Trunk)", true);
+        int spareOnGround = prop("At(Spare,Ground)", true);
+        Assert.assertTrue(graph.containsAction(0, removeSpare));
+        Assert.assertFalse(graph.containsAction(0, action("PutOn(Spare,Axle)")));
+        // interference with the persistence of its precondition
+        Assert.assertTrue(graph.isActionMutex(0, removeSpare, graph.getAchievers(spareInTrunk)[0]));
+        Assert.assertTrue(graph.isActionMutex(0, removeSpare, leaveOvernight));
+        Assert.assertFalse(graph.isActionMutex(0, removeSpare, removeFlat));
+        // inconsistent support
+        Assert.assertTrue(graph.containsProposition(1, spareOnGround));
+        Assert.assertTrue(graph.isPropositionMutex(1, spareOnGround, spareInTrunk));
+        Assert.assertTrue(graph.isPropositionMutex(1, spareInTrunk, spareOnGround));
+        Assert.assertFalse(graph.isPropositionMutex(1, spareOnGround, prop("At(Flat,Axle)", false)));
+        Assert.assertTrue(graph.isPropositionMutex(1, spareInTrunk, prop("At(Spare,Trunk)", false)));
+    }
+
+    @Test
+    public void testGoalLevelAndLevelOff() {
+        int[] goals = graph.getGoalPropositions();
+        Assert.assertFalse(graph.containsNonMutex(0, goals));
+        graph.expand();
+        Assert.assertFalse(graph.containsNonMutex(1, goals));
+        graph.expand();
+        Assert.assertTrue(graph.containsNonMutex(2, goals));
+        int levels = 2;
+        while (!graph.isLeveledOff()) {
+            graph.expand();
+            Assert.assertTrue(++levels < 10);
+        }
+        // no new actions once the graph has leveled off
+        int n = graph.numLevels();
+        Assert.assertEquals(graph.getActions(n - 3).length, graph.getActions(n - 2).length);
+    }
+
+    private int prop(String fluent, boolean positive) {
+        return graph.toProposition(problem.getFluentIndex(Utils.parse(fluent).get(0)), positive);
+    }
+
+    private int action(String name) {
+        for (GroundAction a : problem.getActions())
+            if (a.toString().equals(name))
+                return a.getId();
+        throw new IllegalArgumentException(name);
+    }
+}
@@ -14,11 +14,14 @@ import aima.test.core.unit.probability.bayes.impl.CPTTest;
 import aima.test.core.unit.probability.bayes.model.FiniteBayesModelTest;
 import aima.test.core.unit.probability.full.FullJointProbabilityModelTest;
 import aima.test.core.unit.probability.hmm.exact.FixedLagSmoothingTest;
+import aima.test.core.unit.probability.hmm.exact.HMMArrayForwardBackwardTest;
+import aima.test.core.unit.probability.hmm.exact.HMMBatchFilterTest;
 import aima.test.core.unit.probability.hmm.exact.HMMForwardBackwardConstantSpaceTest;
 import aima.test.core.unit.probability.hmm.exact.HMMForwardBackwardTest;
 import aima.test.core.unit.probability.mdp.MarkovDecisionProcessTest;
 import aima.test.core.unit.probability.mdp.PolicyIterationTest;
 import aima.test.core.unit.probability.mdp.ValueIterationTest;
+import aima.test.core.unit.probability.temporal.generic.DBNForwardBackwardTest;
 import aima.test.core.unit.probability.temporal.generic.ForwardBackwardTest;
 import aima.test.core.unit.probability.util.ProbUtilTest;
 import aima.test.core.unit.probability.util.ProbabilityTableTest;
@@ -33,7 +36,8 @@ import aima.test.core.unit.probability.util.ProbabilityTableTest;
 		HMMForwardBackwardTest.class, MarkovDecisionProcessTest.class,
 		PolicyIterationTest.class, ValueIterationTest.class,
 		ForwardBackwardTest.class, ProbUtilTest.class,
-		ProbabilityTableTest.class })
+		ProbabilityTableTest.class, HMMArrayForwardBackwardTest.class,
+		HMMBatchFilterTest.class, DBNForwardBackwardTest.class })
 public class ProbabilityTestSuite {
 
 }
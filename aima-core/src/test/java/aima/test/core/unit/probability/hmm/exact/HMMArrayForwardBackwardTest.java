@@ -0,0 +1,249 @@
+package aima.test.core.unit.probability.hmm.exact;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.probability.CategoricalDistribution;
+import aima.core.probability.domain.FiniteIntegerDomain;
+import aima.core.probability.example.HMMExampleFactory;
+import aima.core.probability.hmm.HiddenMarkovModel;
+import aima.core.probability.hmm.exact.HMMArrayForwardBackward;
+import aima.core.probability.hmm.exact.HMMForwardBackward;
+import aima.core.probability.hmm.impl.HMM;
+import aima.core.probability.proposition.AssignmentProposition;
+import aima.core.probability.util.RandVar;
+import aima.core.util.math.Matrix;
+import aima.test.core.unit.probability.temporal.CommonForwardBackwardTest;
+
+public class HMMArrayForwardBackwardTest extends CommonForwardBackwardTest {
+
+	private static final RandVar EVIDENCE_RV = new RandVar("E", new FiniteIntegerDomain(0, 1, 2));
+
+	private HMMArrayForwardBackward uw = null;
+
+	@Before
+	public void setUp() {
+		uw = new HMMArrayForwardBackward(HMMExampleFactory.getUmbrellaWorldModel());
+	}
+
+	@Test
+	public void testForwardStep_UmbrellaWorld() {
+		super.testForwardStep_UmbrellaWorld(uw);
+	}
+
+	@Test
+	public void testBackwardStep_UmbrellaWorld() {
+		super.testBackwardStep_UmbrellaWorld(uw);
+	}
+
+	@Test
+	public void testForwardBackward_UmbrellaWorld() {
+		super.testForwardBackward_UmbrellaWorld(uw);
+	}
+
+	@Test
+	public void testViterbi_UmbrellaWorld() {
+		// AIMA3e pg. 577, umbrella on all days but the third
+		int t = uw.getEvidenceIndex(Boolean.TRUE);
+		int f = uw.getEvidenceIndex(Boolean.FALSE);
+		int[] path = new int[5];
+		double logP = uw.viterbi(new int[] { t, t, f, t, t }, 5, uw.getPrior(), path);
+		Assert.assertArrayEquals(new int[] { 0, 0, 1, 0, 0 }, path);
+		// m1:5 = <.0210, .0024> starting with the normalized m1:1 = <.818, .182>
+		Assert.assertEquals(0.0210, Math.exp(logP) / 0.55, 1e-4);
+	}
+
+	@Test
+	public void testSparseModelAgainstMatrixImplementation() {
+		Random random = new Random(3);
+		HiddenMarkovModel hmm = createRandomModel(random, 12, 2);
+		HMMArrayForwardBackward engine = new HMMArrayForwardBackward(hmm);
+		Assert.assertTrue(engine.isSparse());
+		Assert.assertFalse(uw.isSparse());
+		compareWithMatrixImplementation(hmm, engine, random);
+	}
+
+	@Test
+	public void testDenseModelAgainstMatrixImplementation() {
+		Random random = new Random(5);
+		HiddenMarkovModel hmm = createRandomModel(random, 6, 6);
+		HMMArrayForwardBackward engine = new HMMArrayForwardBackward(hmm);
+		Assert.assertFalse(engine.isSparse());
+		compareWithMatrixImplementation(hmm, engine, random);
+	}
+
+	/**
+	 * Compares likelihood and most likely path with an enumeration of all
+	 * state sequences.
+	 */
+	@Test
+	public void testAgainstEnumeration() {
+		Random random = new Random(11);
+		for (int n = 0; n < 20; n++) {
+			int states = 2 + random.nextInt(3);
+			HiddenMarkovModel hmm = createRandomModel(random, states, 1 + random.nextInt(states));
+			HMMArrayForwardBackward engine = new HMMArrayForwardBackward(hmm);
+			int length = 1 + random.nextInt(5);
+			int[] values = randomValues(random, length);
+			int[] ev = toIndices(engine, values);
+			double[] prior = engine.getPrior();
+
+			double likelihood = 0;
+			double best = 0;
+			int[] states1ToT = new int[length];
+			int[] bestPath = null;
+			for (int code = 0; code < Math.pow(states, length); code++) {
+				int c = code;
+				for (int i = 0; i < length; i++, c /= states)
+					states1ToT[i] = c % states;
+				double p = 0;
+				for (int x0 = 0; x0 < states; x0++)
+					p += prior[x0] * hmm.getTransitionModel().get(x0, states1ToT[0]);
+				for (int i = 0; i < length; i++) {
+					if (i > 0)
+						p *= hmm.getTransitionModel().get(states1ToT[i - 1], states1ToT[i]);
+					p *= hmm.getSensorModel().get(values[i]).get(states1ToT[i], states1ToT[i]);
+				}
+				likelihood += p;
+				if (p > best) {
+					best = p;
+					bestPath = states1ToT.clone();
+				}
+			}
+
+			double[] smoothed = new double[length * states];
+			Assert.assertEquals(Math.log(likelihood), engine.forwardBackward(ev, length, prior, smoothed), 1e-9);
+			Assert.assertEquals(Math.log(likelihood), engine.filter(ev, length, prior, new double[states]), 1e-9);
+			int[] path = new int[length];
+			Assert.assertEquals(Math.log(best), engine.viterbi(ev, length, prior, path), 1e-9);
+			Assert.assertArrayEquals(bestPath, path);
+		}
+	}
+
+	@Test
+	public void testLongSequence() {
+		Random random = new Random(7);
+		HiddenMarkovModel hmm = createRandomModel(random, 8, 3);
+		HMMArrayForwardBackward engine = new HMMArrayForwardBackward(hmm);
+		int length = 20000;
+		int[] ev = toIndices(engine, randomValues(random, length));
+		double[] smoothed = new double[length * 8];
+		double logLikelihood = engine.forwardBackward(ev, length, engine.getPrior(), smoothed);
+		// the likelihood itself underflows
+		Assert.assertTrue(logLikelihood < -1000);
+		Assert.assertFalse(Double.isInfinite(logLikelihood));
+		for (int i = 0; i < length; i++) {
+			double sum = 0;
+			for (int j = 0; j < 8; j++) {
+				Assert.assertFalse(Double.isNaN(smoothed[i * 8 + j]));
+				sum += smoothed[i * 8 + j];
+			}
+			Assert.assertEquals(1.0, sum, 1e-9);
+		}
+		int[] path = new int[length];
+		Assert.assertFalse(Double.isInfinite(engine.viterbi(ev, length, engine.getPrior(), path)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownEvidence() {
+		uw.getEvidenceIndex("snow");
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private void compareWithMatrixImplementation(HiddenMarkovModel hmm, HMMArrayForwardBackward engine,
+			Random random) {
+		HMMForwardBackward reference = new HMMForwardBackward(hmm);
+		CategoricalDistribution prior = hmm.convert(hmm.getPrior());
+		int states = engine.getStateCount();
+		for (int n = 0; n < 10; n++) {
+			int length = 1 + random.nextInt(40);
+			int[] values = randomValues(random, length);
+			int[] ev = toIndices(engine, values);
+			List<List<AssignmentProposition>> evidence = new ArrayList<List<AssignmentProposition>>();
+			for (int value : values) {
+				List<AssignmentProposition> step = new ArrayList<AssignmentProposition>();
+				step.add(new AssignmentProposition(EVIDENCE_RV, value));
+				evidence.add(step);
+			}
+			List<CategoricalDistribution> expected = reference.forwardBackward(evidence, prior);
+			double[] smoothed = new double[length * states];
+			engine.forwardBackward(ev, length, engine.getPrior(), smoothed);
+			for (int i = 0; i < length; i++)
+				for (int j = 0; j < states; j++)
+					Assert.assertEquals(expected.get(i).getValues()[j], smoothed[i * states + j], 1e-9);
+
+			List<CategoricalDistribution> adapted = engine.forwardBackward(evidence, prior);
+			for (int i = 0; i < length; i++)
+				Assert.assertArrayEquals(expected.get(i).getValues(), adapted.get(i).getValues(), 1e-9);
+
+			double[] f = new double[states];
+			engine.filter(ev, length, engine.getPrior(), f);
+			Assert.assertArrayEquals(expected.get(length - 1).getValues(), f, 1e-9);
+		}
+	}
+
+	/**
+	 * Creates a model in which each state has the given number of successors
+	 * and every evidence value has a positive probability in every state.
+	 */
+	static HiddenMarkovModel createRandomModel(Random random, int states, int successors) {
+		Integer[] values = new Integer[states];
+		for (int i = 0; i < states; i++)
+			values[i] = i;
+		RandVar stateRV = new RandVar("X", new FiniteIntegerDomain(values));
+		double[][] t = new double[states][states];
+		for (int i = 0; i < states; i++) {
+			double[] row = new double[states];
+			for (int k = 0; k < successors; k++)
+				row[(i + k) % states] = 0.1 + random.nextDouble();
+			double sum = 0;
+			for (double v : row)
+				sum += v;
+			for (int j = 0; j < states; j++)
+				t[i][j] = row[j] / sum;
+		}
+		double[][] o = new double[3][states];
+		for (int i = 0; i < states; i++) {
+			double sum = 0;
+			for (int e = 0; e < 3; e++) {
+				o[e][i] = 0.1 + random.nextDouble();
+				sum += o[e][i];
+			}
+			for (int e = 0; e < 3; e++)
+				o[e][i] /= sum;
+		}
+		Map<Object, Matrix> sensorModel = new HashMap<Object, Matrix>();
+		for (int e = 0; e < 3; e++) {
+			Matrix m = new Matrix(states, states);
+			for (int i = 0; i < states; i++)
+				m.set(i, i, o[e][i]);
+			sensorModel.put(e, m);
+		}
+		double[] prior = new double[states];
+		prior[random.nextInt(states)] = 1.0;
+		return new HMM(stateRV, new Matrix(t), sensorModel, new Matrix(prior, states));
+	}
+
+	private static int[] randomValues(Random random, int length) {
+		int[] values = new int[length];
+		for (int i = 0; i < length; i++)
+			values[i] = random.nextInt(3);
+		return values;
+	}
+
+	private static int[] toIndices(HMMArrayForwardBackward engine, int[] values) {
+		int[] ev = new int[values.length];
+		for (int i = 0; i < values.length; i++)
+			ev[i] = engine.getEvidenceIndex((Object) values[i]);
+		return ev;
+	}
+}
@@ -0,0 +1,176 @@
+package aima.test.core.unit.probability.hmm.exact;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import aima.core.probability.example.HMMExampleFactory;
+import aima.core.probability.hmm.HiddenMarkovModel;
+import aima.core.probability.hmm.exact.HMMArrayForwardBackward;
+import aima.core.probability.hmm.exact.HMMBatchFilter;
+
+public class HMMBatchFilterTest {
+	public static final double DELTA_THRESHOLD = 1e-3;
+
+	@Test
+	public void testUmbrellaWorld() {
+		HMMBatchFilter filter = new HMMBatchFilter(HMMExampleFactory.getUmbrellaWorldModel());
+		filter.addTrack("a");
+		filter.addTrack("b");
+		filter.observe("a", Boolean.TRUE);
+		filter.observe("a", Boolean.TRUE);
+		filter.observe("b", Boolean.FALSE);
+
+		Assert.assertEquals(2, filter.step());
+		Assert.assertArrayEquals(new double[] { 0.818, 0.182 }, filter.getFiltered("a").getValues(),
+				DELTA_THRESHOLD);
+		Assert.assertArrayEquals(new double[] { 0.111, 0.889 }, filter.getFiltered("b").getValues(),
+				DELTA_THRESHOLD);
+		Assert.assertTrue(filter.hasPendingEvidence());
+
+		// the second observation of track a is still pending
+		Assert.assertEquals(1, filter.step());
+		Assert.assertArrayEquals(new double[] { 0.883, 0.117 }, filter.getFiltered("a").getValues(),
+				DELTA_THRESHOLD);
+		Assert.assertArrayEquals(new double[] { 0.111, 0.889 }, filter.getFiltered("b").getValues(),
+				DELTA_THRESHOLD);
+		Assert.assertEquals(2, filter.getTime("a"));
+		Assert.assertEquals(1, filter.getTime("b"));
+		Assert.assertFalse(filter.hasPendingEvidence());
+		Assert.assertEquals(0, filter.step());
+
+		Assert.assertEquals(3, filter.getMetrics().getInt(HMMBatchFilter.METRIC_STEPS));
+		Assert.assertEquals(0, filter.getMetrics().getInt(HMMBatchFilter.METRIC_UPDATED_TRACKS));
+		Assert.assertTrue(filter.getMetrics().getLong(HMMBatchFilter.METRIC_MAX_STEP_TIME) > 0);
+	}
+
+	@Test
+	public void testSequentialAgainstSingleTrackFiltering() {
+		testAgainstSingleTrackFiltering(null);
+	}
+
+	@Test
+	public void testParallelAgainstSingleTrackFiltering() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			testAgainstSingleTrackFiltering(pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testConcurrentObservations() throws InterruptedException {
+		HiddenMarkovModel hmm = HMMArrayForwardBackwardTest.createRandomModel(new Random(1), 5, 3);
+		HMMArrayForwardBackward engine = new HMMArrayForwardBackward(hmm);
+		final HMMBatchFilter filter = new HMMBatchFilter(hmm);
+		final int threads = 4;
+		final int tracksPerThread = 50;
+		final int length = 30;
+		for (int i = 0; i < threads * tracksPerThread; i++)
+			filter.addTrack(i);
+		List<Thread> producers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			final int first = t * tracksPerThread;
+			producers.add(new Thread(() -> {
+				for (int step = 0; step < length; step++)
+					for (int i = first; i < first + tracksPerThread; i++)
+						filter.observe(i, (i + step) % 3);
+			}));
+		}
+		for (Thread producer : producers)
+			producer.start();
+		while (producers.stream().anyMatch(Thread::isAlive) || filter.hasPendingEvidence())
+			filter.step();
+		for (Thread producer : producers)
+			producer.join();
+		while (filter.hasPendingEvidence())
+			filter.step();
+
+		double[] expected = new double[5];
+		double[] actual = new double[5];
+		for (int i = 0; i < threads * tracksPerThread; i++) {
+			int[] ev = new int[length];
+			for (int step = 0; step < length; step++)
+				ev[step] = engine.getEvidenceIndex((Object) ((i + step) % 3));
+			engine.filter(ev, length, engine.getPrior(), expected);
+			filter.getMessage(i, actual);
+			Assert.assertEquals(length, filter.getTime(i));
+			Assert.assertArrayEquals(expected, actual, 1e-9);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownTrack() {
+		HMMBatchFilter filter = new HMMBatchFilter(HMMExampleFactory.getUmbrellaWorldModel());
+		filter.observe("a", Boolean.TRUE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateTrack() {
+		HMMBatchFilter filter = new HMMBatchFilter(HMMExampleFactory.getUmbrellaWorldModel());
+		filter.addTrack("a");
+		filter.addTrack("a");
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	/**
+	 * Feeds random evidence of random length to many tracks, removing and
+	 * adding tracks on the way, and compares the results with filtering each
+	 * track on its own.
+	 */
+	private void testAgainstSingleTrackFiltering(ForkJoinPool pool) {
+		Random random = new Random(17);
+		HiddenMarkovModel hmm = HMMArrayForwardBackwardTest.createRandomModel(random, 7, 3);
+		HMMArrayForwardBackward engine = new HMMArrayForwardBackward(hmm);
+		HMMBatchFilter filter = new HMMBatchFilter(hmm);
+		filter.setPool(pool);
+		int tracks = 1000;
+		List<List<Integer>> evidence = new ArrayList<List<Integer>>();
+		for (int i = 0; i < tracks; i++) {
+			filter.addTrack(i);
+			evidence.add(new ArrayList<Integer>());
+		}
+		for (int step = 0; step < 50; step++) {
+			for (int i = 0; i < tracks; i++) {
+				if (random.nextInt(4) != 0) {
+					int value = random.nextInt(3);
+					filter.observe(i, value);
+					evidence.get(i).add(value);
+				}
+			}
+			if (step == 20) {
+				// restart every tenth track
+				for (int i = 0; i < tracks; i += 10) {
+					Assert.assertTrue(filter.removeTrack(i));
+					filter.addTrack(i);
+					evidence.get(i).clear();
+				}
+			}
+			filter.step();
+		}
+		while (filter.hasPendingEvidence())
+			filter.step();
+		Assert.assertEquals(tracks, filter.getTrackCount());
+
+		double[] expected = new double[7];
+		double[] actual = new double[7];
+		for (int i = 0; i < tracks; i++) {
+			List<Integer> values = evidence.get(i);
+			int[] ev = new int[values.size()];
+			for (int j = 0; j < ev.length; j++)
+				ev[j] = engine.getEvidenceIndex((Object) values.get(j));
+			double logLikelihood = engine.filter(ev, ev.length, engine.getPrior(), expected);
+			filter.getMessage(i, actual);
+			Assert.assertArrayEquals(expected, actual, 1e-9);
+			Assert.assertEquals(logLikelihood, filter.getLogLikelihood(i), 1e-9);
+			Assert.assertEquals(ev.length, filter.getTime(i));
+		}
+	}
+}
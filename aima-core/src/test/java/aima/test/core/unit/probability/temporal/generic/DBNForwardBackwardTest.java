@@ -0,0 +1,224 @@
+package aima.test.core.unit.probability.temporal.generic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.probability.CategoricalDistribution;
+import aima.core.probability.RandomVariable;
+import aima.core.probability.bayes.FiniteNode;
+import aima.core.probability.bayes.impl.BayesNet;
+import aima.core.probability.bayes.impl.DynamicBayesNet;
+import aima.core.probability.bayes.impl.FullCPTNode;
+import aima.core.probability.domain.BooleanDomain;
+import aima.core.probability.example.DynamicBayesNetExampleFactory;
+import aima.core.probability.example.ExampleRV;
+import aima.core.probability.proposition.AssignmentProposition;
+import aima.core.probability.temporal.generic.DBNForwardBackward;
+import aima.core.probability.util.ProbabilityTable;
+import aima.core.probability.util.RandVar;
+import aima.test.core.unit.probability.temporal.CommonForwardBackwardTest;
+
+public class DBNForwardBackwardTest extends CommonForwardBackwardTest {
+
+	private static final RandVar A_tm1 = new RandVar("A_t-1", new BooleanDomain());
+	private static final RandVar A_t = new RandVar("A_t", new BooleanDomain());
+	private static final RandVar B_tm1 = new RandVar("B_t-1", new BooleanDomain());
+	private static final RandVar B_t = new RandVar("B_t", new BooleanDomain());
+	private static final RandVar C_t = new RandVar("C_t", new BooleanDomain());
+	private static final RandVar D_t = new RandVar("D_t", new BooleanDomain());
+	private static final Boolean[] VALUES = { Boolean.TRUE, Boolean.FALSE };
+
+	private DBNForwardBackward uw = null;
+
+	// nodes of the factored network
+	private FiniteNode priorA, priorB, a1, b1, c1, d1;
+	private DynamicBayesNet factored;
+
+	@Before
+	public void setUp() {
+		uw = new DBNForwardBackward(DynamicBayesNetExampleFactory.getUmbrellaWorldNetwork());
+
+		priorA = new FullCPTNode(A_tm1, new double[] { 0.6, 0.4 });
+		priorB = new FullCPTNode(B_tm1, new double[] { 0.5, 0.5, 0.1, 0.9 }, priorA);
+		FiniteNode a0 = new FullCPTNode(A_tm1, new double[] { 0.6, 0.4 });
+		FiniteNode b0 = new FullCPTNode(B_tm1, new double[] { 0.3, 0.7 });
+		a1 = new FullCPTNode(A_t, new double[] { 0.8, 0.2, 0.25, 0.75 }, a0);
+		// B_t depends on the previous slice and on A_t in the same slice
+		b1 = new FullCPTNode(B_t, new double[] { 0.9, 0.1, 0.6, 0.4, 0.3, 0.7, 0.05, 0.95 }, b0, a1);
+		c1 = new FullCPTNode(C_t, new double[] { 0.9, 0.1, 0.3, 0.7 }, a1);
+		// D_t depends on the evidence variable C_t
+		d1 = new FullCPTNode(D_t, new double[] { 0.7, 0.3, 0.4, 0.6, 0.2, 0.8, 0.5, 0.5 }, b1, c1);
+		Map<RandomVariable, RandomVariable> X_0_to_X_1 = new HashMap<RandomVariable, RandomVariable>();
+		X_0_to_X_1.put(A_tm1, A_t);
+		X_0_to_X_1.put(B_tm1, B_t);
+		Set<RandomVariable> E_1 = new HashSet<RandomVariable>();
+		E_1.add(C_t);
+		E_1.add(D_t);
+		factored = new DynamicBayesNet(new BayesNet(priorA), X_0_to_X_1, E_1, a0, b0);
+	}
+
+	@Test
+	public void testForwardStep_UmbrellaWorld() {
+		super.testForwardStep_UmbrellaWorld(uw);
+	}
+
+	@Test
+	public void testBackwardStep_UmbrellaWorld() {
+		super.testBackwardStep_UmbrellaWorld(uw);
+	}
+
+	@Test
+	public void testForwardBackward_UmbrellaWorld() {
+		super.testForwardBackward_UmbrellaWorld(uw);
+	}
+
+	@Test
+	public void testOnlineFiltering_UmbrellaWorld() {
+		List<AssignmentProposition> umbrella = new ArrayList<AssignmentProposition>();
+		umbrella.add(new AssignmentProposition(ExampleRV.UMBREALLA_t_RV, Boolean.TRUE));
+		// P(u1) = 0.5 * 0.9 + 0.5 * 0.2
+		Assert.assertEquals(Math.log(0.55), uw.step(umbrella), 1e-9);
+		Assert.assertArrayEquals(new double[] { 0.818, 0.182 }, uw.getBelief().getValues(), DELTA_THRESHOLD);
+		uw.step(umbrella);
+		Assert.assertArrayEquals(new double[] { 0.883, 0.117 }, uw.getBelief().getValues(), DELTA_THRESHOLD);
+		Assert.assertEquals(2, uw.getTime());
+
+		uw.reset();
+		Assert.assertEquals(0, uw.getTime());
+		Assert.assertEquals(0.0, uw.getLogLikelihood(), 0.0);
+		Assert.assertArrayEquals(new double[] { 0.5, 0.5 }, uw.getBelief().getValues(), 0.0);
+		// without evidence the belief is only predicted
+		uw.step(new ArrayList<AssignmentProposition>());
+		Assert.assertArrayEquals(new double[] { 0.5, 0.5 }, uw.getBelief().getValues(), 1e-9);
+		Assert.assertEquals(0.0, uw.getLogLikelihood(), 1e-9);
+	}
+
+	/**
+	 * Compares filtering and smoothing in a network with two state and two
+	 * evidence variables and partially observed evidence with an enumeration
+	 * of all state sequences.
+	 */
+	@Test
+	public void testFactoredNetworkAgainstEnumeration() {
+		DBNForwardBackward dbnFB = new DBNForwardBackward(factored);
+		Assert.assertEquals(4, dbnFB.getStateCount());
+		Random random = new Random(13);
+		for (int n = 0; n < 20; n++) {
+			int length = 1 + random.nextInt(4);
+			List<List<AssignmentProposition>> ev = new ArrayList<List<AssignmentProposition>>();
+			for (int i = 0; i < length; i++) {
+				List<AssignmentProposition> e = new ArrayList<AssignmentProposition>();
+				if (random.nextInt(3) != 0)
+					e.add(new AssignmentProposition(C_t, random.nextBoolean()));
+				if (random.nextInt(3) != 0)
+					e.add(new AssignmentProposition(D_t, random.nextBoolean()));
+				ev.add(e);
+			}
+
+			// joint probabilities of all sequences x0,...,xt of states 0..3
+			int sequences = 1 << (2 * (length + 1));
+			double[] joint = new double[sequences];
+			double total = 0;
+			for (int code = 0; code < sequences; code++) {
+				double p = prior(code & 3);
+				for (int i = 1; i <= length; i++) {
+					int from = (code >> (2 * (i - 1))) & 3;
+					int to = (code >> (2 * i)) & 3;
+					p *= transition(from, to) * likelihood(to, ev.get(i - 1));
+				}
+				joint[code] = p;
+				total += p;
+			}
+
+			dbnFB.reset();
+			for (List<AssignmentProposition> e : ev)
+				dbnFB.step(e);
+			Assert.assertEquals(Math.log(total), dbnFB.getLogLikelihood(), 1e-9);
+			Assert.assertEquals(length, dbnFB.getTime());
+			assertStateDistribution(marginal(joint, length, total), dbnFB.getBelief());
+
+			ProbabilityTable prior = new ProbabilityTable(A_tm1, B_tm1);
+			for (int s = 0; s < 4; s++)
+				prior.setValue(prior.getIndex(a(s), b(s)), prior(s));
+			List<CategoricalDistribution> smoothed = dbnFB.forwardBackward(ev, prior);
+			Assert.assertEquals(length, smoothed.size());
+			for (int k = 1; k <= length; k++)
+				assertStateDistribution(marginal(joint, k, total), smoothed.get(k - 1));
+
+			double[] flat = new double[length * 4];
+			Assert.assertEquals(Math.log(total), dbnFB.forwardBackward(ev, dbnFB.getPrior(), flat), 1e-9);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownEvidenceVariable() {
+		List<AssignmentProposition> e = new ArrayList<AssignmentProposition>();
+		e.add(new AssignmentProposition(ExampleRV.RAIN_t_RV, Boolean.TRUE));
+		uw.step(e);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private static Boolean a(int state) {
+		return VALUES[state >> 1];
+	}
+
+	private static Boolean b(int state) {
+		return VALUES[state & 1];
+	}
+
+	private double prior(int s) {
+		return p(priorA, A_tm1, a(s)) * p(priorB, B_tm1, b(s), A_tm1, a(s));
+	}
+
+	private double transition(int from, int to) {
+		return p(a1, A_t, a(to), A_tm1, a(from)) * p(b1, B_t, b(to), B_tm1, b(from), A_t, a(to));
+	}
+
+	/** P(e | s), summing over unobserved evidence variables. */
+	private double likelihood(int s, List<AssignmentProposition> e) {
+		double sum = 0;
+		for (Boolean c : VALUES) {
+			for (Boolean d : VALUES) {
+				boolean consistent = true;
+				for (AssignmentProposition ap : e) {
+					Object value = ap.getTermVariable().equals(C_t) ? c : d;
+					consistent &= value.equals(ap.getValue());
+				}
+				if (consistent)
+					sum += p(c1, C_t, c, A_t, a(s)) * p(d1, D_t, d, B_t, b(s), C_t, c);
+			}
+		}
+		return sum;
+	}
+
+	private static double p(FiniteNode node, Object... varsAndValues) {
+		AssignmentProposition[] aps = new AssignmentProposition[varsAndValues.length / 2];
+		for (int i = 0; i < aps.length; i++)
+			aps[i] = new AssignmentProposition((RandomVariable) varsAndValues[2 * i], varsAndValues[2 * i + 1]);
+		return node.getCPT().getValue(aps);
+	}
+
+	private static double[] marginal(double[] joint, int k, double total) {
+		double[] result = new double[4];
+		for (int code = 0; code < joint.length; code++)
+			result[(code >> (2 * k)) & 3] += joint[code] / total;
+		return result;
+	}
+
+	private static void assertStateDistribution(double[] expected, CategoricalDistribution actual) {
+		for (int s = 0; s < 4; s++)
+			Assert.assertEquals(expected[s], actual.getValue(new AssignmentProposition(A_t, a(s)),
+					new AssignmentProposition(B_t, b(s))), 1e-9);
+	}
+}
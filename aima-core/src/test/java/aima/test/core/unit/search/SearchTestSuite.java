@@ -8,12 +8,17 @@ import aima.test.core.unit.search.framework.MetricsTest;
 import aima.test.core.unit.search.framework.NodeTest;
 import aima.test.core.unit.search.framework.SolutionTesterTest;
 import aima.test.core.unit.search.informed.AStarSearchTest;
+import aima.test.core.unit.search.informed.BidirectionalAStarSearchTest;
 import aima.test.core.unit.search.informed.GreedyBestFirstSearchTest;
+import aima.test.core.unit.search.informed.IterativeDeepeningAStarSearchTest;
 import aima.test.core.unit.search.informed.RecursiveBestFirstSearchTest;
+import aima.test.core.unit.search.informed.SMAStarSearchTest;
 import aima.test.core.unit.search.local.SimulatedAnnealingSearchTest;
 import aima.test.core.unit.search.nondeterministic.AndOrSearchTest;
+import aima.test.core.unit.search.nondeterministic.MemoizedAndOrSearchTest;
 import aima.test.core.unit.search.online.LRTAStarAgentTest;
 import aima.test.core.unit.search.online.OnlineDFSAgentTest;
+import aima.test.core.unit.search.online.RealTimeSearchAgentTest;
 import aima.test.core.unit.search.uninformed.*;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -24,6 +29,7 @@ import org.junit.runners.Suite;
 		SimulatedAnnealingSearchTest.class, AndOrSearchTest.class, LRTAStarAgentTest.class, OnlineDFSAgentTest.class,
 		BidirectionalSearchTest.class, BreadthFirstSearchTest.class, DepthFirstSearchTest.class,
 		DepthLimitedSearchTest.class, IterativeDeepeningSearchTest.class, UniformCostSearchTest.class, NodeTest.class,
-		SolutionTesterTest.class })
+		SolutionTesterTest.class, RealTimeSearchAgentTest.class, MemoizedAndOrSearchTest.class,
+		BidirectionalAStarSearchTest.class, SMAStarSearchTest.class, IterativeDeepeningAStarSearchTest.class })
 public class SearchTestSuite {
 }
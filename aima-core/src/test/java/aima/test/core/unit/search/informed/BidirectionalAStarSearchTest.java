@@ -0,0 +1,134 @@
+package aima.test.core.unit.search.informed;
+
+import aima.core.agent.Action;
+import aima.core.environment.eightpuzzle.BidirectionalEightPuzzleProblem;
+import aima.core.environment.eightpuzzle.EightPuzzleBoard;
+import aima.core.environment.eightpuzzle.EightPuzzleFunctions;
+import aima.core.environment.map.*;
+import aima.core.search.framework.problem.GeneralProblem;
+import aima.core.search.framework.problem.GoalTest;
+import aima.core.search.framework.problem.Problem;
+import aima.core.search.framework.qsearch.GraphSearch;
+import aima.core.search.informed.AStarSearch;
+import aima.core.search.informed.BidirectionalAStarSearch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+public class BidirectionalAStarSearchTest {
+
+	@Test
+	public void testEightPuzzle() {
+		EightPuzzleBoard board = new EightPuzzleBoard(new int[] { 7, 1, 8, 0, 4, 6, 2, 3, 5 });
+		BidirectionalAStarSearch<EightPuzzleBoard, Action> search = createEightPuzzleSearch(board);
+		Optional<List<Action>> actions = search.findActions(new BidirectionalEightPuzzleProblem(board));
+		Assert.assertTrue(actions.isPresent());
+		Assert.assertEquals(23, actions.get().size());
+		Assert.assertEquals(EightPuzzleFunctions.GOAL_STATE, apply(board, actions.get()));
+		Assert.assertEquals(23.0, search.getMetrics().getDouble(BidirectionalAStarSearch.METRIC_PATH_COST), 0.0);
+		int expanded = search.getMetrics().getInt(BidirectionalAStarSearch.METRIC_NODES_EXPANDED);
+		Assert.assertEquals(expanded,
+				search.getMetrics().getInt(BidirectionalAStarSearch.METRIC_NODES_EXPANDED_FORWARD)
+						+ search.getMetrics().getInt(BidirectionalAStarSearch.METRIC_NODES_EXPANDED_BACKWARD));
+		Assert.assertTrue(expanded > 0);
+	}
+
+	/**
+	 * Compares solution lengths with A* on boards generated by random walks
+	 * from the goal.
+	 */
+	@Test
+	public void testRandomEightPuzzles() {
+		Random random = new Random(7);
+		for (int i = 0; i < 20; i++) {
+			EightPuzzleBoard board = new EightPuzzleBoard(EightPuzzleFunctions.GOAL_STATE);
+			for (int j = 0; j < 40; j++) {
+				List<Action> applicable = EightPuzzleFunctions.getActions(board);
+				board = EightPuzzleFunctions.getResult(board, applicable.get(random.nextInt(applicable.size())));
+			}
+			Problem<EightPuzzleBoard, Action> problem = new BidirectionalEightPuzzleProblem(board);
+			Optional<List<Action>> expected = new AStarSearch<>(new GraphSearch<>(),
+					EightPuzzleFunctions.createManhattanHeuristicFunction()).findActions(problem);
+			BidirectionalAStarSearch<EightPuzzleBoard, Action> search = createEightPuzzleSearch(board);
+			search.setMinStepCost(1.0);
+			Optional<List<Action>> actions = search.findActions(problem);
+			Assert.assertTrue(actions.isPresent());
+			Assert.assertEquals(expected.get().size(), actions.get().size());
+			Assert.assertEquals(EightPuzzleFunctions.GOAL_STATE, apply(board, actions.get()));
+		}
+	}
+
+	@Test
+	public void testRomania() {
+		Map romaniaMap = new SimplifiedRoadMapOfPartOfRomania();
+		String from = SimplifiedRoadMapOfPartOfRomania.ARAD;
+		String to = SimplifiedRoadMapOfPartOfRomania.BUCHAREST;
+		BidirectionalAStarSearch<String, MoveToAction> search = new BidirectionalAStarSearch<>(
+				MapFunctions.createSLDHeuristicFunction(to, romaniaMap),
+				MapFunctions.createSLDHeuristicFunction(from, romaniaMap));
+		Optional<List<MoveToAction>> actions = search.findActions(new BidirectionalMapProblem(romaniaMap, from, to));
+		Assert.assertEquals(
+				"[Action[name=moveTo, location=Sibiu], Action[name=moveTo, location=RimnicuVilcea], Action[name=moveTo, location=Pitesti], Action[name=moveTo, location=Bucharest]]",
+				actions.get().toString());
+		Assert.assertEquals(418.0, search.getMetrics().getDouble(BidirectionalAStarSearch.METRIC_PATH_COST), 0.0);
+	}
+
+	@Test
+	public void testStartingAtGoal() {
+		ExtendableMap map = new ExtendableMap();
+		map.addBidirectionalLink("A", "B", 5.0);
+		BidirectionalAStarSearch<String, MoveToAction> search = new BidirectionalAStarSearch<>(n -> 0.0, n -> 0.0);
+		Optional<List<MoveToAction>> actions = search.findActions(new BidirectionalMapProblem(map, "A", "A"));
+		Assert.assertTrue(actions.isPresent());
+		Assert.assertTrue(actions.get().isEmpty());
+	}
+
+	@Test
+	public void testNoPath() {
+		ExtendableMap map = new ExtendableMap();
+		map.addBidirectionalLink("A", "B", 5.0);
+		map.addBidirectionalLink("B", "C", 5.0);
+		map.addBidirectionalLink("D", "E", 5.0);
+		BidirectionalAStarSearch<String, MoveToAction> search = new BidirectionalAStarSearch<>(n -> 0.0, n -> 0.0);
+		Assert.assertFalse(search.findActions(new BidirectionalMapProblem(map, "A", "E")).isPresent());
+	}
+
+	@Test
+	public void testPrefersCheaperLongerPath() {
+		ExtendableMap map = new ExtendableMap();
+		map.addBidirectionalLink("A", "B", 10.0);
+		map.addBidirectionalLink("A", "C", 2.0);
+		map.addBidirectionalLink("C", "D", 2.0);
+		map.addBidirectionalLink("D", "B", 2.0);
+		BidirectionalAStarSearch<String, MoveToAction> search = new BidirectionalAStarSearch<>(n -> 0.0, n -> 0.0);
+		Optional<List<MoveToAction>> actions = search.findActions(new BidirectionalMapProblem(map, "A", "B"));
+		Assert.assertEquals(
+				"[Action[name=moveTo, location=C], Action[name=moveTo, location=D], Action[name=moveTo, location=B]]",
+				actions.get().toString());
+		Assert.assertEquals(6.0, search.getMetrics().getDouble(BidirectionalAStarSearch.METRIC_PATH_COST), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnidirectionalProblem() {
+		ExtendableMap map = new ExtendableMap();
+		map.addBidirectionalLink("A", "B", 5.0);
+		new BidirectionalAStarSearch<String, MoveToAction>(n -> 0.0, n -> 0.0).findActions(
+				new GeneralProblem<>("A", MapFunctions.createActionsFunction(map),
+						MapFunctions.createResultFunction(), GoalTest.forState("B")));
+	}
+
+	private static BidirectionalAStarSearch<EightPuzzleBoard, Action> createEightPuzzleSearch(
+			EightPuzzleBoard initialState) {
+		return new BidirectionalAStarSearch<>(EightPuzzleFunctions.createManhattanHeuristicFunction(),
+				EightPuzzleFunctions.createManhattanHeuristicFunction(initialState));
+	}
+
+	private static EightPuzzleBoard apply(EightPuzzleBoard board, List<Action> actions) {
+		for (Action action : actions)
+			board = EightPuzzleFunctions.getResult(board, action);
+		return board;
+	}
+}
@@ -0,0 +1,73 @@
+package aima.test.core.unit.search.informed;
+
+import aima.core.agent.Action;
+import aima.core.environment.eightpuzzle.BidirectionalEightPuzzleProblem;
+import aima.core.environment.eightpuzzle.EightPuzzleBoard;
+import aima.core.environment.eightpuzzle.EightPuzzleFunctions;
+import aima.core.environment.map.*;
+import aima.core.search.framework.problem.GeneralProblem;
+import aima.core.search.framework.problem.GoalTest;
+import aima.core.search.framework.problem.Problem;
+import aima.core.search.informed.IterativeDeepeningAStarSearch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+public class IterativeDeepeningAStarSearchTest {
+
+	@Test
+	public void testEightPuzzle() {
+		EightPuzzleBoard board = new EightPuzzleBoard(new int[] { 7, 1, 8, 0, 4, 6, 2, 3, 5 });
+		Problem<EightPuzzleBoard, Action> problem = new BidirectionalEightPuzzleProblem(board);
+		IterativeDeepeningAStarSearch<EightPuzzleBoard, Action> search = new IterativeDeepeningAStarSearch<>(
+				EightPuzzleFunctions.createManhattanHeuristicFunction());
+		Optional<List<Action>> actions = search.findActions(problem);
+		Assert.assertEquals(23, actions.get().size());
+		Assert.assertEquals(23.0, search.getMetrics().getDouble(IterativeDeepeningAStarSearch.METRIC_PATH_COST), 0.0);
+		int expanded = search.getMetrics().getInt(IterativeDeepeningAStarSearch.METRIC_NODES_EXPANDED);
+		Assert.assertTrue(search.getMetrics().getInt(IterativeDeepeningAStarSearch.METRIC_REEXPANSIONS) > 0);
+		Assert.assertTrue(search.getMetrics().getInt(IterativeDeepeningAStarSearch.METRIC_ITERATIONS) > 1);
+
+		// duplicate pruning
+		search.setTranspositionTableSize(1 << 12);
+		actions = search.findActions(problem);
+		Assert.assertEquals(23, actions.get().size());
+		Assert.assertTrue(search.getMetrics().getInt(IterativeDeepeningAStarSearch.METRIC_NODES_EXPANDED) < expanded);
+
+		// a tiny table with many collisions still finds an optimal solution
+		search.setTranspositionTableSize(3);
+		Assert.assertEquals(23, search.findActions(problem).get().size());
+	}
+
+	@Test
+	public void testRomania() {
+		Map romaniaMap = new SimplifiedRoadMapOfPartOfRomania();
+		Problem<String, MoveToAction> problem = new GeneralProblem<>(SimplifiedRoadMapOfPartOfRomania.ARAD,
+				MapFunctions.createActionsFunction(romaniaMap), MapFunctions.createResultFunction(),
+				GoalTest.forState(SimplifiedRoadMapOfPartOfRomania.BUCHAREST),
+				MapFunctions.createDistanceStepCostFunction(romaniaMap));
+		IterativeDeepeningAStarSearch<String, MoveToAction> search = new IterativeDeepeningAStarSearch<>(
+				MapFunctions.createSLDHeuristicFunction(SimplifiedRoadMapOfPartOfRomania.BUCHAREST, romaniaMap));
+		search.setTranspositionTableSize(64);
+		Assert.assertEquals(
+				"[Action[name=moveTo, location=Sibiu], Action[name=moveTo, location=RimnicuVilcea], Action[name=moveTo, location=Pitesti], Action[name=moveTo, location=Bucharest]]",
+				search.findActions(problem).get().toString());
+		Assert.assertEquals(418.0, search.getMetrics().getDouble(IterativeDeepeningAStarSearch.METRIC_PATH_COST), 0.0);
+	}
+
+	@Test
+	public void testNoPath() {
+		ExtendableMap map = new ExtendableMap();
+		map.addBidirectionalLink("A", "B", 5.0);
+		map.addBidirectionalLink("B", "C", 5.0);
+		map.addBidirectionalLink("C", "A", 5.0);
+		map.addBidirectionalLink("D", "E", 5.0);
+		Problem<String, MoveToAction> problem = new GeneralProblem<>("A", MapFunctions.createActionsFunction(map),
+				MapFunctions.createResultFunction(), GoalTest.forState("E"),
+				MapFunctions.createDistanceStepCostFunction(map));
+		IterativeDeepeningAStarSearch<String, MoveToAction> search = new IterativeDeepeningAStarSearch<>(n -> 0.0);
+		Assert.assertFalse(search.findActions(problem).isPresent());
+	}
+}
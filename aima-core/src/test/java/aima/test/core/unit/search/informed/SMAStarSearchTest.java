@@ -0,0 +1,83 @@
+package aima.test.core.unit.search.informed;
+
+import aima.core.agent.Action;
+import aima.core.environment.eightpuzzle.BidirectionalEightPuzzleProblem;
+import aima.core.environment.eightpuzzle.EightPuzzleBoard;
+import aima.core.environment.eightpuzzle.EightPuzzleFunctions;
+import aima.core.environment.map.*;
+import aima.core.search.framework.problem.GeneralProblem;
+import aima.core.search.framework.problem.GoalTest;
+import aima.core.search.framework.problem.Problem;
+import aima.core.search.informed.SMAStarSearch;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+public class SMAStarSearchTest {
+
+	@Test
+	public void testEightPuzzle() {
+		EightPuzzleBoard board = new EightPuzzleBoard(new int[] { 7, 1, 8, 0, 4, 6, 2, 3, 5 });
+		Problem<EightPuzzleBoard, Action> problem = new BidirectionalEightPuzzleProblem(board);
+		SMAStarSearch<EightPuzzleBoard, Action> search = new SMAStarSearch<>(
+				EightPuzzleFunctions.createManhattanHeuristicFunction(), 60);
+		Optional<List<Action>> actions = search.findActions(problem);
+		Assert.assertEquals(23, actions.get().size());
+		Assert.assertEquals(23.0, search.getMetrics().getDouble(SMAStarSearch.METRIC_PATH_COST), 0.0);
+		// the budget is exceeded by at most the successors of one node (branching factor 4)
+		int maxNodesInMemory = search.getMetrics().getInt(SMAStarSearch.METRIC_MAX_NODES_IN_MEMORY);
+		Assert.assertTrue(maxNodesInMemory > 60);
+		Assert.assertTrue(maxNodesInMemory <= 60 + 4);
+		Assert.assertTrue(search.getMetrics().getInt(SMAStarSearch.METRIC_REEXPANSIONS) > 0);
+	}
+
+	@Test
+	public void testRomania() {
+		Map romaniaMap = new SimplifiedRoadMapOfPartOfRomania();
+		Problem<String, MoveToAction> problem = new GeneralProblem<>(SimplifiedRoadMapOfPartOfRomania.ARAD,
+				MapFunctions.createActionsFunction(romaniaMap), MapFunctions.createResultFunction(),
+				GoalTest.forState(SimplifiedRoadMapOfPartOfRomania.BUCHAREST),
+				MapFunctions.createDistanceStepCostFunction(romaniaMap));
+
+		// the optimal path has five nodes
+		SMAStarSearch<String, MoveToAction> search = new SMAStarSearch<>(
+				MapFunctions.createSLDHeuristicFunction(SimplifiedRoadMapOfPartOfRomania.BUCHAREST, romaniaMap), 5);
+		Assert.assertEquals(
+				"[Action[name=moveTo, location=Sibiu], Action[name=moveTo, location=RimnicuVilcea], Action[name=moveTo, location=Pitesti], Action[name=moveTo, location=Bucharest]]",
+				search.findActions(problem).get().toString());
+		Assert.assertEquals(418.0, search.getMetrics().getDouble(SMAStarSearch.METRIC_PATH_COST), 0.0);
+
+		// with four nodes, only the path via Fagaras fits into memory
+		search = new SMAStarSearch<>(
+				MapFunctions.createSLDHeuristicFunction(SimplifiedRoadMapOfPartOfRomania.BUCHAREST, romaniaMap), 4);
+		Assert.assertEquals(
+				"[Action[name=moveTo, location=Sibiu], Action[name=moveTo, location=Fagaras], Action[name=moveTo, location=Bucharest]]",
+				search.findActions(problem).get().toString());
+		Assert.assertEquals(450.0, search.getMetrics().getDouble(SMAStarSearch.METRIC_PATH_COST), 0.0);
+
+		// no path fits into three nodes
+		search = new SMAStarSearch<>(
+				MapFunctions.createSLDHeuristicFunction(SimplifiedRoadMapOfPartOfRomania.BUCHAREST, romaniaMap), 3);
+		Assert.assertFalse(search.findActions(problem).isPresent());
+	}
+
+	@Test
+	public void testNoPath() {
+		ExtendableMap map = new ExtendableMap();
+		map.addBidirectionalLink("A", "B", 5.0);
+		map.addBidirectionalLink("B", "C", 5.0);
+		map.addBidirectionalLink("C", "A", 5.0);
+		map.addBidirectionalLink("D", "E", 5.0);
+		Problem<String, MoveToAction> problem = new GeneralProblem<>("A", MapFunctions.createActionsFunction(map),
+				MapFunctions.createResultFunction(), GoalTest.forState("E"),
+				MapFunctions.createDistanceStepCostFunction(map));
+		Assert.assertFalse(new SMAStarSearch<String, MoveToAction>(n -> 0.0, 3).findActions(problem).isPresent());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBudget() {
+		new SMAStarSearch<String, MoveToAction>(n -> 0.0, 0);
+	}
+}
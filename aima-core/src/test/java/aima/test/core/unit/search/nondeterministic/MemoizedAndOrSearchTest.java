@@ -0,0 +1,208 @@
+package aima.test.core.unit.search.nondeterministic;
+
+import aima.core.agent.Action;
+import aima.core.environment.vacuum.*;
+import aima.core.search.agent.NondeterministicSearchAgent;
+import aima.core.search.framework.problem.ActionsFunction;
+import aima.core.search.nondeterministic.AndOrSearch;
+import aima.core.search.nondeterministic.MemoizedAndOrSearch;
+import aima.core.search.nondeterministic.NondeterministicProblem;
+import aima.core.search.nondeterministic.Plan;
+import aima.core.search.nondeterministic.ResultsFunction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static aima.core.environment.vacuum.VacuumEnvironment.*;
+
+public class MemoizedAndOrSearchTest {
+
+    private static final int WIDTH = 6;
+    private static final int LAYERS = 30;
+
+    @Test
+    public void testErraticVacuumWorld() {
+        NondeterministicSearchAgent<VacuumEnvironmentState, Action> agent =
+                new NondeterministicSearchAgent<>(percept -> (VacuumEnvironmentState) percept);
+        NondeterministicVacuumEnvironment world =
+                new NondeterministicVacuumEnvironment(LocationState.Dirty, LocationState.Dirty);
+        world.addAgent(agent, LOCATION_A);
+        NondeterministicProblem<VacuumEnvironmentState, Action> problem = new NondeterministicProblem<>(
+                (VacuumEnvironmentState) world.getCurrentState(),
+                VacuumWorldFunctions::getActions,
+                VacuumWorldFunctions.createResultsFunction(agent),
+                VacuumWorldFunctions::testGoal);
+        agent.setSearch(new MemoizedAndOrSearch<>());
+        agent.makePlan(problem);
+        Assert.assertNotNull(agent.getPlan());
+        world.stepUntilDone();
+        VacuumEnvironmentState endState = (VacuumEnvironmentState) world.getCurrentState();
+        Assert.assertEquals(LocationState.Clean, endState.getLocationState(LOCATION_A));
+        Assert.assertEquals(LocationState.Clean, endState.getLocationState(LOCATION_B));
+    }
+
+    @Test
+    public void testSharedSubPlans() {
+        NondeterministicProblem<Integer, String> problem = createLayeredProblem();
+        MemoizedAndOrSearch<Integer, String> search = new MemoizedAndOrSearch<>();
+        Optional<Plan<Integer, String>> plan = search.search(problem);
+        Assert.assertTrue(plan.isPresent());
+        Assert.assertTrue(isValid(plan.get(), problem, layeredActions()));
+        // without memoization, the number of expanded nodes would grow with 2^LAYERS
+        Assert.assertTrue(search.getMetrics().getInt(MemoizedAndOrSearch.METRIC_EXPANDED_NODES)
+                < 10 * LAYERS * WIDTH);
+        Assert.assertTrue(search.getMetrics().getInt(MemoizedAndOrSearch.METRIC_CACHE_HITS) > 0);
+
+        // both outcomes of the first step lead to state 1 in the second layer
+        Plan<Integer, String> p0 = plan.get().getPlan(1, WIDTH);
+        Plan<Integer, String> p1 = plan.get().getPlan(1, WIDTH + 1);
+        Assert.assertSame(p0.getPlan(1, 2 * WIDTH + 1), p1.getPlan(1, 2 * WIDTH + 1));
+    }
+
+    @Test
+    public void testParallelSearch() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            NondeterministicProblem<Integer, String> problem = createLayeredProblem();
+            MemoizedAndOrSearch<Integer, String> search = new MemoizedAndOrSearch<>();
+            search.setPool(pool);
+            Optional<Plan<Integer, String>> plan = search.search(problem);
+            Assert.assertTrue(plan.isPresent());
+            Assert.assertTrue(isValid(plan.get(), problem, layeredActions()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The first outcome of every AND node fails at once while its siblings
+     * are searched by forked tasks. No task may keep running after the
+     * search has returned.
+     */
+    @Test
+    public void testCancelledOutcomesAreJoined() {
+        ResultsFunction<Integer, String> resultsFn = (s, a) -> {
+            int layer = s / WIDTH + 1;
+            int column = s % WIDTH;
+            return Arrays.asList(-1, layer * WIDTH + column, layer * WIDTH + (column + 1) % WIDTH);
+        };
+        ActionsFunction<Integer, String> actionsFn =
+                s -> s < 0 || s / WIDTH == LAYERS ? Collections.emptyList() : Collections.singletonList("step");
+        NondeterministicProblem<Integer, String> problem =
+                new NondeterministicProblem<>(0, actionsFn, resultsFn, s -> false);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MemoizedAndOrSearch<Integer, String> search = new MemoizedAndOrSearch<>();
+            search.setPool(pool);
+            for (int i = 0; i < 20; i++) {
+                Assert.assertFalse(search.search(problem).isPresent());
+                int expanded = search.getMetrics().getInt(MemoizedAndOrSearch.METRIC_EXPANDED_NODES);
+                pool.awaitQuiescence(1, TimeUnit.SECONDS);
+                Assert.assertEquals(expanded, search.getMetrics().getInt(MemoizedAndOrSearch.METRIC_EXPANDED_NODES));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Compares the memoized search with the original version on random
+     * problems with many cycles. Failures which depend on the path must not
+     * be remembered.
+     */
+    @Test
+    public void testRandomProblems() {
+        Random random = new Random(42);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < 300; i++) {
+                int states = 3 + random.nextInt(6);
+                Map<String, List<Integer>> transitions = new HashMap<>();
+                List<List<String>> actions = new ArrayList<>();
+                for (int s = 0; s < states; s++) {
+                    List<String> stateActions = new ArrayList<>();
+                    for (int a = random.nextInt(3); a >= 0; a--) {
+                        String action = s + "/" + a;
+                        Set<Integer> outcomes = new HashSet<>();
+                        for (int o = random.nextInt(3); o >= 0; o--)
+                            outcomes.add(random.nextInt(states));
+                        transitions.put(action, new ArrayList<>(outcomes));
+                        stateActions.add(action);
+                    }
+                    actions.add(stateActions);
+                }
+                ActionsFunction<Integer, String> actionsFn = actions::get;
+                NondeterministicProblem<Integer, String> problem = new NondeterministicProblem<>(0, actionsFn,
+                        (s, a) -> transitions.get(a), s -> s == states - 1);
+                boolean solvable = new AndOrSearch<Integer, String>().search(problem).isPresent();
+                for (ForkJoinPool p : Arrays.asList(null, pool)) {
+                    MemoizedAndOrSearch<Integer, String> search = new MemoizedAndOrSearch<>();
+                    search.setPool(p);
+                    Optional<Plan<Integer, String>> plan = search.search(problem);
+                    Assert.assertEquals(solvable, plan.isPresent());
+                    if (solvable)
+                        Assert.assertTrue(isValid(plan.get(), problem, actionsFn));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * States are numbered layer * WIDTH + column. Action "step" leads to the
+     * same or the next column in the next layer, "stop" leads to a dead end.
+     */
+    private static NondeterministicProblem<Integer, String> createLayeredProblem() {
+        ResultsFunction<Integer, String> resultsFn = (s, a) -> {
+            if (a.equals("stop"))
+                return Collections.singletonList(-1);
+            int layer = s / WIDTH + 1;
+            int column = s % WIDTH;
+            return Arrays.asList(layer * WIDTH + column, layer * WIDTH + (column + 1) % WIDTH);
+        };
+        return new NondeterministicProblem<>(0, layeredActions(), resultsFn, s -> s / WIDTH == LAYERS);
+    }
+
+    private static ActionsFunction<Integer, String> layeredActions() {
+        return s -> s < 0 ? Collections.emptyList() : Arrays.asList("stop", "step");
+    }
+
+    /** Checks that every execution of the plan reaches a goal. */
+    private static <S, A> boolean isValid(Plan<S, A> plan, NondeterministicProblem<S, A> problem,
+                                          ActionsFunction<S, A> actionsFn) {
+        return isValid(plan, 0, problem.getInitialState(), problem, actionsFn, new IdentityHashMap<>());
+    }
+
+    private static <S, A> boolean isValid(Plan<S, A> plan, int step, S state, NondeterministicProblem<S, A> problem,
+                                          ActionsFunction<S, A> actionsFn, Map<Plan<S, A>, Set<String>> checked) {
+        if (!checked.computeIfAbsent(plan, p -> new HashSet<>()).add(step + ":" + state))
+            return true;
+        if (step == plan.size())
+            return problem.testGoal(state);
+        if (!plan.isActionStep(step)) {
+            Plan<S, A> subPlan = plan.getPlan(step, state);
+            return subPlan != null && isValid(subPlan, 0, state, problem, actionsFn, checked);
+        }
+        A action = plan.getAction(step);
+        if (!actionsFn.apply(state).contains(action))
+            return false;
+        for (S result : problem.getResults(state, action))
+            if (!isValid(plan, step + 1, result, problem, actionsFn, checked))
+                return false;
+        return true;
+    }
+}
@@ -0,0 +1,208 @@
+package aima.test.core.unit.search.online;
+
+import aima.core.agent.*;
+import aima.core.environment.map.ExtendableMap;
+import aima.core.environment.map.MapEnvironment;
+import aima.core.environment.map.MapFunctions;
+import aima.core.environment.map.MoveToAction;
+import aima.core.search.framework.problem.GeneralProblem;
+import aima.core.search.framework.problem.GoalTest;
+import aima.core.search.framework.problem.OnlineSearchProblem;
+import aima.core.search.online.LSSLRTAStarAgent;
+import aima.core.search.online.RTAAStarAgent;
+import aima.core.search.online.RealTimeSearchAgent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.function.ToDoubleFunction;
+
+public class RealTimeSearchAgentTest {
+	private static final int SIZE = 10;
+
+	private ExtendableMap line;
+	private ExtendableMap grid;
+	private StringBuffer envChanges;
+	private int moves;
+
+	@Before
+	public void setUp() {
+		line = new ExtendableMap();
+		line.addBidirectionalLink("A", "B", 4.0);
+		line.addBidirectionalLink("B", "C", 4.0);
+		line.addBidirectionalLink("C", "D", 4.0);
+		line.addBidirectionalLink("D", "E", 4.0);
+		line.addBidirectionalLink("E", "F", 4.0);
+
+		// 10x10 grid with a wall between x=4 and x=5 which is open at y=9
+		grid = new ExtendableMap();
+		for (int x = 0; x < SIZE; x++) {
+			for (int y = 0; y < SIZE; y++) {
+				if (x + 1 < SIZE && (x != 4 || y == SIZE - 1))
+					grid.addBidirectionalLink(cell(x, y), cell(x + 1, y), 1.0);
+				if (y + 1 < SIZE)
+					grid.addBidirectionalLink(cell(x, y), cell(x, y + 1), 1.0);
+			}
+		}
+		envChanges = new StringBuffer();
+		moves = 0;
+	}
+
+	@Test
+	public void testAlreadyAtGoal() {
+		RealTimeSearchAgent<String, MoveToAction> agent = new LSSLRTAStarAgent<>(createProblem(line, "A"),
+				MapFunctions.createPerceptToStateFunction(), MapFunctions.createResultFunction(), s -> 1.0);
+		run(line, agent, "A", 10);
+		Assert.assertEquals("Action[name=NoOp]->", envChanges.toString());
+	}
+
+	@Test
+	public void testLookaheadFindsDirectPath() {
+		// in contrast to LRTA*, the agent does not need to walk back and forth
+		for (RealTimeSearchAgent<String, MoveToAction> agent : createAgents(line, "F", s -> 1.0)) {
+			agent.setLookahead(10);
+			envChanges = new StringBuffer();
+			run(line, agent, "A", 20);
+			Assert.assertEquals(
+					"Action[name=moveTo, location=B]->Action[name=moveTo, location=C]->Action[name=moveTo, location=D]->Action[name=moveTo, location=E]->Action[name=moveTo, location=F]->Action[name=NoOp]->",
+					envChanges.toString());
+			Assert.assertEquals(1, agent.getMetrics().getInt(RealTimeSearchAgent.METRIC_SEARCH_EPISODES));
+		}
+	}
+
+	@Test
+	public void testNoPath() {
+		for (RealTimeSearchAgent<String, MoveToAction> agent : createAgents(line, "G", s -> 1.0)) {
+			agent.setLookahead(100);
+			envChanges = new StringBuffer();
+			run(line, agent, "A", 20);
+			Assert.assertEquals("Action[name=NoOp]->", envChanges.toString());
+		}
+	}
+
+	@Test
+	public void testGrid() {
+		String goal = cell(SIZE - 1, 0);
+		for (int lookahead : new int[] { 1, 5, 20 }) {
+			for (RealTimeSearchAgent<String, MoveToAction> agent : createAgents(grid, goal, manhattan(goal))) {
+				agent.setLookahead(lookahead);
+				MapEnvironment env = run(grid, agent, cell(0, 0), 2000);
+				Assert.assertFalse(agent.isAlive());
+				Assert.assertEquals(goal, env.getAgentLocation(agent));
+				Assert.assertTrue(moves >= 27);
+				Assert.assertTrue(agent.getMetrics().getInt(RealTimeSearchAgent.METRIC_MAX_EPISODE_EXPANSIONS)
+						<= lookahead);
+				Assert.assertTrue(agent.getHeuristicTable().size() > 0);
+			}
+		}
+	}
+
+	@Test
+	public void testGridWithCompleteLookahead() {
+		String goal = cell(SIZE - 1, 0);
+		for (RealTimeSearchAgent<String, MoveToAction> agent : createAgents(grid, goal, manhattan(goal))) {
+			agent.setLookahead(SIZE * SIZE);
+			run(grid, agent, cell(0, 0), 2000);
+			Assert.assertEquals(27, moves);
+			Assert.assertEquals(1, agent.getMetrics().getInt(RealTimeSearchAgent.METRIC_SEARCH_EPISODES));
+		}
+	}
+
+	@Test
+	public void testIndexedHeuristicTable() {
+		String goal = cell(SIZE - 1, 0);
+		int[] movesPerTable = new int[2];
+		for (int i = 0; i < 2; i++) {
+			RealTimeSearchAgent<String, MoveToAction> agent = new LSSLRTAStarAgent<>(createProblem(grid, goal),
+					MapFunctions.createPerceptToStateFunction(), MapFunctions.createResultFunction(),
+					manhattan(goal));
+			agent.setLookahead(3);
+			if (i == 1)
+				agent.setStateIndexer(s -> x(s) * SIZE + y(s));
+			MapEnvironment env = run(grid, agent, cell(0, 0), 2000);
+			Assert.assertEquals(goal, env.getAgentLocation(agent));
+			movesPerTable[i] = moves;
+		}
+		Assert.assertEquals(movesPerTable[0], movesPerTable[1]);
+	}
+
+	@Test
+	public void testWrongModel() {
+		// the agent believes in a shortcut through the wall which does not exist
+		ExtendableMap believed = new ExtendableMap();
+		for (String from : grid.getLocations())
+			for (String to : grid.getPossibleNextLocations(from))
+				believed.addUnidirectionalLink(from, to, grid.getDistance(from, to));
+		believed.addBidirectionalLink(cell(4, 0), cell(5, 0), 1.0);
+		String goal = cell(SIZE - 1, 0);
+		for (RealTimeSearchAgent<String, MoveToAction> agent : createAgents(believed, goal, manhattan(goal))) {
+			agent.setLookahead(10);
+			MapEnvironment env = run(grid, agent, cell(0, 0), 2000);
+			Assert.assertEquals(goal, env.getAgentLocation(agent));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLookahead() {
+		new RTAAStarAgent<>(createProblem(line, "F"), MapFunctions.createPerceptToStateFunction(),
+				MapFunctions.createResultFunction(), s -> 1.0).setLookahead(0);
+	}
+
+	private MapEnvironment run(ExtendableMap map, RealTimeSearchAgent<String, MoveToAction> agent, String start,
+			int maxSteps) {
+		MapEnvironment me = new MapEnvironment(map);
+		moves = 0;
+		me.addAgent(agent, start);
+		me.addEnvironmentView(new TestEnvironmentView());
+		for (int i = 0; i < maxSteps && !me.isDone(); i++)
+			me.step();
+		return me;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static RealTimeSearchAgent<String, MoveToAction>[] createAgents(ExtendableMap map, String goal,
+			ToDoubleFunction<String> h) {
+		return new RealTimeSearchAgent[] {
+				new LSSLRTAStarAgent<>(createProblem(map, goal), MapFunctions.createPerceptToStateFunction(),
+						MapFunctions.createResultFunction(), h),
+				new RTAAStarAgent<>(createProblem(map, goal), MapFunctions.createPerceptToStateFunction(),
+						MapFunctions.createResultFunction(), h) };
+	}
+
+	private static OnlineSearchProblem<String, MoveToAction> createProblem(ExtendableMap map, String goal) {
+		return new GeneralProblem<>(null, MapFunctions.createActionsFunction(map), null, GoalTest.forState(goal),
+				MapFunctions.createDistanceStepCostFunction(map));
+	}
+
+	private static ToDoubleFunction<String> manhattan(String goal) {
+		return s -> Math.abs(x(s) - x(goal)) + Math.abs(y(s) - y(goal));
+	}
+
+	private static String cell(int x, int y) {
+		return x + "," + y;
+	}
+
+	private static int x(String cell) {
+		return Integer.parseInt(cell.substring(0, cell.indexOf(',')));
+	}
+
+	private static int y(String cell) {
+		return Integer.parseInt(cell.substring(cell.indexOf(',') + 1));
+	}
+
+	private class TestEnvironmentView implements EnvironmentView {
+		public void notify(String msg) {
+			envChanges.append(msg).append("->");
+		}
+
+		public void agentAdded(Agent agent, Environment source) {
+			// Nothing.
+		}
+
+		public void agentActed(Agent agent, Percept percept, Action action, Environment source) {
+			envChanges.append(action).append("->");
+			if (!action.isNoOp())
+				moves++;
+		}
+	}
+}
@@ -81,6 +81,28 @@ public interface OsmMap extends WayNodeProvider {
 	 */
 	public MapNode getNearestWayNode(Position pos, MapWayFilter filter);
 
+	/**
+	 * Returns up to <code>k</code> way nodes from all ways which are accepted
+	 * by the filter, in ascending order of their distance to the reference
+	 * position.
+	 * 
+	 * @param filter
+	 *            possibly null
+	 */
+	public List<MapNode> getNearestWayNodes(Position pos, int k,
+			MapWayFilter filter);
+
+	/**
+	 * Returns all way nodes from ways which are accepted by the filter within
+	 * the given distance to the reference position, in ascending order of
+	 * distance.
+	 * 
+	 * @param filter
+	 *            possibly null
+	 */
+	public List<MapNode> getWayNodesInRadius(Position pos, double radiusKM,
+			MapWayFilter filter);
+
 	/**
 	 * Returns the number of all maintained point of interests. Nodes are
 	 * classified as POIs if they have a name or other attributes of interest.
@@ -94,12 +116,31 @@ public interface OsmMap extends WayNodeProvider {
 	 */
 	public List<MapNode> getPois(BoundingBox bb);
 
+	/**
+	 * Returns all points of interest within the given distance to the
+	 * reference position, in ascending order of distance.
+	 */
+	public List<MapNode> getPois(Position pos, double radiusKM);
+
 	/**
 	 * Returns all nodes which are marked with the attribute place and whose
 	 * name matches the specification.
 	 */
 	public List<MapNode> getPlaces(String name);
 
+	/**
+	 * Returns up to <code>maxResults</code> named points of interest and ways
+	 * with a name word starting with the pattern. Case and diacritical marks
+	 * are ignored, and up to <code>maxEdits</code> inserted, deleted or
+	 * replaced characters are tolerated. Results are ordered by the number of
+	 * edits and then by distance to the reference position.
+	 * 
+	 * @param pos
+	 *            possibly null
+	 */
+	public List<MapEntity> findEntitiesByName(String pattern, int maxEdits,
+			Position pos, int maxResults);
+
 	/** Resets only marker and track informations. */
 	public void clearMarkersAndTracks();
 
@@ -8,6 +8,7 @@ import aimax.osm.data.OsmMap;
 import aimax.osm.data.MapWayFilter;
 import aimax.osm.data.Position;
 import aimax.osm.data.entities.MapEntity;
+import aimax.osm.data.entities.MapNode;
 
 /**
  * Base class suitable to implement different entity finders. Just the method
@@ -48,6 +49,14 @@ public abstract class AbstractEntityFinder implements EntityFinder {
 	protected OsmMap getStorage() {
 		return storage;
 	}
+
+	/**
+	 * Returns the points of interest within the next search radius around the
+	 * reference position, nearest first.
+	 */
+	protected List<MapNode> getPoisInRadius() {
+		return storage.getPois(position, nextRadius);
+	}
 	
 	/** {@inheritDoc} */
 	@Override
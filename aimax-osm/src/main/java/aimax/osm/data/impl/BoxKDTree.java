@@ -0,0 +1,196 @@
+package aimax.osm.data.impl;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.function.IntConsumer;
+
+import aimax.osm.data.BoundingBox;
+
+/**
+ * Static spatial index for bounding boxes, e.g. of map ways, which answers
+ * intersection queries without inspecting all boxes. The layout follows
+ * {@link aimax.osm.data.impl.NodeKDTree}: the entries are stored in one
+ * array, and each range of the array is split at its median along the box
+ * center coordinate (latitude or longitude) of largest extent. Additionally,
+ * the median of each range stores the union of all boxes in the range, so
+ * that ranges outside the query box are skipped. The layout can be saved and
+ * used again without rebuilding the tree (see
+ * {@link #BoxKDTree(FloatBuffer, IntBuffer, FloatBuffer)}).
+ *
+ */
+public class BoxKDTree {
+	private int size;
+	/** latMin, lonMin, latMax, lonMax of each entry, by entry index. */
+	private FloatBuffer boxes;
+	/** Entry index at each position of the layout. */
+	private IntBuffer entries;
+	/** Union box of the range whose median is the position. */
+	private FloatBuffer rangeBoxes;
+
+	// only used while building the tree
+	private float[] boxArray;
+	private int[] entryArray;
+	private float[] rangeBoxArray;
+
+	/**
+	 * Creates a tree for the given boxes. Each entry is described by four
+	 * values: latMin, lonMin, latMax, lonMax.
+	 */
+	public BoxKDTree(float[] boxes) {
+		size = boxes.length / 4;
+		boxArray = boxes;
+		entryArray = new int[size];
+		rangeBoxArray = new float[4 * size];
+		for (int i = 0; i < size; i++)
+			entryArray[i] = i;
+		build(0, size);
+		this.boxes = FloatBuffer.wrap(boxArray);
+		entries = IntBuffer.wrap(entryArray);
+		rangeBoxes = FloatBuffer.wrap(rangeBoxArray);
+		boxArray = null;
+		entryArray = null;
+		rangeBoxArray = null;
+	}
+
+	/**
+	 * Creates a tree from a layout which was computed before, e.g. by a tree
+	 * whose layout was saved to file.
+	 *
+	 * @param boxes
+	 *            Contains the box of each entry.
+	 * @param entries
+	 *            Contains the entry index for each position.
+	 * @param rangeBoxes
+	 *            Contains the range box for each position.
+	 */
+	public BoxKDTree(FloatBuffer boxes, IntBuffer entries,
+			FloatBuffer rangeBoxes) {
+		this.size = entries.capacity();
+		this.boxes = boxes;
+		this.entries = entries;
+		this.rangeBoxes = rangeBoxes;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** Returns the entry index at the specified position of the layout. */
+	public int getEntry(int i) {
+		return entries.get(i);
+	}
+
+	/**
+	 * Returns a value (0: latMin, 1: lonMin, 2: latMax, 3: lonMax) of the range
+	 * box at the specified position of the layout.
+	 */
+	public float getRangeBox(int i, int k) {
+		return rangeBoxes.get(4 * i + k);
+	}
+
+	/**
+	 * Passes the index of each entry whose box intersects the given bounding
+	 * box to the consumer, in no specific order.
+	 */
+	public void visitIntersecting(BoundingBox bb, IntConsumer consumer) {
+		search(0, size, bb, consumer);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private void build(int lo, int hi) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		if (hi - lo > 1) {
+			int axis = 0;
+			float maxSpread = -1;
+			for (int a = 0; a < 2; a++) {
+				float min = Float.POSITIVE_INFINITY;
+				float max = Float.NEGATIVE_INFINITY;
+				for (int i = lo; i < hi; i++) {
+					float c = center(entryArray[i], a);
+					min = Math.min(min, c);
+					max = Math.max(max, c);
+				}
+				if (max - min > maxSpread) {
+					maxSpread = max - min;
+					axis = a;
+				}
+			}
+			select(lo, hi, mid, axis);
+			build(lo, mid);
+			build(mid + 1, hi);
+		}
+		float latMin = Float.POSITIVE_INFINITY;
+		float lonMin = Float.POSITIVE_INFINITY;
+		float latMax = Float.NEGATIVE_INFINITY;
+		float lonMax = Float.NEGATIVE_INFINITY;
+		for (int i = lo; i < hi; i++) {
+			int e = 4 * entryArray[i];
+			latMin = Math.min(latMin, boxArray[e]);
+			lonMin = Math.min(lonMin, boxArray[e + 1]);
+			latMax = Math.max(latMax, boxArray[e + 2]);
+			lonMax = Math.max(lonMax, boxArray[e + 3]);
+		}
+		rangeBoxArray[4 * mid] = latMin;
+		rangeBoxArray[4 * mid + 1] = lonMin;
+		rangeBoxArray[4 * mid + 2] = latMax;
+		rangeBoxArray[4 * mid + 3] = lonMax;
+	}
+
+	/** Returns the doubled box center coordinate (0: lat, 1: lon). */
+	private float center(int entry, int axis) {
+		return boxArray[4 * entry + axis] + boxArray[4 * entry + 2 + axis];
+	}
+
+	/** Moves the entry with the specified rank to position k. */
+	private void select(int lo, int hi, int k, int axis) {
+		hi--;
+		while (hi > lo) {
+			float pivot = center(entryArray[(lo + hi) >>> 1], axis);
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (center(entryArray[i], axis) < pivot)
+					i++;
+				while (center(entryArray[j], axis) > pivot)
+					j--;
+				if (i <= j) {
+					int tmp = entryArray[i];
+					entryArray[i++] = entryArray[j];
+					entryArray[j--] = tmp;
+				}
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				break;
+		}
+	}
+
+	private void search(int lo, int hi, BoundingBox bb, IntConsumer consumer) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		if (!intersects(rangeBoxes, 4 * mid, bb))
+			return;
+		int entry = entries.get(mid);
+		if (intersects(boxes, 4 * entry, bb))
+			consumer.accept(entry);
+		search(lo, mid, bb, consumer);
+		search(mid + 1, hi, bb, consumer);
+	}
+
+	private static boolean intersects(FloatBuffer box, int offset,
+			BoundingBox bb) {
+		return box.get(offset) <= bb.getLatMax()
+				&& box.get(offset + 1) <= bb.getLonMax()
+				&& box.get(offset + 2) >= bb.getLatMin()
+				&& box.get(offset + 3) >= bb.getLonMin();
+	}
+}
@@ -29,7 +29,7 @@ public class DefaultEntityFinder extends AbstractEntityFinder {
 		if (!results.isEmpty())
 			bmf.checkMatchQuality(results.get(0));
 		if (mode.equals(Mode.ENTITY) || mode.equals(Mode.NODE)) {
-			for (MapNode node : getStorage().getPois(bb)) {
+			for (MapNode node : getPoisInRadius()) {
 				int match = bmf.checkMatchQuality(node);
 				if (match >= 0) {
 					if (match > 0) {
@@ -84,9 +84,35 @@ public class DefaultEntityFinder extends AbstractEntityFinder {
 			
 		} else {
 			nextRadius *= 2;
-			if (results.isEmpty() && getIntermediateResults().isEmpty() && nextRadius <= getMaxRadius())
-				find(true);
+			if (results.isEmpty() && getIntermediateResults().isEmpty()) {
+				if (nextRadius <= getMaxRadius())
+					find(true);
+				else
+					findByName();
+			}
+		}
+	}
+
+	/**
+	 * Last resort if nothing was found within the maximal radius: Searches the
+	 * name index of the whole map, tolerating some typing errors in longer
+	 * patterns.
+	 */
+	private void findByName() {
+		int maxEdits = Math.min(2, pattern.trim().length() / 4);
+		List<MapEntity> results = getResults();
+		for (MapEntity entity : getStorage().findEntitiesByName(pattern,
+				maxEdits, position, 100)) {
+			if (entity instanceof MapNode) {
+				if (!mode.equals(Mode.WAY))
+					results.add(entity);
+			} else if (!mode.equals(Mode.NODE)
+					&& (wayFilter == null || wayFilter
+							.isAccepted((MapWay) entity))) {
+				results.add(entity);
+			}
 		}
+		nextRadius = -1;
 	}
 
 	/**
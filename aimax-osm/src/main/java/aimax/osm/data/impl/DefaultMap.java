@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 
 import aimax.osm.data.BoundingBox;
@@ -24,6 +25,7 @@ import aimax.osm.data.entities.MapEntity;
 import aimax.osm.data.entities.MapNode;
 import aimax.osm.data.entities.MapWay;
 import aimax.osm.data.entities.Track;
+import aimax.osm.data.entities.WayRef;
 
 /**
  * Central container for OSM map data. It is responsible for storing loaded map
@@ -44,6 +46,14 @@ import aimax.osm.data.entities.Track;
  * </p>
  * 
  * <p>
+ * Nearest neighbor and radius queries for way nodes and points of interest
+ * are answered by spatial indices (see {@link aimax.osm.data.impl.NodeKDTree})
+ * which are built on first use and discarded when the map data changes.
+ * Name searches use a sorted name table (see
+ * {@link aimax.osm.data.impl.NameIndex}) which is built during compilation.
+ * </p>
+ * 
+ * <p>
  * The map is used as model for the viewer.
  * </p>
  * 
@@ -72,6 +82,12 @@ public class DefaultMap implements OsmMap {
 
 	private EntityClassifier<EntityViewInfo> entityClassifier;
 	private KDTree entityTree;
+	/** Spatial index of all way nodes, built on demand. */
+	private NodeKDTree wayNodeIndex;
+	/** Spatial index of all points of interest, built on demand. */
+	private NodeKDTree poiIndex;
+	/** Name index of all named points of interest and ways. */
+	private NameIndex nameIndex;
 
 	private ArrayList<MapEventListener> listeners;
 
@@ -100,6 +116,7 @@ public class DefaultMap implements OsmMap {
 		markers.clear();
 		tracks.clear();
 		entityTree = null;
+		clearNodeIndices();
 		boundingBox = null;
 		fireMapDataEvent(new MapEvent(this, MapEvent.Type.MAP_CLEARED));
 	}
@@ -158,7 +175,10 @@ public class DefaultMap implements OsmMap {
 		return nodes.get(id);
 	}
 
-	/** Adds a node to the central node hashtable. */
+	/**
+	 * Adds a node to the central node hashtable. Indices are not updated
+	 * before the next call of {@link #compile()}.
+	 */
 	protected void addNode(DefaultMapNode node) {
 		nodes.put(node.getId(), node);
 	}
@@ -175,7 +195,10 @@ public class DefaultMap implements OsmMap {
 		return ways.get(id);
 	}
 
-	/** Adds a way to the central way hashtable. */
+	/**
+	 * Adds a way to the central way hashtable. Indices are not updated before
+	 * the next call of {@link #compile()}.
+	 */
 	protected void addWay(DefaultMapWay way) {
 		ways.put(way.getId(), way);
 	}
@@ -214,6 +237,8 @@ public class DefaultMap implements OsmMap {
 		for (long id : toDelete) {
 			nodes.remove(id);
 		}
+		clearNodeIndices();
+		getNameIndex();
 		BoundingBox bbAllNodes = new BoundingBox();
 		bbAllNodes.adjust(nodes.values());
 		bbAllNodes.adjust(pois);
@@ -247,7 +272,7 @@ public class DefaultMap implements OsmMap {
 	 * entity classifier. If suitable viewing information was found and
 	 * <code>addToTree</code> is true, the entity is added to the entity tree.
 	 */
-	private void updateEntityViewInfo(MapEntity entity, boolean addToTree) {
+	protected void updateEntityViewInfo(MapEntity entity, boolean addToTree) {
 		EntityViewInfo info = null;
 		if (entityClassifier != null)
 			info = entityClassifier.classify(entity);
@@ -261,8 +286,81 @@ public class DefaultMap implements OsmMap {
 	 */
 	@Override
 	public MapNode getNearestWayNode(Position pos, MapWayFilter filter) {
-		MapNode node = pos.selectNearest(nodes.values(), filter);
-		return node;
+		return getWayNodeIndex().getNearest(pos, createWayNodeFilter(filter));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public List<MapNode> getNearestWayNodes(Position pos, int k,
+			MapWayFilter filter) {
+		return getWayNodeIndex().getNearest(pos, k, createWayNodeFilter(filter));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public List<MapNode> getWayNodesInRadius(Position pos, double radiusKM,
+			MapWayFilter filter) {
+		return getWayNodeIndex().getWithinRadius(pos, radiusKM,
+				createWayNodeFilter(filter));
+	}
+
+	/**
+	 * Returns the spatial index of the way nodes. After compilation, the node
+	 * table contains way nodes only.
+	 */
+	protected synchronized NodeKDTree getWayNodeIndex() {
+		if (wayNodeIndex == null)
+			wayNodeIndex = new NodeKDTree(nodes.values());
+		return wayNodeIndex;
+	}
+
+	/** Returns the spatial index of the points of interest. */
+	protected synchronized NodeKDTree getPoiIndex() {
+		if (poiIndex == null)
+			poiIndex = new NodeKDTree(pois);
+		return poiIndex;
+	}
+
+	/**
+	 * Returns the name index of all points of interest and ways with a name.
+	 */
+	protected synchronized NameIndex getNameIndex() {
+		if (nameIndex == null) {
+			List<MapEntity> entities = new ArrayList<MapEntity>();
+			for (MapNode poi : pois)
+				if (poi.getName() != null)
+					entities.add(poi);
+			for (MapWay way : ways.values())
+				if (way.getName() != null)
+					entities.add(way);
+			String[] names = new String[entities.size()];
+			for (int i = 0; i < names.length; i++)
+				names[i] = entities.get(i).getName();
+			nameIndex = new NameIndex(names, entities::get);
+		}
+		return nameIndex;
+	}
+
+	/** Discards the node and name indices after changes of the map data. */
+	protected synchronized void clearNodeIndices() {
+		wayNodeIndex = null;
+		poiIndex = null;
+		nameIndex = null;
+	}
+
+	/**
+	 * Converts a way filter into a node filter which accepts nodes being part
+	 * of at least one accepted way. A null way filter accepts all nodes.
+	 */
+	private Predicate<MapNode> createWayNodeFilter(MapWayFilter filter) {
+		if (filter == null)
+			return null;
+		return node -> {
+			for (WayRef ref : node.getWayRefs())
+				if (filter.isAccepted(ref.getWay()))
+					return true;
+			return false;
+		};
 	}
 
 	/** Reduces the level of detail by selecting some of the given nodes. */
@@ -305,28 +403,34 @@ public class DefaultMap implements OsmMap {
 	/** {@inheritDoc} */
 	@Override
 	public List<MapNode> getPois(BoundingBox bb) {
-		// not really efficient but ok for small maps...
-		List<MapNode> result = new ArrayList<MapNode>();
-		for (MapNode poi : pois)
-			if (bb.isInside(poi.getLat(), poi.getLon()))
-				result.add(poi);
-		return result;
+		return getPoiIndex().getInside(bb);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public List<MapNode> getPois(Position pos, double radiusKM) {
+		return getPoiIndex().getWithinRadius(pos, radiusKM, null);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public List<MapNode> getPlaces(String name) {
-		String pattern = name.toLowerCase();
 		List<MapNode> results = new ArrayList<MapNode>();
-		for (MapNode node : pois) {
-			if (node.getAttributeValue("place") != null
-					&& node.getName() != null
-					&& node.getName().toLowerCase().startsWith(pattern))
-				results.add(node);
+		for (MapEntity entity : getNameIndex().getNamesStartingWith(name)) {
+			if (entity instanceof MapNode
+					&& entity.getAttributeValue("place") != null)
+				results.add((MapNode) entity);
 		}
 		return results;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public List<MapEntity> findEntitiesByName(String pattern, int maxEdits,
+			Position pos, int maxResults) {
+		return getNameIndex().find(pattern, maxEdits, pos, maxResults);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void clearMarkersAndTracks() {
@@ -478,6 +582,16 @@ public class DefaultMap implements OsmMap {
 		return entityTree;
 	}
 
+	/** Replaces the kd-tree with all entities. */
+	protected void setEntityTree(KDTree tree) {
+		entityTree = tree;
+	}
+
+	/** Returns the current entity classifier, possibly null. */
+	protected EntityClassifier<EntityViewInfo> getEntityClassifier() {
+		return entityClassifier;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void addMapDataEventListener(MapEventListener listener) {
@@ -0,0 +1,264 @@
+package aimax.osm.data.impl;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.MapEntity;
+
+/**
+ * Sorted string table which maps normalized entity names to entities. Each
+ * name is entered once for every word it contains, with the key starting at
+ * that word, so that patterns can match any word of a name as well as the
+ * following ones ("main st" finds "Old Main Street"). Normalization removes
+ * diacritical marks and case. Entities are referenced by number and resolved
+ * on demand, which allows to index maps whose entities are created lazily.
+ *
+ * <p>
+ * Besides plain prefix lookups, the index supports fuzzy lookups which accept
+ * names with a prefix in edit distance of at most <code>maxEdits</code> to
+ * the pattern. Like in a trie, distance table rows are shared between
+ * consecutive keys with common prefix, and as soon as a row decides the
+ * result, all keys with the same prefix are treated as a block.
+ * </p>
+ */
+public class NameIndex {
+
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final Pattern SPACES = Pattern.compile("\\s+");
+
+	private IntFunction<? extends MapEntity> entities;
+	private String[] keys;
+	private int[] refs;
+	/** Marks keys which start at the beginning of a name. */
+	private BitSet nameStarts;
+	private int maxKeyLength;
+
+	/**
+	 * Creates an index for the given names.
+	 *
+	 * @param names
+	 *            names of the entities, possibly containing nulls
+	 * @param entities
+	 *            provides the entity for a name index
+	 */
+	public NameIndex(String[] names, IntFunction<? extends MapEntity> entities) {
+		this.entities = entities;
+		List<String> keyList = new ArrayList<String>();
+		List<Integer> refList = new ArrayList<Integer>();
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] == null)
+				continue;
+			String name = normalize(names[i]);
+			for (int j = 0; j < name.length(); j++) {
+				// the name itself is a key even if it starts with a non-letter
+				if (j == 0 || isWordStart(name, j)) {
+					keyList.add(j == 0 ? name : name.substring(j));
+					refList.add(j == 0 ? i : -i - 1);
+				}
+			}
+		}
+		Integer[] order = new Integer[keyList.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, Comparator.comparing(keyList::get));
+		keys = new String[order.length];
+		refs = new int[order.length];
+		nameStarts = new BitSet(order.length);
+		for (int i = 0; i < order.length; i++) {
+			keys[i] = keyList.get(order[i]);
+			int ref = refList.get(order[i]);
+			if (ref >= 0)
+				nameStarts.set(i);
+			refs[i] = ref >= 0 ? ref : -ref - 1;
+			maxKeyLength = Math.max(maxKeyLength, keys[i].length());
+		}
+	}
+
+	/**
+	 * Converts a name or pattern into the form used as key: lower case,
+	 * without diacritical marks and with single spaces between words.
+	 */
+	public static String normalize(String name) {
+		String result = Normalizer.normalize(name, Normalizer.Form.NFD);
+		result = MARKS.matcher(result).replaceAll("");
+		result = result.toLowerCase(Locale.ROOT).replace("\u00df", "ss");
+		return SPACES.matcher(result.trim()).replaceAll(" ");
+	}
+
+	/** Returns the number of keys. */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Returns all entities whose name starts with the pattern, in the order of
+	 * their names in the constructor array. Only the beginning of the names
+	 * is checked, not the beginning of other words.
+	 */
+	public List<MapEntity> getNamesStartingWith(String pattern) {
+		List<Integer> refList = new ArrayList<Integer>(collect(
+				normalize(pattern), 0, true).keySet());
+		Collections.sort(refList);
+		List<MapEntity> result = new ArrayList<MapEntity>(refList.size());
+		for (int i : refList)
+			result.add(entities.apply(i));
+		return result;
+	}
+
+	/**
+	 * Returns up to <code>maxResults</code> entities with a name word
+	 * starting with the pattern, tolerating up to <code>maxEdits</code>
+	 * inserted, deleted or replaced characters. The entities are ordered by
+	 * the number of edits and then by distance to the reference position.
+	 *
+	 * @param pos
+	 *            possibly null
+	 */
+	public List<MapEntity> find(String pattern, int maxEdits, Position pos,
+			int maxResults) {
+		Map<Integer, Integer> matches = collect(normalize(pattern), maxEdits,
+				false);
+		List<MapEntity> result = new ArrayList<MapEntity>(matches.size());
+		Map<MapEntity, Integer> edits = new HashMap<MapEntity, Integer>();
+		Map<MapEntity, Double> dists = new HashMap<MapEntity, Double>();
+		for (Map.Entry<Integer, Integer> match : matches.entrySet()) {
+			MapEntity entity = entities.apply(match.getKey());
+			result.add(entity);
+			edits.put(entity, match.getValue());
+			dists.put(entity, pos != null ? pos.getDistKM(entity) : 0.0);
+		}
+		Collections.sort(result, Comparator.comparing(edits::get).thenComparing(
+				dists::get));
+		if (result.size() > maxResults)
+			result = new ArrayList<MapEntity>(result.subList(0, maxResults));
+		return result;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private static boolean isWordStart(String name, int i) {
+		return Character.isLetterOrDigit(name.charAt(i))
+				&& (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)));
+	}
+
+	/**
+	 * Returns the references of all matching names together with the smallest
+	 * number of edits.
+	 */
+	private Map<Integer, Integer> collect(String pattern, int maxEdits,
+			boolean nameStartsOnly) {
+		Map<Integer, Integer> result = new HashMap<Integer, Integer>();
+		if (pattern.isEmpty())
+			return result;
+		if (maxEdits == 0) {
+			for (int i = lowerBound(pattern); i < keys.length
+					&& keys[i].startsWith(pattern); i++)
+				addMatch(result, i, 0, nameStartsOnly);
+			return result;
+		}
+		int m = pattern.length();
+		// row r contains the edit distances between the first r key
+		// characters and all prefixes of the pattern
+		int[][] rows = new int[maxKeyLength + 1][m + 1];
+		int[] best = new int[maxKeyLength + 1];
+		for (int j = 0; j <= m; j++)
+			rows[0][j] = j;
+		best[0] = m;
+		String prev = "";
+		int validRows = 0;
+		int i = 0;
+		while (i < keys.length) {
+			String key = keys[i];
+			int r = Math.min(validRows, commonPrefixLength(prev, key));
+			boolean decided = false;
+			while (r < key.length() && !decided) {
+				r++;
+				char c = key.charAt(r - 1);
+				int[] row = rows[r];
+				int[] above = rows[r - 1];
+				row[0] = r;
+				int min = r;
+				for (int j = 1; j <= m; j++) {
+					int d = above[j - 1] + (pattern.charAt(j - 1) == c ? 0 : 1);
+					d = Math.min(d, Math.min(above[j], row[j - 1]) + 1);
+					row[j] = d;
+					min = Math.min(min, d);
+				}
+				best[r] = Math.min(best[r - 1], row[m]);
+				// longer prefixes cannot reduce the distance below the row
+				// minimum
+				decided = min > maxEdits || min >= best[r];
+			}
+			prev = key;
+			validRows = r;
+			int end = decided ? prefixEnd(i, key.substring(0, r)) : i + 1;
+			if (best[r] <= maxEdits)
+				for (int k = i; k < end; k++)
+					addMatch(result, k, best[r], nameStartsOnly);
+			i = end;
+		}
+		return result;
+	}
+
+	private void addMatch(Map<Integer, Integer> matches, int i, int edits,
+			boolean nameStartsOnly) {
+		if (!nameStartsOnly || nameStarts.get(i)) {
+			Integer old = matches.get(refs[i]);
+			if (old == null || old > edits)
+				matches.put(refs[i], edits);
+		}
+	}
+
+	/** Returns the index of the first key not smaller than the given one. */
+	private int lowerBound(String key) {
+		int lo = 0;
+		int hi = keys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid].compareTo(key) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns the index of the first key behind <code>from</code> which does
+	 * not start with the prefix. The key at <code>from</code> must start with
+	 * it.
+	 */
+	private int prefixEnd(int from, String prefix) {
+		int lo = from + 1;
+		int hi = keys.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid].startsWith(prefix))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	private static int commonPrefixLength(String s1, String s2) {
+		int n = Math.min(s1.length(), s2.length());
+		int i = 0;
+		while (i < n && s1.charAt(i) == s2.charAt(i))
+			i++;
+		return i;
+	}
+}
@@ -0,0 +1,387 @@
+package aimax.osm.data.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.MapNode;
+
+/**
+ * Static kd-tree for map nodes, which answers nearest neighbor, radius and
+ * bounding box queries in logarithmic time. Other than
+ * {@link aimax.osm.data.impl.KDTree}, which organizes entities for viewing,
+ * nodes are indexed by their position on the unit sphere. The euclidean
+ * (chord) distance of those positions grows monotonically with the
+ * great-circle distance computed by {@link Position#getDistKM(float, float,
+ * float, float)}, so distances to splitting planes are exact lower bounds.
+ * The tree is implicit: the nodes are stored in one array, and each range of
+ * the array is split at its median along the axis of largest extent. The
+ * layout can be saved and used again without rebuilding the tree (see
+ * {@link #NodeKDTree(int, IntFunction, DoubleBuffer, ByteBuffer)}).
+ *
+ */
+public class NodeKDTree {
+	private int size;
+	/** Provides the node at a position of the layout. */
+	private IntFunction<MapNode> nodes;
+	/** x, y, z of each node on the unit sphere. */
+	private DoubleBuffer coords;
+	/** Split axis of the median of each range. */
+	private ByteBuffer axes;
+
+	// only used while building the tree
+	private MapNode[] nodeArray;
+	private double[] coordArray;
+	private byte[] axisArray;
+
+	/** Creates a tree for the given nodes. */
+	public NodeKDTree(Collection<MapNode> nodes) {
+		size = nodes.size();
+		nodeArray = nodes.toArray(new MapNode[size]);
+		coordArray = new double[3 * size];
+		axisArray = new byte[size];
+		for (int i = 0; i < size; i++)
+			toUnitVector(nodeArray[i].getLat(), nodeArray[i].getLon(),
+					coordArray, 3 * i);
+		build(0, size);
+		MapNode[] layout = nodeArray;
+		this.nodes = i -> layout[i];
+		coords = DoubleBuffer.wrap(coordArray);
+		axes = ByteBuffer.wrap(axisArray);
+		nodeArray = null;
+		coordArray = null;
+		axisArray = null;
+	}
+
+	/**
+	 * Creates a tree from a layout which was computed before, e.g. by a tree
+	 * whose layout was saved to file. Nodes are requested from
+	 * <code>nodes</code> only when they are close enough to be candidates of
+	 * a query.
+	 *
+	 * @param nodes
+	 *            Provides the node at a position of the layout.
+	 * @param coords
+	 *            Contains x, y, z on the unit sphere for each position.
+	 * @param axes
+	 *            Contains the split axis for each position.
+	 */
+	public NodeKDTree(int size, IntFunction<MapNode> nodes,
+			DoubleBuffer coords, ByteBuffer axes) {
+		this.size = size;
+		this.nodes = nodes;
+		this.coords = coords;
+		this.axes = axes;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/** Returns the node at the specified position of the layout. */
+	public MapNode getNode(int i) {
+		return nodes.apply(i);
+	}
+
+	/** Returns a unit sphere coordinate (0: x, 1: y, 2: z) of a position. */
+	public double getCoord(int i, int axis) {
+		return coords.get(3 * i + axis);
+	}
+
+	/** Returns the split axis of a position of the layout. */
+	public byte getAxis(int i) {
+		return axes.get(i);
+	}
+
+	/**
+	 * Returns the node nearest to the given position which is accepted by the
+	 * filter, or null.
+	 */
+	public MapNode getNearest(Position pos, Predicate<MapNode> filter) {
+		List<MapNode> result = getNearest(pos, 1, filter);
+		return result.isEmpty() ? null : result.get(0);
+	}
+
+	/**
+	 * Returns up to k nodes accepted by the filter, in ascending order of
+	 * their distance to the given position.
+	 *
+	 * @param filter
+	 *            possibly null
+	 */
+	public List<MapNode> getNearest(Position pos, int k, Predicate<MapNode> filter) {
+		Candidates candidates = new Candidates(k, Double.POSITIVE_INFINITY);
+		if (k > 0)
+			search(0, size, toUnitVector(pos), filter, candidates);
+		return candidates.toSortedList();
+	}
+
+	/**
+	 * Returns all nodes accepted by the filter within the given distance from
+	 * the position, in ascending order of distance.
+	 *
+	 * @param filter
+	 *            possibly null
+	 */
+	public List<MapNode> getWithinRadius(Position pos, double radiusKM,
+			Predicate<MapNode> filter) {
+		double chord = 2.0 * Math.sin(Math.min(Math.PI / 2, radiusKM
+				/ (2.0 * Position.EARTH_RADIUS)));
+		// a little slack for rounding errors, exact check below
+		Candidates candidates = new Candidates(Integer.MAX_VALUE, chord * chord
+				* (1 + 1e-9));
+		search(0, size, toUnitVector(pos), filter, candidates);
+		List<MapNode> result = candidates.toSortedList();
+		while (!result.isEmpty()
+				&& pos.getDistKM(result.get(result.size() - 1)) > radiusKM)
+			result.remove(result.size() - 1);
+		return result;
+	}
+
+	/** Returns all nodes within the bounding box, in no specific order. */
+	public List<MapNode> getInside(BoundingBox bb) {
+		List<MapNode> result = new ArrayList<MapNode>();
+		if (bb.getLatMin() <= bb.getLatMax()
+				&& bb.getLonMin() <= bb.getLonMax())
+			searchInside(0, size, bb, enclosingBox(bb), result);
+		return result;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private void build(int lo, int hi) {
+		while (hi - lo > 1) {
+			int axis = 0;
+			double maxSpread = -1;
+			for (int a = 0; a < 3; a++) {
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for (int i = lo; i < hi; i++) {
+					double c = coordArray[3 * i + a];
+					min = Math.min(min, c);
+					max = Math.max(max, c);
+				}
+				if (max - min > maxSpread) {
+					maxSpread = max - min;
+					axis = a;
+				}
+			}
+			int mid = (lo + hi) >>> 1;
+			select(lo, hi, mid, axis);
+			axisArray[mid] = (byte) axis;
+			build(lo, mid);
+			lo = mid + 1;
+		}
+	}
+
+	/** Moves the element with the specified rank to position k. */
+	private void select(int lo, int hi, int k, int axis) {
+		hi--;
+		while (hi > lo) {
+			double pivot = coordArray[3 * ((lo + hi) >>> 1) + axis];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (coordArray[3 * i + axis] < pivot)
+					i++;
+				while (coordArray[3 * j + axis] > pivot)
+					j--;
+				if (i <= j)
+					swap(i++, j--);
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				break;
+		}
+	}
+
+	private void swap(int i, int j) {
+		MapNode node = nodeArray[i];
+		nodeArray[i] = nodeArray[j];
+		nodeArray[j] = node;
+		for (int a = 0; a < 3; a++) {
+			double c = coordArray[3 * i + a];
+			coordArray[3 * i + a] = coordArray[3 * j + a];
+			coordArray[3 * j + a] = c;
+		}
+	}
+
+	private void search(int lo, int hi, double[] q, Predicate<MapNode> filter,
+			Candidates candidates) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		int axis = axes.get(mid);
+		double diff = q[axis] - coords.get(3 * mid + axis);
+		double dx = q[0] - coords.get(3 * mid);
+		double dy = q[1] - coords.get(3 * mid + 1);
+		double dz = q[2] - coords.get(3 * mid + 2);
+		double dist = dx * dx + dy * dy + dz * dz;
+		if (dist <= candidates.bound()) {
+			MapNode node = nodes.apply(mid);
+			if (filter == null || filter.test(node))
+				candidates.add(node, dist);
+		}
+		if (diff < 0) {
+			search(lo, mid, q, filter, candidates);
+			if (diff * diff <= candidates.bound())
+				search(mid + 1, hi, q, filter, candidates);
+		} else {
+			search(mid + 1, hi, q, filter, candidates);
+			if (diff * diff <= candidates.bound())
+				search(lo, mid, q, filter, candidates);
+		}
+	}
+
+	private void searchInside(int lo, int hi, BoundingBox bb, double[] box,
+			List<MapNode> result) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		int axis = axes.get(mid);
+		double c = coords.get(3 * mid + axis);
+		MapNode node = nodes.apply(mid);
+		if (bb.isInside(node.getLat(), node.getLon()))
+			result.add(node);
+		if (box[axis] <= c)
+			searchInside(lo, mid, bb, box, result);
+		if (box[3 + axis] >= c)
+			searchInside(mid + 1, hi, bb, box, result);
+	}
+
+	private static double[] toUnitVector(Position pos) {
+		double[] result = new double[3];
+		toUnitVector(pos.getLat(), pos.getLon(), result, 0);
+		return result;
+	}
+
+	private static void toUnitVector(float lat, float lon, double[] result,
+			int offset) {
+		double phi = Math.toRadians(lat);
+		double lambda = Math.toRadians(lon);
+		result[offset] = Math.cos(phi) * Math.cos(lambda);
+		result[offset + 1] = Math.cos(phi) * Math.sin(lambda);
+		result[offset + 2] = Math.sin(phi);
+	}
+
+	/**
+	 * Returns min x, y, z and max x, y, z of a box which contains all points
+	 * of the sphere within the geographic bounding box.
+	 */
+	private static double[] enclosingBox(BoundingBox bb) {
+		double latMin = Math.toRadians(bb.getLatMin());
+		double latMax = Math.toRadians(bb.getLatMax());
+		double lonMin = Math.toRadians(bb.getLonMin());
+		double lonMax = Math.toRadians(bb.getLonMax());
+		double cosLatMin = Math.min(Math.cos(latMin), Math.cos(latMax));
+		double cosLatMax = (latMin <= 0 && latMax >= 0) ? 1 : Math.max(
+				Math.cos(latMin), Math.cos(latMax));
+		double[] cosLon = range(Math.cos(lonMin), Math.cos(lonMax),
+				containsAngle(lonMin, lonMax, 0), containsAngle(lonMin, lonMax,
+						Math.PI));
+		double[] sinLon = range(Math.sin(lonMin), Math.sin(lonMax),
+				containsAngle(lonMin, lonMax, Math.PI / 2), containsAngle(
+						lonMin, lonMax, -Math.PI / 2));
+		double eps = 1e-9;
+		return new double[] {
+				Math.min(cosLatMin * cosLon[0], cosLatMax * cosLon[0]) - eps,
+				Math.min(cosLatMin * sinLon[0], cosLatMax * sinLon[0]) - eps,
+				Math.sin(latMin) - eps,
+				Math.max(cosLatMin * cosLon[1], cosLatMax * cosLon[1]) + eps,
+				Math.max(cosLatMin * sinLon[1], cosLatMax * sinLon[1]) + eps,
+				Math.sin(latMax) + eps };
+	}
+
+	private static boolean containsAngle(double min, double max, double angle) {
+		return (min <= angle && angle <= max)
+				|| (min <= angle - 2 * Math.PI && angle - 2 * Math.PI <= max)
+				|| (min <= angle + 2 * Math.PI && angle + 2 * Math.PI <= max);
+	}
+
+	private static double[] range(double v1, double v2, boolean hasMax,
+			boolean hasMin) {
+		return new double[] { hasMin ? -1 : Math.min(v1, v2),
+				hasMax ? 1 : Math.max(v1, v2) };
+	}
+
+	/**
+	 * Collects the best k nodes found so far in a max-heap ordered by squared
+	 * chord distance.
+	 */
+	private static class Candidates {
+		private int k;
+		private double maxDist;
+		private MapNode[] heapNodes = new MapNode[8];
+		private double[] heapDists = new double[8];
+		private int size;
+
+		Candidates(int k, double maxDist) {
+			this.k = k;
+			this.maxDist = maxDist;
+		}
+
+		/** Returns the squared chord distance a new candidate must not exceed. */
+		double bound() {
+			return size < k ? maxDist : heapDists[0];
+		}
+
+		void add(MapNode node, double dist) {
+			if (size == k) {
+				// replace the worst candidate
+				siftDown(0, node, dist);
+				return;
+			}
+			if (size == heapNodes.length) {
+				heapNodes = Arrays.copyOf(heapNodes, 2 * size);
+				heapDists = Arrays.copyOf(heapDists, 2 * size);
+			}
+			int i = size++;
+			while (i > 0 && heapDists[(i - 1) / 2] < dist) {
+				heapNodes[i] = heapNodes[(i - 1) / 2];
+				heapDists[i] = heapDists[(i - 1) / 2];
+				i = (i - 1) / 2;
+			}
+			heapNodes[i] = node;
+			heapDists[i] = dist;
+		}
+
+		private void siftDown(int i, MapNode node, double dist) {
+			while (2 * i + 1 < size) {
+				int c = 2 * i + 1;
+				if (c + 1 < size && heapDists[c + 1] > heapDists[c])
+					c++;
+				if (dist >= heapDists[c])
+					break;
+				heapNodes[i] = heapNodes[c];
+				heapDists[i] = heapDists[c];
+				i = c;
+			}
+			heapNodes[i] = node;
+			heapDists[i] = dist;
+		}
+
+		List<MapNode> toSortedList() {
+			MapNode[] sorted = new MapNode[size];
+			for (int i = size - 1; i >= 0; i--) {
+				sorted[i] = heapNodes[0];
+				MapNode last = heapNodes[size - 1];
+				double lastDist = heapDists[size - 1];
+				size--;
+				siftDown(0, last, lastDist);
+			}
+			return new ArrayList<MapNode>(Arrays.asList(sorted));
+		}
+	}
+}
@@ -0,0 +1,648 @@
+package aimax.osm.data.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.EntityClassifier;
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.MapEvent;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.EntityViewInfo;
+import aimax.osm.data.entities.MapEntity;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.entities.MapWay;
+import aimax.osm.data.entities.WayRef;
+
+/**
+ * Map which works directly on a compiled map snapshot (see
+ * {@link aimax.osm.writer.SnapshotWriter}). The file is memory-mapped, so
+ * opening takes milliseconds, independent of the map size. Nodes and ways are
+ * created on first access and kept, so that each entity is represented by
+ * exactly one object. The spatial indices of way nodes, way bounding boxes
+ * and points of interest are stored in the snapshot and used as they are.
+ * The entity tree depends on the entity classifier and is therefore built
+ * when a classifier is set; the stored way bounding boxes make that possible
+ * without touching way nodes. Markers and tracks are supported as in the
+ * default map. The snapshot data is read-only. A call of
+ * {@link #getBuilder()} releases the snapshot, and from then on, the map
+ * behaves like a default map until the next snapshot is opened.
+ *
+ * <p>
+ * File layout (big-endian): header with magic number, version, bounding box
+ * and element counts, followed by the string pool, the node columns in
+ * spatial index order with their attributes, way references and index
+ * coordinates, the node ID index, the way columns with attributes, node
+ * references, bounding boxes and their spatial index, and the spatial index
+ * of the points of interest.
+ * </p>
+ *
+ */
+public class SnapshotMap extends DefaultMap {
+	/** First four bytes of a snapshot file ("OSMS"). */
+	public static final int MAGIC = 0x4F534D53;
+	public static final int VERSION = 2;
+
+	private static Logger LOG = Logger.getLogger("aimax.osm");
+
+	/** True while the map works on a snapshot. */
+	private boolean attached;
+	/** Offset of the next section while opening the file. */
+	private long position;
+
+	private int nodeCount;
+	private int wayCount;
+	private int poiCount;
+
+	private IntBuffer stringOffsets;
+	private ByteBuffer stringData;
+
+	private LongBuffer nodeIds;
+	private FloatBuffer nodeLats;
+	private FloatBuffer nodeLons;
+	private IntBuffer nodeNames;
+	private IntBuffer nodeAttStart;
+	private IntBuffer nodeAtts;
+	private IntBuffer nodeRefStart;
+	private IntBuffer nodeRefWays;
+	private IntBuffer nodeRefIndices;
+	private DoubleBuffer nodeCoords;
+	private ByteBuffer nodeAxes;
+	private LongBuffer sortedNodeIds;
+	private IntBuffer sortedNodeIndices;
+
+	private LongBuffer wayIds;
+	private IntBuffer wayNames;
+	private IntBuffer wayAttStart;
+	private IntBuffer wayAtts;
+	private IntBuffer wayNodeStart;
+	private IntBuffer wayNodes;
+	private FloatBuffer wayBoxes;
+	private IntBuffer wayIndexEntries;
+	private FloatBuffer wayIndexBoxes;
+
+	private IntBuffer poiNodes;
+	private DoubleBuffer poiCoords;
+	private ByteBuffer poiAxes;
+
+	private String[] strings;
+	private AtomicReferenceArray<MapNode> nodeCache;
+	private AtomicReferenceArray<MapWay> wayCache;
+	private BoxKDTree wayIndex;
+	private NodeKDTree wayNodeIndex;
+	private NodeKDTree poiIndex;
+	private NameIndex nameIndex;
+
+	/** Creates an empty map which behaves like a default map. */
+	public SnapshotMap() {
+	}
+
+	/** Creates a map and opens the snapshot file. */
+	public SnapshotMap(File snapshot) throws IOException {
+		open(snapshot);
+	}
+
+	/**
+	 * Checks whether the file starts with the magic number of map snapshots.
+	 */
+	public static boolean isSnapshot(File file) {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			return raf.length() >= 4 && raf.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Opens the file in the given map if the file is a snapshot and the map
+	 * is a snapshot map. If a classifier is given, it replaces the classifier
+	 * of the map. Returns false if the file has to be read by a map reader
+	 * instead.
+	 *
+	 * @param classifier
+	 *            possibly null
+	 */
+	public static boolean openIfSnapshot(OsmMap map, File file,
+			EntityClassifier<EntityViewInfo> classifier) {
+		if (!(map instanceof SnapshotMap) || !isSnapshot(file))
+			return false;
+		SnapshotMap snapshotMap = (SnapshotMap) map;
+		try {
+			if (classifier != null) {
+				// avoids classification of the old data
+				snapshotMap.releaseSnapshot();
+				snapshotMap.clear();
+				snapshotMap.setEntityClassifier(classifier);
+			}
+			snapshotMap.open(file);
+		} catch (IOException e) {
+			LOG.warning("The map snapshot could not be opened. " + e);
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces the current map data, markers and tracks by the content of a
+	 * snapshot file. The mapping remains valid after the file has been
+	 * closed, so no file handle is kept.
+	 */
+	public void open(File snapshot) throws IOException {
+		releaseSnapshot();
+		clear();
+		position = 0;
+		try (RandomAccessFile file = new RandomAccessFile(snapshot, "r")) {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = map(channel, 60);
+			if (header.getInt() != MAGIC)
+				throw new IOException("Not a map snapshot: " + snapshot);
+			if (header.getInt() != VERSION)
+				throw new IOException("Unsupported snapshot version.");
+			setBoundingBox(new BoundingBox(header.getFloat(),
+					header.getFloat(), header.getFloat(), header.getFloat()));
+			nodeCount = header.getInt();
+			wayCount = header.getInt();
+			poiCount = header.getInt();
+			int stringCount = header.getInt();
+			int stringBytes = header.getInt();
+			int nodeAttCount = header.getInt();
+			int nodeRefCount = header.getInt();
+			int wayAttCount = header.getInt();
+			int wayNodeRefCount = header.getInt();
+
+			stringOffsets = map(channel, 4L * (stringCount + 1)).asIntBuffer();
+			stringData = map(channel, stringBytes);
+
+			nodeIds = map(channel, 8L * nodeCount).asLongBuffer();
+			nodeLats = map(channel, 4L * nodeCount).asFloatBuffer();
+			nodeLons = map(channel, 4L * nodeCount).asFloatBuffer();
+			nodeNames = map(channel, 4L * nodeCount).asIntBuffer();
+			nodeAttStart = map(channel, 4L * (nodeCount + 1)).asIntBuffer();
+			nodeAtts = map(channel, 8L * nodeAttCount).asIntBuffer();
+			nodeRefStart = map(channel, 4L * (nodeCount + 1)).asIntBuffer();
+			nodeRefWays = map(channel, 4L * nodeRefCount).asIntBuffer();
+			nodeRefIndices = map(channel, 4L * nodeRefCount).asIntBuffer();
+			nodeCoords = map(channel, 24L * nodeCount).asDoubleBuffer();
+			nodeAxes = map(channel, nodeCount);
+			sortedNodeIds = map(channel, 8L * nodeCount).asLongBuffer();
+			sortedNodeIndices = map(channel, 4L * nodeCount).asIntBuffer();
+
+			wayIds = map(channel, 8L * wayCount).asLongBuffer();
+			wayNames = map(channel, 4L * wayCount).asIntBuffer();
+			wayAttStart = map(channel, 4L * (wayCount + 1)).asIntBuffer();
+			wayAtts = map(channel, 8L * wayAttCount).asIntBuffer();
+			wayNodeStart = map(channel, 4L * (wayCount + 1)).asIntBuffer();
+			wayNodes = map(channel, 4L * wayNodeRefCount).asIntBuffer();
+			wayBoxes = map(channel, 16L * wayCount).asFloatBuffer();
+			wayIndexEntries = map(channel, 4L * wayCount).asIntBuffer();
+			wayIndexBoxes = map(channel, 16L * wayCount).asFloatBuffer();
+
+			poiNodes = map(channel, 4L * poiCount).asIntBuffer();
+			poiCoords = map(channel, 24L * poiCount).asDoubleBuffer();
+			poiAxes = map(channel, poiCount);
+			if (position != channel.size())
+				throw new IOException("Snapshot size does not match.");
+		} catch (IOException e) {
+			releaseSnapshot();
+			throw e;
+		}
+		strings = new String[stringOffsets.capacity() - 1];
+		nodeCache = new AtomicReferenceArray<MapNode>(nodeCount);
+		wayCache = new AtomicReferenceArray<MapWay>(wayCount);
+		wayIndex = new BoxKDTree(wayBoxes, wayIndexEntries, wayIndexBoxes);
+		attached = true;
+		if (getEntityClassifier() != null)
+			applyClassifierAndUpdateTree(getBoundingBox());
+		fireMapDataEvent(new MapEvent(this, MapEvent.Type.MAP_NEW));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean isEmpty() {
+		return nodeCount == 0 && wayCount == 0 && super.isEmpty();
+	}
+
+	/**
+	 * Releases the snapshot and returns a builder which fills the map like a
+	 * default map.
+	 */
+	@Override
+	public MapBuilder getBuilder() {
+		releaseSnapshot();
+		return super.getBuilder();
+	}
+
+	/**
+	 * Snapshots are compiled already. Data provided by a builder is compiled
+	 * as in the default map.
+	 */
+	@Override
+	public void compile() {
+		if (!attached)
+			super.compile();
+	}
+
+	/**
+	 * Provides the map with an entity classifier and builds the entity tree
+	 * for it.
+	 */
+	@Override
+	public void setEntityClassifier(EntityClassifier<EntityViewInfo> classifier) {
+		super.setEntityClassifier(classifier);
+		// without compilation, the first classifier creates the tree
+		if (attached && getEntityTree() == null) {
+			applyClassifierAndUpdateTree(getBoundingBox());
+			fireMapDataEvent(new MapEvent(this, MapEvent.Type.MAP_MODIFIED));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getNodeCount() {
+		if (!attached)
+			return super.getNodeCount();
+		return nodeCount;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public MapNode getNode(long id) {
+		if (!attached)
+			return super.getNode(id);
+		int min = 0;
+		int max = nodeCount - 1;
+		while (min <= max) {
+			int curr = (min + max) >>> 1;
+			long currId = sortedNodeIds.get(curr);
+			if (currId == id)
+				return getNodeAt(sortedNodeIndices.get(curr));
+			else if (currId < id)
+				min = curr + 1;
+			else
+				max = curr - 1;
+		}
+		return null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getWayCount() {
+		if (!attached)
+			return super.getWayCount();
+		return wayCount;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public MapWay getWay(long id) {
+		if (!attached)
+			return super.getWay(id);
+		int min = 0;
+		int max = wayCount - 1;
+		while (min <= max) {
+			int curr = (min + max) >>> 1;
+			long currId = wayIds.get(curr);
+			if (currId == id)
+				return getWayAt(curr);
+			else if (currId < id)
+				min = curr + 1;
+			else
+				max = curr - 1;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns all map ways which intersect the specified bounding box. Only the
+	 * stored spatial index of the way bounding boxes is inspected.
+	 */
+	@Override
+	public Collection<MapWay> getWays(BoundingBox bb) {
+		if (!attached)
+			return super.getWays(bb);
+		List<MapWay> result = new ArrayList<MapWay>();
+		wayIndex.visitIntersecting(bb, i -> result.add(getWayAt(i)));
+		return result;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int getPoiCount() {
+		if (!attached)
+			return super.getPoiCount();
+		return poiCount;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public Object[][] getStatistics() {
+		if (!attached)
+			return super.getStatistics();
+		Object[][] result = new Object[3][2];
+		result[0][0] = "Nodes";
+		result[0][1] = nodeCount;
+		result[1][0] = "Ways";
+		result[1][1] = wayCount;
+		result[2][0] = "POIs";
+		result[2][1] = poiCount;
+		return result;
+	}
+
+	/** Returns the stored spatial index of the way nodes. */
+	@Override
+	protected synchronized NodeKDTree getWayNodeIndex() {
+		if (!attached)
+			return super.getWayNodeIndex();
+		if (wayNodeIndex == null)
+			wayNodeIndex = new NodeKDTree(nodeCount, this::getNodeAt,
+					nodeCoords, nodeAxes);
+		return wayNodeIndex;
+	}
+
+	/** Returns the stored spatial index of the points of interest. */
+	@Override
+	protected synchronized NodeKDTree getPoiIndex() {
+		if (!attached)
+			return super.getPoiIndex();
+		if (poiIndex == null)
+			poiIndex = new NodeKDTree(poiCount,
+					i -> getNodeAt(poiNodes.get(i)), poiCoords, poiAxes);
+		return poiIndex;
+	}
+
+	/**
+	 * Builds the name index from the stored names. Points of interest come
+	 * first, followed by the ways. Only matching entities are created.
+	 */
+	@Override
+	protected synchronized NameIndex getNameIndex() {
+		if (!attached)
+			return super.getNameIndex();
+		if (nameIndex == null) {
+			String[] names = new String[poiCount + wayCount];
+			for (int i = 0; i < poiCount; i++)
+				names[i] = getString(nodeNames.get(poiNodes.get(i)));
+			for (int i = 0; i < wayCount; i++)
+				names[poiCount + i] = getString(wayNames.get(i));
+			nameIndex = new NameIndex(names, i -> i < poiCount ? getNodeAt(poiNodes
+					.get(i)) : getWayAt(i - poiCount));
+		}
+		return nameIndex;
+	}
+
+	/**
+	 * Creates a new entity tree with all ways and points of interest for which
+	 * the current classifier provides view information. Without classifier,
+	 * the tree remains empty and no entity is created.
+	 */
+	@Override
+	protected void applyClassifierAndUpdateTree(BoundingBox bb) {
+		if (!attached) {
+			super.applyClassifierAndUpdateTree(bb);
+			return;
+		}
+		setEntityTree(new KDTree(bb, 8000, 60));
+		if (getEntityClassifier() != null) {
+			for (int i = 0; i < wayCount; i++)
+				updateEntityViewInfo(getWayAt(i), true);
+			for (int i = 0; i < poiCount; i++)
+				updateEntityViewInfo(getNodeAt(poiNodes.get(i)), true);
+		}
+		for (MapNode marker : getMarkers())
+			updateEntityViewInfo(marker, false);
+		for (MapEntity track : getTracks())
+			updateEntityViewInfo(track, false);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Drops all references to the snapshot. The mapped buffers are released
+	 * by the garbage collector.
+	 */
+	private synchronized void releaseSnapshot() {
+		attached = false;
+		nodeCount = 0;
+		wayCount = 0;
+		poiCount = 0;
+		stringOffsets = null;
+		stringData = null;
+		nodeIds = null;
+		nodeLats = null;
+		nodeLons = null;
+		nodeNames = null;
+		nodeAttStart = null;
+		nodeAtts = null;
+		nodeRefStart = null;
+		nodeRefWays = null;
+		nodeRefIndices = null;
+		nodeCoords = null;
+		nodeAxes = null;
+		sortedNodeIds = null;
+		sortedNodeIndices = null;
+		wayIds = null;
+		wayNames = null;
+		wayAttStart = null;
+		wayAtts = null;
+		wayNodeStart = null;
+		wayNodes = null;
+		wayBoxes = null;
+		wayIndexEntries = null;
+		wayIndexBoxes = null;
+		poiNodes = null;
+		poiCoords = null;
+		poiAxes = null;
+		strings = null;
+		nodeCache = null;
+		wayCache = null;
+		wayIndex = null;
+		wayNodeIndex = null;
+		poiIndex = null;
+		nameIndex = null;
+	}
+
+	/** Maps the next section of the file. */
+	private ByteBuffer map(FileChannel channel, long size) throws IOException {
+		MappedByteBuffer result = channel.map(FileChannel.MapMode.READ_ONLY,
+				position, size);
+		position += size;
+		return result;
+	}
+
+	/**
+	 * Returns the node at the specified position of the node columns. If two
+	 * threads create the same node, the first one which is stored wins.
+	 */
+	private MapNode getNodeAt(int i) {
+		MapNode result = nodeCache.get(i);
+		if (result == null) {
+			MapNode node = new SnapshotNode(i);
+			result = nodeCache.compareAndSet(i, null, node) ? node : nodeCache
+					.get(i);
+		}
+		return result;
+	}
+
+	/** Returns the way at the specified position of the way columns. */
+	private MapWay getWayAt(int i) {
+		MapWay result = wayCache.get(i);
+		if (result == null) {
+			MapWay way = new SnapshotWay(i);
+			result = wayCache.compareAndSet(i, null, way) ? way : wayCache
+					.get(i);
+		}
+		return result;
+	}
+
+	/** Returns the string with the given index from the pool, or null. */
+	private String getString(int idx) {
+		if (idx < 0)
+			return null;
+		String result = strings[idx];
+		if (result == null) {
+			int from = stringOffsets.get(idx);
+			byte[] bytes = new byte[stringOffsets.get(idx + 1) - from];
+			for (int i = 0; i < bytes.length; i++)
+				bytes[i] = stringData.get(from + i);
+			result = new String(bytes, StandardCharsets.UTF_8);
+			strings[idx] = result;
+		}
+		return result;
+	}
+
+	private List<EntityAttribute> readAttributes(IntBuffer atts,
+			IntBuffer attStart, int i) {
+		int from = attStart.get(i);
+		int to = attStart.get(i + 1);
+		List<EntityAttribute> result = new ArrayList<EntityAttribute>(to
+				- from);
+		for (int a = from; a < to; a++)
+			result.add(new EntityAttribute(getString(atts.get(2 * a)),
+					getString(atts.get(2 * a + 1))));
+		return result;
+	}
+
+	/**
+	 * Node of a snapshot. Way references are resolved on first request.
+	 */
+	private class SnapshotNode extends DefaultMapNode {
+		private int index;
+		private volatile List<WayRef> wayRefs;
+
+		SnapshotNode(int index) {
+			super(nodeIds.get(index));
+			this.index = index;
+			setPosition(nodeLats.get(index), nodeLons.get(index));
+			setName(getString(nodeNames.get(index)));
+			setAttributes(readAttributes(nodeAtts, nodeAttStart, index));
+		}
+
+		@Override
+		public List<WayRef> getWayRefs() {
+			if (wayRefs == null) {
+				int from = nodeRefStart.get(index);
+				int to = nodeRefStart.get(index + 1);
+				List<WayRef> refs = new ArrayList<WayRef>(to - from);
+				for (int r = from; r < to; r++)
+					refs.add(new DefaultWayRef(getWayAt(nodeRefWays.get(r)),
+							(short) nodeRefIndices.get(r)));
+				wayRefs = Collections.unmodifiableList(refs);
+			}
+			return wayRefs;
+		}
+	}
+
+	/**
+	 * Way of a snapshot. Way nodes are created on first access, the bounding
+	 * box is read from the snapshot.
+	 */
+	private class SnapshotWay extends DefaultMapWay {
+		private int index;
+
+		SnapshotWay(int index) {
+			super(wayIds.get(index));
+			this.index = index;
+			setName(getString(wayNames.get(index)));
+			setAttributes(readAttributes(wayAtts, wayAttStart, index));
+			setNodes(new WayNodeList(wayNodeStart.get(index), wayNodeStart
+					.get(index + 1)));
+		}
+
+		@Override
+		public BoundingBox computeBoundingBox() {
+			return new BoundingBox(wayBoxes.get(4 * index),
+					wayBoxes.get(4 * index + 1), wayBoxes.get(4 * index + 2),
+					wayBoxes.get(4 * index + 3));
+		}
+
+		@Override
+		public float getBoundingBoxSize() {
+			return wayBoxes.get(4 * index + 2) - wayBoxes.get(4 * index)
+					+ wayBoxes.get(4 * index + 3) - wayBoxes.get(4 * index + 1);
+		}
+
+		@Override
+		public int compareLatitude(float lat) {
+			return compare(wayBoxes.get(4 * index),
+					wayBoxes.get(4 * index + 2), lat);
+		}
+
+		@Override
+		public int compareLongitude(float lon) {
+			return compare(wayBoxes.get(4 * index + 1),
+					wayBoxes.get(4 * index + 3), lon);
+		}
+
+		private int compare(float min, float max, float value) {
+			if (max < value)
+				return -1;
+			else if (min > value)
+				return 1;
+			else
+				return 0;
+		}
+	}
+
+	/** Node list of a way, backed by the way node column. */
+	private class WayNodeList extends AbstractList<MapNode> implements
+			RandomAccess {
+		private int from;
+		private int to;
+
+		WayNodeList(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public MapNode get(int i) {
+			if (i < 0 || i >= to - from)
+				throw new IndexOutOfBoundsException("Index: " + i);
+			return getNodeAt(wayNodes.get(from + i));
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+	}
+}
@@ -5,7 +5,7 @@ import aimax.osm.data.entities.EntityAttribute;
 import aimax.osm.data.entities.MapEntity;
 import aimax.osm.data.entities.MapNode;
 import aimax.osm.data.entities.WayRef;
-import aimax.osm.data.impl.DefaultMap;
+import aimax.osm.data.impl.SnapshotMap;
 import aimax.osm.viewer.AbstractEntityRenderer;
 import aimax.osm.viewer.CoordTransformer;
 import aimax.osm.viewer.UnifiedMapDrawer;
@@ -48,7 +48,7 @@ public class MapPaneCtrl {
         pane.setMinSize(0, 0);
     }
 
-    protected OsmMap createMap() { return new DefaultMap(); }
+    protected OsmMap createMap() { return new SnapshotMap(); }
 
     public OsmMap getMap() {
         return mapDrawer.getMap();
@@ -22,7 +22,7 @@ import aimax.osm.data.Position;
 import aimax.osm.data.entities.EntityViewInfo;
 import aimax.osm.data.entities.MapNode;
 import aimax.osm.data.entities.Track;
-import aimax.osm.data.impl.DefaultMap;
+import aimax.osm.data.impl.SnapshotMap;
 import aimax.osm.gps.GpsFix;
 import aimax.osm.gps.GpsLocator;
 import aimax.osm.gps.GpsPositionListener;
@@ -279,7 +279,7 @@ public class MiniNaviApp implements ActionListener {
 			OsmMap map = (OsmMap) createComponent(MAP_CLASS_PROPERTY,
 					OsmMap.class);
 			if (map == null)
-				map = new DefaultMap();
+				map = new SnapshotMap();
 			view.setMap(map);
 			viewInfo = (EntityClassifier<EntityViewInfo>) createComponent(
 					CLASSIFIER_CLASS_PROPERTY, EntityClassifier.class);
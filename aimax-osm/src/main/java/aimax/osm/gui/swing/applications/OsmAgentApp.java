@@ -11,9 +11,9 @@ import aima.gui.swing.framework.AgentAppFrame;
 import aima.gui.swing.framework.SimpleAgentApp;
 import aimax.osm.data.DataResource;
 import aimax.osm.data.MapBuilder;
-import aimax.osm.data.impl.DefaultMapBuilder;
-import aimax.osm.reader.Bz2OsmReader;
+import aimax.osm.data.impl.SnapshotMap;
 import aimax.osm.reader.MapReader;
+import aimax.osm.reader.PbfOsmReader;
 import aimax.osm.gui.swing.viewer.agent.OsmAgentController;
 import aimax.osm.gui.swing.viewer.agent.OsmAgentFrame;
 import aimax.osm.gui.swing.viewer.agent.OsmAgentView;
@@ -38,8 +38,8 @@ public class OsmAgentApp extends SimpleAgentApp {
 	/** Reads a map from the specified stream and stores it in {@link #map}. */
 	public void readMap(InputStream stream) {
 		if (stream != null) {
-			MapReader mapReader = new Bz2OsmReader();
-			MapBuilder mapBuilder = new DefaultMapBuilder();
+			MapReader mapReader = new PbfOsmReader();
+			MapBuilder mapBuilder = new SnapshotMap().getBuilder();
 			mapReader.readMap(stream, mapBuilder);
 			map = new MapAdapter(mapBuilder.buildMap());
 		}
@@ -47,12 +47,19 @@ public class OsmAgentApp extends SimpleAgentApp {
 			LOG.warning("Map reading failed because input stream does not exist.");
 	}
 	
-	/** Reads a map from the specified file and stores it in {@link #map}. */
+	/**
+	 * Reads a map from the specified file and stores it in {@link #map}. Map
+	 * snapshots are opened directly.
+	 */
 	public void readMap(File file) {
-		MapReader mapReader = new Bz2OsmReader();
-		MapBuilder mapBuilder = new DefaultMapBuilder();
-		mapReader.readMap(file, mapBuilder);
-		map = new MapAdapter(mapBuilder.buildMap());
+		SnapshotMap result = new SnapshotMap();
+		if (!SnapshotMap.openIfSnapshot(result, file, null)) {
+			MapReader mapReader = new PbfOsmReader();
+			MapBuilder mapBuilder = result.getBuilder();
+			mapReader.readMap(file, mapBuilder);
+			mapBuilder.buildMap();
+		}
+		map = new MapAdapter(result);
 	}
 	
 	/**
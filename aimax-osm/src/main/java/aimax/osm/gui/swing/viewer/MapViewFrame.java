@@ -32,12 +32,13 @@ import aimax.osm.data.MapBuilder;
 import aimax.osm.data.OsmMap;
 import aimax.osm.data.entities.EntityViewInfo;
 import aimax.osm.data.entities.MapNode;
-import aimax.osm.data.impl.DefaultMap;
-import aimax.osm.reader.Bz2OsmReader;
+import aimax.osm.data.impl.SnapshotMap;
 import aimax.osm.reader.MapReader;
+import aimax.osm.reader.PbfOsmReader;
 import aimax.osm.viewer.MapStyleFactory;
 import aimax.osm.writer.Bz2OsmWriter;
 import aimax.osm.writer.MapWriter;
+import aimax.osm.writer.SnapshotWriter;
 
 /**
  * Implements a simple frame with a toolbar, a sidebar, and a map view. The
@@ -59,6 +60,7 @@ public class MapViewFrame extends JFrame implements ActionListener {
 	protected EntityClassifier<EntityViewInfo> viewInfo;
 	protected MapReader mapReader;
 	protected MapWriter mapWriter;
+	protected SnapshotWriter snapshotWriter = new SnapshotWriter();
 
 	private JFileChooser fileChooser;
 	private JButton loadButton;
@@ -101,7 +103,7 @@ public class MapViewFrame extends JFrame implements ActionListener {
 			}
 		});
 		fileChooser = new JFileChooser();
-		setMapReader(new Bz2OsmReader());
+		setMapReader(new PbfOsmReader());
 		setMapWriter(new Bz2OsmWriter());
 
 		JPanel contentPanel = new JPanel();
@@ -137,7 +139,7 @@ public class MapViewFrame extends JFrame implements ActionListener {
 	 * entity classifier which is used by default when reading maps.
 	 */
 	protected void initMapAndClassifier() {
-		view.setMap(new DefaultMap());
+		view.setMap(new SnapshotMap());
 		viewInfo = new MapStyleFactory().createDefaultClassifier();
 	}
 
@@ -234,6 +236,7 @@ public class MapViewFrame extends JFrame implements ActionListener {
 					.fileFormatExtensions()[i]);
 			fileChooser.addChoosableFileFilter(filter);
 		}
+		addSnapshotFilter(fileChooser);
 		fileChooser.setFileFilter(fileChooser.getChoosableFileFilters()[0]);
 		fileChooser.setSelectedFile(new File(""));
 	}
@@ -254,11 +257,17 @@ public class MapViewFrame extends JFrame implements ActionListener {
 		}
 	}
 
+	/**
+	 * Reads a map from file. Map snapshots are opened directly, all other
+	 * files are read by the map reader.
+	 */
 	public void readMap(File file) {
-		MapBuilder builder = getMap().getBuilder();
-		builder.setEntityClassifier(viewInfo);
-		mapReader.readMap(file, builder);
-		builder.buildMap();
+		if (!SnapshotMap.openIfSnapshot(getMap(), file, viewInfo)) {
+			MapBuilder builder = getMap().getBuilder();
+			builder.setEntityClassifier(viewInfo);
+			mapReader.readMap(file, builder);
+			builder.buildMap();
+		}
 		fileChooser.setSelectedFile(file.getAbsoluteFile());
 	}
 
@@ -297,6 +306,7 @@ public class MapViewFrame extends JFrame implements ActionListener {
 						mapWriter.fileFormatExtensions()[i]);
 				fc.addChoosableFileFilter(filter);
 			}
+			addSnapshotFilter(fc);
 			fc.setFileFilter(fc.getChoosableFileFilters()[0]);
 			fc.setCurrentDirectory(fileChooser.getCurrentDirectory());
 			int returnVal = fc.showSaveDialog(this);
@@ -304,8 +314,13 @@ public class MapViewFrame extends JFrame implements ActionListener {
 					&& (!fc.getSelectedFile().exists() || JOptionPane
 							.showConfirmDialog(this, "File exists, overwrite?",
 									"Confirm", JOptionPane.OK_CANCEL_OPTION) == JOptionPane.OK_OPTION)) {
-				mapWriter.writeMap(fc.getSelectedFile(), getMap(), view
-						.getBoundingBox());
+				File file = fc.getSelectedFile();
+				if (file.getName().endsWith("."
+						+ snapshotWriter.fileFormatExtensions()[0]))
+					snapshotWriter.writeMap(file, getMap(),
+							view.getBoundingBox());
+				else
+					mapWriter.writeMap(file, getMap(), view.getBoundingBox());
 			}
 		} else if (e.getSource() == statisticsButton) {
 			Object[][] data = getMap().getStatistics();
@@ -322,6 +337,13 @@ public class MapViewFrame extends JFrame implements ActionListener {
 		}
 	}
 
+	/** Adds a file filter for map snapshots to the file chooser. */
+	protected void addSnapshotFilter(JFileChooser fc) {
+		fc.addChoosableFileFilter(new FileNameExtensionFilter(snapshotWriter
+				.fileFormatDescriptions()[0], snapshotWriter
+				.fileFormatExtensions()[0]));
+	}
+
 	protected BoundingBox askForBoundingBox() {
 		BoundingBox result = null;
 		JTextField minLat = new JTextField("-90");
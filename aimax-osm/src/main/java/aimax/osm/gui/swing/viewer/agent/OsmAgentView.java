@@ -2,6 +2,7 @@ package aimax.osm.gui.swing.viewer.agent;
 
 import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
+import java.io.File;
 
 import javax.swing.JFileChooser;
 import javax.swing.JMenuItem;
@@ -21,11 +22,13 @@ import aimax.osm.data.OsmMap;
 import aimax.osm.data.Position;
 import aimax.osm.data.entities.EntityViewInfo;
 import aimax.osm.data.entities.MapNode;
-import aimax.osm.reader.Bz2OsmReader;
+import aimax.osm.data.impl.SnapshotMap;
 import aimax.osm.reader.MapReader;
+import aimax.osm.reader.PbfOsmReader;
 import aimax.osm.routing.MapAdapter;
 import aimax.osm.viewer.MapStyleFactory;
 import aimax.osm.viewer.UColor;
+import aimax.osm.writer.SnapshotWriter;
 import aimax.osm.gui.swing.viewer.MapViewPane;
 import aimax.osm.gui.swing.viewer.MapViewPopup;
 
@@ -118,7 +121,7 @@ public class OsmAgentView extends AgentAppEnvironmentView {
 		JFileChooser loadFileChooser;
 
 		MapViewPopupWithLoad() {
-			mapReader = new Bz2OsmReader();
+			mapReader = new PbfOsmReader();
 			loadMenuItem = new JMenuItem("Load Map");
 			loadMenuItem.addActionListener(this);
 			add(loadMenuItem, 3);
@@ -138,6 +141,10 @@ public class OsmAgentView extends AgentAppEnvironmentView {
 							mapReader.fileFormatExtensions()[i]);
 					result.addChoosableFileFilter(filter);
 				}
+				SnapshotWriter snapshotWriter = new SnapshotWriter();
+				result.addChoosableFileFilter(new FileNameExtensionFilter(
+						snapshotWriter.fileFormatDescriptions()[0],
+						snapshotWriter.fileFormatExtensions()[0]));
 				result.setFileFilter(result.getChoosableFileFilters()[0]);
 				loadFileChooser = result;
 			}
@@ -149,9 +156,12 @@ public class OsmAgentView extends AgentAppEnvironmentView {
 				JFileChooser fc = getLoadFileChooser();
 				int status = fc.showOpenDialog(pane);
 				if (status == JFileChooser.APPROVE_OPTION) {
-					MapBuilder mapBuilder = pane.getMap().getBuilder();
-					mapReader.readMap(fc.getSelectedFile(), mapBuilder);
-					mapBuilder.buildMap();
+					File file = fc.getSelectedFile();
+					if (!SnapshotMap.openIfSnapshot(pane.getMap(), file, null)) {
+						MapBuilder mapBuilder = pane.getMap().getBuilder();
+						mapReader.readMap(file, mapBuilder);
+						mapBuilder.buildMap();
+					}
 				}
 			} else {
 				super.actionPerformed(ae);
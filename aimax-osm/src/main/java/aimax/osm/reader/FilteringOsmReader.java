@@ -15,6 +15,8 @@ import aimax.osm.data.impl.DefaultMapWay;
 public class FilteringOsmReader extends OsmReader {
 	BoundingBox boundingBox;
 	EntityClassifier<Boolean> attFilter;
+	/** Number of the current pass over the map file, -1 if none. */
+	int pass = -1;
 
 	/**
 	 * Sets a bounding box for the next read action from file. Map nodes which
@@ -46,11 +48,13 @@ public class FilteringOsmReader extends OsmReader {
 				proxy = new FilteringBuilderProxy(builder, attFilter);
 			else
 				proxy = new MapBuilderProxy(builder);
+			pass = 0;
 			parseMap(createFileStream(file), proxy);
 			if (proxy.nodeRefsWithoutDefsAdded()) {
 				if (boundingBox != null || attFilter != null) {
 					LOG.info("Starting to parse the map file a second time.");
 					proxy.incrementCounter();
+					pass = 1;
 					parseMap(createFileStream(file), proxy);
 				} else {
 					LOG
@@ -65,9 +69,27 @@ public class FilteringOsmReader extends OsmReader {
 		} finally {
 			boundingBox = null;
 			attFilter = null;
+			pass = -1;
 		}
 	}
 
+	/**
+	 * Returns the bounding box which nodes must be inside to be relevant in
+	 * the current pass, or null. Readers which decode entities before handing
+	 * them to the builder can use it to drop irrelevant nodes early.
+	 */
+	protected BoundingBox getPassBoundingBox() {
+		return pass == 0 ? boundingBox : null;
+	}
+
+	/**
+	 * Checks whether ways are relevant in the current pass. Only the first
+	 * pass adds ways, the second one completes the referenced nodes.
+	 */
+	protected boolean areWaysRelevant() {
+		return pass != 1;
+	}
+
 	// ////////////////////////////////////////////////////////////////////
 	// inner classes
 
@@ -0,0 +1,64 @@
+package aimax.osm.reader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.xml.sax.SAXException;
+
+import aimax.osm.data.MapBuilder;
+
+/**
+ * Adds support for the binary OSM PBF format to the
+ * <code>Bz2OsmReader</code>. The format is detected by the content of the
+ * stream, so XML and PBF files can be read by the same reader. Blobs are
+ * decoded in parallel (see {@link PbfParser}). Bounding box filtering and
+ * the skipping of ways in the second pass are done by the decoders; attribute
+ * filtering is left to the builder proxies of the
+ * <code>FilteringOsmReader</code>.
+ */
+public class PbfOsmReader extends Bz2OsmReader {
+
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+
+	/** Sets the number of threads used to decode PBF blobs. */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	@Override
+	protected void parseMap(InputStream inputStream, MapBuilder consumer)
+			throws SAXException, IOException {
+		InputStream is = new BufferedInputStream(inputStream);
+		if (PbfParser.isPbf(is)) {
+			PbfParser parser = new PbfParser(consumer, threadCount);
+			parser.setNodeFilter(getPassBoundingBox());
+			parser.setSkipWays(!areWaysRelevant());
+			try {
+				parser.parse(is);
+			} finally {
+				is.close();
+			}
+		} else {
+			super.parseMap(is, consumer);
+		}
+	}
+
+	@Override
+	public String[] fileFormatDescriptions() {
+		String[] formats = super.fileFormatDescriptions();
+		String[] result = new String[formats.length + 1];
+		System.arraycopy(formats, 0, result, 0, formats.length);
+		result[formats.length] = "OSM PBF (pbf)";
+		return result;
+	}
+
+	@Override
+	public String[] fileFormatExtensions() {
+		String[] extensions = super.fileFormatExtensions();
+		String[] result = new String[extensions.length + 1];
+		System.arraycopy(extensions, 0, result, 0, extensions.length);
+		result[extensions.length] = "pbf";
+		return result;
+	}
+}
@@ -0,0 +1,687 @@
+package aimax.osm.reader;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.EntityAttributeManager;
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.entities.EntityAttribute;
+
+/**
+ * Parser for the binary OSM PBF format. The file is a sequence of blobs, each
+ * holding a zlib compressed protocol buffer message. Blobs are read by the
+ * calling thread and inflated and decoded by a pool of worker threads. The
+ * decoded blocks are passed to the map builder in file order by the calling
+ * thread, so builders need not be thread-safe. Only the protocol buffer
+ * subset needed for nodes, dense nodes and ways is implemented; relations and
+ * meta data are skipped.
+ *
+ */
+public class PbfParser {
+	private static final int MAX_HEADER_SIZE = 64 * 1024;
+	private static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+	private MapBuilder builder;
+	private int threadCount;
+	private BoundingBox nodeFilter;
+	private boolean skipWays;
+	/** Size of the blob announced by the last blob header. */
+	private int lastBlobSize;
+
+	/**
+	 * Creates a parser which sends all data to the specified builder.
+	 *
+	 * @param threadCount
+	 *            Number of decoder threads.
+	 */
+	public PbfParser(MapBuilder builder, int threadCount) {
+		this.builder = builder;
+		this.threadCount = Math.max(1, threadCount);
+	}
+
+	/**
+	 * Advises the decoders to drop all nodes outside the given box (null
+	 * accepts all nodes).
+	 */
+	public void setNodeFilter(BoundingBox bb) {
+		nodeFilter = bb;
+	}
+
+	/** Advises the decoders to drop all ways. */
+	public void setSkipWays(boolean skipWays) {
+		this.skipWays = skipWays;
+	}
+
+	/**
+	 * Checks whether the stream starts like a PBF file. The stream must
+	 * support marks.
+	 */
+	public static boolean isPbf(InputStream is) throws IOException {
+		byte[] start = new byte[14];
+		is.mark(start.length);
+		int count = 0;
+		int read;
+		while (count < start.length
+				&& (read = is.read(start, count, start.length - count)) > 0)
+			count += read;
+		is.reset();
+		// 4 byte header length, then BlobHeader field 1 (type) "OSMHeader"
+		return count == start.length && start[4] == 0x0A && start[5] == 9
+				&& new String(start, 6, 8, StandardCharsets.US_ASCII)
+						.equals("OSMHeade");
+	}
+
+	/** Reads all blobs from the stream and sends the data to the builder. */
+	public void parse(InputStream is) throws IOException {
+		DataInputStream in = new DataInputStream(is);
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+				r -> {
+					Thread t = new Thread(r, "PbfDecoder");
+					t.setDaemon(true);
+					return t;
+				});
+		ArrayDeque<Future<Block>> pending = new ArrayDeque<Future<Block>>();
+		try {
+			String type;
+			while ((type = readBlobHeader(in)) != null) {
+				int size = lastBlobSize;
+				byte[] blob = new byte[size];
+				in.readFully(blob);
+				if (type.equals("OSMHeader")) {
+					processHeader(new ProtoReader(inflate(blob)));
+				} else if (type.equals("OSMData")) {
+					pending.add(executor.submit(() -> decodeBlock(blob)));
+					if (pending.size() >= 2 * threadCount)
+						addToBuilder(pending.poll());
+				}
+			}
+			while (!pending.isEmpty())
+				addToBuilder(pending.poll());
+		} finally {
+			for (Future<Block> f : pending)
+				f.cancel(true);
+			executor.shutdownNow();
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/** Returns the blob type or null at the end of the stream. */
+	private String readBlobHeader(DataInputStream in) throws IOException {
+		int headerSize;
+		try {
+			headerSize = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		if (headerSize < 0 || headerSize > MAX_HEADER_SIZE)
+			throw new OsmRuntimeException("Invalid blob header size "
+					+ headerSize + ".");
+		byte[] header = new byte[headerSize];
+		in.readFully(header);
+		ProtoReader pr = new ProtoReader(header);
+		String type = null;
+		lastBlobSize = -1;
+		while (pr.hasMore()) {
+			int tag = pr.readTag();
+			if (tag == (1 << 3 | 2))
+				type = pr.readString();
+			else if (tag == (3 << 3 | 0))
+				lastBlobSize = (int) pr.readVarint();
+			else
+				pr.skip(tag);
+		}
+		if (type == null || lastBlobSize < 0 || lastBlobSize > MAX_BLOB_SIZE)
+			throw new OsmRuntimeException("Invalid blob header.");
+		return type;
+	}
+
+	/** Returns the uncompressed content of a blob. */
+	private static byte[] inflate(byte[] blob) {
+		ProtoReader pr = new ProtoReader(blob);
+		byte[] raw = null;
+		int rawSize = -1;
+		int zlibStart = -1;
+		int zlibLength = 0;
+		while (pr.hasMore()) {
+			int tag = pr.readTag();
+			switch (tag) {
+			case 1 << 3 | 2:
+				raw = pr.readBytes();
+				break;
+			case 2 << 3 | 0:
+				rawSize = (int) pr.readVarint();
+				break;
+			case 3 << 3 | 2:
+				ProtoReader zlib = pr.readMessage();
+				zlibStart = zlib.pos;
+				zlibLength = zlib.limit - zlib.pos;
+				break;
+			default:
+				if (tag >>> 3 > 3)
+					throw new OsmRuntimeException(
+							"Unsupported blob compression.");
+				pr.skip(tag);
+			}
+		}
+		if (raw != null)
+			return raw;
+		if (zlibStart < 0 || rawSize < 0 || rawSize > MAX_BLOB_SIZE)
+			throw new OsmRuntimeException("Invalid blob.");
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(blob, zlibStart, zlibLength);
+			byte[] result = new byte[rawSize];
+			int count = 0;
+			while (count < rawSize && !inflater.finished()) {
+				int n = inflater.inflate(result, count, rawSize - count);
+				if (n == 0)
+					break;
+				count += n;
+			}
+			if (count != rawSize)
+				throw new OsmRuntimeException("Blob data truncated.");
+			return result;
+		} catch (DataFormatException e) {
+			throw new OsmRuntimeException("Unable to inflate blob.", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private void processHeader(ProtoReader pr) {
+		while (pr.hasMore()) {
+			int tag = pr.readTag();
+			if (tag == (1 << 3 | 2)) {
+				ProtoReader bbr = pr.readMessage();
+				double left = 0, right = 0, top = 0, bottom = 0;
+				while (bbr.hasMore()) {
+					int t = bbr.readTag();
+					switch (t >>> 3) {
+					case 1:
+						left = 1e-9 * bbr.readSVarint();
+						break;
+					case 2:
+						right = 1e-9 * bbr.readSVarint();
+						break;
+					case 3:
+						top = 1e-9 * bbr.readSVarint();
+						break;
+					case 4:
+						bottom = 1e-9 * bbr.readSVarint();
+						break;
+					default:
+						bbr.skip(t);
+					}
+				}
+				builder.setBoundingBox(new BoundingBox((float) bottom,
+						(float) left, (float) top, (float) right));
+			} else if (tag == (4 << 3 | 2)) {
+				String feature = pr.readString();
+				if (!feature.equals("OsmSchema-V0.6")
+						&& !feature.equals("DenseNodes"))
+					throw new OsmRuntimeException("Unsupported PBF feature "
+							+ feature + ".");
+			} else {
+				pr.skip(tag);
+			}
+		}
+	}
+
+	/** Decodes a primitive block. Called by the worker threads. */
+	private Block decodeBlock(byte[] blob) {
+		ProtoReader pr = new ProtoReader(inflate(blob));
+		Block block = new Block();
+		List<ProtoReader> groups = new ArrayList<ProtoReader>();
+		List<String> strings = new ArrayList<String>();
+		long granularity = 100;
+		long latOffset = 0;
+		long lonOffset = 0;
+		while (pr.hasMore()) {
+			int tag = pr.readTag();
+			switch (tag >>> 3) {
+			case 1:
+				ProtoReader st = pr.readMessage();
+				while (st.hasMore()) {
+					int t = st.readTag();
+					if (t == (1 << 3 | 2))
+						strings.add(st.readString());
+					else
+						st.skip(t);
+				}
+				break;
+			case 2:
+				groups.add(pr.readMessage());
+				break;
+			case 17:
+				granularity = pr.readVarint();
+				break;
+			case 19:
+				latOffset = pr.readVarint();
+				break;
+			case 20:
+				lonOffset = pr.readVarint();
+				break;
+			default:
+				pr.skip(tag);
+			}
+		}
+		block.strings = strings.toArray(new String[strings.size()]);
+		block.granularity = granularity;
+		block.latOffset = latOffset;
+		block.lonOffset = lonOffset;
+		for (ProtoReader group : groups) {
+			while (group.hasMore()) {
+				int tag = group.readTag();
+				if (tag == (1 << 3 | 2))
+					decodeNode(group.readMessage(), block);
+				else if (tag == (2 << 3 | 2))
+					decodeDenseNodes(group.readMessage(), block);
+				else if (tag == (3 << 3 | 2) && !skipWays)
+					decodeWay(group.readMessage(), block);
+				else
+					group.skip(tag);
+			}
+		}
+		return block;
+	}
+
+	private void decodeNode(ProtoReader pr, Block block) {
+		long id = 0;
+		long lat = 0;
+		long lon = 0;
+		int[] keys = null;
+		int[] vals = null;
+		while (pr.hasMore()) {
+			int tag = pr.readTag();
+			switch (tag >>> 3) {
+			case 1:
+				id = pr.readSVarint();
+				break;
+			case 2:
+				keys = pr.readPackedInts();
+				break;
+			case 3:
+				vals = pr.readPackedInts();
+				break;
+			case 8:
+				lat = pr.readSVarint();
+				break;
+			case 9:
+				lon = pr.readSVarint();
+				break;
+			default:
+				pr.skip(tag);
+			}
+		}
+		checkTags(keys, vals);
+		if (block.addNode(id, lat, lon, nodeFilter) && keys != null) {
+			for (int i = 0; i < keys.length; i++)
+				block.addNodeTag(keys[i], vals[i]);
+		}
+	}
+
+	private void decodeDenseNodes(ProtoReader pr, Block block) {
+		ProtoReader ids = null;
+		ProtoReader lats = null;
+		ProtoReader lons = null;
+		ProtoReader keysVals = null;
+		while (pr.hasMore()) {
+			int tag = pr.readTag();
+			switch (tag >>> 3) {
+			case 1:
+				ids = pr.readMessage();
+				break;
+			case 8:
+				lats = pr.readMessage();
+				break;
+			case 9:
+				lons = pr.readMessage();
+				break;
+			case 10:
+				keysVals = pr.readMessage();
+				break;
+			default:
+				pr.skip(tag);
+			}
+		}
+		if (ids == null || lats == null || lons == null)
+			return;
+		long id = 0;
+		long lat = 0;
+		long lon = 0;
+		while (ids.hasMore()) {
+			id += ids.readSVarint();
+			lat += lats.readSVarint();
+			lon += lons.readSVarint();
+			boolean accepted = block.addNode(id, lat, lon, nodeFilter);
+			if (keysVals != null) {
+				int key;
+				while (keysVals.hasMore() && (key = (int) keysVals.readVarint()) != 0) {
+					int val = (int) keysVals.readVarint();
+					if (accepted)
+						block.addNodeTag(key, val);
+				}
+			}
+		}
+	}
+
+	private void decodeWay(ProtoReader pr, Block block) {
+		long id = 0;
+		int[] keys = null;
+		int[] vals = null;
+		ProtoReader refs = null;
+		while (pr.hasMore()) {
+			int tag = pr.readTag();
+			switch (tag >>> 3) {
+			case 1:
+				id = pr.readVarint();
+				break;
+			case 2:
+				keys = pr.readPackedInts();
+				break;
+			case 3:
+				vals = pr.readPackedInts();
+				break;
+			case 8:
+				refs = pr.readMessage();
+				break;
+			default:
+				pr.skip(tag);
+			}
+		}
+		checkTags(keys, vals);
+		block.addWay(id);
+		if (keys != null)
+			for (int i = 0; i < keys.length; i++)
+				block.addWayTag(keys[i], vals[i]);
+		if (refs != null) {
+			long ref = 0;
+			while (refs.hasMore()) {
+				ref += refs.readSVarint();
+				block.addWayRef(ref);
+			}
+		}
+	}
+
+	private static void checkTags(int[] keys, int[] vals) {
+		if (keys == null ? vals != null : vals == null
+				|| keys.length != vals.length)
+			throw new OsmRuntimeException("Keys and values do not match.");
+	}
+
+	/** Passes a decoded block to the builder. */
+	private void addToBuilder(Future<Block> future) throws IOException {
+		Block block;
+		try {
+			block = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OsmRuntimeException("Interrupted while reading map.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof OsmRuntimeException)
+				throw (OsmRuntimeException) e.getCause();
+			throw new OsmRuntimeException("Unable to decode PBF block.",
+					e.getCause());
+		}
+		List<EntityAttribute> atts = new ArrayList<EntityAttribute>();
+		for (int i = 0; i < block.nodeCount; i++) {
+			long id = block.nodeIds[i];
+			if (builder.isNodeDefined(id, null))
+				continue;
+			String name = getTags(block, block.nodeTags, block.nodeTagStart[i],
+					block.nodeTagStart[i + 1], atts);
+			builder.addNode(id, name, atts, block.getLat(i), block.getLon(i));
+		}
+		List<Long> wayNodeIds = new ArrayList<Long>();
+		for (int i = 0; i < block.wayCount; i++) {
+			long id = block.wayIds[i];
+			if (builder.isWayDefined(id))
+				continue;
+			String name = getTags(block, block.wayTags, block.wayTagStart[i],
+					block.wayTagStart[i + 1], atts);
+			wayNodeIds.clear();
+			for (int r = block.wayRefStart[i]; r < block.wayRefStart[i + 1]; r++)
+				wayNodeIds.add(block.wayRefs[r]);
+			builder.addWay(id, name, atts, wayNodeIds);
+		}
+	}
+
+	/**
+	 * Converts tags into interned attributes and returns the value of the name
+	 * tag.
+	 */
+	private static String getTags(Block block, int[] tags, int from, int to,
+			List<EntityAttribute> atts) {
+		String name = null;
+		atts.clear();
+		for (int t = 2 * from; t < 2 * to; t += 2) {
+			String key = block.strings[tags[t]];
+			String value = block.strings[tags[t + 1]];
+			if (key.equals("name")) {
+				name = value;
+			} else {
+				EntityAttribute att = EntityAttributeManager.instance().intern(
+						new EntityAttribute(key, value));
+				if (att != null)
+					atts.add(att);
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * Decoded content of one primitive block. Tags are stored as pairs of
+	 * string table indices.
+	 */
+	private static class Block {
+		String[] strings;
+		long granularity;
+		long latOffset;
+		long lonOffset;
+
+		int nodeCount;
+		long[] nodeIds = new long[64];
+		long[] nodeLats = new long[64];
+		long[] nodeLons = new long[64];
+		int[] nodeTagStart = new int[65];
+		int[] nodeTags = new int[64];
+		int nodeTagCount;
+
+		int wayCount;
+		long[] wayIds = new long[16];
+		int[] wayTagStart = new int[17];
+		int[] wayTags = new int[64];
+		int wayTagCount;
+		int[] wayRefStart = new int[17];
+		long[] wayRefs = new long[256];
+		int wayRefCount;
+
+		/** Adds a node if it is inside the filter box (if any). */
+		boolean addNode(long id, long lat, long lon, BoundingBox filter) {
+			if (filter != null) {
+				float flat = toDegrees(lat, latOffset);
+				float flon = toDegrees(lon, lonOffset);
+				if (flat < filter.getLatMin() || flat > filter.getLatMax()
+						|| flon < filter.getLonMin()
+						|| flon > filter.getLonMax())
+					return false;
+			}
+			if (nodeCount == nodeIds.length) {
+				nodeIds = Arrays.copyOf(nodeIds, 2 * nodeCount);
+				nodeLats = Arrays.copyOf(nodeLats, 2 * nodeCount);
+				nodeLons = Arrays.copyOf(nodeLons, 2 * nodeCount);
+				nodeTagStart = Arrays.copyOf(nodeTagStart, 2 * nodeCount + 1);
+			}
+			nodeIds[nodeCount] = id;
+			nodeLats[nodeCount] = lat;
+			nodeLons[nodeCount] = lon;
+			nodeCount++;
+			nodeTagStart[nodeCount] = nodeTagCount;
+			return true;
+		}
+
+		void addNodeTag(int key, int val) {
+			if (2 * nodeTagCount + 2 > nodeTags.length)
+				nodeTags = Arrays.copyOf(nodeTags, 2 * nodeTags.length);
+			nodeTags[2 * nodeTagCount] = checkString(key);
+			nodeTags[2 * nodeTagCount + 1] = checkString(val);
+			nodeTagStart[nodeCount] = ++nodeTagCount;
+		}
+
+		void addWay(long id) {
+			if (wayCount == wayIds.length) {
+				wayIds = Arrays.copyOf(wayIds, 2 * wayCount);
+				wayTagStart = Arrays.copyOf(wayTagStart, 2 * wayCount + 1);
+				wayRefStart = Arrays.copyOf(wayRefStart, 2 * wayCount + 1);
+			}
+			wayIds[wayCount++] = id;
+			wayTagStart[wayCount] = wayTagCount;
+			wayRefStart[wayCount] = wayRefCount;
+		}
+
+		void addWayTag(int key, int val) {
+			if (2 * wayTagCount + 2 > wayTags.length)
+				wayTags = Arrays.copyOf(wayTags, 2 * wayTags.length);
+			wayTags[2 * wayTagCount] = checkString(key);
+			wayTags[2 * wayTagCount + 1] = checkString(val);
+			wayTagStart[wayCount] = ++wayTagCount;
+		}
+
+		void addWayRef(long ref) {
+			if (wayRefCount == wayRefs.length)
+				wayRefs = Arrays.copyOf(wayRefs, 2 * wayRefCount);
+			wayRefs[wayRefCount++] = ref;
+			wayRefStart[wayCount] = wayRefCount;
+		}
+
+		float getLat(int i) {
+			return toDegrees(nodeLats[i], latOffset);
+		}
+
+		float getLon(int i) {
+			return toDegrees(nodeLons[i], lonOffset);
+		}
+
+		private float toDegrees(long value, long offset) {
+			return (float) (1e-9 * (offset + granularity * value));
+		}
+
+		private int checkString(int index) {
+			if (index < 0 || index >= strings.length)
+				throw new OsmRuntimeException("Invalid string table index.");
+			return index;
+		}
+	}
+
+	/** Minimal reader for protocol buffer wire format data. */
+	private static class ProtoReader {
+		byte[] buf;
+		int pos;
+		int limit;
+
+		ProtoReader(byte[] buf) {
+			this(buf, 0, buf.length);
+		}
+
+		ProtoReader(byte[] buf, int pos, int limit) {
+			this.buf = buf;
+			this.pos = pos;
+			this.limit = limit;
+		}
+
+		boolean hasMore() {
+			return pos < limit;
+		}
+
+		int readTag() {
+			return (int) readVarint();
+		}
+
+		long readVarint() {
+			long result = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				if (pos >= limit)
+					throw new OsmRuntimeException("Truncated PBF data.");
+				byte b = buf[pos++];
+				result |= (long) (b & 0x7F) << shift;
+				if (b >= 0)
+					return result;
+			}
+			throw new OsmRuntimeException("Malformed varint.");
+		}
+
+		long readSVarint() {
+			long v = readVarint();
+			return (v >>> 1) ^ -(v & 1);
+		}
+
+		/** Returns a reader for a length-delimited field. */
+		ProtoReader readMessage() {
+			int length = (int) readVarint();
+			if (length < 0 || length > limit - pos)
+				throw new OsmRuntimeException("Truncated PBF data.");
+			ProtoReader result = new ProtoReader(buf, pos, pos + length);
+			pos += length;
+			return result;
+		}
+
+		byte[] readBytes() {
+			ProtoReader r = readMessage();
+			return Arrays.copyOfRange(buf, r.pos, r.limit);
+		}
+
+		String readString() {
+			ProtoReader r = readMessage();
+			return new String(buf, r.pos, r.limit - r.pos,
+					StandardCharsets.UTF_8);
+		}
+
+		int[] readPackedInts() {
+			ProtoReader r = readMessage();
+			int[] result = new int[r.limit - r.pos];
+			int count = 0;
+			while (r.hasMore())
+				result[count++] = (int) r.readVarint();
+			return Arrays.copyOf(result, count);
+		}
+
+		void skip(int tag) {
+			switch (tag & 7) {
+			case 0:
+				readVarint();
+				break;
+			case 1:
+				pos += 8;
+				break;
+			case 2:
+				readMessage();
+				break;
+			case 5:
+				pos += 4;
+				break;
+			default:
+				throw new OsmRuntimeException("Unsupported wire type "
+						+ (tag & 7) + ".");
+			}
+			if (pos > limit)
+				throw new OsmRuntimeException("Truncated PBF data.");
+		}
+	}
+}
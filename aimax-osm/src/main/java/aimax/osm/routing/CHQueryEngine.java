@@ -0,0 +1,190 @@
+package aimax.osm.routing;
+
+import java.util.Arrays;
+
+import aimax.osm.routing.ContractionHierarchy.NodeHeap;
+
+/**
+ * Answers shortest path queries on a {@link ContractionHierarchy} by a
+ * bidirectional Dijkstra search which only follows upward arcs, i.e. arcs
+ * leading to nodes contracted later. The search state is reused from query
+ * to query, so an engine must not be shared between threads.
+ *
+ */
+public class CHQueryEngine {
+	private ContractionHierarchy ch;
+	private float[] distFwd;
+	private float[] distBwd;
+	private int[] parentFwd;
+	private int[] parentBwd;
+	private int[] touched;
+	private int touchedCount;
+	private NodeHeap heapFwd = new NodeHeap(64);
+	private NodeHeap heapBwd = new NodeHeap(64);
+	private float distance;
+	private int settledNodes;
+
+	public CHQueryEngine(ContractionHierarchy ch) {
+		this.ch = ch;
+		int n = ch.getNodeCount();
+		distFwd = new float[n];
+		distBwd = new float[n];
+		Arrays.fill(distFwd, Float.POSITIVE_INFINITY);
+		Arrays.fill(distBwd, Float.POSITIVE_INFINITY);
+		parentFwd = new int[n];
+		parentBwd = new int[n];
+		touched = new int[n];
+	}
+
+	/**
+	 * Computes a shortest path between two nodes of the road graph.
+	 *
+	 * @return the nodes of the path including start and goal or null if the
+	 *         goal cannot be reached.
+	 */
+	public int[] findPath(int from, int to) {
+		reset();
+		distance = Float.POSITIVE_INFINITY;
+		settledNodes = 0;
+		setDist(distFwd, parentFwd, from, 0f, -1);
+		setDist(distBwd, parentBwd, to, 0f, -1);
+		heapFwd.add(from, 0f);
+		heapBwd.add(to, 0f);
+		int meeting = from == to ? from : -1;
+		if (meeting != -1)
+			distance = 0f;
+		while (true) {
+			boolean fwdDone = heapFwd.isEmpty()
+					|| heapFwd.peekKey() >= distance;
+			boolean bwdDone = heapBwd.isEmpty()
+					|| heapBwd.peekKey() >= distance;
+			if (fwdDone && bwdDone)
+				break;
+			boolean forward = bwdDone || !fwdDone
+					&& heapFwd.peekKey() <= heapBwd.peekKey();
+			NodeHeap heap = forward ? heapFwd : heapBwd;
+			float[] dist = forward ? distFwd : distBwd;
+			float[] otherDist = forward ? distBwd : distFwd;
+			int[] parent = forward ? parentFwd : parentBwd;
+			float d = heap.peekKey();
+			int u = heap.poll();
+			if (d > dist[u])
+				continue;
+			settledNodes++;
+			if (d + otherDist[u] < distance) {
+				distance = d + otherDist[u];
+				meeting = u;
+			}
+			if (forward) {
+				for (int a = ch.getFwdFirst(u); a < ch.getFwdFirst(u + 1); a++)
+					relax(heap, dist, parent, u, ch.getFwdTarget(a), d
+							+ ch.getFwdWeight(a));
+			} else {
+				for (int a = ch.getBwdFirst(u); a < ch.getBwdFirst(u + 1); a++)
+					relax(heap, dist, parent, u, ch.getBwdSource(a), d
+							+ ch.getBwdWeight(a));
+			}
+		}
+		if (meeting == -1)
+			return null;
+		return unpack(from, meeting, to);
+	}
+
+	public ContractionHierarchy getHierarchy() {
+		return ch;
+	}
+
+	/** Returns the length of the path found by the last query in KM. */
+	public float getDistance() {
+		return distance;
+	}
+
+	/** Returns the number of nodes settled by the last query. */
+	public int getSettledNodes() {
+		return settledNodes;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private void relax(NodeHeap heap, float[] dist, int[] parent, int u,
+			int v, float dv) {
+		if (dv < dist[v]) {
+			setDist(dist, parent, v, dv, u);
+			heap.add(v, dv);
+		}
+	}
+
+	private void setDist(float[] dist, int[] parent, int node, float d,
+			int parentNode) {
+		if (distFwd[node] == Float.POSITIVE_INFINITY
+				&& distBwd[node] == Float.POSITIVE_INFINITY)
+			touched[touchedCount++] = node;
+		dist[node] = d;
+		parent[node] = parentNode;
+	}
+
+	private void reset() {
+		for (int i = 0; i < touchedCount; i++) {
+			distFwd[touched[i]] = Float.POSITIVE_INFINITY;
+			distBwd[touched[i]] = Float.POSITIVE_INFINITY;
+		}
+		touchedCount = 0;
+		heapFwd.clear();
+		heapBwd.clear();
+	}
+
+	/** Expands the shortcuts of the path found by the search. */
+	private int[] unpack(int from, int meeting, int to) {
+		// hierarchy nodes of the path, from start to goal
+		int fwdLength = 0;
+		for (int v = meeting; v != from; v = parentFwd[v])
+			fwdLength++;
+		int bwdLength = 0;
+		for (int v = meeting; v != to; v = parentBwd[v])
+			bwdLength++;
+		int[] upPath = new int[fwdLength + bwdLength + 1];
+		int v = meeting;
+		for (int i = fwdLength; i > 0; i--) {
+			upPath[i] = v;
+			v = parentFwd[v];
+		}
+		upPath[0] = from;
+		v = meeting;
+		for (int i = fwdLength + 1; i < upPath.length; i++) {
+			v = parentBwd[v];
+			upPath[i] = v;
+		}
+		// replace each arc by the original links it stands for
+		int[] result = new int[16];
+		int size = 0;
+		result[size++] = from;
+		int[] stack = new int[32];
+		for (int k = 1; k < upPath.length; k++) {
+			int sp = 0;
+			stack[sp++] = upPath[k - 1];
+			stack[sp++] = upPath[k];
+			while (sp > 0) {
+				int b = stack[--sp];
+				int a = stack[--sp];
+				int middle = ch.getMiddle(a, b);
+				if (middle == -1) {
+					if (size == result.length)
+						result = Arrays.copyOf(result, 2 * size);
+					result[size++] = b;
+				} else if (middle < 0) {
+					throw new IllegalStateException("No arc from " + a
+							+ " to " + b + " in the hierarchy.");
+				} else {
+					if (sp + 4 > stack.length)
+						stack = Arrays.copyOf(stack, 2 * stack.length);
+					stack[sp++] = middle;
+					stack[sp++] = b;
+					stack[sp++] = a;
+					stack[sp++] = middle;
+				}
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+}
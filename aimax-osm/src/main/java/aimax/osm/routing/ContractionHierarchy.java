@@ -0,0 +1,585 @@
+package aimax.osm.routing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+/**
+ * Contraction hierarchy of a {@link RoadGraph}. The nodes are contracted one
+ * after another in the order of their importance (estimated by edge
+ * difference, the number of contracted neighbors and the level in the
+ * hierarchy). Whenever a node is
+ * removed, shortcuts preserve the shortest paths between its remaining
+ * neighbors. The resulting upward graphs, stored in compressed sparse row
+ * form, allow {@link CHQueryEngine} to answer shortest path queries by two
+ * small Dijkstra searches.<br>
+ * <br>
+ * Hierarchies can be saved to binary files. A fingerprint of the road graph
+ * is stored with them, so that outdated files are recognized when loading.
+ *
+ */
+public class ContractionHierarchy {
+	private static final int MAGIC = 0x4F534348; // "OSCH"
+	private static final int VERSION = 1;
+	/** Maximal number of nodes settled by a witness search. */
+	private static final int WITNESS_SETTLE_LIMIT = 500;
+
+	private RoadGraph graph;
+	private long fingerprint;
+	private int[] rank;
+	// upward arcs leaving a node (forward search)
+	private int[] fwdFirst;
+	private int[] fwdTargets;
+	private float[] fwdWeights;
+	private int[] fwdMiddles;
+	// upward arcs entering a node, stored at the lower node (backward search)
+	private int[] bwdFirst;
+	private int[] bwdSources;
+	private float[] bwdWeights;
+	private int[] bwdMiddles;
+
+	/**
+	 * Contracts the road graph.
+	 *
+	 * @param graph
+	 *            The road network.
+	 * @param ignoreOneWays
+	 *            If true, all links can be traveled in both directions.
+	 */
+	public static ContractionHierarchy build(RoadGraph graph,
+			boolean ignoreOneWays) {
+		return new Builder(graph, ignoreOneWays).build();
+	}
+
+	/**
+	 * Loads a hierarchy which has been saved before.
+	 *
+	 * @return the hierarchy or null if it was built from another road graph
+	 *         or with another one-way mode.
+	 */
+	public static ContractionHierarchy load(File file, RoadGraph graph,
+			boolean ignoreOneWays) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException(file + " is not a contraction hierarchy");
+			if (in.readLong() != fingerprint(graph, ignoreOneWays))
+				return null;
+			ContractionHierarchy ch = new ContractionHierarchy();
+			ch.graph = graph;
+			ch.fingerprint = fingerprint(graph, ignoreOneWays);
+			ch.rank = readInts(in);
+			ch.fwdFirst = readInts(in);
+			ch.fwdTargets = readInts(in);
+			ch.fwdWeights = readFloats(in);
+			ch.fwdMiddles = readInts(in);
+			ch.bwdFirst = readInts(in);
+			ch.bwdSources = readInts(in);
+			ch.bwdWeights = readFloats(in);
+			ch.bwdMiddles = readInts(in);
+			if (ch.rank.length != graph.getNodeCount())
+				throw new IOException(file + " is corrupt");
+			return ch;
+		}
+	}
+
+	/** Saves this hierarchy to a binary file. */
+	public void save(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fingerprint);
+			writeInts(out, rank);
+			writeInts(out, fwdFirst);
+			writeInts(out, fwdTargets);
+			writeFloats(out, fwdWeights);
+			writeInts(out, fwdMiddles);
+			writeInts(out, bwdFirst);
+			writeInts(out, bwdSources);
+			writeFloats(out, bwdWeights);
+			writeInts(out, bwdMiddles);
+		}
+	}
+
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	public int getNodeCount() {
+		return rank.length;
+	}
+
+	/** Returns the position of the node in the contraction order. */
+	public int getRank(int node) {
+		return rank[node];
+	}
+
+	/** Returns the number of shortcuts added by the contraction. */
+	public int getShortcutCount() {
+		int result = 0;
+		for (int m : fwdMiddles)
+			if (m != -1)
+				result++;
+		for (int m : bwdMiddles)
+			if (m != -1)
+				result++;
+		return result;
+	}
+
+	//
+	// Accessors for the query engine
+	//
+	int getFwdFirst(int node) {
+		return fwdFirst[node];
+	}
+
+	int getFwdTarget(int arc) {
+		return fwdTargets[arc];
+	}
+
+	float getFwdWeight(int arc) {
+		return fwdWeights[arc];
+	}
+
+	int getFwdMiddle(int arc) {
+		return fwdMiddles[arc];
+	}
+
+	int getBwdFirst(int node) {
+		return bwdFirst[node];
+	}
+
+	int getBwdSource(int arc) {
+		return bwdSources[arc];
+	}
+
+	float getBwdWeight(int arc) {
+		return bwdWeights[arc];
+	}
+
+	int getBwdMiddle(int arc) {
+		return bwdMiddles[arc];
+	}
+
+	/**
+	 * Returns the middle node of the (cheapest) arc from <code>from</code> to
+	 * <code>to</code>, -1 if it is an original link, or -2 if there is no such
+	 * arc.
+	 */
+	int getMiddle(int from, int to) {
+		float best = Float.POSITIVE_INFINITY;
+		int result = -2;
+		if (rank[to] > rank[from]) {
+			for (int a = fwdFirst[from]; a < fwdFirst[from + 1]; a++)
+				if (fwdTargets[a] == to && fwdWeights[a] < best) {
+					best = fwdWeights[a];
+					result = fwdMiddles[a];
+				}
+		} else {
+			for (int a = bwdFirst[to]; a < bwdFirst[to + 1]; a++)
+				if (bwdSources[a] == from && bwdWeights[a] < best) {
+					best = bwdWeights[a];
+					result = bwdMiddles[a];
+				}
+		}
+		return result;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private ContractionHierarchy() {
+	}
+
+	/** Hashes the structure of the graph and the one-way mode. */
+	private static long fingerprint(RoadGraph graph, boolean ignoreOneWays) {
+		long h = ignoreOneWays ? 1 : 2;
+		h = 31 * h + graph.getNodeCount();
+		h = 31 * h + graph.getLinkCount();
+		for (int i = 0; i < graph.getNodeCount(); i++)
+			h = 31 * h + graph.getNodeId(i);
+		for (int l = 0; l < graph.getLinkCount(); l++) {
+			h = 31 * h + graph.getLinkTarget(l);
+			h = 31 * h + graph.getLinkFlags(l);
+			h = 31 * h + Float.floatToIntBits(graph.getLinkLength(l));
+		}
+		return h;
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values)
+			throws IOException {
+		out.writeInt(values.length);
+		for (int v : values)
+			out.writeInt(v);
+	}
+
+	private static void writeFloats(DataOutputStream out, float[] values)
+			throws IOException {
+		out.writeInt(values.length);
+		for (float v : values)
+			out.writeFloat(v);
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] result = new int[in.readInt()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = in.readInt();
+		return result;
+	}
+
+	private static float[] readFloats(DataInputStream in) throws IOException {
+		float[] result = new float[in.readInt()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = in.readFloat();
+		return result;
+	}
+
+	/** Growable list of weighted arcs of one node. */
+	private static class ArcList {
+		int[] nodes = new int[4];
+		float[] weights = new float[4];
+		int[] middles = new int[4];
+		int size;
+
+		/** Adds the arc or lowers the weight of an existing one. */
+		void put(int node, float weight, int middle) {
+			for (int i = 0; i < size; i++) {
+				if (nodes[i] == node) {
+					if (weight < weights[i]) {
+						weights[i] = weight;
+						middles[i] = middle;
+					}
+					return;
+				}
+			}
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, 2 * size);
+				weights = Arrays.copyOf(weights, 2 * size);
+				middles = Arrays.copyOf(middles, 2 * size);
+			}
+			nodes[size] = node;
+			weights[size] = weight;
+			middles[size] = middle;
+			size++;
+		}
+
+		void remove(int node) {
+			for (int i = 0; i < size; i++) {
+				if (nodes[i] == node) {
+					size--;
+					nodes[i] = nodes[size];
+					weights[i] = weights[size];
+					middles[i] = middles[size];
+					return;
+				}
+			}
+		}
+	}
+
+	/** Performs the contraction. */
+	private static class Builder {
+		private RoadGraph graph;
+		private boolean ignoreOneWays;
+		private int n;
+		private ArcList[] out;
+		private ArcList[] in;
+		private int[] contractedNeighbors;
+		private int[] level;
+		// witness search state
+		private float[] dist;
+		private int[] touched;
+		private int touchedCount;
+		private NodeHeap heap;
+		// shortcuts found by the last call of findShortcuts
+		private int[] scFrom = new int[16];
+		private int[] scTo = new int[16];
+		private float[] scWeight = new float[16];
+		private int scCount;
+
+		Builder(RoadGraph graph, boolean ignoreOneWays) {
+			this.graph = graph;
+			this.ignoreOneWays = ignoreOneWays;
+			n = graph.getNodeCount();
+			out = new ArcList[n];
+			in = new ArcList[n];
+			for (int i = 0; i < n; i++) {
+				out[i] = new ArcList();
+				in[i] = new ArcList();
+			}
+			OneWayMode mode = ignoreOneWays ? OneWayMode.IGNORE
+					: OneWayMode.TRAVEL_FORWARD;
+			for (int u = 0; u < n; u++) {
+				for (int l = graph.getFirstLink(u); l < graph.getFirstLink(u + 1); l++) {
+					if (graph.isUsable(l, mode)) {
+						int v = graph.getLinkTarget(l);
+						out[u].put(v, graph.getLinkLength(l), -1);
+						in[v].put(u, graph.getLinkLength(l), -1);
+					}
+				}
+			}
+			contractedNeighbors = new int[n];
+			level = new int[n];
+			dist = new float[n];
+			Arrays.fill(dist, Float.POSITIVE_INFINITY);
+			touched = new int[n];
+			heap = new NodeHeap(16);
+		}
+
+		ContractionHierarchy build() {
+			int[] rank = new int[n];
+			// entries encode (priority, node), lazily updated
+			PriorityQueue<Long> queue = new PriorityQueue<Long>(Math.max(n, 1));
+			for (int v = 0; v < n; v++)
+				queue.add(entry(priority(v), v));
+			int nextRank = 0;
+			while (!queue.isEmpty()) {
+				long e = queue.poll();
+				int v = (int) e;
+				int p = priority(v);
+				if (!queue.isEmpty() && p > (int) (queue.peek() >> 32)) {
+					queue.add(entry(p, v));
+					continue;
+				}
+				// the shortcuts were found by the priority computation
+				for (int i = 0; i < scCount; i++) {
+					out[scFrom[i]].put(scTo[i], scWeight[i], v);
+					in[scTo[i]].put(scFrom[i], scWeight[i], v);
+				}
+				rank[v] = nextRank++;
+				// the remaining arcs of v become its upward arcs
+				for (int i = 0; i < out[v].size; i++) {
+					in[out[v].nodes[i]].remove(v);
+					updateNeighbor(v, out[v].nodes[i]);
+				}
+				for (int i = 0; i < in[v].size; i++) {
+					out[in[v].nodes[i]].remove(v);
+					updateNeighbor(v, in[v].nodes[i]);
+				}
+			}
+			return toHierarchy(rank);
+		}
+
+		private static long entry(int priority, int node) {
+			return ((long) priority << 32) | node;
+		}
+
+		private void updateNeighbor(int v, int neighbor) {
+			contractedNeighbors[neighbor]++;
+			level[neighbor] = Math.max(level[neighbor], level[v] + 1);
+		}
+
+		/**
+		 * Edge difference plus number of contracted neighbors plus level, which
+		 * spreads the contraction evenly over the graph.
+		 */
+		private int priority(int v) {
+			findShortcuts(v);
+			int removed = out[v].size + in[v].size;
+			return 2 * (scCount - removed) + contractedNeighbors[v] + level[v];
+		}
+
+		/**
+		 * Computes the shortcuts which are needed to remove v from the
+		 * remaining graph.
+		 */
+		private void findShortcuts(int v) {
+			scCount = 0;
+			ArcList vin = in[v];
+			ArcList vout = out[v];
+			for (int i = 0; i < vin.size; i++) {
+				int u = vin.nodes[i];
+				float maxDist = 0;
+				for (int j = 0; j < vout.size; j++) {
+					int w = vout.nodes[j];
+					if (w != u)
+						maxDist = Math.max(maxDist, vin.weights[i]
+								+ vout.weights[j]);
+				}
+				if (maxDist == 0)
+					continue;
+				witnessSearch(u, v, maxDist);
+				for (int j = 0; j < vout.size; j++) {
+					int w = vout.nodes[j];
+					float viaV = vin.weights[i] + vout.weights[j];
+					if (w != u && dist[w] > viaV)
+						addShortcut(u, w, viaV);
+				}
+				resetWitnessSearch();
+			}
+		}
+
+		/** Limited Dijkstra search from u in the remaining graph without v. */
+		private void witnessSearch(int u, int v, float maxDist) {
+			dist[u] = 0;
+			touched[touchedCount++] = u;
+			heap.clear();
+			heap.add(u, 0);
+			int settled = 0;
+			while (!heap.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+				float d = heap.peekKey();
+				int x = heap.poll();
+				if (d > dist[x])
+					continue;
+				if (d > maxDist)
+					break;
+				settled++;
+				ArcList xout = out[x];
+				for (int i = 0; i < xout.size; i++) {
+					int y = xout.nodes[i];
+					if (y == v)
+						continue;
+					float dy = d + xout.weights[i];
+					if (dy < dist[y]) {
+						if (dist[y] == Float.POSITIVE_INFINITY)
+							touched[touchedCount++] = y;
+						dist[y] = dy;
+						heap.add(y, dy);
+					}
+				}
+			}
+		}
+
+		private void resetWitnessSearch() {
+			for (int i = 0; i < touchedCount; i++)
+				dist[touched[i]] = Float.POSITIVE_INFINITY;
+			touchedCount = 0;
+		}
+
+		private void addShortcut(int from, int to, float weight) {
+			if (scCount == scFrom.length) {
+				scFrom = Arrays.copyOf(scFrom, 2 * scCount);
+				scTo = Arrays.copyOf(scTo, 2 * scCount);
+				scWeight = Arrays.copyOf(scWeight, 2 * scCount);
+			}
+			scFrom[scCount] = from;
+			scTo[scCount] = to;
+			scWeight[scCount] = weight;
+			scCount++;
+		}
+
+		/** Splits the arcs into the upward forward and backward graphs. */
+		private ContractionHierarchy toHierarchy(int[] rank) {
+			ContractionHierarchy ch = new ContractionHierarchy();
+			ch.graph = graph;
+			ch.fingerprint = fingerprint(graph, ignoreOneWays);
+			ch.rank = rank;
+			ch.fwdFirst = new int[n + 1];
+			ch.bwdFirst = new int[n + 1];
+			for (int u = 0; u < n; u++) {
+				for (int i = 0; i < out[u].size; i++)
+					if (rank[out[u].nodes[i]] > rank[u])
+						ch.fwdFirst[u + 1]++;
+				for (int i = 0; i < in[u].size; i++)
+					if (rank[in[u].nodes[i]] > rank[u])
+						ch.bwdFirst[u + 1]++;
+			}
+			for (int u = 0; u < n; u++) {
+				ch.fwdFirst[u + 1] += ch.fwdFirst[u];
+				ch.bwdFirst[u + 1] += ch.bwdFirst[u];
+			}
+			ch.fwdTargets = new int[ch.fwdFirst[n]];
+			ch.fwdWeights = new float[ch.fwdFirst[n]];
+			ch.fwdMiddles = new int[ch.fwdFirst[n]];
+			ch.bwdSources = new int[ch.bwdFirst[n]];
+			ch.bwdWeights = new float[ch.bwdFirst[n]];
+			ch.bwdMiddles = new int[ch.bwdFirst[n]];
+			for (int u = 0; u < n; u++) {
+				int a = ch.fwdFirst[u];
+				for (int i = 0; i < out[u].size; i++) {
+					if (rank[out[u].nodes[i]] > rank[u]) {
+						ch.fwdTargets[a] = out[u].nodes[i];
+						ch.fwdWeights[a] = out[u].weights[i];
+						ch.fwdMiddles[a] = out[u].middles[i];
+						a++;
+					}
+				}
+				a = ch.bwdFirst[u];
+				for (int i = 0; i < in[u].size; i++) {
+					if (rank[in[u].nodes[i]] > rank[u]) {
+						ch.bwdSources[a] = in[u].nodes[i];
+						ch.bwdWeights[a] = in[u].weights[i];
+						ch.bwdMiddles[a] = in[u].middles[i];
+						a++;
+					}
+				}
+			}
+			return ch;
+		}
+	}
+
+	/**
+	 * Binary min-heap of nodes keyed by distance. Nodes may be added more
+	 * than once; outdated entries are skipped by the searches.
+	 */
+	static class NodeHeap {
+		private int[] nodes;
+		private float[] keys;
+		private int size;
+
+		NodeHeap(int capacity) {
+			nodes = new int[capacity];
+			keys = new float[capacity];
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void clear() {
+			size = 0;
+		}
+
+		float peekKey() {
+			return keys[0];
+		}
+
+		void add(int node, float key) {
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, 2 * size);
+				keys = Arrays.copyOf(keys, 2 * size);
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (keys[parent] <= key)
+					break;
+				nodes[i] = nodes[parent];
+				keys[i] = keys[parent];
+				i = parent;
+			}
+			nodes[i] = node;
+			keys[i] = key;
+		}
+
+		int poll() {
+			int result = nodes[0];
+			size--;
+			int node = nodes[size];
+			float key = keys[size];
+			int i = 0;
+			while (2 * i + 1 < size) {
+				int child = 2 * i + 1;
+				if (child + 1 < size && keys[child + 1] < keys[child])
+					child++;
+				if (key <= keys[child])
+					break;
+				nodes[i] = nodes[child];
+				keys[i] = keys[child];
+				i = child;
+			}
+			nodes[i] = node;
+			keys[i] = key;
+			return result;
+		}
+	}
+}
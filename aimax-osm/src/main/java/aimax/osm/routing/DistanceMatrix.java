@@ -0,0 +1,71 @@
+package aimax.osm.routing;
+
+/**
+ * Result of a many-to-many distance computation (see
+ * {@link DistanceMatrixCalculator}). Row <code>i</code> contains the road
+ * distances in KM from source <code>i</code> to all targets,
+ * <code>Double.POSITIVE_INFINITY</code> marks unreachable targets. For each
+ * row, the number of nodes settled by its search and the time needed are
+ * recorded.
+ *
+ */
+public class DistanceMatrix {
+	private double[][] distances;
+	private int[] settledNodes;
+	private long[] queryNanos;
+	private long totalNanos;
+
+	DistanceMatrix(int sourceCount, int targetCount) {
+		distances = new double[sourceCount][targetCount];
+		settledNodes = new int[sourceCount];
+		queryNanos = new long[sourceCount];
+	}
+
+	public int getSourceCount() {
+		return distances.length;
+	}
+
+	public int getTargetCount() {
+		return distances.length > 0 ? distances[0].length : 0;
+	}
+
+	/** Returns the distance matrix itself, not a copy. */
+	public double[][] getDistances() {
+		return distances;
+	}
+
+	/** Returns the distance in KM from a source to a target. */
+	public double getDistance(int source, int target) {
+		return distances[source][target];
+	}
+
+	/** Returns the number of nodes settled by the search of a source. */
+	public int getSettledNodes(int source) {
+		return settledNodes[source];
+	}
+
+	/** Returns the computation time of the row of a source in nanoseconds. */
+	public long getQueryNanos(int source) {
+		return queryNanos[source];
+	}
+
+	/**
+	 * Returns the wall-clock time of the whole computation in nanoseconds,
+	 * including preparation.
+	 */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	//
+	// Setters for the calculator
+	//
+	void setMetrics(int source, int settled, long nanos) {
+		settledNodes[source] = settled;
+		queryNanos[source] = nanos;
+	}
+
+	void setTotalNanos(long nanos) {
+		totalNanos = nanos;
+	}
+}
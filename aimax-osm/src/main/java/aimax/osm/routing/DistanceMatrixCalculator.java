@@ -0,0 +1,307 @@
+package aimax.osm.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import aimax.osm.routing.ContractionHierarchy.NodeHeap;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+/**
+ * Computes many-to-many distance matrices on a road network. Sources and
+ * targets are given as node indices of a {@link RoadGraph}; negative indices
+ * are accepted and result in infinite distances.
+ *
+ * <p>
+ * On the plain road graph, each row is computed by a one-to-many Dijkstra
+ * search which stops as soon as all targets are settled. On a
+ * {@link ContractionHierarchy}, the bucket technique is used: an upward
+ * backward search from each target leaves its distances in buckets at the
+ * settled nodes, and an upward forward search from each source then scans
+ * the buckets of the nodes it settles. Both searches stall nodes which are
+ * reached cheaper from above.
+ * </p>
+ *
+ * <p>
+ * Rows (and target searches) are distributed among workers on a
+ * {@link ForkJoinPool}, one per thread of the pool at most. Each worker keeps
+ * its own search state, so the graph and the hierarchy are only read.
+ * </p>
+ *
+ */
+public class DistanceMatrixCalculator {
+
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param pool
+	 *            the pool on which the rows are computed in parallel
+	 *            (default: the common pool) or null for sequential
+	 *            computation.
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Computes the distances between the nodes by Dijkstra searches on the
+	 * road graph.
+	 *
+	 * @param ignoreOneways
+	 *            If true, all links can be traveled in both directions.
+	 */
+	public DistanceMatrix compute(RoadGraph graph, int[] sources,
+			int[] targets, boolean ignoreOneways) {
+		long start = System.nanoTime();
+		DistanceMatrix result = new DistanceMatrix(sources.length,
+				targets.length);
+		// targets are kept in lists per node, duplicates are allowed
+		int[] firstTarget = new int[graph.getNodeCount()];
+		int[] nextTarget = new int[targets.length];
+		Arrays.fill(firstTarget, -1);
+		int targetNodes = 0;
+		for (int j = 0; j < targets.length; j++) {
+			int t = targets[j];
+			if (t >= 0) {
+				if (firstTarget[t] == -1)
+					targetNodes++;
+				nextTarget[j] = firstTarget[t];
+				firstTarget[t] = j;
+			}
+		}
+		OneWayMode mode = ignoreOneways ? OneWayMode.IGNORE
+				: OneWayMode.TRAVEL_FORWARD;
+		int targetNodeCount = targetNodes;
+		runParallel(sources.length, () -> {
+			SearchState state = new SearchState(graph.getNodeCount());
+			return i -> {
+				long qStart = System.nanoTime();
+				double[] row = result.getDistances()[i];
+				Arrays.fill(row, Double.POSITIVE_INFINITY);
+				int settled = 0;
+				if (sources[i] >= 0 && targetNodeCount > 0) {
+					state.start(sources[i]);
+					int remaining = targetNodeCount;
+					NodeHeap heap = state.heap;
+					while (!heap.isEmpty() && remaining > 0) {
+						float d = heap.peekKey();
+						int u = heap.poll();
+						if (d > state.dist[u])
+							continue;
+						settled++;
+						if (firstTarget[u] != -1) {
+							remaining--;
+							for (int j = firstTarget[u]; j != -1; j = nextTarget[j])
+								row[j] = d;
+						}
+						for (int link = graph.getFirstLink(u); link < graph
+								.getFirstLink(u + 1); link++)
+							if (graph.isUsable(link, mode))
+								state.relax(graph.getLinkTarget(link), d
+										+ graph.getLinkLength(link));
+					}
+				}
+				result.setMetrics(i, settled, System.nanoTime() - qStart);
+			};
+		});
+		result.setTotalNanos(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Computes the distances between the nodes by bucket-based upward
+	 * searches in a contraction hierarchy.
+	 */
+	public DistanceMatrix compute(ContractionHierarchy ch, int[] sources,
+			int[] targets) {
+		long start = System.nanoTime();
+		int n = ch.getNodeCount();
+		DistanceMatrix result = new DistanceMatrix(sources.length,
+				targets.length);
+
+		// backward searches from the targets...
+		int[][] spaceNodes = new int[targets.length][];
+		float[][] spaceDists = new float[targets.length][];
+		runParallel(targets.length, () -> {
+			SearchState state = new SearchState(n);
+			return j -> {
+				int count = targets[j] >= 0 ? state.upwardSearch(ch,
+						targets[j], false) : 0;
+				spaceNodes[j] = Arrays.copyOf(state.settledNodes, count);
+				spaceDists[j] = Arrays.copyOf(state.settledDists, count);
+			};
+		});
+		// ... fill the buckets, stored in compressed sparse row form
+		int[] bucketFirst = new int[n + 1];
+		for (int[] nodes : spaceNodes)
+			for (int v : nodes)
+				bucketFirst[v + 1]++;
+		for (int v = 0; v < n; v++)
+			bucketFirst[v + 1] += bucketFirst[v];
+		int[] bucketTargets = new int[bucketFirst[n]];
+		float[] bucketDists = new float[bucketFirst[n]];
+		int[] fill = Arrays.copyOf(bucketFirst, n);
+		for (int j = 0; j < targets.length; j++) {
+			for (int k = 0; k < spaceNodes[j].length; k++) {
+				int b = fill[spaceNodes[j][k]]++;
+				bucketTargets[b] = j;
+				bucketDists[b] = spaceDists[j][k];
+			}
+			spaceNodes[j] = null;
+			spaceDists[j] = null;
+		}
+
+		// forward searches from the sources scan the buckets
+		runParallel(sources.length, () -> {
+			SearchState state = new SearchState(n);
+			return i -> {
+				long qStart = System.nanoTime();
+				double[] row = result.getDistances()[i];
+				Arrays.fill(row, Double.POSITIVE_INFINITY);
+				int count = sources[i] >= 0 ? state.upwardSearch(ch,
+						sources[i], true) : 0;
+				for (int k = 0; k < count; k++) {
+					int u = state.settledNodes[k];
+					float d = state.settledDists[k];
+					for (int b = bucketFirst[u]; b < bucketFirst[u + 1]; b++) {
+						double dist = d + bucketDists[b];
+						if (dist < row[bucketTargets[b]])
+							row[bucketTargets[b]] = dist;
+					}
+				}
+				result.setMetrics(i, count, System.nanoTime() - qStart);
+			};
+		});
+		result.setTotalNanos(System.nanoTime() - start);
+		return result;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Processes the tasks 0 to <code>count-1</code>. Each worker obtains its
+	 * task consumer from the factory and fetches tasks until none are left.
+	 */
+	private void runParallel(int count,
+			Supplier<IntConsumer> workerFactory) {
+		AtomicInteger nextTask = new AtomicInteger();
+		Runnable worker = () -> {
+			IntConsumer consumer = workerFactory.get();
+			int i;
+			while ((i = nextTask.getAndIncrement()) < count)
+				consumer.accept(i);
+		};
+		int workers = pool != null ? Math.min(pool.getParallelism(), count)
+				: 1;
+		if (workers <= 1) {
+			worker.run();
+			return;
+		}
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+		for (int w = 0; w < workers; w++)
+			tasks.add(pool.submit(worker));
+		// rethrows the runtime exceptions of the workers
+		for (ForkJoinTask<?> task : tasks)
+			task.join();
+	}
+
+	/**
+	 * Search state of one worker. Distances are reset after each search by
+	 * means of the list of touched nodes.
+	 */
+	private static class SearchState {
+		float[] dist;
+		int[] touched;
+		int touchedCount;
+		NodeHeap heap = new NodeHeap(64);
+		int[] settledNodes = new int[64];
+		float[] settledDists = new float[64];
+
+		SearchState(int nodeCount) {
+			dist = new float[nodeCount];
+			Arrays.fill(dist, Float.POSITIVE_INFINITY);
+			touched = new int[nodeCount];
+		}
+
+		/** Resets the state and adds the start node to the heap. */
+		void start(int node) {
+			for (int i = 0; i < touchedCount; i++)
+				dist[touched[i]] = Float.POSITIVE_INFINITY;
+			touchedCount = 0;
+			heap.clear();
+			relax(node, 0f);
+		}
+
+		void relax(int node, float d) {
+			if (d < dist[node]) {
+				if (dist[node] == Float.POSITIVE_INFINITY)
+					touched[touchedCount++] = node;
+				dist[node] = d;
+				heap.add(node, d);
+			}
+		}
+
+		/**
+		 * Exhaustive search in the upward forward or backward graph of the
+		 * hierarchy. The settled nodes and their distances are stored in
+		 * <code>settledNodes</code> and <code>settledDists</code>. A node is
+		 * stalled (neither stored nor expanded) if a higher node offers a
+		 * shorter way to it, which then cannot be part of a shortest path.
+		 *
+		 * @return the number of settled nodes
+		 */
+		int upwardSearch(ContractionHierarchy ch, int from, boolean forward) {
+			start(from);
+			int count = 0;
+			while (!heap.isEmpty()) {
+				float d = heap.peekKey();
+				int u = heap.poll();
+				if (d > dist[u] || isStalled(ch, u, d, forward))
+					continue;
+				if (count == settledNodes.length) {
+					settledNodes = Arrays.copyOf(settledNodes, 2 * count);
+					settledDists = Arrays.copyOf(settledDists, 2 * count);
+				}
+				settledNodes[count] = u;
+				settledDists[count++] = d;
+				if (forward) {
+					for (int a = ch.getFwdFirst(u); a < ch.getFwdFirst(u + 1); a++)
+						relax(ch.getFwdTarget(a), d + ch.getFwdWeight(a));
+				} else {
+					for (int a = ch.getBwdFirst(u); a < ch.getBwdFirst(u + 1); a++)
+						relax(ch.getBwdSource(a), d + ch.getBwdWeight(a));
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Checks the arcs between u and higher nodes in the opposite search
+		 * direction.
+		 */
+		private boolean isStalled(ContractionHierarchy ch, int u, float d,
+				boolean forward) {
+			if (forward) {
+				for (int a = ch.getBwdFirst(u); a < ch.getBwdFirst(u + 1); a++)
+					if (dist[ch.getBwdSource(a)] + ch.getBwdWeight(a) < d)
+						return true;
+			} else {
+				for (int a = ch.getFwdFirst(u); a < ch.getFwdFirst(u + 1); a++)
+					if (dist[ch.getFwdTarget(a)] + ch.getFwdWeight(a) < d)
+						return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package aimax.osm.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.MapWayFilter;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.entities.MapWay;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+/**
+ * Compact, array based representation of the road network of a map with
+ * respect to a way filter. The way nodes of all accepted ways are numbered
+ * from 0 to n-1 in ascending order of their OSM ids. Links between
+ * consecutive way nodes are stored in compressed sparse row form: the links
+ * leaving node <code>i</code> are numbered from <code>getFirstLink(i)</code>
+ * to <code>getFirstLink(i+1)-1</code>.<br>
+ * <br>
+ * Each way segment is stored as two links, one per direction. Links of
+ * one-ways are flagged, and so are links which run against the order of the
+ * nodes of their way. This way, the same graph supports searches which ignore
+ * one-ways as well as forward and backward searches which respect them.
+ *
+ */
+public class RoadGraph {
+	/** Flag of links which belong to a one-way. */
+	public static final byte ONEWAY = 1;
+	/** Flag of links which run against the node order of their way. */
+	public static final byte REVERSE = 2;
+
+	private OsmMap map;
+	private long[] nodeIds;
+	private float[] lats;
+	private float[] lons;
+	private int[] firstLink;
+	private int[] linkTargets;
+	private float[] linkLengths;
+	private byte[] linkFlags;
+
+	/**
+	 * Compiles the road network of the ways of a map which are accepted by
+	 * the filter.
+	 */
+	public static RoadGraph build(OsmMap map, MapWayFilter filter) {
+		List<MapWay> ways = new ArrayList<MapWay>();
+		int wayNodeCount = 0;
+		for (MapWay way : map.getWays(new BoundingBox(-90f, -180f, 90f, 180f))) {
+			if (filter == null || filter.isAccepted(way)) {
+				ways.add(way);
+				wayNodeCount += way.getNodes().size();
+			}
+		}
+		RoadGraph graph = new RoadGraph();
+		graph.map = map;
+		// number the nodes by OSM id
+		long[] ids = new long[wayNodeCount];
+		int i = 0;
+		for (MapWay way : ways)
+			for (MapNode node : way.getNodes())
+				ids[i++] = node.getId();
+		Arrays.sort(ids);
+		int n = 0;
+		for (i = 0; i < ids.length; i++)
+			if (n == 0 || ids[i] != ids[n - 1])
+				ids[n++] = ids[i];
+		graph.nodeIds = Arrays.copyOf(ids, n);
+		graph.lats = new float[n];
+		graph.lons = new float[n];
+
+		// count the links per node...
+		graph.firstLink = new int[n + 1];
+		int[] wayNodes = new int[0];
+		for (MapWay way : ways) {
+			wayNodes = graph.toNodeIndices(way, wayNodes);
+			for (i = 1; i < way.getNodes().size(); i++) {
+				if (wayNodes[i - 1] != wayNodes[i]) {
+					graph.firstLink[wayNodes[i - 1] + 1]++;
+					graph.firstLink[wayNodes[i] + 1]++;
+				}
+			}
+		}
+		for (i = 0; i < n; i++)
+			graph.firstLink[i + 1] += graph.firstLink[i];
+		// ... and fill them in
+		int linkCount = graph.firstLink[n];
+		graph.linkTargets = new int[linkCount];
+		graph.linkLengths = new float[linkCount];
+		graph.linkFlags = new byte[linkCount];
+		int[] nextLink = Arrays.copyOf(graph.firstLink, n);
+		for (MapWay way : ways) {
+			wayNodes = graph.toNodeIndices(way, wayNodes);
+			List<MapNode> nodes = way.getNodes();
+			byte flags = way.isOneway() ? ONEWAY : 0;
+			for (i = 0; i < nodes.size(); i++) {
+				graph.lats[wayNodes[i]] = nodes.get(i).getLat();
+				graph.lons[wayNodes[i]] = nodes.get(i).getLon();
+				if (i > 0 && wayNodes[i - 1] != wayNodes[i]) {
+					int from = wayNodes[i - 1];
+					int to = wayNodes[i];
+					float length = (float) Position.getDistKM(nodes.get(i - 1)
+							.getLat(), nodes.get(i - 1).getLon(), nodes.get(i)
+							.getLat(), nodes.get(i).getLon());
+					graph.setLink(nextLink[from]++, to, length, flags);
+					graph.setLink(nextLink[to]++, from, length,
+							(byte) (flags | REVERSE));
+				}
+			}
+		}
+		return graph;
+	}
+
+	/** Returns the map from which this graph was compiled. */
+	public OsmMap getMap() {
+		return map;
+	}
+
+	public int getNodeCount() {
+		return nodeIds.length;
+	}
+
+	public int getLinkCount() {
+		return linkTargets.length;
+	}
+
+	/** Returns the OSM id of the way node with the specified index. */
+	public long getNodeId(int node) {
+		return nodeIds[node];
+	}
+
+	/**
+	 * Returns the index of the way node with the specified OSM id or -1 if no
+	 * accepted way contains such a node.
+	 */
+	public int getNodeIndex(long nodeId) {
+		int idx = Arrays.binarySearch(nodeIds, nodeId);
+		return idx >= 0 ? idx : -1;
+	}
+
+	/** Returns the map node of the way node with the specified index. */
+	public MapNode getMapNode(int node) {
+		return map.getNode(nodeIds[node]);
+	}
+
+	public float getLat(int node) {
+		return lats[node];
+	}
+
+	public float getLon(int node) {
+		return lons[node];
+	}
+
+	/** Returns the straight-line distance between two nodes in KM. */
+	public double getDistKM(int node1, int node2) {
+		return Position.getDistKM(lats[node1], lons[node1], lats[node2],
+				lons[node2]);
+	}
+
+	/**
+	 * Returns the index of the first link leaving the specified node. For
+	 * <code>node = getNodeCount()</code>, the number of links is returned.
+	 */
+	public int getFirstLink(int node) {
+		return firstLink[node];
+	}
+
+	public int getLinkTarget(int link) {
+		return linkTargets[link];
+	}
+
+	/** Returns the length of the link in KM. */
+	public float getLinkLength(int link) {
+		return linkLengths[link];
+	}
+
+	public byte getLinkFlags(int link) {
+		return linkFlags[link];
+	}
+
+	/**
+	 * Checks whether a link can be used in a search with the specified
+	 * one-way mode. In mode <code>TRAVEL_BACKWARDS</code>, links lead from a
+	 * node to its predecessors, and a link is usable if its inverse can be
+	 * traveled.
+	 */
+	public boolean isUsable(int link, OneWayMode mode) {
+		int flags = linkFlags[link];
+		switch (mode) {
+		case TRAVEL_FORWARD:
+			return flags != (ONEWAY | REVERSE);
+		case TRAVEL_BACKWARDS:
+			return flags != ONEWAY;
+		default:
+			return true;
+		}
+	}
+
+	/** Returns the usable links leaving a node. */
+	public List<Integer> getUsableLinks(int node, OneWayMode mode) {
+		List<Integer> result = new ArrayList<Integer>(firstLink[node + 1]
+				- firstLink[node]);
+		for (int link = firstLink[node]; link < firstLink[node + 1]; link++)
+			if (isUsable(link, mode))
+				result.add(link);
+		return result;
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private RoadGraph() {
+	}
+
+	private int[] toNodeIndices(MapWay way, int[] buffer) {
+		List<MapNode> nodes = way.getNodes();
+		if (buffer.length < nodes.size())
+			buffer = new int[nodes.size()];
+		for (int i = 0; i < nodes.size(); i++)
+			buffer[i] = Arrays.binarySearch(nodeIds, nodes.get(i).getId());
+		return buffer;
+	}
+
+	private void setLink(int link, int target, float length, byte flags) {
+		linkTargets[link] = target;
+		linkLengths[link] = length;
+		linkFlags[link] = flags;
+	}
+}
@@ -0,0 +1,54 @@
+package aimax.osm.routing;
+
+import aima.core.search.framework.problem.BidirectionalProblem;
+import aima.core.search.framework.problem.GeneralProblem;
+import aima.core.search.framework.problem.GoalTest;
+import aima.core.search.framework.problem.Problem;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+
+/**
+ * Implements a route finding problem on a compiled {@link RoadGraph}. States
+ * are the indices of way nodes and actions are the indices of the links to be
+ * traveled. Link lengths (in kilometers) are used as cost values.
+ *
+ */
+public class RoadGraphProblem extends GeneralProblem<Integer, Integer>
+		implements BidirectionalProblem<Integer, Integer> {
+
+	private Problem<Integer, Integer> reverseProblem;
+
+	/**
+	 * Creates a new route planning problem.
+	 *
+	 * @param graph
+	 *            The road network.
+	 * @param from
+	 *            Index of the start node within the graph.
+	 * @param to
+	 *            Index of the goal node within the graph.
+	 */
+	public RoadGraphProblem(RoadGraph graph, int from, int to,
+			boolean ignoreOneWays) {
+		super(from,
+				state -> graph.getUsableLinks(state,
+						ignoreOneWays ? OneWayMode.IGNORE : OneWayMode.TRAVEL_FORWARD),
+				(state, link) -> graph.getLinkTarget(link),
+				GoalTest.forState(to),
+				(state, link, statePrimed) -> graph.getLinkLength(link));
+
+		reverseProblem = new GeneralProblem<>(to,
+				state -> graph.getUsableLinks(state,
+						ignoreOneWays ? OneWayMode.IGNORE : OneWayMode.TRAVEL_BACKWARDS),
+				(state, link) -> graph.getLinkTarget(link),
+				GoalTest.forState(from),
+				(state, link, statePrimed) -> graph.getLinkLength(link));
+	}
+
+	public Problem<Integer, Integer> getOriginalProblem() {
+		return this;
+	}
+
+	public Problem<Integer, Integer> getReverseProblem() {
+		return reverseProblem;
+	}
+}
@@ -6,14 +6,20 @@ import aima.core.search.framework.problem.Problem;
 import aima.core.search.framework.qsearch.GraphSearch;
 import aima.core.search.informed.AStarSearch;
 import aima.core.util.Tasks;
+import aimax.osm.data.MapEvent;
+import aimax.osm.data.MapEventListener;
 import aimax.osm.data.MapWayAttFilter;
 import aimax.osm.data.MapWayFilter;
 import aimax.osm.data.OsmMap;
 import aimax.osm.data.Position;
 import aimax.osm.data.entities.MapNode;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.ToDoubleFunction;
 
@@ -25,15 +31,39 @@ import java.util.function.ToDoubleFunction;
  */
 public class RouteCalculator {
 
+	private OsmMap graphMap;
+	private Map<Integer, RoadGraph> roadGraphs = new HashMap<>();
+	private Map<Integer, CHQueryEngine> chEngines = new HashMap<>();
+	private File hierarchyDirectory;
+	private DistanceMatrixCalculator matrixCalculator = new DistanceMatrixCalculator();
+	private MapEventListener mapListener = event -> {
+		// markers, tracks and entity classifiers don't affect the ways
+		if (event.getType() == MapEvent.Type.MAP_NEW
+				|| event.getType() == MapEvent.Type.MAP_CLEARED)
+			clearRoadGraphs();
+	};
+
 	/** Returns the names of all supported way selection options. */
 	public String[] getTaskSelectionOptions() {
-		return new String[] { "Distance", "Distance (Car)", "Distance (Bike)" };
+		return new String[] { "Distance", "Distance (Car)", "Distance (Bike)",
+				"Distance (CH)", "Distance (Car, CH)", "Distance (Bike, CH)" };
+	}
+
+	/**
+	 * Sets the directory in which contraction hierarchies are saved and from
+	 * which they are loaded if they match the current map. If null (the
+	 * default), hierarchies are rebuilt after each change of the map.
+	 */
+	public void setHierarchyDirectory(File dir) {
+		hierarchyDirectory = dir;
 	}
 
 	/**
 	 * Template method, responsible for shortest path generation between two map
 	 * nodes. It searches for way nodes in the vicinity of the given nodes which
-	 * comply with the specified way selection, searches for a suitable paths,
+	 * comply with the specified way selection, searches for a suitable paths
+	 * (within the compiled road network of the map if
+	 * {@link #usesRoadGraph(int)} returns true),
 	 * and adds the paths as tracks to the provided <code>map</code>. Various
 	 * factory methods can be used to override aspects of the default behavior
 	 * in subclasses if needed.
@@ -51,23 +81,37 @@ public class RouteCalculator {
 		List<Position> result = new ArrayList<>();
 		try {
 			MapWayFilter wayFilter = createMapWayFilter(map, taskSelection);
-			boolean ignoreOneways = (taskSelection == 0);
+			boolean ignoreOneways = (getProfile(taskSelection) == 0);
 			List<MapNode[]> pNodeList = subdivideProblem(markers, map, wayFilter);
-			MapNode prevNode = null;
-			for (int i = 0; i < pNodeList.size()
-					&& !Tasks.currIsCancelled(); i++) {
-				Problem<MapNode, OsmMoveAction> problem = createProblem(pNodeList.get(i), map, wayFilter,
-						ignoreOneways, taskSelection);
-				ToDoubleFunction<Node<MapNode, OsmMoveAction>> h = createHeuristicFunction(pNodeList.get(i),
-						taskSelection);
-				SearchForActions<MapNode, OsmMoveAction> search = createSearch(h, taskSelection);
-				Optional<List<OsmMoveAction>> actions = search.findActions(problem);
-				if (!actions.isPresent())
-					break;
-				for (Object action : actions.get()) {
-					if (action instanceof OsmMoveAction) {
-						OsmMoveAction a = (OsmMoveAction) action;
-						for (MapNode node : a.getNodes()) {
+			if (usesHierarchy(taskSelection) || usesRoadGraph(taskSelection)) {
+				RoadGraph graph = getRoadGraph(map, wayFilter, taskSelection);
+				int prevNode = -1;
+				for (int i = 0; i < pNodeList.size()
+						&& !Tasks.currIsCancelled(); i++) {
+					int[] path = findPath(pNodeList.get(i), graph, ignoreOneways,
+							taskSelection);
+					if (path == null)
+						break;
+					for (int node : path) {
+						if (node != prevNode)
+							result.add(new Position(graph.getLat(node), graph.getLon(node)));
+						prevNode = node;
+					}
+				}
+			} else {
+				MapNode prevNode = null;
+				for (int i = 0; i < pNodeList.size()
+						&& !Tasks.currIsCancelled(); i++) {
+					Problem<MapNode, OsmMoveAction> problem = createProblem(pNodeList.get(i), map, wayFilter,
+							ignoreOneways, taskSelection);
+					ToDoubleFunction<Node<MapNode, OsmMoveAction>> h = createHeuristicFunction(pNodeList.get(i),
+							taskSelection);
+					SearchForActions<MapNode, OsmMoveAction> search = createSearch(h, taskSelection);
+					Optional<List<OsmMoveAction>> actions = search.findActions(problem);
+					if (!actions.isPresent())
+						break;
+					for (OsmMoveAction action : actions.get()) {
+						for (MapNode node : action.getNodes()) {
 							if (prevNode != node) {
 								result.add(new Position(node.getLat(), node
 										.getLon()));
@@ -83,11 +127,137 @@ public class RouteCalculator {
 		return result;
 	}
 
+	/**
+	 * Computes the road distances between all origins and all destinations.
+	 * Origins and destinations are replaced by the nearest way nodes which
+	 * comply with the way selection, and the distances are computed on the
+	 * compiled road network of the map (or its contraction hierarchy, if the
+	 * task selection asks for it), in parallel.
+	 *
+	 * @param origins
+	 *            Nodes, not necessarily way nodes.
+	 * @param destinations
+	 *            Nodes, not necessarily way nodes.
+	 * @param map
+	 *            The information source.
+	 * @param taskSelection
+	 *            Number, indicating which kinds of ways are relevant.
+	 * @return Distances in KM, <code>Double.POSITIVE_INFINITY</code> for
+	 *         destinations which cannot be reached.
+	 */
+	public DistanceMatrix calculateDistanceMatrix(List<MapNode> origins,
+			List<MapNode> destinations, OsmMap map, int taskSelection)
+			throws IOException {
+		MapWayFilter wayFilter = createMapWayFilter(map, taskSelection);
+		boolean ignoreOneways = (getProfile(taskSelection) == 0);
+		RoadGraph graph = getRoadGraph(map, wayFilter, taskSelection);
+		int[] sources = toGraphNodes(origins, map, graph, wayFilter);
+		int[] targets = toGraphNodes(destinations, map, graph, wayFilter);
+		if (usesHierarchy(taskSelection)) {
+			CHQueryEngine engine = getQueryEngine(graph, ignoreOneways,
+					taskSelection);
+			return matrixCalculator.compute(engine.getHierarchy(), sources,
+					targets);
+		}
+		return matrixCalculator.compute(graph, sources, targets,
+				ignoreOneways);
+	}
+
+	/** Returns the calculator which is used for distance matrices. */
+	public DistanceMatrixCalculator getMatrixCalculator() {
+		return matrixCalculator;
+	}
+
+	/**
+	 * Computes a path between the way nodes of one subproblem. Contraction
+	 * hierarchy task selections are answered by a hierarchy query, all others
+	 * by the search returned by {@link #createGraphSearch}.
+	 *
+	 * @return the nodes of the path or null if no path was found.
+	 */
+	protected int[] findPath(MapNode[] pNodes, RoadGraph graph,
+			boolean ignoreOneways, int taskSelection) throws IOException {
+		if (usesHierarchy(taskSelection)) {
+			int from = graph.getNodeIndex(pNodes[0].getId());
+			int to = graph.getNodeIndex(pNodes[1].getId());
+			if (from == -1 || to == -1)
+				return null;
+			CHQueryEngine engine = getQueryEngine(graph, ignoreOneways,
+					taskSelection);
+			synchronized (engine) {
+				return engine.findPath(from, to);
+			}
+		}
+		Problem<Integer, Integer> problem = createGraphProblem(pNodes, graph,
+				ignoreOneways, taskSelection);
+		if (problem == null)
+			return null;
+		ToDoubleFunction<Node<Integer, Integer>> h = createGraphHeuristicFunction(pNodes,
+				graph, taskSelection);
+		SearchForActions<Integer, Integer> search = createGraphSearch(h, taskSelection);
+		Optional<List<Integer>> actions = search.findActions(problem);
+		if (!actions.isPresent())
+			return null;
+		int[] path = new int[actions.get().size() + 1];
+		path[0] = problem.getInitialState();
+		int i = 1;
+		for (int link : actions.get())
+			path[i++] = graph.getLinkTarget(link);
+		return path;
+	}
+
+	/**
+	 * Returns the road network of the map for the specified way selection.
+	 * Graphs are compiled on first use and kept until the map data changes.
+	 */
+	protected synchronized RoadGraph getRoadGraph(OsmMap map, MapWayFilter wayFilter,
+			int taskSelection) {
+		if (graphMap != map) {
+			if (graphMap != null)
+				graphMap.removeMapDataEventListener(mapListener);
+			clearRoadGraphs();
+			graphMap = map;
+			map.addMapDataEventListener(mapListener);
+		}
+		RoadGraph graph = roadGraphs.get(getProfile(taskSelection));
+		if (graph == null) {
+			graph = RoadGraph.build(map, wayFilter);
+			roadGraphs.put(getProfile(taskSelection), graph);
+		}
+		return graph;
+	}
+
+	/**
+	 * Returns a query engine for the contraction hierarchy of the road graph.
+	 * The hierarchy is loaded from the hierarchy directory if possible, and
+	 * otherwise built (and saved there).
+	 */
+	protected synchronized CHQueryEngine getQueryEngine(RoadGraph graph,
+			boolean ignoreOneways, int taskSelection) throws IOException {
+		int profile = getProfile(taskSelection);
+		CHQueryEngine engine = chEngines.get(profile);
+		if (engine == null) {
+			ContractionHierarchy ch = null;
+			File file = hierarchyDirectory != null ? new File(hierarchyDirectory,
+					"route-ch-" + profile + ".bin") : null;
+			if (file != null && file.exists())
+				ch = ContractionHierarchy.load(file, graph, ignoreOneways);
+			if (ch == null) {
+				ch = ContractionHierarchy.build(graph, ignoreOneways);
+				if (file != null)
+					ch.save(file);
+			}
+			engine = new CHQueryEngine(ch);
+			chEngines.put(profile, engine);
+		}
+		return engine;
+	}
+
 	/** Factory method, responsible for way filter creation. */
 	protected MapWayFilter createMapWayFilter(OsmMap map, int taskSelection) {
-		if (taskSelection == 1)
+		if (getProfile(taskSelection) == 1)
 			return MapWayAttFilter.createCarWayFilter();
-		else if (taskSelection == 2)
+		else if (getProfile(taskSelection) == 2)
 			return MapWayAttFilter.createBicycleWayFilter();
 		else
 			return MapWayAttFilter.createAnyWayFilter();
@@ -113,22 +283,108 @@ public class RouteCalculator {
 		return result;
 	}
 
-	/** Factory method, responsible for problem creation. */
+	/**
+	 * Factory method, responsible for problem creation. Only used if
+	 * {@link #usesRoadGraph(int)} returns false.
+	 */
 	protected Problem<MapNode, OsmMoveAction> createProblem(MapNode[] pNodes, OsmMap map,
 			MapWayFilter wayFilter, boolean ignoreOneways, int taskSelection) {
 		return new RouteFindingProblem(pNodes[0], pNodes[1], wayFilter,
 				ignoreOneways);
 	}
 
-	/** Factory method, responsible for heuristic function creation. */
+	/**
+	 * Factory method, responsible for heuristic function creation. Only used
+	 * if {@link #usesRoadGraph(int)} returns false.
+	 */
 	protected ToDoubleFunction<Node<MapNode, OsmMoveAction>> createHeuristicFunction(MapNode[] pNodes,
 															   int taskSelection) {
 		return new OsmSldHeuristicFunction(pNodes[1]);
 	}
 	
-	/** Factory method, responsible for search creation. */
+	/**
+	 * Factory method, responsible for search creation. Only used if
+	 * {@link #usesRoadGraph(int)} returns false.
+	 */
 	protected SearchForActions<MapNode, OsmMoveAction> createSearch
 	(ToDoubleFunction<Node<MapNode, OsmMoveAction>> h, int taskSelection) {
 		return new AStarSearch<>(new GraphSearch<>(), h);
 	}
+
+	/**
+	 * Factory method, responsible for problem creation within the road graph.
+	 * Returns null if one of the nodes is not part of the road network.
+	 */
+	protected Problem<Integer, Integer> createGraphProblem(MapNode[] pNodes, RoadGraph graph,
+			boolean ignoreOneways, int taskSelection) {
+		int from = graph.getNodeIndex(pNodes[0].getId());
+		int to = graph.getNodeIndex(pNodes[1].getId());
+		if (from == -1 || to == -1)
+			return null;
+		return new RoadGraphProblem(graph, from, to, ignoreOneways);
+	}
+
+	/**
+	 * Factory method, responsible for heuristic function creation within the
+	 * road graph.
+	 */
+	protected ToDoubleFunction<Node<Integer, Integer>> createGraphHeuristicFunction(MapNode[] pNodes,
+			RoadGraph graph, int taskSelection) {
+		int goal = graph.getNodeIndex(pNodes[1].getId());
+		return node -> graph.getDistKM(node.getState(), goal);
+	}
+
+	/**
+	 * Factory method, responsible for search creation within the road graph.
+	 */
+	protected SearchForActions<Integer, Integer> createGraphSearch
+	(ToDoubleFunction<Node<Integer, Integer>> h, int taskSelection) {
+		return new AStarSearch<>(new GraphSearch<>(), h);
+	}
+
+	/**
+	 * Maps nodes to the indices of the nearest way nodes in the road graph,
+	 * or -1 if none is found.
+	 */
+	protected int[] toGraphNodes(List<MapNode> nodes, OsmMap map,
+			RoadGraph graph, MapWayFilter wayFilter) {
+		int[] result = new int[nodes.size()];
+		for (int i = 0; i < result.length; i++) {
+			MapNode wayNode = map.getNearestWayNode(new Position(nodes.get(i)),
+					wayFilter);
+			result[i] = wayNode != null ? graph.getNodeIndex(wayNode.getId())
+					: -1;
+		}
+		return result;
+	}
+
+	/** Discards all compiled road graphs. */
+	public synchronized void clearRoadGraphs() {
+		roadGraphs.clear();
+		chEngines.clear();
+	}
+
+	/**
+	 * Checks whether routes for a task selection are searched within the
+	 * compiled road graph (the default) or within the map objects. Subclasses
+	 * which override {@link #createProblem}, {@link #createHeuristicFunction}
+	 * or {@link #createSearch} must return false here. Hierarchy task
+	 * selections always use the road graph.
+	 */
+	protected boolean usesRoadGraph(int taskSelection) {
+		return true;
+	}
+
+	/** Checks whether a task selection is answered by hierarchy queries. */
+	protected boolean usesHierarchy(int taskSelection) {
+		return taskSelection >= 3;
+	}
+
+	/**
+	 * Returns the way selection (any, car, bike) of a task selection. Tasks of
+	 * the same profile share their road graph.
+	 */
+	protected int getProfile(int taskSelection) {
+		return taskSelection % 3;
+	}
 }
@@ -1,12 +1,15 @@
 package aimax.osm.viewer;
 
 import aimax.osm.data.BoundingBox;
+import aimax.osm.data.EntityClassifier;
 import aimax.osm.data.MapBuilder;
 import aimax.osm.data.OsmMap;
+import aimax.osm.data.entities.EntityViewInfo;
 import aimax.osm.data.entities.MapEntity;
 import aimax.osm.data.impl.DefaultMap;
-import aimax.osm.reader.Bz2OsmReader;
+import aimax.osm.data.impl.SnapshotMap;
 import aimax.osm.reader.MapReader;
+import aimax.osm.reader.PbfOsmReader;
 
 import java.io.File;
 import java.io.InputStream;
@@ -23,7 +26,7 @@ public class UnifiedMapDrawer<IMAGE_TYPE> {
     private UnifiedImageBuilder<IMAGE_TYPE> imageBdr;
 
     public UnifiedMapDrawer(UnifiedImageBuilder<IMAGE_TYPE> imgBdr) {
-        this(imgBdr, new DefaultMap());
+        this(imgBdr, new SnapshotMap());
     }
 
     public UnifiedMapDrawer(UnifiedImageBuilder<IMAGE_TYPE> imgBdr, OsmMap map) {
@@ -44,17 +47,21 @@ public class UnifiedMapDrawer<IMAGE_TYPE> {
     public void loadMap(InputStream stream) {
         MapBuilder builder = map.getBuilder();
         builder.setEntityClassifier(new MapStyleFactory().createDefaultClassifier());
-        MapReader mapReader = new Bz2OsmReader();
+        MapReader mapReader = new PbfOsmReader();
         mapReader.readMap(stream, builder);
         builder.buildMap();
     }
 
+    /** Reads a map from file. Map snapshots are opened directly. */
     public void loadMap(File file) {
-        MapBuilder builder = map.getBuilder();
-        builder.setEntityClassifier(new MapStyleFactory().createDefaultClassifier());
-        MapReader mapReader = new Bz2OsmReader();
-        mapReader.readMap(file, builder);
-        builder.buildMap();
+        EntityClassifier<EntityViewInfo> classifier = new MapStyleFactory().createDefaultClassifier();
+        if (!SnapshotMap.openIfSnapshot(map, file, classifier)) {
+            MapBuilder builder = map.getBuilder();
+            builder.setEntityClassifier(classifier);
+            MapReader mapReader = new PbfOsmReader();
+            mapReader.readMap(file, builder);
+            builder.buildMap();
+        }
     }
 
     public AbstractEntityRenderer getRenderer() {
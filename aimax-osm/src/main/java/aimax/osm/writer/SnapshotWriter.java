@@ -0,0 +1,306 @@
+package aimax.osm.writer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.MapEntity;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.entities.MapWay;
+import aimax.osm.data.impl.BoxKDTree;
+import aimax.osm.data.impl.NodeKDTree;
+import aimax.osm.data.impl.SnapshotMap;
+import aimax.osm.reader.OsmRuntimeException;
+
+/**
+ * Writes a compiled map to a binary snapshot file which can be opened as
+ * {@link SnapshotMap} without parsing. Entities are stored in columns of
+ * primitive values, strings in a pool which is shared by names and
+ * attributes, the spatial indices of way nodes and points of interest in
+ * the layout of {@link NodeKDTree}, and the spatial index of the way bounding
+ * boxes in the layout of {@link BoxKDTree}. Way nodes without position are
+ * dropped, as well as ways with less than two remaining nodes.
+ */
+public class SnapshotWriter {
+
+	private static Logger LOG = Logger.getLogger("aimax.osm");
+
+	private Map<String, Integer> stringIndices;
+	private List<String> strings;
+
+	/**
+	 * Writes all ways of <code>map</code> which intersect the bounding box
+	 * together with their nodes and all points of interest inside the box to
+	 * file.
+	 */
+	public void writeMap(File file, OsmMap map, BoundingBox bb) {
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			writeMap(out, map, bb);
+		} catch (IOException e) {
+			throw new OsmRuntimeException("Unable to write map snapshot.", e);
+		}
+	}
+
+	/** Writes the snapshot to a stream. */
+	public void writeMap(DataOutputStream out, OsmMap map, BoundingBox bb)
+			throws IOException {
+		stringIndices = new HashMap<String, Integer>();
+		strings = new ArrayList<String>();
+
+		List<MapWay> ways = new ArrayList<MapWay>();
+		for (MapWay way : map.getWays(bb)) {
+			int positions = 0;
+			for (MapNode node : way.getNodes())
+				if (node.hasPosition())
+					positions++;
+			if (positions > 1)
+				ways.add(way);
+		}
+		ways.sort(Comparator.comparingLong(MapWay::getId));
+		LinkedHashSet<MapNode> nodeSet = new LinkedHashSet<MapNode>();
+		for (MapWay way : ways)
+			for (MapNode node : way.getNodes())
+				if (node.hasPosition())
+					nodeSet.add(node);
+		List<MapNode> pois = map.getPois(bb);
+		nodeSet.addAll(pois);
+
+		// nodes are stored in the layout of their spatial index
+		NodeKDTree nodeTree = new NodeKDTree(nodeSet);
+		int nodeCount = nodeTree.size();
+		Map<Long, Integer> nodeIndices = new HashMap<Long, Integer>();
+		for (int i = 0; i < nodeCount; i++)
+			nodeIndices.put(nodeTree.getNode(i).getId(), i);
+		NodeKDTree poiTree = new NodeKDTree(pois);
+
+		// way references of the nodes, positions refer to the stored way
+		int[] refCounts = new int[nodeCount + 1];
+		int[] lastWay = new int[nodeCount];
+		Arrays.fill(lastWay, -1);
+		int wayNodeRefCount = 0;
+		for (int w = 0; w < ways.size(); w++) {
+			for (MapNode node : ways.get(w).getNodes()) {
+				Integer n = nodeIndices.get(node.getId());
+				if (n != null) {
+					wayNodeRefCount++;
+					if (lastWay[n] != w) {
+						refCounts[n + 1]++;
+						lastWay[n] = w;
+					}
+				}
+			}
+		}
+		int[] refStart = new int[nodeCount + 1];
+		for (int i = 0; i < nodeCount; i++)
+			refStart[i + 1] = refStart[i] + refCounts[i + 1];
+		int[] refWays = new int[refStart[nodeCount]];
+		int[] refIndices = new int[refStart[nodeCount]];
+		int[] refFill = Arrays.copyOf(refStart, nodeCount);
+		int[] wayNodes = new int[wayNodeRefCount];
+		int[] wayNodeStart = new int[ways.size() + 1];
+		Arrays.fill(lastWay, -1);
+		int k = 0;
+		for (int w = 0; w < ways.size(); w++) {
+			int pos = 0;
+			for (MapNode node : ways.get(w).getNodes()) {
+				Integer n = nodeIndices.get(node.getId());
+				if (n != null) {
+					wayNodes[k++] = n;
+					if (lastWay[n] != w) {
+						refWays[refFill[n]] = w;
+						refIndices[refFill[n]++] = pos;
+						lastWay[n] = w;
+					}
+					pos++;
+				}
+			}
+			wayNodeStart[w + 1] = k;
+		}
+
+		// names and attributes
+		int[] nodeNames = new int[nodeCount];
+		int[] nodeAttStart = new int[nodeCount + 1];
+		List<Integer> nodeAtts = new ArrayList<Integer>();
+		for (int i = 0; i < nodeCount; i++) {
+			MapNode node = nodeTree.getNode(i);
+			nodeNames[i] = internString(node.getName());
+			addAttributes(node, nodeAtts);
+			nodeAttStart[i + 1] = nodeAtts.size() / 2;
+		}
+		int[] wayNames = new int[ways.size()];
+		int[] wayAttStart = new int[ways.size() + 1];
+		List<Integer> wayAtts = new ArrayList<Integer>();
+		for (int w = 0; w < ways.size(); w++) {
+			wayNames[w] = internString(ways.get(w).getName());
+			addAttributes(ways.get(w), wayAtts);
+			wayAttStart[w + 1] = wayAtts.size() / 2;
+		}
+		byte[][] stringBytes = new byte[strings.size()][];
+		int stringByteCount = 0;
+		for (int i = 0; i < stringBytes.length; i++) {
+			stringBytes[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+			stringByteCount += stringBytes[i].length;
+		}
+
+		// header
+		BoundingBox mbb = map.getBoundingBox() != null ? map.getBoundingBox()
+				: bb;
+		out.writeInt(SnapshotMap.MAGIC);
+		out.writeInt(SnapshotMap.VERSION);
+		out.writeFloat(mbb.getLatMin());
+		out.writeFloat(mbb.getLonMin());
+		out.writeFloat(mbb.getLatMax());
+		out.writeFloat(mbb.getLonMax());
+		out.writeInt(nodeCount);
+		out.writeInt(ways.size());
+		out.writeInt(poiTree.size());
+		out.writeInt(strings.size());
+		out.writeInt(stringByteCount);
+		out.writeInt(nodeAtts.size() / 2);
+		out.writeInt(refWays.length);
+		out.writeInt(wayAtts.size() / 2);
+		out.writeInt(wayNodes.length);
+
+		// string pool
+		int offset = 0;
+		out.writeInt(offset);
+		for (byte[] bytes : stringBytes)
+			out.writeInt(offset += bytes.length);
+		for (byte[] bytes : stringBytes)
+			out.write(bytes);
+
+		// nodes
+		for (int i = 0; i < nodeCount; i++)
+			out.writeLong(nodeTree.getNode(i).getId());
+		for (int i = 0; i < nodeCount; i++)
+			out.writeFloat(nodeTree.getNode(i).getLat());
+		for (int i = 0; i < nodeCount; i++)
+			out.writeFloat(nodeTree.getNode(i).getLon());
+		writeInts(out, nodeNames);
+		writeInts(out, nodeAttStart);
+		for (int value : nodeAtts)
+			out.writeInt(value);
+		writeInts(out, refStart);
+		writeInts(out, refWays);
+		writeInts(out, refIndices);
+		writeIndex(out, nodeTree);
+		Integer[] byId = new Integer[nodeCount];
+		for (int i = 0; i < nodeCount; i++)
+			byId[i] = i;
+		Arrays.sort(byId, Comparator.comparingLong(i -> nodeTree.getNode(i)
+				.getId()));
+		for (int i : byId)
+			out.writeLong(nodeTree.getNode(i).getId());
+		for (int i : byId)
+			out.writeInt(i);
+
+		// ways
+		for (MapWay way : ways)
+			out.writeLong(way.getId());
+		writeInts(out, wayNames);
+		writeInts(out, wayAttStart);
+		for (int value : wayAtts)
+			out.writeInt(value);
+		writeInts(out, wayNodeStart);
+		writeInts(out, wayNodes);
+		float[] wayBoxes = new float[4 * ways.size()];
+		for (int w = 0; w < ways.size(); w++) {
+			float latMin = Float.POSITIVE_INFINITY;
+			float lonMin = Float.POSITIVE_INFINITY;
+			float latMax = Float.NEGATIVE_INFINITY;
+			float lonMax = Float.NEGATIVE_INFINITY;
+			for (int i = wayNodeStart[w]; i < wayNodeStart[w + 1]; i++) {
+				MapNode node = nodeTree.getNode(wayNodes[i]);
+				latMin = Math.min(latMin, node.getLat());
+				lonMin = Math.min(lonMin, node.getLon());
+				latMax = Math.max(latMax, node.getLat());
+				lonMax = Math.max(lonMax, node.getLon());
+			}
+			wayBoxes[4 * w] = latMin;
+			wayBoxes[4 * w + 1] = lonMin;
+			wayBoxes[4 * w + 2] = latMax;
+			wayBoxes[4 * w + 3] = lonMax;
+		}
+		for (float value : wayBoxes)
+			out.writeFloat(value);
+		BoxKDTree wayTree = new BoxKDTree(wayBoxes);
+		for (int i = 0; i < wayTree.size(); i++)
+			out.writeInt(wayTree.getEntry(i));
+		for (int i = 0; i < wayTree.size(); i++)
+			for (int c = 0; c < 4; c++)
+				out.writeFloat(wayTree.getRangeBox(i, c));
+
+		// points of interest
+		for (int i = 0; i < poiTree.size(); i++)
+			out.writeInt(nodeIndices.get(poiTree.getNode(i).getId()));
+		writeIndex(out, poiTree);
+		LOG.fine("Snapshot written. Ways: " + ways.size() + ", Nodes: "
+				+ nodeCount + ", POIs: " + poiTree.size());
+		stringIndices = null;
+		strings = null;
+	}
+
+	/** Describes the supported file formats. */
+	public String[] fileFormatDescriptions() {
+		return new String[] { "Map Snapshot (snap)" };
+	}
+
+	/** Contains the file extensions of all supported formats. */
+	public String[] fileFormatExtensions() {
+		return new String[] { "snap" };
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	private int internString(String s) {
+		if (s == null)
+			return -1;
+		Integer result = stringIndices.get(s);
+		if (result == null) {
+			result = strings.size();
+			strings.add(s);
+			stringIndices.put(s, result);
+		}
+		return result;
+	}
+
+	private void addAttributes(MapEntity entity, List<Integer> atts) {
+		for (EntityAttribute att : entity.getAttributes()) {
+			atts.add(internString(att.getKey()));
+			atts.add(internString(att.getValue()));
+		}
+	}
+
+	private void writeInts(DataOutputStream out, int[] values)
+			throws IOException {
+		for (int value : values)
+			out.writeInt(value);
+	}
+
+	/** Writes the coordinates and split axes of an index layout. */
+	private void writeIndex(DataOutputStream out, NodeKDTree tree)
+			throws IOException {
+		for (int i = 0; i < tree.size(); i++)
+			for (int a = 0; a < 3; a++)
+				out.writeDouble(tree.getCoord(i, a));
+		for (int i = 0; i < tree.size(); i++)
+			out.writeByte(tree.getAxis(i));
+	}
+}
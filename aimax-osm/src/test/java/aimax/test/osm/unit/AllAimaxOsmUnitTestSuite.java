@@ -0,0 +1,21 @@
+package aimax.test.osm.unit;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import aimax.test.osm.unit.data.DefaultEntityFinderTest;
+import aimax.test.osm.unit.data.NameIndexTest;
+import aimax.test.osm.unit.data.NodeKDTreeTest;
+import aimax.test.osm.unit.data.SnapshotMapTest;
+import aimax.test.osm.unit.reader.PbfParserTest;
+import aimax.test.osm.unit.routing.ContractionHierarchyTest;
+import aimax.test.osm.unit.routing.DistanceMatrixCalculatorTest;
+import aimax.test.osm.unit.routing.RoadGraphTest;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({ SnapshotMapTest.class, RoadGraphTest.class,
+		ContractionHierarchyTest.class, NodeKDTreeTest.class,
+		DefaultEntityFinderTest.class, PbfParserTest.class,
+		NameIndexTest.class, DistanceMatrixCalculatorTest.class })
+public class AllAimaxOsmUnitTestSuite {
+}
@@ -0,0 +1,67 @@
+package aimax.test.osm.unit.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.MapEntity;
+import aimax.osm.data.impl.DefaultEntityFinder;
+import aimax.osm.data.impl.DefaultMap;
+
+public class DefaultEntityFinderTest {
+
+	private static final double KM_PER_DEGREE = Math.PI
+			* Position.EARTH_RADIUS / 180;
+
+	private Position center = new Position(50f, 10f);
+	private OsmMap map;
+	private DefaultEntityFinder finder;
+
+	/**
+	 * Places "Corner Cafe" 1.6 km north and 1.6 km east of the center (about
+	 * 2.3 km away, but inside the 2 km bounding box) and "North Cafe" 3 km
+	 * north of the center.
+	 */
+	@Before
+	public void setUp() {
+		DefaultMap dmap = new DefaultMap();
+		MapBuilder builder = dmap.getBuilder();
+		List<EntityAttribute> cafe = Collections
+				.singletonList(new EntityAttribute("amenity", "cafe"));
+		double lonKM = KM_PER_DEGREE * Math.cos(Math.toRadians(50));
+		builder.addNode(1, "Corner Cafe", cafe,
+				(float) (50 + 1.6 / KM_PER_DEGREE), (float) (10 + 1.6 / lonKM));
+		builder.addNode(2, "North Cafe", cafe,
+				(float) (50 + 3.0 / KM_PER_DEGREE), 10f);
+		builder.addNode(3, "Museum", Collections.<EntityAttribute> emptyList(),
+				50f, 10.001f);
+		map = builder.buildMap();
+		finder = new DefaultEntityFinder(map);
+		finder.setMinRadius(2);
+	}
+
+	@Test
+	public void testSearchRadiusIsCircular() {
+		Assert.assertTrue(center.getDistKM(map.getNode(1)) > 2);
+		finder.findNode("cafe", center);
+		// a bounding box search would have stopped with the corner cafe
+		Assert.assertEquals(
+				Arrays.<MapEntity> asList(map.getNode(1), map.getNode(2)),
+				finder.getResults());
+	}
+
+	@Test
+	public void testBestMatchInRadius() {
+		finder.findNode("museum", center);
+		Assert.assertEquals(Arrays.<MapEntity> asList(map.getNode(3)),
+				finder.getResults());
+	}
+}
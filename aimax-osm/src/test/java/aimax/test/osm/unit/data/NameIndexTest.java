@@ -0,0 +1,149 @@
+package aimax.test.osm.unit.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.MapEntity;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.impl.DefaultMap;
+import aimax.osm.data.impl.DefaultMapNode;
+import aimax.osm.data.impl.NameIndex;
+
+public class NameIndexTest {
+
+	private static final String[] NAMES = { "Main Street", "Old Main Street",
+			"Müllerstraße", "München", "Freiburg", "Bonn", "Born", "7-Eleven",
+			null, "Bahnhof", "Bahnhof" };
+
+	private List<MapNode> nodes;
+	private NameIndex index;
+
+	@Before
+	public void setUp() {
+		nodes = new ArrayList<MapNode>();
+		for (int i = 0; i < NAMES.length; i++) {
+			DefaultMapNode node = new DefaultMapNode(i);
+			node.setName(NAMES[i]);
+			node.setPosition(50f + 0.01f * i, 10f);
+			nodes.add(node);
+		}
+		index = new NameIndex(NAMES, nodes::get);
+	}
+
+	@Test
+	public void testNormalize() {
+		Assert.assertEquals("muller strasse",
+				NameIndex.normalize("  Müller \t Straße "));
+		Assert.assertEquals("eclair", NameIndex.normalize("Éclair"));
+	}
+
+	@Test
+	public void testWordPrefixes() {
+		Assert.assertEquals(entities(0, 1), asSet(index.find("main st", 0,
+				null, 10)));
+		Assert.assertEquals(entities(0, 1), asSet(index.find("STREET", 0,
+				null, 10)));
+		Assert.assertEquals(entities(1), asSet(index.find("old main", 0, null,
+				10)));
+		Assert.assertTrue(index.find("ld main", 0, null, 10).isEmpty());
+		// names starting with a non-letter are found by all their words
+		Assert.assertEquals(entities(7), asSet(index.find("7-el", 0, null, 10)));
+		Assert.assertEquals(entities(7),
+				asSet(index.find("eleven", 0, null, 10)));
+	}
+
+	@Test
+	public void testDiacritics() {
+		Assert.assertEquals(entities(3), asSet(index.find("munchen", 0, null,
+				10)));
+		Assert.assertEquals(entities(3), asSet(index.find("MÜNCH", 0, null,
+				10)));
+		Assert.assertEquals(entities(2), asSet(index.find("muellerstr", 1,
+				null, 10)));
+		Assert.assertEquals(entities(2), asSet(index.find("Müllerstrasse", 0,
+				null, 10)));
+		// no word starts within a compound
+		Assert.assertTrue(index.find("strasse", 0, null, 10).isEmpty());
+	}
+
+	@Test
+	public void testEdits() {
+		Assert.assertTrue(index.find("munchn", 0, null, 10).isEmpty());
+		Assert.assertEquals(entities(3),
+				asSet(index.find("munchn", 1, null, 10)));
+		// swapped characters count as two edits
+		Assert.assertTrue(index.find("frieburg", 1, null, 10).isEmpty());
+		Assert.assertEquals(entities(4),
+				asSet(index.find("frieburg", 2, null, 10)));
+		// fewer edits first
+		Assert.assertEquals(Arrays.asList(nodes.get(5), nodes.get(6)),
+				index.find("bonn", 1, null, 10));
+	}
+
+	@Test
+	public void testOrderAndLimit() {
+		Position pos = new Position(51f, 10f);
+		Assert.assertEquals(Arrays.asList(nodes.get(10), nodes.get(9)),
+				index.find("bahnhof", 0, pos, 10));
+		Assert.assertEquals(Arrays.asList(nodes.get(10)),
+				index.find("bahnhof", 0, pos, 1));
+		Assert.assertEquals(2, index.find("b", 0, pos, 2).size());
+		Assert.assertTrue(index.find(" ", 2, pos, 10).isEmpty());
+	}
+
+	@Test
+	public void testNamesStartingWith() {
+		Assert.assertEquals(Arrays.asList(nodes.get(0)),
+				index.getNamesStartingWith("main"));
+		Assert.assertEquals(Arrays.asList(nodes.get(5), nodes.get(6),
+				nodes.get(9), nodes.get(10)), index.getNamesStartingWith("B"));
+		Assert.assertEquals(Arrays.asList(nodes.get(7)),
+				index.getNamesStartingWith("7"));
+	}
+
+	@Test
+	public void testMapLookups() {
+		DefaultMap map = new DefaultMap();
+		MapBuilder builder = map.getBuilder();
+		builder.addNode(1, "Zürich", Collections.singletonList(
+				new EntityAttribute("place", "city")), 47.37f, 8.54f);
+		builder.addNode(2, "Zurichberg", Collections.singletonList(
+				new EntityAttribute("place", "suburb")), 47.38f, 8.57f);
+		builder.addNode(3, "Zürich HB", Collections.singletonList(
+				new EntityAttribute("railway", "station")), 47.378f, 8.54f);
+		builder.buildMap();
+
+		Assert.assertEquals(new HashSet<MapNode>(Arrays.asList(map.getNode(1),
+				map.getNode(2))), new HashSet<MapNode>(map.getPlaces("ZURICH")));
+		Assert.assertEquals(Arrays.asList(map.getNode(3)),
+				map.findEntitiesByName("hb", 0, null, 10));
+		Assert.assertEquals(new HashSet<MapEntity>(Arrays.asList(
+				map.getNode(1), map.getNode(2), map.getNode(3))),
+				asSet(map.findEntitiesByName("zuerich", 1, null, 10)));
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private HashSet<MapEntity> entities(int... indices) {
+		HashSet<MapEntity> result = new HashSet<MapEntity>();
+		for (int i : indices)
+			result.add(nodes.get(i));
+		return result;
+	}
+
+	private HashSet<MapEntity> asSet(Collection<MapEntity> entities) {
+		return new HashSet<MapEntity>(entities);
+	}
+}
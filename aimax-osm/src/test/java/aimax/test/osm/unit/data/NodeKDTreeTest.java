@@ -0,0 +1,144 @@
+package aimax.test.osm.unit.data;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.impl.DefaultMapNode;
+import aimax.osm.data.impl.NodeKDTree;
+
+/**
+ * Compares the results of kd-tree queries with linear scans over the nodes.
+ */
+public class NodeKDTreeTest {
+
+	private List<MapNode> nodes;
+	private NodeKDTree tree;
+	private List<Position> queries;
+
+	@Before
+	public void setUp() {
+		Random random = new Random(42);
+		nodes = new ArrayList<MapNode>();
+		// a town...
+		for (int i = 0; i < 500; i++)
+			nodes.add(createNode(nodes.size(), 50f + 0.1f * random.nextFloat(),
+					10f + 0.1f * random.nextFloat()));
+		// ... and some nodes on both sides of the antimeridian
+		for (int i = 0; i < 50; i++)
+			nodes.add(createNode(nodes.size(), 0.5f * random.nextFloat(),
+					i % 2 == 0 ? 179.9f + 0.09f * random.nextFloat()
+							: -179.9f - 0.09f * random.nextFloat()));
+		tree = new NodeKDTree(nodes);
+
+		queries = new ArrayList<Position>();
+		for (int i = 0; i < 20; i++)
+			queries.add(new Position(50f + 0.12f * random.nextFloat() - 0.01f,
+					10f + 0.12f * random.nextFloat() - 0.01f));
+		queries.add(new Position(0.2f, 179.99f));
+		queries.add(new Position(0.2f, -179.99f));
+		queries.add(new Position(-30f, 60f));
+	}
+
+	@Test
+	public void testNearest() {
+		for (Position pos : queries) {
+			MapNode nearest = tree.getNearest(pos, null);
+			Assert.assertEquals(pos.getDistKM(linearNearest(pos, null)),
+					pos.getDistKM(nearest), 1e-9);
+		}
+		Assert.assertNull(new NodeKDTree(new ArrayList<MapNode>()).getNearest(
+				queries.get(0), null));
+	}
+
+	@Test
+	public void testNearestWithFilter() {
+		Predicate<MapNode> even = node -> node.getId() % 2 == 0;
+		for (Position pos : queries) {
+			MapNode nearest = tree.getNearest(pos, even);
+			Assert.assertTrue(even.test(nearest));
+			Assert.assertEquals(pos.getDistKM(linearNearest(pos, even)),
+					pos.getDistKM(nearest), 1e-9);
+		}
+		Assert.assertNull(tree.getNearest(queries.get(0), node -> false));
+	}
+
+	@Test
+	public void testKNearest() {
+		for (Position pos : queries) {
+			List<MapNode> expected = sortedByDistance(pos, nodes);
+			List<MapNode> result = tree.getNearest(pos, 10, null);
+			Assert.assertEquals(10, result.size());
+			for (int i = 0; i < 10; i++)
+				Assert.assertEquals(pos.getDistKM(expected.get(i)),
+						pos.getDistKM(result.get(i)), 1e-9);
+		}
+		Assert.assertEquals(nodes.size(),
+				tree.getNearest(queries.get(0), nodes.size() + 1, null).size());
+	}
+
+	@Test
+	public void testWithinRadius() {
+		for (double radius : new double[] { 0.5, 2, 10, 50 }) {
+			for (Position pos : queries) {
+				List<MapNode> expected = new ArrayList<MapNode>();
+				for (MapNode node : nodes)
+					if (pos.getDistKM(node) <= radius)
+						expected.add(node);
+				List<MapNode> result = tree.getWithinRadius(pos, radius, null);
+				Assert.assertEquals(new HashSet<MapNode>(expected),
+						new HashSet<MapNode>(result));
+				for (int i = 1; i < result.size(); i++)
+					Assert.assertTrue(pos.getDistKM(result.get(i - 1)) <= pos
+							.getDistKM(result.get(i)));
+			}
+		}
+	}
+
+	@Test
+	public void testInside() {
+		BoundingBox bb = new BoundingBox(50.02f, 10.03f, 50.05f, 10.08f);
+		List<MapNode> expected = new ArrayList<MapNode>();
+		for (MapNode node : nodes)
+			if (bb.isInside(node.getLat(), node.getLon()))
+				expected.add(node);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(new HashSet<MapNode>(expected),
+				new HashSet<MapNode>(tree.getInside(bb)));
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private MapNode createNode(long id, float lat, float lon) {
+		DefaultMapNode node = new DefaultMapNode(id);
+		node.setPosition(lat, lon);
+		return node;
+	}
+
+	private MapNode linearNearest(Position pos, Predicate<MapNode> filter) {
+		MapNode result = null;
+		for (MapNode node : nodes)
+			if ((filter == null || filter.test(node))
+					&& (result == null || pos.getDistKM(node) < pos
+							.getDistKM(result)))
+				result = node;
+		return result;
+	}
+
+	private List<MapNode> sortedByDistance(Position pos, List<MapNode> nodes) {
+		List<MapNode> result = new ArrayList<MapNode>(nodes);
+		result.sort((n1, n2) -> Double.compare(pos.getDistKM(n1),
+				pos.getDistKM(n2)));
+		return result;
+	}
+}
@@ -0,0 +1,177 @@
+package aimax.test.osm.unit.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.EntityVisitor;
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.Position;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.entities.MapEntity;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.entities.MapWay;
+import aimax.osm.data.entities.Track;
+import aimax.osm.data.impl.DefaultMap;
+import aimax.osm.data.impl.SnapshotMap;
+import aimax.osm.viewer.MapStyleFactory;
+import aimax.osm.writer.SnapshotWriter;
+
+/**
+ * Writes a small grid map to a snapshot, opens it and compares the answers
+ * with those of the original map.
+ */
+public class SnapshotMapTest {
+
+	private static final int SIZE = 6;
+
+	private DefaultMap original;
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		original = new DefaultMap();
+		fillGrid(original.getBuilder(), 0);
+		file = File.createTempFile("map", ".snap");
+		new SnapshotWriter().writeMap(file, original,
+				original.getBoundingBox());
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testQueries() throws IOException {
+		SnapshotMap map = new SnapshotMap(file);
+		Assert.assertTrue(SnapshotMap.isSnapshot(file));
+		Assert.assertEquals(original.getWayCount(), map.getWayCount());
+		Assert.assertEquals(original.getPoiCount(), map.getPoiCount());
+		Assert.assertEquals("Street 3", map.getWay(3).getName());
+		Assert.assertSame(map.getWay(3), map.getWay(3));
+		Assert.assertEquals(103, map.getNode(103).getId());
+		Assert.assertEquals(SIZE, map.getWay(1).getNodes().size());
+
+		BoundingBox bb = new BoundingBox(50.015f, 10.0f, 50.035f, 10.1f);
+		Assert.assertEquals(ids(original.getWays(bb)), ids(map.getWays(bb)));
+		Assert.assertTrue(map.getWays(new BoundingBox(51f, 11f, 52f, 12f))
+				.isEmpty());
+		bb = map.getBoundingBox();
+		Assert.assertEquals(ids(original.getWays(bb)), ids(map.getWays(bb)));
+
+		Position pos = new Position(50.021f, 10.029f);
+		Assert.assertEquals(original.getNearestWayNode(pos, null).getId(), map
+				.getNearestWayNode(pos, null).getId());
+		Assert.assertEquals(ids(original.getPois(bb)), ids(map.getPois(bb)));
+		List<MapEntity> found = map.findEntitiesByName("cafe", 0, null, 10);
+		Assert.assertEquals(1, found.size());
+		Assert.assertEquals("Cafe", found.get(0).getName());
+	}
+
+	@Test
+	public void testViewerCalls() throws IOException {
+		SnapshotMap map = new SnapshotMap();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertTrue(SnapshotMap.openIfSnapshot(map, file,
+				new MapStyleFactory().createDefaultClassifier()));
+		Assert.assertEquals(SIZE, map.getWayCount());
+		Assert.assertEquals(3, map.getStatistics().length);
+		Assert.assertTrue(countVisibleWays(map) > 0);
+
+		MapNode marker = map.addMarker(50.02f, 10.02f);
+		Assert.assertEquals(Collections.singletonList(marker),
+				map.getMarkers());
+		map.createTrack("Route", Arrays.asList(new Position(50.0f, 10.0f),
+				new Position(50.05f, 10.05f)));
+		Track track = map.getTrack("Route");
+		Assert.assertEquals(2, track.getNodes().size());
+		Assert.assertEquals(track, map.getTrack(track.getId()));
+
+		// loading other data releases the snapshot
+		fillGrid(map.getBuilder(), 1000);
+		Assert.assertEquals(SIZE, map.getWayCount());
+		Assert.assertNull(map.getWay(3));
+		Assert.assertEquals("Street 1003", map.getWay(1003).getName());
+		Assert.assertEquals(1, map.getWays(new BoundingBox(50.015f, 10.0f,
+				50.025f, 10.1f)).size());
+		Assert.assertTrue(countVisibleWays(map) > 0);
+
+		// files which are no snapshots are left to map readers
+		File other = File.createTempFile("map", ".osm");
+		try {
+			Assert.assertFalse(SnapshotMap.openIfSnapshot(map, other, null));
+		} finally {
+			other.delete();
+		}
+		Assert.assertTrue(SnapshotMap.openIfSnapshot(map, file, null));
+		Assert.assertEquals("Street 3", map.getWay(3).getName());
+		Assert.assertTrue(map.getMarkers().isEmpty());
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+
+	/**
+	 * Adds a grid of west-east streets with a cafe in the middle and builds
+	 * the map.
+	 */
+	private void fillGrid(MapBuilder builder, long idOffset) {
+		List<EntityAttribute> street = Collections
+				.singletonList(new EntityAttribute("highway", "residential"));
+		for (int r = 0; r < SIZE; r++) {
+			List<Long> nodeIds = new ArrayList<Long>();
+			for (int c = 0; c < SIZE; c++) {
+				long id = idOffset + 100 * (r + 1) + c;
+				builder.addNode(id, null, Collections.<EntityAttribute> emptyList(),
+						50.0f + 0.01f * r, 10.0f + 0.01f * c);
+				nodeIds.add(id);
+			}
+			builder.addWay(idOffset + r, "Street " + (idOffset + r), street,
+					nodeIds);
+		}
+		builder.addNode(idOffset + 10000, "Cafe", Collections
+				.singletonList(new EntityAttribute("amenity", "cafe")),
+				50.025f, 10.025f);
+		builder.buildMap();
+	}
+
+	private Set<Long> ids(Iterable<? extends MapEntity> entities) {
+		Set<Long> result = new HashSet<Long>();
+		for (MapEntity entity : entities)
+			result.add(entity.getId());
+		return result;
+	}
+
+	private int countVisibleWays(OsmMap map) {
+		final int[] result = new int[1];
+		map.visitEntities(new EntityVisitor() {
+			@Override
+			public void visitMapNode(MapNode node) {
+			}
+
+			@Override
+			public void visitMapWay(MapWay way) {
+				result[0]++;
+			}
+
+			@Override
+			public void visitTrack(Track track) {
+			}
+		}, map.getBoundingBox(), 1f);
+		return result[0];
+	}
+}
@@ -0,0 +1,249 @@
+package aimax.test.osm.unit.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.data.BoundingBox;
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.data.entities.MapWay;
+import aimax.osm.data.impl.DefaultMap;
+import aimax.osm.reader.OsmRuntimeException;
+import aimax.osm.reader.PbfParser;
+
+/**
+ * Parses a small PBF file which is assembled blob by blob in the test.
+ */
+public class PbfParserTest {
+
+	private byte[] pbf;
+
+	/**
+	 * Creates a header blob and two data blobs. The first data blob is zlib
+	 * compressed and contains dense nodes 1 to 3 (node 3 is a cafe), node 4
+	 * and way 10 from 1 over 2 to 4. The second one is uncompressed, uses
+	 * another granularity and offsets and contains dense node 5 and way 11
+	 * from 2 to 5.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		ProtoWriter bbox = new ProtoWriter().svarint(1, 9_000_000_000L)
+				.svarint(2, 11_000_000_000L).svarint(3, 51_000_000_000L)
+				.svarint(4, 49_000_000_000L);
+		ProtoWriter header = new ProtoWriter().message(1, bbox)
+				.string(4, "OsmSchema-V0.6").string(4, "DenseNodes");
+
+		ProtoWriter strings = new ProtoWriter();
+		for (String s : new String[] { "", "name", "Main Street", "highway",
+				"residential", "amenity", "cafe", "Cafe" })
+			strings.string(1, s);
+		ProtoWriter dense = new ProtoWriter()
+				.packedSVarints(1, 1, 1, 1)
+				.packedSVarints(8, 500_000_000, 10_000, 10_000)
+				.packedSVarints(9, 100_000_000, 20_000, -20_000)
+				.packedVarints(10, 0, 0, 5, 6, 1, 7, 0);
+		ProtoWriter node = new ProtoWriter().svarint(1, 4)
+				.svarint(8, 500_030_000).svarint(9, 100_030_000);
+		ProtoWriter way = new ProtoWriter().varint(1, 10)
+				.packedVarints(2, 1, 3).packedVarints(3, 2, 4)
+				.packedSVarints(8, 1, 1, 2);
+		ProtoWriter block1 = new ProtoWriter().message(1, strings)
+				.message(2, new ProtoWriter().message(2, dense))
+				.message(2, new ProtoWriter().message(1, node))
+				.message(2, new ProtoWriter().message(3, way));
+
+		strings = new ProtoWriter().string(1, "").string(1, "highway")
+				.string(1, "footway");
+		dense = new ProtoWriter().packedSVarints(1, 5)
+				.packedSVarints(8, 4000).packedSVarints(9, 4000);
+		way = new ProtoWriter().varint(1, 11).packedVarints(2, 1)
+				.packedVarints(3, 2).packedSVarints(8, 2, 3);
+		ProtoWriter block2 = new ProtoWriter().message(1, strings)
+				.message(2, new ProtoWriter().message(2, dense))
+				.message(2, new ProtoWriter().message(3, way))
+				.varint(17, 1000).varint(19, 50_000_000_000L)
+				.varint(20, 10_000_000_000L);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeBlob(out, "OSMHeader", header.toByteArray(), false);
+		writeBlob(out, "OSMData", block1.toByteArray(), true);
+		writeBlob(out, "OSMData", block2.toByteArray(), false);
+		pbf = bytes.toByteArray();
+	}
+
+	@Test
+	public void testIsPbf() throws IOException {
+		Assert.assertTrue(PbfParser.isPbf(new ByteArrayInputStream(pbf)));
+		Assert.assertFalse(PbfParser.isPbf(new ByteArrayInputStream(
+				"<?xml version='1.0' encoding='UTF-8'?>"
+						.getBytes(StandardCharsets.UTF_8))));
+	}
+
+	@Test
+	public void testParse() throws IOException {
+		for (int threadCount : new int[] { 1, 2 }) {
+			DefaultMap map = new DefaultMap();
+			MapBuilder builder = map.getBuilder();
+			new PbfParser(builder, threadCount).parse(new ByteArrayInputStream(
+					pbf));
+			builder.buildMap();
+
+			checkNode(map.getNode(1), 50.0f, 10.0f);
+			checkNode(map.getNode(2), 50.001f, 10.002f);
+			checkNode(map.getNode(3), 50.002f, 10.0f);
+			checkNode(map.getNode(4), 50.003f, 10.003f);
+			checkNode(map.getNode(5), 50.004f, 10.004f);
+			MapNode cafe = map.getNode(3);
+			Assert.assertEquals("Cafe", cafe.getName());
+			Assert.assertEquals("cafe", cafe.getAttributeValue("amenity"));
+			Assert.assertEquals(1, map.getPoiCount());
+
+			MapWay way = map.getWay(10);
+			Assert.assertEquals("Main Street", way.getName());
+			Assert.assertEquals("residential", way.getAttributeValue("highway"));
+			Assert.assertEquals(Arrays.asList(map.getNode(1), map.getNode(2),
+					map.getNode(4)), way.getNodes());
+			way = map.getWay(11);
+			Assert.assertNull(way.getName());
+			Assert.assertEquals("footway", way.getAttributeValue("highway"));
+			Assert.assertEquals(Arrays.asList(map.getNode(2), map.getNode(5)),
+					way.getNodes());
+		}
+	}
+
+	@Test
+	public void testNodeFilterAndSkipWays() throws IOException {
+		DefaultMap map = new DefaultMap();
+		PbfParser parser = new PbfParser(map.getBuilder(), 2);
+		parser.setNodeFilter(new BoundingBox(49.9f, 9.9f, 50.0015f, 10.1f));
+		parser.setSkipWays(true);
+		parser.parse(new ByteArrayInputStream(pbf));
+
+		Assert.assertNotNull(map.getNode(1));
+		Assert.assertNotNull(map.getNode(2));
+		Assert.assertNull(map.getNode(3));
+		Assert.assertNull(map.getNode(4));
+		Assert.assertNull(map.getNode(5));
+		Assert.assertNull(map.getWay(10));
+		Assert.assertNull(map.getWay(11));
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncatedFile() throws IOException {
+		new PbfParser(new DefaultMap().getBuilder(), 2)
+				.parse(new ByteArrayInputStream(Arrays.copyOf(pbf,
+						pbf.length - 3)));
+	}
+
+	@Test(expected = OsmRuntimeException.class)
+	public void testInvalidStringIndex() throws IOException {
+		ProtoWriter way = new ProtoWriter().varint(1, 12)
+				.packedVarints(2, 1).packedVarints(3, 5);
+		ProtoWriter block = new ProtoWriter().message(1,
+				new ProtoWriter().string(1, "").string(1, "highway")).message(
+				2, new ProtoWriter().message(3, way));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		writeBlob(new DataOutputStream(bytes), "OSMData",
+				block.toByteArray(), true);
+		new PbfParser(new DefaultMap().getBuilder(), 2)
+				.parse(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private void checkNode(MapNode node, float lat, float lon) {
+		Assert.assertNotNull(node);
+		Assert.assertEquals(lat, node.getLat(), 1e-6f);
+		Assert.assertEquals(lon, node.getLon(), 1e-6f);
+	}
+
+	private void writeBlob(DataOutputStream out, String type, byte[] data,
+			boolean compress) throws IOException {
+		ProtoWriter blob = new ProtoWriter();
+		if (compress) {
+			Deflater deflater = new Deflater();
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buffer = new byte[data.length + 64];
+			int length = deflater.deflate(buffer);
+			deflater.end();
+			blob.varint(2, data.length).bytes(3,
+					Arrays.copyOf(buffer, length));
+		} else {
+			blob.bytes(1, data);
+		}
+		byte[] header = new ProtoWriter().string(1, type)
+				.varint(3, blob.toByteArray().length).toByteArray();
+		out.writeInt(header.length);
+		out.write(header);
+		out.write(blob.toByteArray());
+	}
+
+	/** Minimal writer for protocol buffer wire format data. */
+	private static class ProtoWriter {
+		private ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		ProtoWriter varint(int field, long value) {
+			writeVarint(field << 3);
+			writeVarint(value);
+			return this;
+		}
+
+		ProtoWriter svarint(int field, long value) {
+			return varint(field, (value << 1) ^ (value >> 63));
+		}
+
+		ProtoWriter bytes(int field, byte[] value) {
+			writeVarint(field << 3 | 2);
+			writeVarint(value.length);
+			out.write(value, 0, value.length);
+			return this;
+		}
+
+		ProtoWriter string(int field, String value) {
+			return bytes(field, value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		ProtoWriter message(int field, ProtoWriter value) {
+			return bytes(field, value.toByteArray());
+		}
+
+		ProtoWriter packedVarints(int field, long... values) {
+			ProtoWriter packed = new ProtoWriter();
+			for (long value : values)
+				packed.writeVarint(value);
+			return message(field, packed);
+		}
+
+		ProtoWriter packedSVarints(int field, long... values) {
+			ProtoWriter packed = new ProtoWriter();
+			for (long value : values)
+				packed.writeVarint((value << 1) ^ (value >> 63));
+			return message(field, packed);
+		}
+
+		byte[] toByteArray() {
+			return out.toByteArray();
+		}
+
+		private void writeVarint(long value) {
+			while ((value & ~0x7FL) != 0) {
+				out.write((int) (value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.write((int) value);
+		}
+	}
+}
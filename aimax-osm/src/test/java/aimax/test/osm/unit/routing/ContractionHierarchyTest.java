@@ -0,0 +1,101 @@
+package aimax.test.osm.unit.routing;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.routing.CHQueryEngine;
+import aimax.osm.routing.ContractionHierarchy;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+import aimax.osm.routing.RoadGraph;
+
+public class ContractionHierarchyTest {
+
+	private RoadGraph graph;
+
+	@Before
+	public void setUp() {
+		graph = RoadGraph.build(GridRoadNetwork.createMap(8), null);
+	}
+
+	@Test
+	public void testDistancesMatchDijkstraRespectingOneWays() {
+		ContractionHierarchy ch = ContractionHierarchy.build(graph, false);
+		// otherwise, the queries would not test path unpacking
+		Assert.assertTrue(ch.getShortcutCount() > 0);
+		checkAllPairs(ch, false);
+	}
+
+	@Test
+	public void testDistancesMatchDijkstraIgnoringOneWays() {
+		checkAllPairs(ContractionHierarchy.build(graph, true), true);
+	}
+
+	@Test
+	public void testUnreachableGoal() {
+		CHQueryEngine engine = new CHQueryEngine(ContractionHierarchy.build(
+				graph, false));
+		int from = graph.getNodeIndex(900002);
+		int to = graph.getNodeIndex(900001);
+		Assert.assertNull(engine.findPath(from, to));
+		Assert.assertNotNull(engine.findPath(to, from));
+		Assert.assertNull(engine.findPath(from, graph.getNodeIndex(1)));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		ContractionHierarchy ch = ContractionHierarchy.build(graph, false);
+		File file = File.createTempFile("aimax-osm", ".ch");
+		try {
+			ch.save(file);
+			Assert.assertNull(ContractionHierarchy.load(file, graph, true));
+			ContractionHierarchy loaded = ContractionHierarchy.load(file,
+					graph, false);
+			Assert.assertNotNull(loaded);
+			Assert.assertEquals(ch.getShortcutCount(),
+					loaded.getShortcutCount());
+			checkAllPairs(loaded, false);
+		} finally {
+			file.delete();
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private void checkAllPairs(ContractionHierarchy ch, boolean ignoreOneWays) {
+		OneWayMode mode = ignoreOneWays ? OneWayMode.IGNORE
+				: OneWayMode.TRAVEL_FORWARD;
+		CHQueryEngine engine = new CHQueryEngine(ch);
+		for (int from = 0; from < graph.getNodeCount(); from++) {
+			double[] expected = GridRoadNetwork.shortestDistances(graph, from,
+					ignoreOneWays);
+			for (int to = 0; to < graph.getNodeCount(); to++) {
+				int[] path = engine.findPath(from, to);
+				if (expected[to] == Double.POSITIVE_INFINITY) {
+					Assert.assertNull(path);
+					continue;
+				}
+				Assert.assertEquals(expected[to], engine.getDistance(), 1e-4);
+				// the unpacked path consists of usable links of the graph
+				Assert.assertEquals(from, path[0]);
+				Assert.assertEquals(to, path[path.length - 1]);
+				double length = 0;
+				for (int i = 1; i < path.length; i++)
+					length += linkLength(path[i - 1], path[i], mode);
+				Assert.assertEquals(expected[to], length, 1e-4);
+			}
+		}
+	}
+
+	private float linkLength(int from, int to, OneWayMode mode) {
+		for (int link : graph.getUsableLinks(from, mode))
+			if (graph.getLinkTarget(link) == to)
+				return graph.getLinkLength(link);
+		Assert.fail("No usable link from " + from + " to " + to);
+		return 0;
+	}
+}
@@ -0,0 +1,148 @@
+package aimax.test.osm.unit.routing;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aimax.osm.data.OsmMap;
+import aimax.osm.data.entities.MapNode;
+import aimax.osm.routing.ContractionHierarchy;
+import aimax.osm.routing.DistanceMatrix;
+import aimax.osm.routing.DistanceMatrixCalculator;
+import aimax.osm.routing.RoadGraph;
+import aimax.osm.routing.RouteCalculator;
+
+public class DistanceMatrixCalculatorTest {
+
+	private OsmMap map;
+	private RoadGraph graph;
+	private int[] sources;
+	private int[] targets;
+
+	/**
+	 * Uses all nodes as sources and every third node as target, plus the
+	 * unreachable island, a duplicate target and an invalid node on both
+	 * sides.
+	 */
+	@Before
+	public void setUp() {
+		map = GridRoadNetwork.createMap(10);
+		graph = RoadGraph.build(map, null);
+		sources = new int[graph.getNodeCount() + 1];
+		for (int i = 0; i < graph.getNodeCount(); i++)
+			sources[i] = i;
+		sources[graph.getNodeCount()] = -1;
+		List<Integer> targetList = new ArrayList<Integer>();
+		for (int i = 0; i < graph.getNodeCount(); i += 3)
+			targetList.add(i);
+		targetList.add(graph.getNodeIndex(900001));
+		targetList.add(graph.getNodeIndex(900002));
+		targetList.add(0);
+		targetList.add(-1);
+		targets = new int[targetList.size()];
+		for (int j = 0; j < targets.length; j++)
+			targets[j] = targetList.get(j);
+	}
+
+	@Test
+	public void testDijkstraMatrix() {
+		DistanceMatrixCalculator calc = new DistanceMatrixCalculator();
+		for (boolean ignoreOneWays : new boolean[] { false, true }) {
+			DistanceMatrix matrix = calc.compute(graph, sources, targets,
+					ignoreOneWays);
+			checkMatrix(matrix, ignoreOneWays);
+			Assert.assertTrue(matrix.getSettledNodes(0) > 0);
+			Assert.assertEquals(0, matrix.getSettledNodes(sources.length - 1));
+		}
+	}
+
+	@Test
+	public void testBucketMatrix() {
+		DistanceMatrixCalculator calc = new DistanceMatrixCalculator();
+		for (boolean ignoreOneWays : new boolean[] { false, true })
+			checkMatrix(calc.compute(
+					ContractionHierarchy.build(graph, ignoreOneWays), sources,
+					targets), ignoreOneWays);
+	}
+
+	@Test
+	public void testPoolsComputeTheSameMatrix() {
+		DistanceMatrixCalculator calc = new DistanceMatrixCalculator();
+		ContractionHierarchy ch = ContractionHierarchy.build(graph, false);
+		double[][] common = calc.compute(graph, sources, targets, false)
+				.getDistances();
+		double[][] commonCH = calc.compute(ch, sources, targets).getDistances();
+		calc.setPool(null);
+		double[][] sequential = calc.compute(graph, sources, targets, false)
+				.getDistances();
+		double[][] sequentialCH = calc.compute(ch, sources, targets)
+				.getDistances();
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			calc.setPool(pool);
+			Assert.assertTrue(Arrays.deepEquals(sequential,
+					calc.compute(graph, sources, targets, false)
+							.getDistances()));
+			Assert.assertTrue(Arrays.deepEquals(sequentialCH,
+					calc.compute(ch, sources, targets).getDistances()));
+		} finally {
+			pool.shutdown();
+		}
+		Assert.assertTrue(Arrays.deepEquals(sequential, common));
+		Assert.assertTrue(Arrays.deepEquals(sequentialCH, commonCH));
+	}
+
+	@Test
+	public void testRouteCalculator() throws IOException {
+		List<MapNode> origins = new ArrayList<MapNode>();
+		List<MapNode> destinations = new ArrayList<MapNode>();
+		for (int i = 0; i < 10; i++) {
+			origins.add(map.getNode(GridRoadNetwork.nodeId(i, i)));
+			destinations.add(map.getNode(GridRoadNetwork.nodeId(i, 9 - i)));
+		}
+		RouteCalculator rc = new RouteCalculator();
+		// plain distance and its contraction hierarchy variant
+		DistanceMatrix matrix = rc.calculateDistanceMatrix(origins,
+				destinations, map, 0);
+		DistanceMatrix matrixCH = rc.calculateDistanceMatrix(origins,
+				destinations, map, 3);
+		for (int i = 0; i < origins.size(); i++) {
+			double[] expected = GridRoadNetwork.shortestDistances(graph,
+					graph.getNodeIndex(origins.get(i).getId()), true);
+			for (int j = 0; j < destinations.size(); j++) {
+				int target = graph.getNodeIndex(destinations.get(j).getId());
+				Assert.assertEquals(expected[target],
+						matrix.getDistance(i, j), 1e-4);
+				Assert.assertEquals(expected[target],
+						matrixCH.getDistance(i, j), 1e-4);
+			}
+		}
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private void checkMatrix(DistanceMatrix matrix, boolean ignoreOneWays) {
+		Assert.assertEquals(sources.length, matrix.getSourceCount());
+		Assert.assertEquals(targets.length, matrix.getTargetCount());
+		for (int i = 0; i < sources.length; i++) {
+			double[] expected = sources[i] >= 0 ? GridRoadNetwork
+					.shortestDistances(graph, sources[i], ignoreOneWays)
+					: null;
+			for (int j = 0; j < targets.length; j++) {
+				double dist = matrix.getDistance(i, j);
+				if (expected == null || targets[j] < 0
+						|| expected[targets[j]] == Double.POSITIVE_INFINITY)
+					Assert.assertEquals(Double.POSITIVE_INFINITY, dist, 0.0);
+				else
+					Assert.assertEquals(expected[targets[j]], dist, 1e-4);
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package aimax.test.osm.unit.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.impl.DefaultMap;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+import aimax.osm.routing.RoadGraph;
+
+/**
+ * Synthetic road network for routing tests: a slightly distorted grid of
+ * streets in which every odd row and column three are one-ways, plus a
+ * separate one-way segment which cannot be reached from the grid.
+ *
+ */
+public class GridRoadNetwork {
+
+	/** Creates the map of a grid with size x size nodes. */
+	public static DefaultMap createMap(int size) {
+		DefaultMap map = new DefaultMap();
+		MapBuilder builder = map.getBuilder();
+		List<EntityAttribute> noAtts = Collections.emptyList();
+		List<EntityAttribute> street = Collections
+				.singletonList(new EntityAttribute("highway", "residential"));
+		List<EntityAttribute> oneway = Arrays.asList(new EntityAttribute(
+				"highway", "residential"), new EntityAttribute("oneway", "yes"));
+		for (int r = 0; r < size; r++)
+			for (int c = 0; c < size; c++)
+				builder.addNode(nodeId(r, c), null, noAtts, 50f + 0.01f * r
+						+ 0.001f * ((r * 7 + c * 3) % 5), 10f + 0.01f * c
+						+ 0.001f * ((r * 3 + c * 5) % 4));
+		for (int r = 0; r < size; r++) {
+			List<Long> ids = new ArrayList<Long>();
+			for (int c = 0; c < size; c++)
+				ids.add(nodeId(r, c));
+			builder.addWay(r + 1, "Row " + r, r % 2 == 1 ? oneway : street,
+					ids);
+		}
+		for (int c = 0; c < size; c++) {
+			List<Long> ids = new ArrayList<Long>();
+			for (int r = size - 1; r >= 0; r--)
+				ids.add(nodeId(r, c));
+			builder.addWay(1000 + c, "Column " + c, c == 3 ? oneway : street,
+					ids);
+		}
+		builder.addNode(900001, null, noAtts, 49f, 10f);
+		builder.addNode(900002, null, noAtts, 49f, 10.01f);
+		builder.addWay(9000, "Island", oneway, Arrays.asList(900001L, 900002L));
+		builder.buildMap();
+		return map;
+	}
+
+	/** Returns the OSM id of the grid node in row r and column c. */
+	public static long nodeId(int r, int c) {
+		return r * 1000 + c + 1;
+	}
+
+	/**
+	 * Plain Dijkstra on the road graph, the reference for all accelerated
+	 * distance computations.
+	 *
+	 * @return the distances from the source to all nodes in KM,
+	 *         <code>Double.POSITIVE_INFINITY</code> for unreachable nodes.
+	 */
+	public static double[] shortestDistances(RoadGraph graph, int source,
+			boolean ignoreOneWays) {
+		OneWayMode mode = ignoreOneWays ? OneWayMode.IGNORE
+				: OneWayMode.TRAVEL_FORWARD;
+		double[] dist = new double[graph.getNodeCount()];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		dist[source] = 0;
+		PriorityQueue<double[]> queue = new PriorityQueue<double[]>(11,
+				(e1, e2) -> Double.compare(e1[0], e2[0]));
+		queue.add(new double[] { 0, source });
+		while (!queue.isEmpty()) {
+			double[] entry = queue.poll();
+			int u = (int) entry[1];
+			if (entry[0] > dist[u])
+				continue;
+			for (int link : graph.getUsableLinks(u, mode)) {
+				int v = graph.getLinkTarget(link);
+				double d = dist[u] + graph.getLinkLength(link);
+				if (d < dist[v]) {
+					dist[v] = d;
+					queue.add(new double[] { d, v });
+				}
+			}
+		}
+		return dist;
+	}
+}
@@ -0,0 +1,148 @@
+package aimax.test.osm.unit.routing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import aima.core.search.framework.problem.Problem;
+import aima.core.search.uninformed.UniformCostSearch;
+import aimax.osm.data.MapBuilder;
+import aimax.osm.data.entities.EntityAttribute;
+import aimax.osm.data.impl.DefaultMap;
+import aimax.osm.routing.OsmFunctions.OneWayMode;
+import aimax.osm.routing.RoadGraph;
+import aimax.osm.routing.RoadGraphProblem;
+
+public class RoadGraphTest {
+
+	private RoadGraph graph;
+
+	/**
+	 * Builds a ring 1-2-3-4-5-1 in which the segment from 3 to 4 is a one-way
+	 * and node 6 is not part of any way.
+	 */
+	@Before
+	public void setUp() {
+		DefaultMap map = new DefaultMap();
+		MapBuilder builder = map.getBuilder();
+		List<EntityAttribute> street = Collections
+				.singletonList(new EntityAttribute("highway", "residential"));
+		List<EntityAttribute> oneway = Arrays.asList(new EntityAttribute(
+				"highway", "residential"), new EntityAttribute("oneway", "yes"));
+		builder.addNode(1, null, Collections.<EntityAttribute> emptyList(),
+				50.00f, 10.00f);
+		builder.addNode(2, null, Collections.<EntityAttribute> emptyList(),
+				50.00f, 10.01f);
+		builder.addNode(3, null, Collections.<EntityAttribute> emptyList(),
+				50.00f, 10.02f);
+		builder.addNode(4, null, Collections.<EntityAttribute> emptyList(),
+				50.01f, 10.02f);
+		builder.addNode(5, null, Collections.<EntityAttribute> emptyList(),
+				50.01f, 10.00f);
+		builder.addNode(6, "Marker", Collections.<EntityAttribute> emptyList(),
+				50.02f, 10.00f);
+		builder.addWay(10, "Main", street, Arrays.asList(1L, 2L, 3L));
+		builder.addWay(11, "Up", oneway, Arrays.asList(3L, 4L));
+		builder.addWay(12, "Back", street, Arrays.asList(4L, 5L, 1L));
+		builder.buildMap();
+		graph = RoadGraph.build(map, null);
+	}
+
+	@Test
+	public void testNodesAreNumberedById() {
+		Assert.assertEquals(5, graph.getNodeCount());
+		for (int i = 0; i < 5; i++) {
+			Assert.assertEquals(i + 1, graph.getNodeId(i));
+			Assert.assertEquals(i, graph.getNodeIndex(i + 1));
+		}
+		Assert.assertEquals(-1, graph.getNodeIndex(6));
+		Assert.assertEquals(50.01f, graph.getLat(3), 0.0f);
+		Assert.assertEquals(10.02f, graph.getLon(3), 0.0f);
+	}
+
+	@Test
+	public void testEachSegmentIsStoredInBothDirections() {
+		Assert.assertEquals(10, graph.getLinkCount());
+		Assert.assertEquals(graph.getLinkCount(),
+				graph.getFirstLink(graph.getNodeCount()));
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			Assert.assertEquals(2,
+					graph.getFirstLink(node + 1) - graph.getFirstLink(node));
+			for (int link = graph.getFirstLink(node); link < graph
+					.getFirstLink(node + 1); link++) {
+				int target = graph.getLinkTarget(link);
+				Assert.assertEquals(graph.getDistKM(node, target),
+						graph.getLinkLength(link), 1e-6);
+				int inverse = findLink(target, node);
+				Assert.assertTrue(inverse != -1);
+				Assert.assertEquals(graph.getLinkLength(link),
+						graph.getLinkLength(inverse), 0.0f);
+				Assert.assertEquals(RoadGraph.REVERSE,
+						graph.getLinkFlags(link) ^ graph.getLinkFlags(inverse));
+			}
+		}
+	}
+
+	@Test
+	public void testOneWayLinks() {
+		int up = findLink(2, 3);
+		int down = findLink(3, 2);
+		Assert.assertEquals(RoadGraph.ONEWAY, graph.getLinkFlags(up));
+		Assert.assertEquals(RoadGraph.ONEWAY | RoadGraph.REVERSE,
+				graph.getLinkFlags(down));
+
+		Assert.assertTrue(graph.isUsable(up, OneWayMode.TRAVEL_FORWARD));
+		Assert.assertFalse(graph.isUsable(down, OneWayMode.TRAVEL_FORWARD));
+		Assert.assertFalse(graph.isUsable(up, OneWayMode.TRAVEL_BACKWARDS));
+		Assert.assertTrue(graph.isUsable(down, OneWayMode.TRAVEL_BACKWARDS));
+		Assert.assertTrue(graph.isUsable(up, OneWayMode.IGNORE));
+		Assert.assertTrue(graph.isUsable(down, OneWayMode.IGNORE));
+
+		Assert.assertEquals(1,
+				graph.getUsableLinks(3, OneWayMode.TRAVEL_FORWARD).size());
+		Assert.assertEquals(2, graph.getUsableLinks(3, OneWayMode.IGNORE)
+				.size());
+	}
+
+	@Test
+	public void testRoadGraphProblem() {
+		// from 4 to 3 against the one-way: around the ring
+		double ring = graph.getDistKM(3, 4) + graph.getDistKM(4, 0)
+				+ graph.getDistKM(0, 1) + graph.getDistKM(1, 2);
+		RoadGraphProblem problem = new RoadGraphProblem(graph, 3, 2, false);
+		Assert.assertEquals(ring, findCost(problem), 1e-5);
+		// the reverse problem travels the same links backwards
+		Assert.assertEquals(ring, findCost(problem.getReverseProblem()), 1e-5);
+
+		problem = new RoadGraphProblem(graph, 3, 2, true);
+		Assert.assertEquals(graph.getDistKM(3, 2), findCost(problem), 1e-5);
+		Assert.assertEquals(graph.getDistKM(3, 2),
+				findCost(problem.getReverseProblem()), 1e-5);
+	}
+
+	//
+	// PRIVATE METHODS
+	//
+	private int findLink(int from, int to) {
+		for (int link = graph.getFirstLink(from); link < graph
+				.getFirstLink(from + 1); link++)
+			if (graph.getLinkTarget(link) == to)
+				return link;
+		return -1;
+	}
+
+	private double findCost(Problem<Integer, Integer> problem) {
+		Optional<List<Integer>> links = new UniformCostSearch<Integer, Integer>()
+				.findActions(problem);
+		Assert.assertTrue(links.isPresent());
+		double result = 0;
+		for (int link : links.get())
+			result += graph.getLinkLength(link);
+		return result;
+	}
+}